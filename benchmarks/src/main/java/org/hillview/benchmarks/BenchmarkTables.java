@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.benchmarks;
+
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.Table;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.columns.CategoryArrayColumn;
+import org.hillview.table.columns.DoubleArrayColumn;
+import org.hillview.table.columns.IntArrayColumn;
+import org.hillview.table.columns.StringArrayColumn;
+import org.hillview.utils.Randomness;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the tables used by the benchmarks.  The contents only depend on
+ * the number of rows, so that measurements are reproducible.
+ */
+class BenchmarkTables {
+    static final String doubleColumn = "Double";
+    static final String intColumn = "Int";
+    static final String categoryColumn = "Category";
+    static final String stringColumn = "String";
+    /**
+     * Range of the values in the numeric columns.
+     */
+    static final int range = 1000;
+    private static final long seed = 0;
+
+    /**
+     * A table with a double, an integer, a categorical and a string column.
+     * One row in ten has missing values.
+     */
+    static Table create(final int rows) {
+        Randomness random = new Randomness(seed);
+        DoubleArrayColumn doubles = new DoubleArrayColumn(
+                new ColumnDescription(doubleColumn, ContentsKind.Double), rows);
+        IntArrayColumn ints = new IntArrayColumn(
+                new ColumnDescription(intColumn, ContentsKind.Integer), rows);
+        CategoryArrayColumn categories = new CategoryArrayColumn(
+                new ColumnDescription(categoryColumn, ContentsKind.Category), rows);
+        StringArrayColumn strings = new StringArrayColumn(
+                new ColumnDescription(stringColumn, ContentsKind.String), rows);
+        for (int i = 0; i < rows; i++) {
+            if (random.nextInt(10) == 0) {
+                doubles.setMissing(i);
+                ints.setMissing(i);
+                categories.setMissing(i);
+                strings.setMissing(i);
+                continue;
+            }
+            doubles.set(i, random.nextGaussian() * range / 6 + range / 2);
+            ints.set(i, random.nextInt(range));
+            categories.set(i, "Category" + random.nextInt(100));
+            strings.set(i, "String" + random.nextInt(Math.max(rows / 10, 1)));
+        }
+        List<IColumn> columns = new ArrayList<IColumn>();
+        columns.add(doubles);
+        columns.add(ints);
+        columns.add(categories);
+        columns.add(strings);
+        return new Table(columns, null, null);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.benchmarks;
+
+import org.hillview.storage.CsvFileLoader;
+import org.hillview.storage.CsvFileWriter;
+import org.hillview.storage.OrcFileLoader;
+import org.hillview.storage.OrcFileWriter;
+import org.hillview.table.Table;
+import org.hillview.table.api.ITable;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the file loaders.  The files are written
+ * in a temporary folder before the measurements.
+ * Run with: java -jar target/benchmarks.jar LoaderBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class LoaderBenchmark {
+    @Param({ "1000000" })
+    public int rows;
+
+    private Path folder;
+    private String csvFile;
+    private String orcFile;
+
+    @Setup
+    public void setup() throws IOException {
+        Table table = BenchmarkTables.create(this.rows);
+        this.folder = Files.createTempDirectory("hillview-benchmark");
+        this.csvFile = this.folder.resolve("table.csv").toString();
+        this.orcFile = this.folder.resolve("table.orc").toString();
+        CsvFileWriter csv = new CsvFileWriter(this.csvFile);
+        csv.setWriteHeaderRow(true);
+        csv.writeTable(table);
+        new OrcFileWriter(this.orcFile).writeTable(table);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.folder.resolve("table.csv"));
+        Files.deleteIfExists(this.folder.resolve("table.orc"));
+        // The ORC writer also leaves a checksum file
+        Files.deleteIfExists(this.folder.resolve(".table.orc.crc"));
+        Files.deleteIfExists(this.folder);
+    }
+
+    @Benchmark
+    public ITable loadCsv() {
+        CsvFileLoader.Config config = new CsvFileLoader.Config();
+        config.hasHeaderRow = true;
+        return new CsvFileLoader(this.csvFile, config, null).load();
+    }
+
+    @Benchmark
+    public ITable loadOrc() {
+        return new OrcFileLoader(this.orcFile, null, false).load();
+    }
+}
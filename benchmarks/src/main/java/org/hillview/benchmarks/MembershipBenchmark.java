@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.benchmarks;
+
+import org.hillview.table.api.IMembershipSet;
+import org.hillview.table.api.IMutableMembershipSet;
+import org.hillview.table.membership.FullMembershipSet;
+import org.hillview.table.membership.MembershipSetFactory;
+import org.hillview.utils.Randomness;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures set operations on membership sets.
+ * The density parameter is the fraction of rows in each of the two sets;
+ * small densities produce sparse sets, large ones dense sets.
+ * Run with: java -jar target/benchmarks.jar MembershipBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class MembershipBenchmark {
+    @Param({ "1000000" })
+    public int rows;
+    @Param({ "0.01", "0.5" })
+    public double density;
+
+    private IMembershipSet left;
+    private IMembershipSet right;
+    private IMembershipSet full;
+
+    private static IMembershipSet randomSet(int rows, double density, long seed) {
+        Randomness random = new Randomness(seed);
+        IMutableMembershipSet set = MembershipSetFactory.create(rows);
+        for (int i = 0; i < rows; i++)
+            if (random.nextDouble() < density)
+                set.add(i);
+        return set.seal();
+    }
+
+    @Setup
+    public void setup() {
+        this.left = randomSet(this.rows, this.density, 0);
+        this.right = randomSet(this.rows, this.density, 1);
+        this.full = new FullMembershipSet(this.rows);
+    }
+
+    @Benchmark
+    public IMembershipSet union() {
+        return this.left.union(this.right);
+    }
+
+    @Benchmark
+    public IMembershipSet intersection() {
+        return this.left.intersection(this.right);
+    }
+
+    @Benchmark
+    public IMembershipSet setMinus() {
+        return this.left.setMinus(this.right);
+    }
+
+    @Benchmark
+    public IMembershipSet filter() {
+        return this.left.filter(row -> (row & 3) != 0);
+    }
+
+    @Benchmark
+    public IMembershipSet sample() {
+        return this.left.sample(0.1, 0);
+    }
+
+    @Benchmark
+    public IMembershipSet sampleFull() {
+        return this.full.sample(this.density, 0);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.benchmarks;
+
+import com.google.common.net.HostAndPort;
+import org.hillview.dataset.LocalDataSet;
+import org.hillview.dataset.RemoteDataSet;
+import org.hillview.dataset.api.IDataSet;
+import org.hillview.dataset.remoting.Codecs;
+import org.hillview.dataset.remoting.HillviewServer;
+import org.hillview.sketches.*;
+import org.hillview.table.RecordOrder;
+import org.hillview.table.SmallTable;
+import org.hillview.table.Table;
+import org.hillview.table.api.ColumnAndConverterDescription;
+import org.hillview.table.api.ITable;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the round trip of sketch results through a HillviewServer,
+ * and the encoding and decoding of the results alone.
+ * Run with: java -jar target/benchmarks.jar SerializationBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    @Param({ "100000" })
+    public int rows;
+
+    private static final int port = 3570;
+    private HillviewServer server;
+    private IDataSet<ITable> remote;
+    private HistogramSketch histogram;
+    private NextKSketch nextK;
+    private SmallTable smallTable;
+    private byte[] encodedTable;
+
+    @Setup
+    public void setup() throws IOException {
+        Table table = BenchmarkTables.create(this.rows);
+        HostAndPort address = HostAndPort.fromParts("127.0.0.1", port);
+        this.server = new HillviewServer(address, new LocalDataSet<ITable>(table));
+        // Each call should be computed and transferred again
+        this.server.toggleMemoization();
+        this.remote = new RemoteDataSet<ITable>(address);
+
+        BucketsDescriptionEqSize buckets = new BucketsDescriptionEqSize(
+                0, BenchmarkTables.range, 100);
+        this.histogram = new HistogramSketch(buckets,
+                new ColumnAndConverterDescription(BenchmarkTables.doubleColumn), 1.0, 0);
+        RecordOrder order = new RecordOrder();
+        order.append(new ColumnSortOrientation(
+                table.getSchema().getDescription(BenchmarkTables.intColumn), true));
+        this.nextK = new NextKSketch(order, null, 100);
+        this.smallTable = table.compress(table.getMembershipSet().sample(1000, 0));
+        this.encodedTable = Codecs.encode(this.smallTable);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.server.shutdown();
+    }
+
+    @Benchmark
+    public Histogram remoteHistogram() {
+        return this.remote.blockingSketch(this.histogram);
+    }
+
+    @Benchmark
+    public NextKList remoteNextK() {
+        return this.remote.blockingSketch(this.nextK);
+    }
+
+    @Benchmark
+    public byte[] encodeTable() {
+        return Codecs.encode(this.smallTable);
+    }
+
+    @Benchmark
+    public Object decodeTable() {
+        return Codecs.decode(this.encodedTable);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.benchmarks;
+
+import it.unimi.dsi.fastutil.ints.Int2IntSortedMap;
+import org.hillview.sketches.*;
+import org.hillview.table.RecordOrder;
+import org.hillview.table.Schema;
+import org.hillview.table.Table;
+import org.hillview.table.api.ColumnAndConverterDescription;
+import org.hillview.table.api.IRowIterator;
+import org.hillview.table.api.ITable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to compute sketches over a single table.
+ * Run with: java -jar target/benchmarks.jar SketchBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class SketchBenchmark {
+    @Param({ "1000000" })
+    public int rows;
+
+    private Table table;
+    private HistogramSketch histogram;
+    private HeatMapSketch heatMap;
+    private NextKSketch nextK;
+    private NextKSketch nextKDouble;
+    private NextKSketch nextKCategory;
+    private FreqKSketchMG freqK;
+    private HLogLogSketch hll;
+
+    @Setup
+    public void setup() {
+        this.table = BenchmarkTables.create(this.rows);
+        BucketsDescriptionEqSize buckets = new BucketsDescriptionEqSize(
+                0, BenchmarkTables.range, 100);
+        ColumnAndConverterDescription doubles =
+                new ColumnAndConverterDescription(BenchmarkTables.doubleColumn);
+        ColumnAndConverterDescription ints =
+                new ColumnAndConverterDescription(BenchmarkTables.intColumn);
+        this.histogram = new HistogramSketch(buckets, doubles, 1.0, 0);
+        this.heatMap = new HeatMapSketch(buckets, buckets, doubles, ints, 1.0, 0);
+
+        RecordOrder order = new RecordOrder();
+        order.append(new ColumnSortOrientation(
+                this.table.getSchema().getDescription(BenchmarkTables.doubleColumn), true));
+        order.append(new ColumnSortOrientation(
+                this.table.getSchema().getDescription(BenchmarkTables.stringColumn), false));
+        this.nextK = new NextKSketch(order, null, 20);
+        this.nextKDouble = new NextKSketch(
+                this.singleColumnOrder(BenchmarkTables.doubleColumn), null, 20);
+        this.nextKCategory = new NextKSketch(
+                this.singleColumnOrder(BenchmarkTables.categoryColumn), null, 20);
+
+        Schema categories = this.table.getSchema().project(
+                c -> c.equals(BenchmarkTables.categoryColumn));
+        this.freqK = new FreqKSketchMG(categories, 0.01);
+        this.hll = new HLogLogSketch(BenchmarkTables.stringColumn, 0);
+    }
+
+    private RecordOrder singleColumnOrder(String column) {
+        RecordOrder order = new RecordOrder();
+        order.append(new ColumnSortOrientation(
+                this.table.getSchema().getDescription(column), true));
+        return order;
+    }
+
+    /**
+     * A new view of the table, which has no cached sorted row indexes,
+     * so that NextK sketches scan all rows.
+     */
+    private ITable unindexed() {
+        return this.table.selectRowsFromFullTable(this.table.getMembershipSet());
+    }
+
+    @Benchmark
+    public Histogram histogram() {
+        return this.histogram.create(this.table);
+    }
+
+    @Benchmark
+    public HeatMap heatMap() {
+        return this.heatMap.create(this.table);
+    }
+
+    @Benchmark
+    public NextKList nextK() {
+        return this.nextK.create(this.unindexed());
+    }
+
+    @Benchmark
+    public NextKList nextKDouble() {
+        return this.nextKDouble.create(this.unindexed());
+    }
+
+    @Benchmark
+    public NextKList nextKCategory() {
+        return this.nextKCategory.create(this.unindexed());
+    }
+
+    /**
+     * The generic top-K computation for the order of nextKDouble, which
+     * compares rows using the column comparator.
+     */
+    @Benchmark
+    public Int2IntSortedMap nextKDoubleGeneric() {
+        IntTreeTopK topK = new IntTreeTopK(20,
+                this.table.getLoadedColumn(BenchmarkTables.doubleColumn).column.getComparator());
+        IRowIterator rowIt = this.table.getRowIterator();
+        for (int i = rowIt.getNextRow(); i >= 0; i = rowIt.getNextRow())
+            topK.push(i);
+        return topK.getTopK();
+    }
+
+    @Benchmark
+    public FreqKListMG freqK() {
+        return this.freqK.create(this.table);
+    }
+
+    @Benchmark
+    public HLogLog hll() {
+        return this.hll.create(this.table);
+    }
+}
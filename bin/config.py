@@ -20,6 +20,9 @@ backends_heapsize = {
 
 # Network port where the servers listen for requests
 backend_port = 3569
+# If larger than 1, some workers combine the results of up to this many
+# other workers before sending them to the web server
+aggregation_fanin = 0
 # Java heap size for Hillview service
 default_heap_size = "25G"
 # User account for running the Hillview service
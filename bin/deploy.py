@@ -36,6 +36,8 @@ def prepare_webserver(config):
     tmp = tempfile.NamedTemporaryFile(mode="w", delete=False)
     for h in config.backends:
         tmp.write(h + ":" + str(config.backend_port) + "\n")
+    if getattr(config, "aggregation_fanin", 0) > 1:
+        tmp.write("fanin=" + str(config.aggregation_fanin) + "\n")
     tmp.close()
     rh.copy_file_to_remote(tmp.name, config.service_folder + "/serverlist", "")
     os.unlink(tmp.name)
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.hillview.dataset.api.PartialResult;
+import org.hillview.dataset.remoting.Codecs;
+import org.hillview.dataset.remoting.OperationResponse;
+import org.hillview.sketches.*;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.SmallTable;
+import org.hillview.table.api.ColumnAndConverterDescription;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.columns.ObjectArrayColumn;
+import org.hillview.utils.HillviewLogger;
+import org.hillview.utils.Randomness;
+import org.hillview.utils.TestTables;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Compares the size and the encoding/decoding time of Java serialization and of
+ * the binary codecs used between HillviewServer and RemoteDataSet, for the
+ * common result classes.  This is a separate main entry point, used only for
+ * measurements.
+ * Arguments: number of runs (default 10).
+ */
+class CodecBenchmark {
+    private static final int rows = 10000;
+
+    private static SmallTable mixedTable(final int size) {
+        final Randomness random = new Randomness(0);
+        final ObjectArrayColumn names = new ObjectArrayColumn(
+                new ColumnDescription("Name", ContentsKind.Category), size);
+        final ObjectArrayColumn values = new ObjectArrayColumn(
+                new ColumnDescription("Value", ContentsKind.Double), size);
+        final ObjectArrayColumn counts = new ObjectArrayColumn(
+                new ColumnDescription("Count", ContentsKind.Integer), size);
+        final ObjectArrayColumn dates = new ObjectArrayColumn(
+                new ColumnDescription("Date", ContentsKind.Date), size);
+        for (int i = 0; i < size; i++) {
+            names.set(i, "Name" + random.nextInt(100));
+            values.set(i, random.nextDouble());
+            counts.set(i, random.nextInt(1000));
+            if (i % 10 != 0)
+                dates.set(i, Instant.ofEpochSecond(1500000000L + random.nextInt(1000000)));
+        }
+        final List<IColumn> columns = new ArrayList<IColumn>();
+        columns.add(names);
+        columns.add(values);
+        columns.add(counts);
+        columns.add(dates);
+        return new SmallTable(columns);
+    }
+
+    private static long bestTime(final Runnable runnable, final int runCount) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runCount; i++) {
+            final long start = System.nanoTime();
+            runnable.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static void measure(final String name, final Supplier<Object> result, final int runCount) {
+        // Results are wrapped as they are on the wire.
+        final OperationResponse<PartialResult<Object>> response =
+                new OperationResponse<PartialResult<Object>>(
+                        new PartialResult<Object>(1.0, result.get()));
+        final byte[] java = SerializationUtils.serialize(response);
+        final byte[] binary = Codecs.encode(response);
+        final long javaEncode = bestTime(() -> SerializationUtils.serialize(response), runCount);
+        final long javaDecode = bestTime(() -> SerializationUtils.deserialize(java), runCount);
+        final long binaryEncode = bestTime(() -> Codecs.encode(response), runCount);
+        final long binaryDecode = bestTime(() -> Codecs.decode(binary), runCount);
+        System.out.println(name + "," + java.length + "," + binary.length + "," +
+                javaEncode / 1000 + "," + javaDecode / 1000 + "," +
+                binaryEncode / 1000 + "," + binaryDecode / 1000);
+    }
+
+    public static void main(String[] args) {
+        HillviewLogger.instance.setLogLevel(Level.OFF);
+        final int runCount = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        final SmallTable intTable = TestTables.getIntTable(rows, 4);
+        final String[] intColumns = intTable.getSchema().getColumnNames().toArray(new String[0]);
+        final SmallTable mixed = mixedTable(rows);
+
+        System.out.println("Class,Java bytes,Codec bytes,Java encode (us)," +
+                "Java decode (us),Codec encode (us),Codec decode (us)");
+        measure("Histogram", () -> new HistogramSketch(
+                new BucketsDescriptionEqSize(0, 100, 100),
+                new ColumnAndConverterDescription(intColumns[0]), 1.0, 0).create(intTable),
+                runCount);
+        measure("HeatMap", () -> new HeatMapSketch(
+                new BucketsDescriptionEqSize(0, 100, 100),
+                new BucketsDescriptionEqSize(0, 100, 100),
+                new ColumnAndConverterDescription(intColumns[0]),
+                new ColumnAndConverterDescription(intColumns[1]), 1.0, 0).create(intTable),
+                runCount);
+        measure("SmallTable(int)", () -> intTable, runCount);
+        measure("SmallTable(mixed)", () -> mixed, runCount);
+        measure("SampleList", () -> new SampleList(mixed), runCount);
+        measure("NextKList", () -> {
+            final List<Integer> counts = new ArrayList<Integer>(rows);
+            for (int i = 0; i < rows; i++)
+                counts.add(i % 7 + 1);
+            return new NextKList(mixed, counts, 0, rows);
+        }, runCount);
+    }
+}
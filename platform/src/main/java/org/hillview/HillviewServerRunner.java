@@ -22,6 +22,8 @@ import org.hillview.dataset.LocalDataSet;
 import org.hillview.dataset.api.Empty;
 import org.hillview.dataset.api.IDataSet;
 import org.hillview.dataset.remoting.HillviewServer;
+import org.hillview.storage.TableSnapshot;
+import org.hillview.table.columns.ColumnCache;
 import org.hillview.utils.HillviewLogger;
 
 /**
@@ -31,16 +33,20 @@ class HillviewServerRunner {
 
     private static void usage() {
         System.out.println("Invalid number of arguments.\n" +
-                "Usage: java -jar <jarname> <port listen address>");
+                "Usage: java -jar <jarname> <port listen address> [column cache size in MB] [snapshot folder]");
     }
 
     public static void main(String[] args) {
-        if (args.length != 1) {
+        if (args.length < 1 || args.length > 3) {
             usage();
             throw new RuntimeException("Incorrect arguments");
         }
 
         HillviewLogger.initialize("worker", "hillview.log");
+        if (args.length >= 2)
+            ColumnCache.instance.setBudget(Long.parseLong(args[1]) * 1024 * 1024);
+        if (args.length == 3)
+            TableSnapshot.setFolder(args[2]);
         try {
             final IDataSet<Empty> dataSet = new LocalDataSet<Empty>(Empty.getInstance());
             final String hostnameAndPort = args[0];
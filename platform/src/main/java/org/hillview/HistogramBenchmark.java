@@ -12,11 +12,12 @@ import org.hillview.sketches.Histogram;
 import org.hillview.sketches.HistogramSketch;
 import org.hillview.table.ColumnDescription;
 import org.hillview.table.Table;
-import org.hillview.table.api.ColumnAndConverterDescription;
-import org.hillview.table.api.ContentsKind;
-import org.hillview.table.api.IColumn;
+import org.hillview.sketches.IBucketsDescription;
+import org.hillview.table.api.*;
 import org.hillview.table.api.ITable;
+import org.hillview.table.columns.BaseListColumn;
 import org.hillview.table.columns.DoubleArrayColumn;
+import org.hillview.table.columns.IntArrayColumn;
 import org.hillview.table.membership.FullMembershipSet;
 import org.hillview.utils.HillviewLogger;
 
@@ -90,6 +91,28 @@ class HistogramBenchmark {
         }
     }
 
+    /**
+     * Computes a histogram reading one row at a time; used to measure
+     * the benefit of the batch accessors used by Histogram.
+     */
+    private static long[] rowByRowHistogram(final ColumnAndConverter column,
+                                            final IMembershipSet membershipSet,
+                                            final IBucketsDescription buckets) {
+        long[] counts = new long[buckets.getNumOfBuckets() + 2];
+        final IRowIterator myIter = membershipSet.getIterator();
+        int currRow = myIter.getNextRow();
+        while (currRow >= 0) {
+            if (column.isMissing(currRow)) {
+                counts[counts.length - 1]++;
+            } else {
+                int index = buckets.indexOf(column.asDouble(currRow));
+                counts[index >= 0 ? index : counts.length - 2]++;
+            }
+            currRow = myIter.getNextRow();
+        }
+        return counts;
+    }
+
     private static ITable createTable(final int colSize, final IColumn col) {
         FullMembershipSet fMap = new FullMembershipSet(colSize);
         List<IColumn> cols = new ArrayList<IColumn>();
@@ -115,6 +138,34 @@ class HistogramBenchmark {
         ISketch<ITable, Histogram> sk = new HistogramSketch(
                         buckDes, new ColumnAndConverterDescription(col.getName()), rateParameter, 0);
 
+        if (args[0].equals("batch")) {
+            // Use other column types first, so that the calls for each row are megamorphic,
+            // as they are in the service.
+            final int warmupSize = mega;
+            final IntArrayColumn ints = new IntArrayColumn(
+                    new ColumnDescription("Int", ContentsKind.Integer), warmupSize);
+            final BaseListColumn list = BaseListColumn.create(desc);
+            for (int i = 0; i < warmupSize; i++) {
+                ints.set(i, i % 100);
+                list.append(Math.sqrt(i + 1) % 100);
+            }
+            final IMembershipSet all = new FullMembershipSet(warmupSize);
+            for (IColumn c : Arrays.asList(ints, list.seal(), col)) {
+                ColumnAndConverter warmup = new ColumnAndConverter(c);
+                for (int i = 0; i < 10; i++) {
+                    rowByRowHistogram(warmup, all, buckDes);
+                    new Histogram(buckDes).create(warmup, all, 1.0, 0, true);
+                }
+            }
+
+            final ColumnAndConverter cc = new ColumnAndConverter(col);
+            final IMembershipSet members = table.getMembershipSet();
+            Runnable r = () -> rowByRowHistogram(cc, members, buckDes);
+            runNTimes(r, runCount, "Histogram one row at a time", colSize);
+            r = () -> new Histogram(buckDes).create(cc, members, 1.0, 0, true);
+            runNTimes(r, runCount, "Histogram in batches of rows", colSize);
+        }
+
         if (args[0].equals("noseparatethread")) {
             final IDataSet<ITable> ds = new LocalDataSet<ITable>(table, false);
             Runnable r = () -> ds.blockingSketch(sk);
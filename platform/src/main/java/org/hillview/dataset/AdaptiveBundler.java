@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.dataset;
+
+import org.hillview.dataset.api.IMonoid;
+import rx.Observable;
+import rx.Subscriber;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups the values of a stream that arrive within a time interval and adds them up,
+ * emitting a single value for each interval.  The interval adapts to the cost of
+ * the values: it is chosen so that adding the values and delivering the sum downstream
+ * (which may include serializing it and sending it over the network) takes at most
+ * 1/costFactor of the time.  Large results are thus sent less often, and if the
+ * consumer is slow the values are accumulated for longer.
+ * Each instance should be used for a single stream.
+ * @param <R>  Type of values in the stream.
+ */
+public class AdaptiveBundler<R> {
+    /**
+     * The time spent processing the values should be at most 1/costFactor of the interval.
+     */
+    static final int costFactor = 10;
+    /**
+     * The interval is never longer than this multiple of the minimum interval,
+     * so that progress is still reported.
+     */
+    static final int maxIntervalFactor = 8;
+
+    private final long minInterval;
+    private final long maxInterval;
+    private final TimeUnit unit;
+    private final IMonoid<R> adder;
+    /**
+     * Current interval, expressed in the unit.
+     */
+    private volatile long interval;
+    /**
+     * Smoothed cost of processing a bundle in nanoseconds.
+     */
+    private double averageCost;
+
+    /**
+     * Create an adaptive bundler.
+     * @param minInterval  Shortest interval for grouping values.
+     * @param unit         Unit of time for the interval.
+     * @param adder        Monoid used to add values.
+     */
+    public AdaptiveBundler(long minInterval, TimeUnit unit, IMonoid<R> adder) {
+        if (minInterval <= 0)
+            throw new RuntimeException("Interval must be positive: " + minInterval);
+        this.minInterval = minInterval;
+        this.maxInterval = minInterval * maxIntervalFactor;
+        this.unit = unit;
+        this.adder = adder;
+        this.interval = minInterval;
+        this.averageCost = 0;
+    }
+
+    /**
+     * @return The interval currently used for grouping values.
+     */
+    public long getInterval() {
+        return this.interval;
+    }
+
+    /**
+     * Update the interval after processing a bundle.
+     * @param costNanos  Time spent adding the values and delivering the sum.
+     */
+    synchronized void recordCost(long costNanos) {
+        this.averageCost = this.averageCost == 0 ? costNanos :
+                (this.averageCost + costNanos) / 2;
+        long desired = this.unit.convert((long)(this.averageCost * costFactor), TimeUnit.NANOSECONDS);
+        this.interval = Math.max(this.minInterval, Math.min(this.maxInterval, desired));
+    }
+
+    public Observable<R> bundle(Observable<R> data) {
+        // The timer is created again after it fires, so it picks up the new interval.
+        Observable<Long> boundary = Observable.defer(
+                () -> Observable.timer(this.interval, this.unit)).repeat();
+        Observable<List<R>> bundled = data.buffer(boundary)
+                // If a time interval has no data we don't want to produce a zero.
+                .filter(e -> !e.isEmpty());
+        return bundled.lift(child -> new Subscriber<List<R>>(child) {
+            @Override
+            public void onNext(List<R> values) {
+                long start = System.nanoTime();
+                R sum = AdaptiveBundler.this.adder.reduce(values);
+                child.onNext(sum);
+                AdaptiveBundler.this.recordCost(System.nanoTime() - start);
+            }
+
+            @Override
+            public void onCompleted() {
+                child.onCompleted();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                child.onError(throwable);
+            }
+        });
+    }
+}
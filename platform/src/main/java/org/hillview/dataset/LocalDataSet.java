@@ -18,10 +18,12 @@
 package org.hillview.dataset;
 
 import org.hillview.dataset.api.*;
+import org.hillview.table.columns.ColumnCache;
 import org.hillview.utils.ExecutorUtils;
 import org.hillview.utils.HillviewLogger;
 import rx.Observable;
 import rx.Scheduler;
+import rx.functions.Func1;
 import rx.schedulers.Schedulers;
 
 import java.util.ArrayList;
@@ -48,11 +50,31 @@ public class LocalDataSet<T> extends BaseDataSet<T> {
      */
     private final boolean separateThread;
 
+    /**
+     * Default value for rowsPerChunk.
+     */
+    public static final int DEFAULT_ROWS_PER_CHUNK = 1 << 20;
+
+    /**
+     * If the data is ISplittable and has more elements than this, sketches are
+     * computed in chunks of about this many elements.  After each chunk a partial
+     * result is emitted, and the computation stops if the consumer has unsubscribed.
+     * When separateThread is true the chunks are scheduled independently on the
+     * work-stealing pool, so a large dataset can use all the threads in the pool.
+     * If this is zero sketches are never computed in chunks.
+     */
+    private int rowsPerChunk = DEFAULT_ROWS_PER_CHUNK;
+
     /**
      * Work is executed on this thread.
      */
     private static final Scheduler workScheduler;
 
+    /**
+     * Maximum number of chunks of a single dataset which are processed concurrently.
+     */
+    private static final int maxConcurrentChunks = Runtime.getRuntime().availableProcessors();
+
     static {
         ExecutorService executor = ExecutorUtils.getComputeExecutorService();
         workScheduler = Schedulers.from(executor);
@@ -72,6 +94,17 @@ public class LocalDataSet<T> extends BaseDataSet<T> {
         this.separateThread = separateThread;
     }
 
+    /**
+     * Can be used to change the number of elements processed in a chunk by sketches.
+     * This should be done only once after construction; datasets are supposed to be immutable.
+     * @param rowsPerChunk  Number of elements in a chunk.  If 0 chunking is disabled.
+     */
+    public void setRowsPerChunk(int rowsPerChunk) {
+        if (rowsPerChunk < 0)
+            throw new RuntimeException("Negative chunk size: " + rowsPerChunk);
+        this.rowsPerChunk = rowsPerChunk;
+    }
+
     /**
      * Schedule the computation using the LocalDataSet.workScheduler.
      * @param data  Data whose computation is scheduled
@@ -104,13 +137,17 @@ public class LocalDataSet<T> extends BaseDataSet<T> {
     }
 
     @Override
+    @SuppressWarnings("try")
     public <S> Observable<PartialResult<IDataSet<S>>> map(final IMap<T, S> mapper) {
         // Actual map computation performed lazily when observable is subscribed to.
         final Callable<IDataSet<S>> callable = () -> {
             try {
                 HillviewLogger.instance.info("Starting map", "{0}:{1}",
                         this, mapper.asString());
-                S result = mapper.apply(LocalDataSet.this.data);
+                S result;
+                try (ColumnCache.PinScope ignored = ColumnCache.instance.pinScope()) {
+                    result = mapper.apply(LocalDataSet.this.data);
+                }
                 HillviewLogger.instance.info("Completed map", "{0}:{1}",
                         this, mapper.asString());
                 return new LocalDataSet<S>(result);
@@ -126,11 +163,15 @@ public class LocalDataSet<T> extends BaseDataSet<T> {
     }
 
     @Override
+    @SuppressWarnings("try")
     public <S> Observable<PartialResult<IDataSet<S>>> flatMap(IMap<T, List<S>> mapper) {
         // Actual map computation performed lazily when observable is subscribed to.
         final Callable<IDataSet<S>> callable = () -> {
             try {
-                List<S> list = mapper.apply(LocalDataSet.this.data);
+                List<S> list;
+                try (ColumnCache.PinScope ignored = ColumnCache.instance.pinScope()) {
+                    list = mapper.apply(LocalDataSet.this.data);
+                }
                 List<IDataSet<S>> locals = new ArrayList<IDataSet<S>>();
                 for (S s : list) {
                     HillviewLogger.instance.info("Starting flatMap", "{0}:{1}",
@@ -183,15 +224,66 @@ public class LocalDataSet<T> extends BaseDataSet<T> {
         return executed.map(PartialResult::new);
     }
 
+    /**
+     * Runs a sketch separately on pieces of the data, each holding about
+     * rowsPerChunk elements, and emits one partial result for each piece.
+     * Observable.range only emits the next index while the subscriber is still
+     * subscribed, so an unsubscription stops the computation between chunks.
+     * The partial results are added by the consumer using the sketch monoid.
+     */
+    @SuppressWarnings("try")
+    private <R> Observable<PartialResult<R>> chunkedSketch(
+            final ISketch<T, R> sketch, final ISplittable<T> splittable) {
+        final int range = splittable.indexRange();
+        // The index range of each chunk is chosen such that it contains
+        // about rowsPerChunk elements.
+        final int chunkRange = (int)Math.max(1,
+                (long)range * this.rowsPerChunk / splittable.elementCount());
+        final int chunks = (int)(((long)range + chunkRange - 1) / chunkRange);
+        HillviewLogger.instance.info("Starting chunked sketch", "{0}:{1}:{2}",
+                this, sketch.asString(), chunks);
+        final Func1<Integer, PartialResult<R>> sketchChunk = i -> {
+            int start = i * chunkRange;
+            int end = (int)Math.min((long)start + chunkRange, range);
+            R result;
+            try (ColumnCache.PinScope ignored = ColumnCache.instance.pinScope()) {
+                result = sketch.create(splittable.selectRange(start, end));
+            }
+            return new PartialResult<R>((double)(end - start) / range, result);
+        };
+        final Observable<Integer> indexes = Observable.range(0, chunks);
+        final Observable<PartialResult<R>> results;
+        if (this.separateThread)
+            // Each chunk is a separate task; idle threads in the pool will steal them.
+            results = indexes.flatMap(i -> Observable.fromCallable(() -> sketchChunk.call(i))
+                                                     .subscribeOn(LocalDataSet.workScheduler),
+                                      LocalDataSet.maxConcurrentChunks);
+        else
+            results = indexes.map(sketchChunk);
+        return results.doOnCompleted(() -> HillviewLogger.instance.info("Completed sketch", "{0}:{1}",
+                        this, sketch.asString()));
+    }
+
     @Override
+    @SuppressWarnings({"unchecked", "try"})
     public <R> Observable<PartialResult<R>> sketch(final ISketch<T, R> sketch) {
+        if (this.rowsPerChunk > 0 && this.data instanceof ISplittable<?>) {
+            // The pieces of the data have the same type as the data itself.
+            final ISplittable<T> splittable = (ISplittable<T>)this.data;
+            if (splittable.elementCount() > this.rowsPerChunk)
+                return this.schedule(this.chunkedSketch(sketch, splittable));
+        }
         // Immediately return a zero partial result
         // final Observable<PartialResult<R>> zero = this.zero(sketch::zero);
         final Callable<R> callable = () -> {
             try {
                 HillviewLogger.instance.info("Starting sketch", "{0}:{1}",
                         this, sketch.asString());
-                R result = sketch.create(this.data);
+                R result;
+                // Columns used by the sketch are not evicted while it runs.
+                try (ColumnCache.PinScope ignored = ColumnCache.instance.pinScope()) {
+                    result = sketch.create(this.data);
+                }
                 HillviewLogger.instance.info("Completed sketch", "{0}:{1}",
                         this, sketch.asString());
                 return result;
@@ -24,6 +24,7 @@ import rx.Observable;
 import rx.Subscription;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -45,6 +46,7 @@ public class ParallelDataSet<T> extends BaseDataSet<T> {
      * order of 50 milliseconds or more, so this is a ballpark reasonable value.
      * If this is set to zero no aggregation is performed.
      * If this is set to a value too large then progress reporting to the user may be impacted.
+     * This is the minimum interval; it is increased for results that are expensive to process.
      */
     private int bundleInterval = 250;
     /**
@@ -57,19 +59,21 @@ public class ParallelDataSet<T> extends BaseDataSet<T> {
     private static final boolean useLogging = false;
 
     /**
-     * Children of the data set.
+     * Children of the data set.  The list is never modified in place: appending
+     * children replaces it with a new list, so each operation works on the
+     * children present when it starts.
      */
-
-    private final List<IDataSet<T>> children;
+    private volatile List<IDataSet<T>> children;
 
     /**
      * Create a ParallelDataSet from a map that indicates the index of each child.
      * @param elements  Children, presented as a map indexed by child position.
      */
     private ParallelDataSet(final Map<Integer, IDataSet<T>> elements) {
-        this.children = new ArrayList<IDataSet<T>>(elements.size());
+        final List<IDataSet<T>> children = new ArrayList<IDataSet<T>>(elements.size());
         for (final Map.Entry<Integer, IDataSet<T>> e : elements.entrySet())
-            this.children.add(e.getKey(), e.getValue());
+            children.add(e.getKey(), e.getValue());
+        this.children = children;
     }
 
     /**
@@ -82,6 +86,26 @@ public class ParallelDataSet<T> extends BaseDataSet<T> {
 
     private int size() { return this.children.size(); }
 
+    /**
+     * @return The children of this dataset at the time of the call.
+     */
+    public List<IDataSet<T>> getChildren() {
+        return Collections.unmodifiableList(this.children);
+    }
+
+    /**
+     * Add children to this dataset; used to ingest data that has appeared
+     * after the dataset was created.  Operations that are already running
+     * are not affected; operations started afterwards include the new children.
+     * Datasets derived from this one before the call do not change.
+     * @param added  Children to append.
+     */
+    public synchronized void append(final List<IDataSet<T>> added) {
+        final List<IDataSet<T>> children = new ArrayList<IDataSet<T>>(this.children);
+        children.addAll(added);
+        this.children = children;
+    }
+
     /**
      * Can be used to change the time interval in which partial results are aggregated.
      * This should be done only once after construction; datasets are supposed to be immutable.
@@ -96,7 +120,10 @@ public class ParallelDataSet<T> extends BaseDataSet<T> {
 
     /**
      * This function groups R values that come too close in time (within a 'bundleInterval'
-     * time interval) and "adds" them up emitting a single value.
+     * time interval) and "adds" them up emitting a single value.  The interval is
+     * adapted for each operation: if adding and forwarding the values is expensive
+     * (e.g., for large results, or when the consumer is slow) the interval grows.
+     * See AdaptiveBundler.
      * @param data  A stream of data.
      * @param adder A monoid that knows how to add the data.
      * @return  A shorter stream, in which some of the values in the data stream have been
@@ -104,12 +131,13 @@ public class ParallelDataSet<T> extends BaseDataSet<T> {
      */
     private <R> Observable<R> bundle(final Observable<R> data, IMonoid<R> adder) {
         if (this.bundleInterval > 0) {
-            // If a time interval has no data we don't want to produce a zero.
-            Observable<List<R>> bundled = data.buffer(this.bundleInterval, bundleTimeUnit)
-                       .filter(e -> !e.isEmpty());
+            AdaptiveBundler<R> bundler = new AdaptiveBundler<R>(
+                    this.bundleInterval, bundleTimeUnit, adder);
+            Observable<R> bundled = bundler.bundle(data);
             if (ParallelDataSet.useLogging)
-                bundled = bundled.map(e -> this.logPipe(e, "bundling " + e.size() + " values"));
-            return bundled.map(adder::reduce);
+                bundled = bundled.map(e -> this.logPipe(
+                        e, "bundled values; interval " + bundler.getInterval()));
+            return bundled;
         } else {
             return data;
         }
@@ -129,14 +157,16 @@ public class ParallelDataSet<T> extends BaseDataSet<T> {
         // here so we can disconnect it when necessary.
         Subscription savedSubscription[] = new Subscription[1];
         HillviewLogger.instance.info("Invoked map", "target={0}", this);
+        final List<IDataSet<T>> children = this.children;
+        final int mySize = children.size();
         final List<Observable<Pair<Integer, PartialResult<IDataSet<S>>>>> obs =
-                new ArrayList<Observable<Pair<Integer, PartialResult<IDataSet<S>>>>>(this.size());
+                new ArrayList<Observable<Pair<Integer, PartialResult<IDataSet<S>>>>>(mySize);
         // We run the mapper over each child, and then we tag the results produced by
         // the child with the child index.
-        for (int i = 0; i < this.size(); i++) {
+        for (int i = 0; i < mySize; i++) {
             int finalI = i;
             final Observable<Pair<Integer, PartialResult<IDataSet<S>>>> ci =
-                    this.children.get(i)
+                    children.get(i)
                             .map(mapper)
                             .map(e -> new Pair<Integer, PartialResult<IDataSet<S>>>(finalI, e));
             obs.add(i, ci);
@@ -165,8 +195,8 @@ public class ParallelDataSet<T> extends BaseDataSet<T> {
                       // Finally, create a ParallelDataSet from the map; these have 0 'done' progress
                       .map(m -> new PartialResult<IDataSet<S>>(0.0, new ParallelDataSet<S>(m)));
         final Observable<PartialResult<IDataSet<S>>> dones =
-                // Each child produces a 1/this.size() fraction of the result.
-                merged.map(p -> Converters.checkNull(p.second).deltaDone / this.size())
+                // Each child produces a 1/mySize fraction of the result.
+                merged.map(p -> Converters.checkNull(p.second).deltaDone / mySize)
                         .map(e -> new PartialResult<IDataSet<S>>(e, null));
         Observable<PartialResult<IDataSet<S>>> result = dones.mergeWith(mapResult);
         result = bundle(result, new PRDataSetMonoid<S>())
@@ -184,14 +214,16 @@ public class ParallelDataSet<T> extends BaseDataSet<T> {
         // here so we can disconnect it when necessary.
         Subscription savedSubscription[] = new Subscription[1];
         HillviewLogger.instance.info("Invoked flatMap", "target={0}", this);
+        final List<IDataSet<T>> children = this.children;
+        final int mySize = children.size();
         final List<Observable<Pair<Integer, PartialResult<IDataSet<S>>>>> obs =
-                new ArrayList<Observable<Pair<Integer, PartialResult<IDataSet<S>>>>>(this.size());
+                new ArrayList<Observable<Pair<Integer, PartialResult<IDataSet<S>>>>>(mySize);
         // We run the mapper over each child, and then we tag the results produced by
         // the child with the child index.
-        for (int i = 0; i < this.size(); i++) {
+        for (int i = 0; i < mySize; i++) {
             int finalI = i;
             final Observable<Pair<Integer, PartialResult<IDataSet<S>>>> ci =
-                    this.children.get(i)
+                    children.get(i)
                             .flatMap(mapper)
                             .map(e -> new Pair<Integer, PartialResult<IDataSet<S>>>(finalI, e));
             obs.add(i, ci);
@@ -220,8 +252,8 @@ public class ParallelDataSet<T> extends BaseDataSet<T> {
                         // Finally, create a ParallelDataSet from the map; these have 0 'done' progress
                         .map(m -> new PartialResult<IDataSet<S>>(0.0, new ParallelDataSet<S>(m)));
         final Observable<PartialResult<IDataSet<S>>> dones =
-                // Each child produces a 1/this.size() fraction of the result.
-                merged.map(p -> Converters.checkNull(p.second).deltaDone / this.size())
+                // Each child produces a 1/mySize fraction of the result.
+                merged.map(p -> Converters.checkNull(p.second).deltaDone / mySize)
                         .map(e -> new PartialResult<IDataSet<S>>(e, null));
         Observable<PartialResult<IDataSet<S>>> result = dones.mergeWith(mapResult);
         result = bundle(result, new PRDataSetMonoid<S>())
@@ -244,16 +276,18 @@ public class ParallelDataSet<T> extends BaseDataSet<T> {
         if (!(other instanceof ParallelDataSet<?>))
             throw new RuntimeException("Expected a ParallelDataSet " + other);
         final ParallelDataSet<S> os = (ParallelDataSet<S>)other;
-        final int mySize = this.size();
-        if (mySize != os.size())
+        final List<IDataSet<T>> children = this.children;
+        final List<IDataSet<S>> otherChildren = os.children;
+        final int mySize = children.size();
+        if (mySize != otherChildren.size())
             throw new RuntimeException("Different sizes for ParallelDatasets: " +
-                    mySize + " vs. " + os.size());
+                    mySize + " vs. " + otherChildren.size());
         final List<Observable<Pair<Integer, PartialResult<IDataSet<Pair<T, S>>>>>> obs =
                 new ArrayList<Observable<Pair<Integer, PartialResult<IDataSet<Pair<T, S>>>>>>();
         // Just zip children pairwise; tag each result with the child index
         for (int i = 0; i < mySize; i++) {
-            final IDataSet<S> oChild = os.children.get(i);
-            final IDataSet<T> tChild = this.children.get(i);
+            final IDataSet<S> oChild = otherChildren.get(i);
+            final IDataSet<T> tChild = children.get(i);
             final Observable<PartialResult<IDataSet<Pair<T, S>>>> zip = tChild.zip(oChild).last();
             final int finalI = i;
             obs.add(zip.map(
@@ -279,8 +313,8 @@ public class ParallelDataSet<T> extends BaseDataSet<T> {
                       .map(m -> new PartialResult<IDataSet<Pair<T, S>>>(
                             0.0, new ParallelDataSet<Pair<T, S>>(m)));
         final Observable<PartialResult<IDataSet<Pair<T, S>>>> dones =
-                // Each child produces a 1/this.size() fraction of the result.
-                merged.map(p -> Converters.checkNull(p.second).deltaDone / this.size())
+                // Each child produces a 1/mySize fraction of the result.
+                merged.map(p -> Converters.checkNull(p.second).deltaDone / mySize)
                       .map(e -> new PartialResult<IDataSet<Pair<T, S>>>(e, null));
         Observable<PartialResult<IDataSet<Pair<T, S>>>> result = dones.mergeWith(zipResult);
         PRDataSetMonoid<Pair<T, S>> prm = new PRDataSetMonoid<Pair<T, S>>();
@@ -297,10 +331,11 @@ public class ParallelDataSet<T> extends BaseDataSet<T> {
         HillviewLogger.instance.info("Invoked manage", "target={0}", this);
         List<Observable<PartialResult<ControlMessage.StatusList>>> obs =
                 new ArrayList<Observable<PartialResult<ControlMessage.StatusList>>>();
-        final int mySize = this.size();
+        final List<IDataSet<T>> children = this.children;
+        final int mySize = children.size();
         // Run over each child separately
         for (int i = 0; i < mySize; i++) {
-            IDataSet<T> child = this.children.get(i);
+            IDataSet<T> child = children.get(i);
             Observable<PartialResult<ControlMessage.StatusList>> sk = child.manage(message);
             sk = sk.map(e -> new PartialResult<ControlMessage.StatusList>(
                     e.deltaDone / mySize, e.deltaValue));
@@ -336,10 +371,11 @@ public class ParallelDataSet<T> extends BaseDataSet<T> {
     public <R> Observable<PartialResult<R>> sketch(final ISketch<T, R> sketch) {
         HillviewLogger.instance.info("Invoked sketch", "target={0}", this);
         List<Observable<PartialResult<R>>> obs = new ArrayList<Observable<PartialResult<R>>>();
-        final int mySize = this.size();
+        final List<IDataSet<T>> children = this.children;
+        final int mySize = children.size();
         // Run sketch over each child separately
         for (int i = 0; i < mySize; i++) {
-            IDataSet<T> child = this.children.get(i);
+            IDataSet<T> child = children.get(i);
             final int finalI = i;
             Observable<PartialResult<R>> sk = child.sketch(sketch);
             if (useLogging)
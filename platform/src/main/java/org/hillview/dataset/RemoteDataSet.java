@@ -23,7 +23,6 @@ import io.grpc.netty.NettyChannelBuilder;
 import io.grpc.stub.StreamObserver;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
-import org.apache.commons.lang3.SerializationUtils;
 import org.hillview.dataset.api.*;
 import org.hillview.pb.Ack;
 import org.hillview.pb.Command;
@@ -95,7 +94,7 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
     @Override
     public <S> Observable<PartialResult<IDataSet<S>>> map(final IMap<T, S> mapper) {
         final MapOperation<T, S> mapOp = new MapOperation<T, S>(mapper);
-        final byte[] serializedOp = SerializationUtils.serialize(mapOp);
+        final byte[] serializedOp = Codecs.encode(mapOp);
         final UUID operationId = UUID.randomUUID();
         final Command command = Command.newBuilder()
                                        .setIdsIndex(this.remoteHandle)
@@ -115,7 +114,7 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
     @Override
     public <S> Observable<PartialResult<IDataSet<S>>> flatMap(IMap<T, List<S>> mapper) {
         final FlatMapOperation<T, S> mapOp = new FlatMapOperation<T, S>(mapper);
-        final byte[] serializedOp = SerializationUtils.serialize(mapOp);
+        final byte[] serializedOp = Codecs.encode(mapOp);
         final UUID operationId = UUID.randomUUID();
         final Command command = Command.newBuilder()
                 .setIdsIndex(this.remoteHandle)
@@ -138,7 +137,7 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
     @Override
     public <R> Observable<PartialResult<R>> sketch(final ISketch<T, R> sketch) {
         final SketchOperation<T, R> sketchOp = new SketchOperation<T, R>(sketch);
-        final byte[] serializedOp = SerializationUtils.serialize(sketchOp);
+        final byte[] serializedOp = Codecs.encode(sketchOp);
         final UUID operationId = UUID.randomUUID();
         final Command command = Command.newBuilder()
                                        .setIdsIndex(this.remoteHandle)
@@ -175,7 +174,7 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
         }
 
         final ZipOperation zip = new ZipOperation(rds.remoteHandle);
-        final byte[] serializedOp = SerializationUtils.serialize(zip);
+        final byte[] serializedOp = Codecs.encode(zip);
         final UUID operationId = UUID.randomUUID();
         final Command command = Command.newBuilder()
                                          .setIdsIndex(this.remoteHandle)
@@ -196,7 +195,7 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
     @Override
     public Observable<PartialResult<ControlMessage.StatusList>> manage(ControlMessage message) {
         final ManageOperation manageOp = new ManageOperation(message);
-        final byte[] serializedOp = SerializationUtils.serialize(manageOp);
+        final byte[] serializedOp = Codecs.encode(manageOp);
         final UUID operationId = UUID.randomUUID();
         final Command command = Command.newBuilder()
                 .setIdsIndex(this.remoteHandle)
@@ -222,7 +221,7 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
     private void unsubscribe(final UUID id) {
         HillviewLogger.instance.info("Unsubscribe called", "{0}", id);
         final UnsubscribeOperation op = new UnsubscribeOperation(id);
-        final byte[] serializedOp = SerializationUtils.serialize(op);
+        final byte[] serializedOp = Codecs.encode(op);
         final Command command = Command.newBuilder()
                                        .setIdsIndex(this.remoteHandle)
                                        .setSerializedOp(ByteString.copyFrom(serializedOp))
@@ -287,7 +286,7 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
         @Override
         @SuppressWarnings("unchecked")
         public PartialResult<IDataSet<S>> processResponse(final PartialResponse response) {
-            final OperationResponse op = SerializationUtils.deserialize(response
+            final OperationResponse op = Codecs.decode(response
                     .getSerializedOp().toByteArray());
             PartialResult<Integer> pr = Converters.checkNull((PartialResult<Integer>)op.result);
             final IDataSet<S> ids = (pr.deltaValue == null) ? null :
@@ -307,7 +306,7 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
         @Override
         @SuppressWarnings("unchecked")
         public PartialResult<S> processResponse(final PartialResponse response) {
-            final OperationResponse op = SerializationUtils.deserialize(response
+            final OperationResponse op = Codecs.decode(response
                     .getSerializedOp().toByteArray());
             assert op.result != null;
             return (PartialResult<S>)op.result;
@@ -334,7 +333,7 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
         @SuppressWarnings("unchecked")
         public PartialResult<ControlMessage.StatusList> processResponse(
                 final PartialResponse response) {
-            final OperationResponse op = SerializationUtils.deserialize(response
+            final OperationResponse op = Codecs.decode(response
                     .getSerializedOp().toByteArray());
             return (PartialResult<ControlMessage.StatusList>)Converters.checkNull(op.result);
         }
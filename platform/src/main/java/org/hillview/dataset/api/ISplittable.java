@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.dataset.api;
+
+/**
+ * Interface implemented by data that can be split into pieces, each piece
+ * holding the elements whose indexes fall within a contiguous range.
+ * Running a sketch on each piece and adding the results must produce the
+ * same result as running the sketch on the whole data (up to sampling).
+ * @param <T> Type of the pieces; this must be the same as the type of the data.
+ */
+public interface ISplittable<T> {
+    /**
+     * @return The number of elements present in the data.
+     */
+    int elementCount();
+
+    /**
+     * @return Element indexes are between 0 and indexRange() - 1.  Not
+     * all indexes in this range have to correspond to present elements.
+     */
+    int indexRange();
+
+    /**
+     * @param start  First index in range (inclusive).
+     * @param end    Last index in range (exclusive).
+     * @return A piece containing only the elements with indexes in [start, end).
+     */
+    T selectRange(int start, int end);
+}
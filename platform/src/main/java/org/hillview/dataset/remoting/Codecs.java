@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.dataset.remoting;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.hillview.dataset.api.PartialResult;
+import org.hillview.sketches.*;
+import org.hillview.table.SmallTable;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encodes the objects exchanged between a HillviewServer and a RemoteDataSet.
+ * Each value is prefixed by a one-byte tag that identifies its codec.
+ * OperationResponse and PartialResult objects are encoded structurally, classes
+ * with a registered ICodec use a compact binary format, and all other objects
+ * fall back to Java serialization.
+ */
+public final class Codecs {
+    private static final byte NULL_TAG = 0;
+    private static final byte JAVA_TAG = 1;
+    private static final byte RESPONSE_TAG = 2;
+    private static final byte PARTIAL_RESULT_TAG = 3;
+    /**
+     * Tags below this value are reserved for the encodings above.
+     */
+    private static final int FIRST_CODEC_TAG = 16;
+
+    private static final class Registration {
+        final byte tag;
+        final ICodec<Object> codec;
+
+        Registration(byte tag, ICodec<Object> codec) {
+            this.tag = tag;
+            this.codec = codec;
+        }
+    }
+
+    private static final ConcurrentHashMap<Class<?>, Registration> byClass =
+            new ConcurrentHashMap<Class<?>, Registration>();
+    @SuppressWarnings("unchecked")
+    private static final ICodec<Object>[] byTag = (ICodec<Object>[])new ICodec<?>[256];
+
+    static {
+        Codecs.register(16, BucketsDescriptionEqSize.class, new BucketsDescriptionEqSize.Codec());
+        Codecs.register(17, Histogram.class, new Histogram.Codec());
+        Codecs.register(18, HeatMap.class, new HeatMap.Codec());
+        Codecs.register(19, SmallTable.class, new SmallTable.Codec());
+        Codecs.register(20, NextKList.class, new NextKList.Codec());
+        Codecs.register(21, SampleList.class, new SampleList.Codec());
+    }
+
+    private Codecs() {}
+
+    /**
+     * Register a codec for objects whose class is exactly cls.  The tag is part of
+     * the wire format, so it must be the same on all machines.
+     * @param tag    A value between 16 and 255 that identifies the codec.
+     * @param cls    Class encoded by the codec.
+     * @param codec  Codec to use.
+     */
+    @SuppressWarnings("unchecked")
+    public static synchronized <T> void register(int tag, Class<T> cls, ICodec<T> codec) {
+        if (tag < FIRST_CODEC_TAG || tag >= byTag.length)
+            throw new RuntimeException("Codec tag out of range: " + tag);
+        if (byTag[tag] != null)
+            throw new RuntimeException("Codec tag " + tag + " is already registered");
+        byTag[tag] = (ICodec<Object>)codec;
+        byClass.put(cls, new Registration((byte)tag, (ICodec<Object>)codec));
+    }
+
+    public static byte[] encode(@Nullable Object value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            Codecs.write(value, out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T decode(byte[] data) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            return (T)Codecs.read(in);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    public static void write(@Nullable Object value, DataOutputStream out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL_TAG);
+        } else if (value instanceof OperationResponse) {
+            out.writeByte(RESPONSE_TAG);
+            Codecs.write(((OperationResponse<?>)value).result, out);
+        } else if (value instanceof PartialResult) {
+            PartialResult<?> pr = (PartialResult<?>)value;
+            out.writeByte(PARTIAL_RESULT_TAG);
+            out.writeDouble(pr.deltaDone);
+            Codecs.write(pr.deltaValue, out);
+        } else {
+            Registration reg = byClass.get(value.getClass());
+            if (reg != null) {
+                out.writeByte(reg.tag);
+                reg.codec.encode(value, out);
+            } else {
+                byte[] serialized = SerializationUtils.serialize((Serializable)value);
+                out.writeByte(JAVA_TAG);
+                out.writeInt(serialized.length);
+                out.write(serialized);
+            }
+        }
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static Object read(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case NULL_TAG:
+                return null;
+            case RESPONSE_TAG:
+                return new OperationResponse<Object>(Codecs.read(in));
+            case PARTIAL_RESULT_TAG:
+                double done = in.readDouble();
+                return new PartialResult<Object>(done, Codecs.read(in));
+            case JAVA_TAG:
+                byte[] serialized = new byte[in.readInt()];
+                in.readFully(serialized);
+                return SerializationUtils.deserialize(serialized);
+            default:
+                ICodec<Object> codec = byTag[tag];
+                if (codec == null)
+                    throw new RuntimeException("Unknown codec tag " + tag);
+                return codec.decode(in);
+        }
+    }
+
+    /**
+     * Write a non-negative value using 7 bits per byte; small values use fewer bytes.
+     * Negative values are correctly encoded, but use 10 bytes.
+     */
+    public static void writeVarLong(long value, DataOutputStream out) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int)value);
+    }
+
+    public static long readVarLong(DataInputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return result;
+        }
+        throw new RuntimeException("Malformed variable-length integer");
+    }
+
+    public static void writeLongs(long[] values, DataOutputStream out) throws IOException {
+        Codecs.writeVarLong(values.length, out);
+        for (long v : values)
+            Codecs.writeVarLong(v, out);
+    }
+
+    public static long[] readLongs(DataInputStream in) throws IOException {
+        long[] result = new long[(int)Codecs.readVarLong(in)];
+        for (int i = 0; i < result.length; i++)
+            result[i] = Codecs.readVarLong(in);
+        return result;
+    }
+
+    /**
+     * Unlike DataOutputStream.writeUTF this has no limit on the string length.
+     */
+    public static void writeString(String value, DataOutputStream out) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        Codecs.writeVarLong(bytes.length, out);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int)Codecs.readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -29,8 +29,9 @@ import io.grpc.netty.NettyServerBuilder;
 import io.grpc.stub.StreamObserver;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
-import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.hillview.dataset.ParallelDataSet;
+import org.hillview.dataset.RemoteDataSet;
 import org.hillview.dataset.api.DatasetMissing;
 import org.hillview.dataset.api.IDataSet;
 import org.hillview.dataset.api.PartialResult;
@@ -39,6 +40,7 @@ import org.hillview.pb.Ack;
 import org.hillview.pb.Command;
 import org.hillview.pb.HillviewServerGrpc;
 import org.hillview.pb.PartialResponse;
+import org.hillview.utils.ClusterDescription;
 import org.hillview.utils.Converters;
 import org.hillview.utils.ExecutorUtils;
 import org.hillview.utils.HillviewLogger;
@@ -50,6 +52,8 @@ import rx.Subscription;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -57,13 +61,19 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * Server that transfers map(), sketch(), zip(), manage(), and unsubscribe() RPCs from a
  * RemoteDataSet object to locally managed IDataSet objects, and streams back results.
- * If memoization is enabled, it caches the results of (operation, dataset-index) types.
+ * If memoization is enabled, it caches the results of operations, keyed by the lineage
+ * of the datasets they are applied to.
  */
 public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
     /**
      * Index of remote initial dataset, containing just the Empty object.
      */
     public static final int ROOT_DATASET_INDEX = 0;
+    /**
+     * Index of the dataset that combines the initial dataset with the root datasets
+     * of the servers whose results this server aggregates; see setAggregationChildren.
+     */
+    public static final int AGGREGATION_ROOT_INDEX = -1;
     public static final int DEFAULT_PORT = 3569;
     private static final int NUM_THREADS = 5;
     public static final int MAX_MESSAGE_SIZE = 20971520;
@@ -91,13 +101,38 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
     private final Server server;
     private final AtomicInteger dsIndex = new AtomicInteger(ROOT_DATASET_INDEX + 1);
 
-    private final IDataSet initialDataset;
+    /**
+     * A dataset together with its lineage: a digest of the root dataset and
+     * the operations that have produced it.
+     */
+    private static class SavedDataSet {
+        final IDataSet dataSet;
+        final ByteString lineage;
+
+        SavedDataSet(IDataSet dataSet, ByteString lineage) {
+            this.dataSet = dataSet;
+            this.lineage = lineage;
+        }
+
+        @Override
+        public String toString() {
+            return this.dataSet.toString();
+        }
+    }
+
+    private final SavedDataSet initialDataset;
+    /**
+     * Dataset with index AGGREGATION_ROOT_INDEX; null if this server does not
+     * aggregate the results of other servers.
+     */
+    @Nullable
+    private SavedDataSet aggregationRoot;
     /**
      * Maps a dataset number to the actual dataset.  This is the only handle that
      * one can hold to an IDataSet on the server-side, so once an entry is removed
      * from the cache it can be GC-ed.  This is how memory is reclaimed.
      */
-    private final Cache<Integer, IDataSet> dataSets;
+    private final Cache<Integer, SavedDataSet> dataSets;
     private final ConcurrentHashMap<UUID, Subscription> operationToObservable
             = new ConcurrentHashMap<UUID, Subscription>();
     /**
@@ -118,9 +153,20 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
     private final MemoizedResults memoizedCommands;
 
     public HillviewServer(final HostAndPort listenAddress, final IDataSet initialDataset) throws IOException {
-        this.initialDataset = initialDataset;
+        this(listenAddress, initialDataset, MemoizedResults.DEFAULT_BUDGET_BYTES);
+    }
+
+    /**
+     * Create a server.
+     * @param listenAddress      Address to listen on.
+     * @param initialDataset     Root dataset.
+     * @param memoizationBudget  Maximum number of bytes used for memoized sketch results.
+     */
+    public HillviewServer(final HostAndPort listenAddress, final IDataSet initialDataset,
+                          long memoizationBudget) throws IOException {
+        this.initialDataset = new SavedDataSet(initialDataset, MemoizedResults.ROOT_LINEAGE);
         this.listenAddress = listenAddress;
-        this.memoizedCommands = new MemoizedResults();
+        this.memoizedCommands = new MemoizedResults(memoizationBudget);
         this.server = NettyServerBuilder.forAddress(new InetSocketAddress(listenAddress.getHost(),
                                                                      listenAddress.getPort()))
                                         .executor(executorService)
@@ -130,12 +176,16 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                                         .maxMessageSize(MAX_MESSAGE_SIZE)
                                         .build()
                                         .start();
-        this.dataSets = CacheBuilder.<Integer, IDataSet>newBuilder()
+        this.dataSets = CacheBuilder.<Integer, SavedDataSet>newBuilder()
                 .expireAfterAccess(EXPIRE_TIME_IN_HOURS, TimeUnit.HOURS)
                 .removalListener(
-                        (RemovalListener<Integer, IDataSet>) removalNotification ->
-                                HillviewLogger.instance.info("Removing reference to dataset", "{0}: {1}",
-                                    removalNotification.getKey(), removalNotification.getValue().toString()))
+                        (RemovalListener<Integer, SavedDataSet>) removalNotification -> {
+                            HillviewLogger.instance.info("Removing reference to dataset", "{0}: {1}",
+                                    removalNotification.getKey(), removalNotification.getValue().toString());
+                            this.memoizedCommands.removeDataset(
+                                    removalNotification.getValue().lineage,
+                                    Converters.checkNull(removalNotification.getKey()));
+                        })
                 .build();
         this.toUnsubscribe = CacheBuilder.<UUID, Boolean>newBuilder()
                 .expireAfterAccess(EXPIRE_TIME_IN_HOURS, TimeUnit.HOURS)
@@ -180,10 +230,12 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
         return this.operationToObservable.remove(id);
     }
 
-    synchronized private int save(IDataSet dataSet) {
+    synchronized private int save(IDataSet dataSet, ByteString lineage) {
         int index = this.dsIndex.getAndIncrement();
         HillviewLogger.instance.info("Inserting dataset", "{0}", index);
-        this.dataSets.put(index, dataSet);
+        this.dataSets.put(index, new SavedDataSet(dataSet, lineage));
+        if (MEMOIZE)
+            this.memoizedCommands.insertDataset(lineage, index);
         return index;
     }
 
@@ -194,11 +246,12 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
      * @return          The dataset, or null if there is no such dataset.
      */
     @Nullable
-    synchronized private IDataSet getIfValid(final int index,
-                                             final StreamObserver<PartialResponse> observer) {
+    synchronized private SavedDataSet getIfValid(final int index,
+                                                 final StreamObserver<PartialResponse> observer) {
         if (index == ROOT_DATASET_INDEX)
             return this.initialDataset;
-        IDataSet ds = this.dataSets.getIfPresent(index);
+        SavedDataSet ds = index == AGGREGATION_ROOT_INDEX ?
+                this.aggregationRoot : this.dataSets.getIfPresent(index);
         if (ds == null)
             observer.onError(asStatusRuntimeException(
                     new DatasetMissing(index, this.listenAddress)));
@@ -216,10 +269,41 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
         return (int)removed;
     }
 
+    /**
+     * Make this server an interior node of an aggregation tree.  The dataset with index
+     * AGGREGATION_ROOT_INDEX becomes a ParallelDataSet containing the initial dataset
+     * and the roots of the children, so that the results of the children are combined
+     * with the local ones on this server.  Calling this again replaces the children.
+     * @param children  Subtrees whose results are aggregated by this server.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void setAggregationChildren(
+            List<ClusterDescription.AggregationNode> children) {
+        List<IDataSet<Object>> datasets = new ArrayList<IDataSet<Object>>(children.size() + 1);
+        datasets.add((IDataSet<Object>)this.initialDataset.dataSet);
+        ByteString[] names = new ByteString[children.size()];
+        for (int i = 0; i < children.size(); i++) {
+            ClusterDescription.AggregationNode child = children.get(i);
+            int index = child.isLeaf() ? ROOT_DATASET_INDEX : AGGREGATION_ROOT_INDEX;
+            datasets.add(new RemoteDataSet<Object>(child.server, index));
+            names[i] = ByteString.copyFromUtf8(child.toString());
+        }
+        ParallelDataSet<Object> root = new ParallelDataSet<Object>(datasets);
+        ByteString lineage = MemoizedResults.key(this.initialDataset.lineage, "aggregate", names);
+        HillviewLogger.instance.info("Aggregating", "{0}", children);
+        this.aggregationRoot = new SavedDataSet(root, lineage);
+        this.purgeMemoized();
+    }
+
     public void purgeMemoized() {
+        HillviewLogger.instance.info("Purging memoized results", "{0}", this.memoizedCommands);
         this.memoizedCommands.clear();
     }
 
+    public MemoizedResults getMemoizedResults() {
+        return this.memoizedCommands;
+    }
+
     /**
      * Change memoization policy.
      * @return Current state of memoization.
@@ -231,23 +315,17 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
 
     /**
      * Subscriber that handles map, flatMap and zip.
+     * @param lineage  Lineage of the datasets produced.
      */
     private Subscriber<PartialResult<IDataSet>> createSubscriber(
-            final Command command, final UUID id, final String operation,
+            final UUID id, final String operation, final ByteString lineage,
             final StreamObserver<PartialResponse> responseObserver) {
         return new Subscriber<PartialResult<IDataSet>>() {
-            @Nullable private PartialResponse memoizedResult = null;
-            @Nullable private Integer memoizedDatasetIndex = null;
             private CompletableFuture queue = CompletableFuture.completedFuture(null);
 
             @Override
             public void onCompleted() {
                 queue = queue.thenRunAsync(() -> {
-                    if (MEMOIZE && this.memoizedResult != null) {
-                        HillviewServer.this.memoizedCommands.insert(
-                                command, this.memoizedResult,
-                                Converters.checkNull(this.memoizedDatasetIndex));
-                    }
                     responseObserver.onCompleted();
                     HillviewServer.this.removeSubscription(id, operation + " completed");
                 }, executorService);
@@ -268,19 +346,9 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                 queue = queue.thenRunAsync(() -> {
                     Integer idsIndex = null;
                     if (pr.deltaValue != null) {
-                        idsIndex = HillviewServer.this.save(pr.deltaValue);
+                        idsIndex = HillviewServer.this.save(pr.deltaValue, lineage);
                     }
-                    final OperationResponse<PartialResult<Integer>> res = new
-                            OperationResponse<PartialResult<Integer>>(new
-                            PartialResult<Integer>(pr.deltaDone, idsIndex));
-                    final byte[] bytes = SerializationUtils.serialize(res);
-                    final PartialResponse result = PartialResponse.newBuilder()
-                            .setSerializedOp(ByteString.copyFrom(bytes)).build();
-                    if (MEMOIZE) {
-                        this.memoizedResult = result;
-                        this.memoizedDatasetIndex = idsIndex;
-                    }
-                    responseObserver.onNext(result);
+                    responseObserver.onNext(datasetResponse(pr.deltaDone, idsIndex));
                 }, executorService);
             }
         };
@@ -294,20 +362,22 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
     public void map(final Command command, final StreamObserver<PartialResponse> responseObserver) {
         try {
             final UUID commandId = this.getId(command);
-            final IDataSet dataset = this.getIfValid(command.getIdsIndex(), responseObserver);
+            final SavedDataSet dataset = this.getIfValid(command.getIdsIndex(), responseObserver);
             if (dataset == null)
                 return;
             final byte[] bytes = command.getSerializedOp().toByteArray();
-            if (this.respondIfReplyIsMemoized(command, responseObserver, true)) {
+            final ByteString lineage = MemoizedResults.key(
+                    dataset.lineage, "map", command.getSerializedOp());
+            if (this.respondIfDatasetIsMemoized(lineage, responseObserver)) {
                 HillviewLogger.instance.info(
                         "Found memoized map", "on IDataSet#{0}", command.getIdsIndex());
                 return;
             }
 
-            final MapOperation mapOp = SerializationUtils.deserialize(bytes);
-            final Observable<PartialResult<IDataSet>> observable = dataset.map(mapOp.mapper);
+            final MapOperation mapOp = Codecs.decode(bytes);
+            final Observable<PartialResult<IDataSet>> observable = dataset.dataSet.map(mapOp.mapper);
             Subscriber subscriber = this.createSubscriber(
-                    command, commandId, "map", responseObserver);
+                    commandId, "map", lineage, responseObserver);
             final Subscription sub = observable
                     .unsubscribeOn(ExecutorUtils.getUnsubscribeScheduler())
                     .subscribe(subscriber);
@@ -330,20 +400,21 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
             final Command command, final StreamObserver<PartialResponse> responseObserver) {
         try {
             final UUID commandId = this.getId(command);
-            final IDataSet dataset = this.getIfValid(command.getIdsIndex(), responseObserver);
+            final SavedDataSet dataset = this.getIfValid(command.getIdsIndex(), responseObserver);
             if (dataset == null)
                 return;
             final byte[] bytes = command.getSerializedOp().toByteArray();
-
-            if (this.respondIfReplyIsMemoized(command, responseObserver, true)) {
+            final ByteString lineage = MemoizedResults.key(
+                    dataset.lineage, "flatMap", command.getSerializedOp());
+            if (this.respondIfDatasetIsMemoized(lineage, responseObserver)) {
                 HillviewLogger.instance.info(
                         "Found memoized flatMap", "on IDataSet#{0}", command.getIdsIndex());
                 return;
             }
-            final FlatMapOperation mapOp = SerializationUtils.deserialize(bytes);
-            final Observable<PartialResult<IDataSet>> observable = dataset.flatMap(mapOp.mapper);
+            final FlatMapOperation mapOp = Codecs.decode(bytes);
+            final Observable<PartialResult<IDataSet>> observable = dataset.dataSet.flatMap(mapOp.mapper);
             Subscriber subscriber = this.createSubscriber(
-                    command, commandId, "flatMap", responseObserver);
+                    commandId, "flatMap", lineage, responseObserver);
             final Subscription sub = observable
                     .unsubscribeOn(ExecutorUtils.getUnsubscribeScheduler())
                     .subscribe(subscriber);
@@ -366,17 +437,19 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
         try {
             final UUID commandId = this.getId(command);
             boolean memoize = MEMOIZE;  // The value may change while we execute
-            final IDataSet dataset = this.getIfValid(command.getIdsIndex(), responseObserver);
+            final SavedDataSet dataset = this.getIfValid(command.getIdsIndex(), responseObserver);
             if (dataset == null)
                 return;
-            if (this.respondIfReplyIsMemoized(command, responseObserver, false)) {
+            final ByteString key = MemoizedResults.key(
+                    dataset.lineage, "sketch", command.getSerializedOp());
+            if (this.respondIfSketchIsMemoized(key, responseObserver)) {
                 HillviewLogger.instance.info(
                         "Found memoized sketch", "on IDataSet#{0}", command.getIdsIndex());
                 return;
             }
             final byte[] bytes = command.getSerializedOp().toByteArray();
-            final SketchOperation sketchOp = SerializationUtils.deserialize(bytes);
-            final Observable<PartialResult> observable = dataset.sketch(sketchOp.sketch);
+            final SketchOperation sketchOp = Codecs.decode(bytes);
+            final Observable<PartialResult> observable = dataset.dataSet.sketch(sketchOp.sketch);
             Subscriber subscriber = new Subscriber<PartialResult>() {
                 @Nullable private Object sketchResultAccumulator =
                         memoize ? sketchOp.sketch.getZero(): null;
@@ -392,11 +465,11 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                             final OperationResponse<PartialResult> res =
                                     new OperationResponse<PartialResult>(
                                             new PartialResult(1.0, this.sketchResultAccumulator));
-                            final byte[] bytes = SerializationUtils.serialize(res);
+                            final byte[] bytes = Codecs.encode(res);
                             final PartialResponse memoizedResult = PartialResponse.newBuilder()
                                     .setSerializedOp(ByteString.copyFrom(bytes))
                                     .build();
-                            HillviewServer.this.memoizedCommands.insert(command, memoizedResult, 0);
+                            HillviewServer.this.memoizedCommands.insertSketch(key, memoizedResult);
                         }
                     }, executorService);
                 }
@@ -419,7 +492,7 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                                     .sketchResultAccumulator, pr.deltaValue);
                         final OperationResponse<PartialResult> res =
                                 new OperationResponse<PartialResult>(pr);
-                        final byte[] bytes = SerializationUtils.serialize(res);
+                        final byte[] bytes = Codecs.encode(res);
                         responseObserver.onNext(PartialResponse.newBuilder()
                                 .setSerializedOp(ByteString.copyFrom(bytes))
                                 .build());
@@ -448,12 +521,12 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
         try {
             final UUID commandId = this.getId(command);
             // TODO: handle errors in a better way in manage commands
-            final IDataSet dataset = this.getIfValid(command.getIdsIndex(), responseObserver);
+            final SavedDataSet dataset = this.getIfValid(command.getIdsIndex(), responseObserver);
             if (dataset == null)
                 return;
             final byte[] bytes = command.getSerializedOp().toByteArray();
-            final ManageOperation manage = SerializationUtils.deserialize(bytes);
-            Observable<PartialResult<ControlMessage.StatusList>> observable = dataset.manage(manage
+            final ManageOperation manage = Codecs.decode(bytes);
+            Observable<PartialResult<ControlMessage.StatusList>> observable = dataset.dataSet.manage(manage
                     .message);
             final Callable<ControlMessage.StatusList> callable = () -> {
                 HillviewLogger.instance.info("Starting manage", "{0}", manage.message.toString());
@@ -489,7 +562,7 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                 public void onNext(final PartialResult pr) {
                     final OperationResponse<PartialResult> res =
                             new OperationResponse<PartialResult>(pr);
-                    final byte[] bytes = SerializationUtils.serialize(res);
+                    final byte[] bytes = Codecs.encode(res);
                     responseObserver.onNext(PartialResponse.newBuilder()
                             .setSerializedOp(ByteString.copyFrom(bytes))
                             .build());
@@ -517,23 +590,25 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
         try {
             final UUID commandId = this.getId(command);
             final byte[] bytes = command.getSerializedOp().toByteArray();
-            final ZipOperation zipOp = SerializationUtils.deserialize(bytes);
-            final IDataSet left = this.getIfValid(command.getIdsIndex(), responseObserver);
+            final ZipOperation zipOp = Codecs.decode(bytes);
+            final SavedDataSet left = this.getIfValid(command.getIdsIndex(), responseObserver);
             if (left == null)
                 return;
-            final IDataSet right = this.getIfValid(zipOp.datasetIndex, responseObserver);
+            final SavedDataSet right = this.getIfValid(zipOp.datasetIndex, responseObserver);
             if (right == null)
                 return;
-            if (this.respondIfReplyIsMemoized(command, responseObserver, true)) {
+            // The operation contains the index of the right dataset, which is not stable.
+            final ByteString lineage = MemoizedResults.key(left.lineage, "zip", right.lineage);
+            if (this.respondIfDatasetIsMemoized(lineage, responseObserver)) {
                 HillviewLogger.instance.info(
                         "Found memoized zip", "on IDataSet#{0}",
                         command.getIdsIndex());
                 return;
             }
 
-            final Observable<PartialResult<IDataSet>> observable = left.zip(right);
+            final Observable<PartialResult<IDataSet>> observable = left.dataSet.zip(right.dataSet);
             Subscriber subscriber = this.createSubscriber(
-                    command, commandId, "zip", responseObserver);
+                    commandId, "zip", lineage, responseObserver);
             final Subscription sub = observable
                     .unsubscribeOn(ExecutorUtils.getUnsubscribeScheduler())
                     .subscribe(subscriber);
@@ -554,7 +629,7 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
     public void unsubscribe(final Command command, final StreamObserver<Ack> responseObserver) {
         try {
             final byte[] bytes = command.getSerializedOp().toByteArray();
-            final UnsubscribeOperation unsubscribeOp = SerializationUtils.deserialize(bytes);
+            final UnsubscribeOperation unsubscribeOp = Codecs.decode(bytes);
             HillviewLogger.instance.info("Unsubscribing", "{0}", unsubscribeOp.id);
             @Nullable
             final Subscription subscription = this.removeSubscription(unsubscribeOp.id,
@@ -582,34 +657,55 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
     }
 
     /**
-     * Respond with a memoized result if it is available.  Otherwise do nothing.
-     * @param command   Command to execute.
+     * Encode a response to a command that produces a dataset.
+     * @param done     Fraction of the work done.
+     * @param index    Index of the dataset produced, if any.
+     */
+    private static PartialResponse datasetResponse(double done, @Nullable Integer index) {
+        final OperationResponse<PartialResult<Integer>> res = new
+                OperationResponse<PartialResult<Integer>>(new
+                PartialResult<Integer>(done, index));
+        final byte[] bytes = Codecs.encode(res);
+        return PartialResponse.newBuilder()
+                .setSerializedOp(ByteString.copyFrom(bytes)).build();
+    }
+
+    /**
+     * Respond with an existing dataset if one with the same lineage is still
+     * available.  Otherwise do nothing.
+     * @param lineage          Lineage of the dataset the command would produce.
      * @param responseObserver Observer that expects the result of the command.
-     * @param checkResult      Only used if the result is actually a dataset id;
-     *                         if the dataset with this id does not exist, then
-     *                         it is removed from the memoization cache.  It means
-     *                         that the dataset has expired.
      */
-    private boolean respondIfReplyIsMemoized(final Command command,
-                                             StreamObserver<PartialResponse> responseObserver,
-                                             boolean checkResult) {
+    private boolean respondIfDatasetIsMemoized(final ByteString lineage,
+                                               StreamObserver<PartialResponse> responseObserver) {
         if (!MEMOIZE)
             return false;
-        MemoizedResults.ResponseAndId memoized = this.memoizedCommands.get(command);
-        if (memoized == null)
+        Integer index = this.memoizedCommands.getDataset(lineage);
+        if (index == null)
+            return false;
+        if (this.dataSets.getIfPresent(index) == null) {
+            // This dataset no longer exists
+            this.memoizedCommands.removeDataset(lineage, index);
             return false;
-        if (checkResult) {
-            int index = memoized.localDatasetIndex;
-            assert index != 0;
-            IDataSet ds = this.dataSets.getIfPresent(index);
-            if (ds == null) {
-                // This dataset no longer exists; remove it from
-                // the memoization cache as well.
-                this.memoizedCommands.remove(command, memoized);
-                return false;
-            }
         }
-        responseObserver.onNext(memoized.response);
+        responseObserver.onNext(datasetResponse(1.0, index));
+        responseObserver.onCompleted();
+        return true;
+    }
+
+    /**
+     * Respond with a memoized sketch result if it is available.  Otherwise do nothing.
+     * @param key              Key of the sketch command.
+     * @param responseObserver Observer that expects the result of the command.
+     */
+    private boolean respondIfSketchIsMemoized(final ByteString key,
+                                              StreamObserver<PartialResponse> responseObserver) {
+        if (!MEMOIZE)
+            return false;
+        PartialResponse memoized = this.memoizedCommands.getSketch(key);
+        if (memoized == null)
+            return false;
+        responseObserver.onNext(memoized);
         responseObserver.onCompleted();
         return true;
     }
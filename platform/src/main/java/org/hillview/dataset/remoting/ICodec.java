@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.dataset.remoting;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A binary encoder/decoder for values of a specific class that are sent
+ * between a HillviewServer and a RemoteDataSet.  Codecs are registered with
+ * the Codecs class; values of classes without a codec use Java serialization.
+ * Nested values (e.g., the bucket description of a histogram) should be written
+ * using Codecs.write, so that they can use their own codec.
+ * @param <T> Type of value encoded.
+ */
+public interface ICodec<T> {
+    void encode(T value, DataOutputStream out) throws IOException;
+    T decode(DataInputStream in) throws IOException;
+}
@@ -17,75 +17,159 @@
 
 package org.hillview.dataset.remoting;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
 import com.google.protobuf.ByteString;
-import org.hillview.pb.Command;
 import org.hillview.pb.PartialResponse;
 
 import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class is used to hold memoized results from remote commands.
+ * Results are keyed by the lineage of the dataset a command is applied to,
+ * and not by the dataset index: the lineage is a digest of the root dataset and
+ * the sequence of operations that produced the dataset.  Thus the same view
+ * created again after its datasets have expired still finds the memoized results.
+ * Each command applied to a dataset with lineage L has the key digest(L, command);
+ * for commands that produce datasets this key is also the lineage of the result.
  */
 public class MemoizedResults {
     /**
-     * This is used as a element in the memoizedCommands hashmap below.
+     * Default memory budget for memoized sketch results.
      */
-    static class ResponseAndId {
-        /**
-         * The serialized version of the result of a computation.
-         */
-        final PartialResponse response;
-        /**
-         * If the partial response contains an IDataset index,
-         * this field contains the raw index.
-         */
-        final Integer localDatasetIndex;
-
-        ResponseAndId(final PartialResponse response, int index) {
-            this.response = response;
-            this.localDatasetIndex = index;
-        }
-    }
+    public static final long DEFAULT_BUDGET_BYTES = 256L << 20;
+    /**
+     * Lineage of the root dataset of a server.
+     */
+    static final ByteString ROOT_LINEAGE = ByteString.copyFromUtf8("root");
 
     /**
-     * Map each (command, dataset index) to a partial response obtained by
-     * running the command on that respective dataset.
+     * Serialized results of sketches.  Least recently used results are
+     * evicted when the total size exceeds the budget.
+     */
+    private final Cache<ByteString, PartialResponse> sketchResults;
+    /**
+     * Maps the lineage of each live dataset to its index.
      */
-    private final ConcurrentHashMap<ByteString, Map<Integer, ResponseAndId>> memoizedCommands;
+    private final ConcurrentHashMap<ByteString, Integer> datasets;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
 
-    MemoizedResults() {
-        this.memoizedCommands = new ConcurrentHashMap<ByteString, Map<Integer, ResponseAndId>>();
+    /**
+     * Create a memoization cache.
+     * @param budgetBytes  Maximum total size of the memoized sketch results.
+     */
+    MemoizedResults(long budgetBytes) {
+        this.sketchResults = CacheBuilder.newBuilder()
+                .maximumWeight(budgetBytes)
+                .weigher((Weigher<ByteString, PartialResponse>)
+                        (key, value) -> key.size() + value.getSerializedSize())
+                .build();
+        this.datasets = new ConcurrentHashMap<ByteString, Integer>();
+    }
+
+    /**
+     * Compute the key of a command applied to a dataset.
+     * @param lineage    Lineage of the dataset the command is applied to.
+     * @param operation  Kind of command.
+     * @param arguments  Data that identifies the command, e.g., the serialized operation.
+     */
+    static ByteString key(ByteString lineage, String operation, ByteString... arguments) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(lineage.asReadOnlyByteBuffer());
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            for (ByteString a : arguments) {
+                // Include the length to keep the encoding unambiguous.
+                int size = a.size();
+                digest.update(new byte[] {
+                        (byte)(size >>> 24), (byte)(size >>> 16), (byte)(size >>> 8), (byte)size });
+                digest.update(a.asReadOnlyByteBuffer());
+            }
+            return ByteString.copyFrom(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     /**
      * Purges all memoized results
      */
     public void clear() {
-        this.memoizedCommands.clear();
+        this.sketchResults.invalidateAll();
+        this.datasets.clear();
     }
 
     @Nullable
-    public ResponseAndId get(final Command command) {
-        ByteString ser = command.getSerializedOp();
-        if (!this.memoizedCommands.containsKey(ser))
-            return null;
-        Map<Integer, ResponseAndId> map = this.memoizedCommands.get(ser);
-        int index = command.getIdsIndex();
-        if (!map.containsKey(index))
-            return null;
-        return map.get(index);
+    PartialResponse getSketch(final ByteString key) {
+        return this.count(this.sketchResults.getIfPresent(key));
+    }
+
+    void insertSketch(final ByteString key, final PartialResponse response) {
+        this.sketchResults.put(key, response);
     }
 
-    public void insert(final Command command, final PartialResponse response, Integer index) {
-        ResponseAndId rid = new ResponseAndId(response, index);
-        this.memoizedCommands.computeIfAbsent(command.getSerializedOp(),
-                (k) -> new ConcurrentHashMap<Integer, ResponseAndId>()).put(command.getIdsIndex(), rid);
+    /**
+     * @param lineage  Lineage of a dataset.
+     * @return The index of a live dataset with this lineage, or null if there is none.
+     */
+    @Nullable
+    Integer getDataset(final ByteString lineage) {
+        return this.count(this.datasets.get(lineage));
+    }
+
+    /**
+     * Record a dataset, so that commands producing the same lineage can reuse it.
+     */
+    void insertDataset(final ByteString lineage, int index) {
+        this.datasets.put(lineage, index);
+    }
+
+    /**
+     * Forget a dataset which has been removed.
+     */
+    void removeDataset(final ByteString lineage, int index) {
+        this.datasets.remove(lineage, index);
+    }
+
+    @Nullable
+    private <T> T count(@Nullable T value) {
+        if (value == null)
+            this.misses.incrementAndGet();
+        else
+            this.hits.incrementAndGet();
+        return value;
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * @return Total size in bytes of the memoized sketch results.
+     */
+    public long getSize() {
+        long result = 0;
+        for (Map.Entry<ByteString, PartialResponse> e : this.sketchResults.asMap().entrySet())
+            result += e.getKey().size() + e.getValue().getSerializedSize();
+        return result;
     }
 
-    public void remove(final Command command, final ResponseAndId resp) {
-        Map<Integer, ResponseAndId> map = this.memoizedCommands.get(command.getSerializedOp());
-        map.remove(command.getIdsIndex());
+    @Override
+    public String toString() {
+        return "hits=" + this.getHits() + ", misses=" + this.getMisses() +
+                ", sketches=" + this.sketchResults.size() + ", bytes=" + this.getSize() +
+                ", datasets=" + this.datasets.size();
     }
 }
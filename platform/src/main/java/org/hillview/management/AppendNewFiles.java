@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.management;
+
+import org.hillview.dataset.LocalDataSet;
+import org.hillview.dataset.ParallelDataSet;
+import org.hillview.dataset.api.ControlMessage;
+import org.hillview.dataset.api.IDataSet;
+import org.hillview.dataset.remoting.HillviewServer;
+import org.hillview.maps.FindFilesMapper;
+import org.hillview.storage.FileGroupReference;
+import org.hillview.storage.FileSetDescription;
+import org.hillview.storage.IFileReference;
+import org.hillview.table.api.ITable;
+import org.hillview.utils.HillviewLogger;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This control message is sent to a dataset of tables loaded from a set of files.
+ * Each worker looks again for the files matching the description, loads the
+ * ones that are not already part of the dataset, and appends them as new partitions.
+ * Sketches started after this message completes include the new data.
+ * Sending this message periodically ingests files as they appear.
+ */
+public class AppendNewFiles extends ControlMessage {
+    private final FileSetDescription description;
+
+    public AppendNewFiles(FileSetDescription description) {
+        this.description = description;
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> Status parallelAction(ParallelDataSet<T> dataset) {
+        // Only the datasets whose children are the tables produced by loading the
+        // files are extended; the others (e.g., holding remote datasets, or views
+        // derived from the loaded tables) just forward the message.
+        // Concurrent messages must not append the same files twice.
+        synchronized (dataset) {
+            List<IDataSet<T>> children = dataset.getChildren();
+            if (children.isEmpty())
+                return null;
+            Set<String> loaded = new HashSet<String>();
+            for (IDataSet<T> child : children) {
+                if (!(child instanceof LocalDataSet<?>))
+                    return null;
+                Object data = ((LocalDataSet<T>)child).data;
+                if (!(data instanceof ITable))
+                    return null;
+                List<String> files = ((ITable)data).getLoadedFiles();
+                if (files == null)
+                    return null;
+                loaded.addAll(files);
+            }
+
+            List<IFileReference> files = new ArrayList<IFileReference>();
+            for (IFileReference file : new FindFilesMapper(this.description).findFiles())
+                if (!loaded.contains(file.getPathname()))
+                    files.add(file);
+            files = FileGroupReference.coalesce(files, this.description.groupSizeInBytes);
+            List<IDataSet<T>> added = new ArrayList<IDataSet<T>>();
+            // A partition may hold a group of files.
+            int fileCount = 0;
+            for (IFileReference file : files) {
+                ITable table = file.load();
+                List<String> tableFiles = table.getLoadedFiles();
+                fileCount += tableFiles == null ? 1 : tableFiles.size();
+                added.add((IDataSet<T>)new LocalDataSet<ITable>(table));
+            }
+            if (!added.isEmpty()) {
+                dataset.append(added);
+                HillviewLogger.instance.info("Appended files", "{0} files in {1} partitions: {2}",
+                        fileCount, added.size(), dataset);
+            }
+            return new Status(fileCount + " files appended");
+        }
+    }
+
+    @Override
+    public Status remoteServerAction(HillviewServer server) {
+        // Memoized results computed on the old data are stale.
+        server.purgeMemoized();
+        return new Status("memoized results purged");
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.management;
+
+import org.hillview.dataset.ParallelDataSet;
+import org.hillview.dataset.RemoteDataSet;
+import org.hillview.dataset.api.ControlMessage;
+import org.hillview.dataset.api.Empty;
+import org.hillview.dataset.api.IDataSet;
+import org.hillview.dataset.api.PartialResult;
+import org.hillview.dataset.remoting.HillviewServer;
+import org.hillview.utils.ClusterDescription;
+import org.hillview.utils.HillviewLogger;
+import rx.Observable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This control message is sent to a single server to make it an interior node
+ * of an aggregation tree: the server will combine the results of its children
+ * with its own before sending them upstream.
+ */
+public class ConfigureAggregation extends ControlMessage {
+    private final ClusterDescription.AggregationNode node;
+
+    public ConfigureAggregation(ClusterDescription.AggregationNode node) {
+        this.node = node;
+    }
+
+    @Override
+    public Status remoteServerAction(HillviewServer server) {
+        server.setAggregationChildren(this.node.children);
+        return new Status("aggregating " + this.node.children.size() + " servers");
+    }
+
+    /**
+     * Configure all interior nodes of an aggregation tree and create the
+     * dataset that combines the results of all servers in the tree.
+     * Blocks until all servers have been configured.
+     * @param roots  Roots of the aggregation tree.
+     */
+    public static IDataSet<Empty> createRootDataset(List<ClusterDescription.AggregationNode> roots) {
+        List<ClusterDescription.AggregationNode> aggregators =
+                new ArrayList<ClusterDescription.AggregationNode>();
+        for (ClusterDescription.AggregationNode n : roots)
+            n.getAggregators(aggregators);
+        if (!aggregators.isEmpty()) {
+            HillviewLogger.instance.info("Configuring aggregation tree", "{0}", roots);
+            List<Observable<PartialResult<StatusList>>> configured =
+                    new ArrayList<Observable<PartialResult<StatusList>>>();
+            // The message is sent to the initial dataset of each server, so it is not forwarded.
+            for (ClusterDescription.AggregationNode n : aggregators)
+                configured.add(new RemoteDataSet<Empty>(n.server).manage(new ConfigureAggregation(n)));
+            Observable.merge(configured).toBlocking().last();
+        }
+
+        List<IDataSet<Empty>> children = new ArrayList<IDataSet<Empty>>(roots.size());
+        for (ClusterDescription.AggregationNode n : roots) {
+            int index = n.isLeaf() ?
+                    HillviewServer.ROOT_DATASET_INDEX : HillviewServer.AGGREGATION_ROOT_INDEX;
+            children.add(new RemoteDataSet<Empty>(n.server, index));
+        }
+        return new ParallelDataSet<Empty>(children);
+    }
+}
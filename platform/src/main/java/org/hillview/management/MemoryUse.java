@@ -19,11 +19,13 @@ package org.hillview.management;
 
 import org.hillview.dataset.api.ControlMessage;
 import org.hillview.dataset.remoting.HillviewServer;
+import org.hillview.table.columns.ColumnCache;
 
 import java.text.NumberFormat;
 
 /**
- * This control message returns the memory used in a specific HillviewServer process JVM.
+ * This control message returns the memory used in a specific HillviewServer process JVM,
+ * and the statistics of its column cache.
  */
 public class MemoryUse extends ControlMessage {
     public Status remoteServerAction(HillviewServer server) {
@@ -32,6 +34,7 @@ public class MemoryUse extends ControlMessage {
         System.gc();
         Runtime rt = Runtime.getRuntime();
         long usedMemory = rt.totalMemory() - rt.freeMemory();
-        return new Status(NumberFormat.getIntegerInstance().format(usedMemory));
+        return new Status(NumberFormat.getIntegerInstance().format(usedMemory) +
+                "; " + ColumnCache.instance.toString());
     }
 }
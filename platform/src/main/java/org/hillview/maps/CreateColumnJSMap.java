@@ -22,6 +22,7 @@ import org.hillview.table.ColumnDescription;
 import org.hillview.table.Schema;
 import org.hillview.table.api.*;
 import org.hillview.table.columns.BaseArrayColumn;
+import org.hillview.table.expressions.CompiledFunction;
 import org.hillview.table.rows.JSVirtualRowSnapshot;
 import org.hillview.utils.Converters;
 
@@ -29,12 +30,15 @@ import javax.annotation.Nullable;
 import javax.script.Invocable;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
 import java.time.Instant;
 import java.util.HashMap;
 
 /**
  * This map creates a new column by running a JavaScript
- * function over a set of columns.
+ * function over a set of columns.  Functions written in a simple
+ * subset of JavaScript are compiled and evaluated on batches of rows;
+ * the others are interpreted by the JavaScript engine for each row.
  */
 public class CreateColumnJSMap extends AppendColumnMap {
     /**
@@ -70,70 +74,112 @@ public class CreateColumnJSMap extends AppendColumnMap {
         this.columnRenameMap = columnRenameMap;
     }
 
+    /**
+     * Evaluates the JavaScript function using the Nashorn engine, one row at a time.
+     * The engine is only created when first used.
+     */
+    private class Interpreter {
+        private final ITable table;
+        private final IMutableColumn col;
+        @Nullable
+        private Invocable invocable;
+        @Nullable
+        private JSVirtualRowSnapshot vrs;
+
+        Interpreter(ITable table, IMutableColumn col) {
+            this.table = table;
+            this.col = col;
+        }
+
+        void evaluate(int r) throws ScriptException, NoSuchMethodException {
+            if (this.invocable == null) {
+                ScriptEngineManager factory = new ScriptEngineManager();
+                ScriptEngine engine = factory.getEngineByName("nashorn");
+                // Compiles the JS function
+                engine.eval(CreateColumnJSMap.this.jsFunction);
+                this.invocable = (Invocable)engine;
+                this.vrs = new JSVirtualRowSnapshot(
+                        this.table, CreateColumnJSMap.this.inputColumns,
+                        CreateColumnJSMap.this.columnRenameMap, engine);
+            }
+            assert this.vrs != null;
+            this.vrs.setRow(r);
+            Object value = this.invocable.invokeFunction("map", this.vrs);
+            if (value == null)
+                this.col.setMissing(r);
+            else {
+                switch (CreateColumnJSMap.this.outputColumn.kind) {
+                    case None:
+                        this.col.set(r, value);
+                    case Category:
+                    case String:
+                    case Json:
+                        this.col.set(r, value.toString());
+                        break;
+                    case Date:
+                        ScriptObjectMirror jsDate = (ScriptObjectMirror)value;
+                        double timestampLocal = (double)jsDate.callMember("getTime");
+                        Instant instant = Converters.toDate(timestampLocal);
+                        this.col.set(r, instant);
+                        break;
+                    case Integer:
+                        if (value instanceof Double)
+                            this.col.set(r, (int)(double)value);
+                        else if (value instanceof Integer)
+                            this.col.set(r, (int)value);
+                        else
+                            throw new RuntimeException("Expected a number for Javascript not " +
+                                    value.getClass().toString());
+                        break;
+                    case Double:
+                        if (value instanceof Double)
+                            this.col.set(r, (double)value);
+                        else if (value instanceof Integer)
+                            this.col.set(r, (double)(int)value);
+                        else
+                            throw new RuntimeException("Expected a number for Javascript not " +
+                                    value.getClass().toString());
+                        break;
+                    case Duration:
+                        // TODO
+                        this.col.set(r, value);
+                        break;
+                }
+            }
+        }
+    }
+
     @Override
     IColumn createColumn(ITable table) {
         try {
-            ScriptEngineManager factory = new ScriptEngineManager();
-            ScriptEngine engine = factory.getEngineByName("nashorn");
-            // Compiles the JS function
-            engine.eval(this.jsFunction);
-            Invocable invocable = (Invocable)engine;
-
             IMutableColumn col = BaseArrayColumn.create(this.outputColumn,
                     table.getMembershipSet().getMax());
             // TODO: ensure that the input columns are loaded.
-            ContentsKind kind = this.outputColumn.kind;
-
-            JSVirtualRowSnapshot vrs = new JSVirtualRowSnapshot(
-                    table, this.inputColumns, this.columnRenameMap, engine);
+            Interpreter interpreter = new Interpreter(table, col);
+            CompiledFunction compiled = CompiledFunction.compile(
+                    this.jsFunction, table, this.inputColumns,
+                    this.columnRenameMap, this.outputColumn.kind);
             IRowIterator it = table.getMembershipSet().getIterator();
-            int r = it.getNextRow();
-            while (r >= 0) {
-                vrs.setRow(r);
-                Object value = invocable.invokeFunction("map", vrs);
-                if (value == null)
-                    col.setMissing(r);
-                else {
-                    switch (kind) {
-                        case None:
-                            col.set(r, value);
-                        case Category:
-                        case String:
-                        case Json:
-                            col.set(r, value.toString());
-                            break;
-                        case Date:
-                            ScriptObjectMirror jsDate = (ScriptObjectMirror)value;
-                            double timestampLocal = (double)jsDate.callMember("getTime");
-                            Instant instant = Converters.toDate(timestampLocal);
-                            col.set(r, instant);
-                            break;
-                        case Integer:
-                            if (value instanceof Double)
-                                col.set(r, (int)(double)value);
-                            else if (value instanceof Integer)
-                                col.set(r, (int)value);
-                            else
-                                throw new RuntimeException("Expected a number for Javascript not " +
-                                        value.getClass().toString());
-                            break;
-                        case Double:
-                            if (value instanceof Double)
-                                col.set(r, (double)value);
-                            else if (value instanceof Integer)
-                                col.set(r, (double)(int)value);
-                            else
-                                throw new RuntimeException("Expected a number for Javascript not " +
-                                        value.getClass().toString());
-                            break;
-                        case Duration:
-                            // TODO
-                            col.set(r, value);
-                            break;
-                    }
+            if (compiled == null) {
+                int r = it.getNextRow();
+                while (r >= 0) {
+                    interpreter.evaluate(r);
+                    r = it.getNextRow();
                 }
-                r = it.getNextRow();
+                return col;
             }
+
+            // Rows that the compiled function cannot handle are given to the interpreter.
+            int[] rows = new int[ColumnAndConverter.batchSize];
+            boolean[] fallback = new boolean[rows.length];
+            int count;
+            do {
+                count = it.getNextRows(rows);
+                compiled.evaluate(rows, count, col, fallback);
+                for (int i = 0; i < count; i++)
+                    if (fallback[i])
+                        interpreter.evaluate(rows[i]);
+            } while (count == rows.length);
             return col;
         } catch (Exception ex) {
             throw new RuntimeException(ex);
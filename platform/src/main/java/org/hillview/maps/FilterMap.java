@@ -55,7 +55,7 @@ public class FilterMap implements IMap<ITable, ITable> {
         else
             filter = this.rowFilterPredicate.getFilter(data);
         HillviewLogger.instance.info("Filtering", "{0}", filter);
-        IMembershipSet result = data.getMembershipSet().filter(filter::test);
+        IMembershipSet result = data.getMembershipSet().filterRows(filter);
         return data.selectRowsFromFullTable(result);
     }
 
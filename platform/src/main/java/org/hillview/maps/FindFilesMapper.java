@@ -19,6 +19,7 @@ package org.hillview.maps;
 
 import org.hillview.dataset.api.Empty;
 import org.hillview.dataset.api.IMap;
+import org.hillview.storage.FileGroupReference;
 import org.hillview.storage.FileSetDescription;
 import org.hillview.storage.IFileReference;
 import org.hillview.utils.HillviewLogger;
@@ -48,11 +49,26 @@ public class FindFilesMapper implements IMap<Empty, List<IFileReference>> {
 
     /**
      * Returns a list of IFileReference objects, one for each of the files
-     * that match the specification.
+     * that match the specification, or one for each group of files if the
+     * description requires small files to be grouped.
      * @param empty: unused.
      */
     @Override
     public List<IFileReference> apply(Empty empty) {
+        List<IFileReference> files = this.findFiles();
+        List<IFileReference> result = FileGroupReference.coalesce(
+                files, this.description.groupSizeInBytes);
+        if (result.size() != files.size())
+            HillviewLogger.instance.info("Grouped files", "{0} files in {1} groups",
+                    files.size(), result.size());
+        return result;
+    }
+
+    /**
+     * Returns a list of IFileReference objects, one for each of the files
+     * that match the specification.
+     */
+    public List<IFileReference> findFiles() {
         Path dir = Paths.get(this.description.folder);
         @Nullable
         String filenameRegex = this.description.getRegexPattern();
@@ -19,6 +19,7 @@ package org.hillview.sketches;
 
 import org.hillview.dataset.api.IJson;
 import org.hillview.table.api.*;
+import org.hillview.table.columns.BlockStatistics;
 
 import javax.annotation.Nullable;
 
@@ -75,7 +76,9 @@ public class BasicColStats implements IJson {
     void createStats(final ColumnAndConverter column,
                      final IMembershipSet membershipSet) {
         final IRowIterator myIter = membershipSet.getIterator();
-        int currRow = myIter.getNextRow();
+        final int[] rows = new int[ColumnAndConverter.batchSize];
+        final double[] values = new double[rows.length];
+        final boolean[] missing = new boolean[rows.length];
 
         boolean extractString = false;
         switch (column.column.getKind()) {
@@ -87,52 +90,105 @@ public class BasicColStats implements IJson {
             default:
                 break;
         }
-        while (currRow >= 0) {
-            if (column.column.isMissing(currRow)) {
-                this.missingCount++;
-                currRow = myIter.getNextRow();
-                continue;
+        if (this.momentCount == 0 && !extractString &&
+                this.createFromBlocks(column, membershipSet))
+            return;
+        int count;
+        do {
+            count = myIter.getNextRows(rows);
+            column.asDoubles(rows, count, values, missing);
+            for (int i = 0; i < count; i++) {
+                if (missing[i]) {
+                    this.missingCount++;
+                    continue;
+                }
+                this.add(values[i], extractString ? column.getString(rows[i]) : null);
             }
+        } while (count == rows.length);
+    }
 
-            String strVal = null;
-            double val = column.asDouble(currRow);
-            if (extractString)
-                strVal = column.getString(currRow);
+    /**
+     * Compute the range of a column from its block statistics; this is only
+     * possible if all the rows of the column are in the membership set.
+     * @return False if the statistics cannot be used.
+     */
+    private boolean createFromBlocks(final ColumnAndConverter column,
+                                     final IMembershipSet membershipSet) {
+        switch (column.column.getKind()) {
+            case Integer:
+            case Double:
+            case Date:
+            case Duration:
+                break;
+            default:
+                return false;
+        }
+        if (membershipSet.getSize() != column.column.sizeInRows())
+            return false;
+        BlockStatistics stats = column.column.getBlockStatistics();
+        if (stats == null)
+            return false;
+        for (int b = 0; b < stats.getBlockCount(); b++)
+            if (stats.getPresentCount(b) > 0 && Double.isNaN(stats.getMin(b)))
+                return false;
+        for (int b = 0; b < stats.getBlockCount(); b++) {
+            this.missingCount += stats.getMissingCount(b);
+            int present = stats.getPresentCount(b);
+            if (present == 0)
+                continue;
             if (this.presentCount == 0) {
-                this.min = val;
-                this.max = val;
-                if (extractString) {
-                    this.minString = strVal;
-                    this.maxString = strVal;
-                }
-            } else if (val < this.min) {
-                this.min = val;
-            } else if (val > this.max) {
-                this.max = val;
+                this.min = stats.getMin(b);
+                this.max = stats.getMax(b);
+            } else {
+                if (stats.getMin(b) < this.min)
+                    this.min = stats.getMin(b);
+                if (stats.getMax(b) > this.max)
+                    this.max = stats.getMax(b);
             }
+            this.presentCount += present;
+        }
+        return true;
+    }
+
+    /**
+     * Add a value that is not missing.
+     * @param strVal  String value of the row, or null if strings are not tracked.
+     */
+    private void add(double val, @Nullable String strVal) {
+        boolean extractString = strVal != null;
+        if (this.presentCount == 0) {
+            this.min = val;
+            this.max = val;
             if (extractString) {
-                assert this.minString != null;
-                assert strVal != null;
-                if (this.minString.compareTo(strVal) < 0)
-                    this.minString = strVal;
-                assert this.maxString != null;
-                if (this.maxString.compareTo(strVal) < 0)
-                    this.maxString = strVal;
+                this.minString = strVal;
+                this.maxString = strVal;
             }
+        } else if (val < this.min) {
+            this.min = val;
+        } else if (val > this.max) {
+            this.max = val;
+        }
+        if (extractString) {
+            assert this.minString != null;
+            assert strVal != null;
+            if (this.minString.compareTo(strVal) < 0)
+                this.minString = strVal;
+            assert this.maxString != null;
+            if (this.maxString.compareTo(strVal) < 0)
+                this.maxString = strVal;
+        }
 
-            if (this.momentCount > 0) {
-                double tmpMoment = val;
-                double alpha = (double) this.presentCount / (double) (this.presentCount + 1);
-                double beta = 1.0 - alpha;
-                this.moments[0] = (alpha * this.moments[0]) + (beta * val);
-                for (int i = 1; i < this.momentCount; i++) {
-                    tmpMoment = tmpMoment * val;
-                    this.moments[i] = (alpha * this.moments[i]) + (beta * tmpMoment);
-                }
+        if (this.momentCount > 0) {
+            double tmpMoment = val;
+            double alpha = (double) this.presentCount / (double) (this.presentCount + 1);
+            double beta = 1.0 - alpha;
+            this.moments[0] = (alpha * this.moments[0]) + (beta * val);
+            for (int i = 1; i < this.momentCount; i++) {
+                tmpMoment = tmpMoment * val;
+                this.moments[i] = (alpha * this.moments[i]) + (beta * tmpMoment);
             }
-            this.presentCount++;
-            currRow = myIter.getNextRow();
         }
+        this.presentCount++;
     }
 
     /**
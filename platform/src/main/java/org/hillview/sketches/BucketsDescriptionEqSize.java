@@ -17,6 +17,12 @@
 
 package org.hillview.sketches;
 
+import org.hillview.dataset.remoting.ICodec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 /**
  * MetaData for one dimensional buckets of equal size
  */
@@ -62,4 +68,20 @@ public class BucketsDescriptionEqSize implements IBucketsDescription {
 
     @Override
     public int getNumOfBuckets() { return this.numOfBuckets; }
+
+    public static class Codec implements ICodec<BucketsDescriptionEqSize> {
+        @Override
+        public void encode(BucketsDescriptionEqSize value, DataOutputStream out) throws IOException {
+            out.writeDouble(value.minValue);
+            out.writeDouble(value.maxValue);
+            out.writeInt(value.numOfBuckets);
+        }
+
+        @Override
+        public BucketsDescriptionEqSize decode(DataInputStream in) throws IOException {
+            double min = in.readDouble();
+            double max = in.readDouble();
+            return new BucketsDescriptionEqSize(min, max, in.readInt());
+        }
+    }
 }
@@ -17,6 +17,7 @@
 
 package org.hillview.sketches;
 
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import org.hillview.dataset.api.ISketch;
 import org.hillview.table.api.*;
 import org.hillview.utils.JsonList;
@@ -70,6 +71,10 @@ public class DistinctStringsSketch implements ISketch<ITable, JsonList<DistinctS
             IColumn col = cols.get(i).column;
             ri.setColumnSize(col.sizeInRows());
             IRowIterator it = data.getMembershipSet().getIterator();
+            if (col instanceof IUtf8Column && ((IUtf8Column)col).isDictionaryEncoded()) {
+                addDistinct((IUtf8Column)col, it, ri);
+                continue;
+            }
             int row = it.getNextRow();
             while (row >= 0) {
                 String s = col.getString(row);
@@ -80,4 +85,17 @@ public class DistinctStringsSketch implements ISketch<ITable, JsonList<DistinctS
         }
         return result;
     }
+
+    /**
+     * Each distinct value of a dictionary-encoded column is stored at a single
+     * location, so only the first row with each location needs to be decoded.
+     */
+    private static void addDistinct(IUtf8Column col, IRowIterator it, DistinctStrings result) {
+        LongOpenHashSet seen = new LongOpenHashSet();
+        for (int row = it.getNextRow(); row >= 0 && !result.truncated; row = it.getNextRow()) {
+            long location = col.getLocation(row);
+            if (location >= 0 && seen.add(location))
+                result.add(col.getString(row));
+        }
+    }
 }
@@ -18,11 +18,13 @@
 package org.hillview.sketches;
 
 import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenCustomHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.hillview.dataset.api.ISketch;
 import org.hillview.table.Schema;
+import org.hillview.table.api.ColumnAndConverter;
 import org.hillview.table.api.IRowIterator;
 import org.hillview.table.api.ITable;
 import org.hillview.table.rows.BaseRowSnapshot;
@@ -75,10 +77,57 @@ public class ExactFreqSketch implements ISketch<ITable, FreqKListExact> {
     }
 
     /**
-     * Compute frequency for each RowSnapShot over a table.
+     * Compute frequency for each RowSnapShot over a table.  The rows are
+     * mapped to primitive keys by RowKeys; when the keys are hashes a row
+     * with the key of a RowSnapshot is compared with it before it is counted.
      */
     @Override
     public FreqKListExact create(ITable data) {
+        RowKeys rowKeys = RowKeys.create(data, this.schema);
+        long[] candidateKeys = rowKeys.getKeys(this.rssList);
+        // Index in rssList of the RowSnapshot with each key
+        Long2IntOpenHashMap candidates = new Long2IntOpenHashMap(candidateKeys.length);
+        candidates.defaultReturnValue(-1);
+        for (int i = 0; i < candidateKeys.length; i++) {
+            if (candidateKeys[i] == RowKeys.absentKey)
+                continue;
+            if (candidates.put(candidateKeys[i], i) >= 0)
+                // Two row snapshots with the same hash
+                return this.createGeneric(data);
+        }
+
+        boolean exact = rowKeys.isExact();
+        VirtualRowSnapshot vrs = new VirtualRowSnapshot(data, this.schema);
+        int[] counts = new int[this.rssList.size()];
+        int[] rows = new int[ColumnAndConverter.batchSize];
+        long[] keys = new long[ColumnAndConverter.batchSize];
+        IRowIterator rowIt = data.getRowIterator();
+        int count;
+        do {
+            count = rowIt.getNextRows(rows);
+            rowKeys.getKeys(rows, count, keys);
+            for (int i = 0; i < count; i++) {
+                int index = candidates.get(keys[i]);
+                if (index < 0)
+                    continue;
+                if (!exact) {
+                    vrs.setRow(rows[i]);
+                    if (!vrs.compareForEquality(this.rssList.get(index), this.schema))
+                        continue;
+                }
+                counts[index]++;
+            }
+        } while (count == rows.length);
+        Object2IntOpenHashMap<RowSnapshot> hm = new Object2IntOpenHashMap<RowSnapshot>(this.rssList.size());
+        for (int i = 0; i < counts.length; i++)
+            hm.put(this.rssList.get(i), counts[i]);
+        return new FreqKListExact(data.getNumOfRows(), this.epsilon, hm, this.rssList);
+    }
+
+    /**
+     * Compute frequency for each RowSnapShot over a table, hashing the row snapshots.
+     */
+    private FreqKListExact createGeneric(ITable data) {
         data.getColumns(this.schema);
         Hash.Strategy<BaseRowSnapshot> hs = new Hash.Strategy<BaseRowSnapshot>() {
             @Override
@@ -17,22 +17,22 @@
 
 package org.hillview.sketches;
 
-import it.unimi.dsi.fastutil.ints.*;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import org.hillview.dataset.api.ISketch;
 import org.hillview.table.Schema;
+import org.hillview.table.api.ColumnAndConverter;
 import org.hillview.table.api.IRowIterator;
 import org.hillview.table.api.ITable;
 import org.hillview.table.rows.RowSnapshot;
-import org.hillview.table.rows.VirtualRowSnapshot;
 import org.hillview.utils.MutableInteger;
 
 import javax.annotation.Nullable;
-import java.util.Collections;
 import java.util.List;
-import java.util.function.IntConsumer;
 
 /** Computes heavy-hitters using the Misra-Gries algorithm, where N is the length on the input
  * table, and our goal is find all elements of frequency epsilon N. K is the number of counters
@@ -105,74 +105,80 @@ public class FreqKSketchMG implements ISketch<ITable, FreqKListMG> {
     }
 
     /**
-     * Creates the MG sketch, by the Misra-Gries algor  ithm.
+     * Creates the MG sketch, by the Misra-Gries algorithm.
+     * Rows are grouped by the keys computed by RowKeys, so the counters are
+     * kept in primitive maps; for schemas with several columns two rows
+     * are considered equal if their 64-bit hashes are equal.
      * @param data  Data to sketch.
      * @return A FreqKList.
      */
     @Override
     public FreqKListMG create(ITable data) {
+        RowKeys rowKeys = RowKeys.create(data, this.schema);
+        // Count for each key, and the first row with each key
+        Long2IntOpenHashMap counts = new Long2IntOpenHashMap(this.maxSize);
+        Long2IntOpenHashMap rows = new Long2IntOpenHashMap(this.maxSize);
+        int[] batch = new int[ColumnAndConverter.batchSize];
+        long[] keys = new long[ColumnAndConverter.batchSize];
         IRowIterator rowIt = data.getRowIterator();
-        IntHash.Strategy hs = new IntHash.Strategy() {
-            final VirtualRowSnapshot vrs = new VirtualRowSnapshot(data, FreqKSketchMG.this.schema);
-            final VirtualRowSnapshot vrs1 = new VirtualRowSnapshot(data, FreqKSketchMG.this.schema);
-
-            @Override
-            public int hashCode(int index) {
-                this.vrs.setRow(index);
-                return this.vrs.computeHashCode(FreqKSketchMG.this.schema);
-            }
-
-            @Override
-            public boolean equals(int index, int otherIndex) {
-                this.vrs.setRow(index);
-                this.vrs1.setRow(otherIndex);
-                return this.vrs.compareForEquality(this.vrs1, FreqKSketchMG.this.schema);
-            }
-        };
-
-        Int2ObjectOpenCustomHashMap<MutableInteger> hMap = new Int2ObjectOpenCustomHashMap<MutableInteger>(hs);
-        IntSet toRemove = new IntOpenHashSet(this.maxSize);
-        int i = rowIt.getNextRow();
         /* An optimization to speed up the algorithm is that we batch the decrements together in
         variable dec. We only perform an actual decrement when the total decrements equal the minimum
         count among the counts we are currently storing.*/
         int min = 0; // Minimum count currently in the hashMap
         int dec = 0; // Accumulated decrements. Should always be less than min.
-        while (i != -1) {
-            MutableInteger val = hMap.get(i);
-            if (val != null) {
-                val.set(val.get() + 1);
-                if (val.get() == min)
-                    min = Collections.min(hMap.values(), MutableInteger.COMPARATOR).get();
-            } else if (hMap.size() < this.maxSize) {
-                hMap.put(i, new MutableInteger(1));
-                min = 1;
-            } else {
-                dec += 1;
-                if (dec == min) {
-                    toRemove.clear();
-                    for (ObjectIterator<Int2ObjectMap.Entry<MutableInteger>> it =
-                            hMap.int2ObjectEntrySet().fastIterator(); it.hasNext(); ) {
-                        final Int2ObjectMap.Entry<MutableInteger> entry = it.next();
-                        MutableInteger mutableInteger = entry.getValue();
-                        int count = mutableInteger.get() - dec;
-                        if (count == 0)
-                            toRemove.add(entry.getIntKey());
-                        else
-                            mutableInteger.set(count);
+        int batchSize;
+        do {
+            batchSize = rowIt.getNextRows(batch);
+            rowKeys.getKeys(batch, batchSize, keys);
+            for (int b = 0; b < batchSize; b++) {
+                long key = keys[b];
+                int val = counts.get(key);
+                if (val != 0) {
+                    counts.put(key, val + 1);
+                    if (val + 1 == min)
+                        min = minimum(counts);
+                } else if (counts.size() < this.maxSize) {
+                    counts.put(key, 1);
+                    rows.put(key, batch[b]);
+                    min = 1;
+                } else {
+                    dec += 1;
+                    if (dec == min) {
+                        for (ObjectIterator<Long2IntMap.Entry> it =
+                                counts.long2IntEntrySet().fastIterator(); it.hasNext(); ) {
+                            final Long2IntMap.Entry entry = it.next();
+                            int count = entry.getIntValue() - dec;
+                            if (count == 0) {
+                                rows.remove(entry.getLongKey());
+                                it.remove();
+                            } else {
+                                entry.setValue(count);
+                            }
+                        }
+                        min = minimum(counts);
                     }
-                    toRemove.forEach((IntConsumer) hMap::remove);
-                    min = !hMap.isEmpty() ? Collections.min(hMap.values(), MutableInteger.COMPARATOR).get() : 0;
                 }
             }
-            i = rowIt.getNextRow();
-        }
+        } while (batchSize == batch.length);
         Object2IntOpenHashMap<RowSnapshot> hm = new Object2IntOpenHashMap<RowSnapshot>(this.maxSize);
-        for (ObjectIterator<Int2ObjectMap.Entry<MutableInteger>> it = hMap.int2ObjectEntrySet().fastIterator();
+        for (ObjectIterator<Long2IntMap.Entry> it = counts.long2IntEntrySet().fastIterator();
              it.hasNext(); ) {
-            final Int2ObjectMap.Entry<MutableInteger> entry = it.next();
-            hm.put(new RowSnapshot(data, entry.getIntKey(), this.schema), entry.getValue().get());
+            final Long2IntMap.Entry entry = it.next();
+            hm.put(new RowSnapshot(data, rows.get(entry.getLongKey()), this.schema),
+                    entry.getIntValue());
         }
         return new FreqKListMG(data.getNumOfRows(), this.epsilon, this.maxSize, hm);
     }
+
+    /**
+     * The minimum count in a map, or 0 if the map is empty.
+     */
+    private static int minimum(Long2IntOpenHashMap counts) {
+        if (counts.isEmpty())
+            return 0;
+        int result = Integer.MAX_VALUE;
+        for (IntIterator it = counts.values().iterator(); it.hasNext(); )
+            result = Math.min(result, it.nextInt());
+        return result;
+    }
 }
@@ -19,19 +19,34 @@ package org.hillview.sketches;
 
 import net.openhft.hashing.LongHashFunction;
 import org.hillview.dataset.api.IJson;
+import org.hillview.table.api.ColumnAndConverter;
 import org.hillview.table.api.IColumn;
 import org.hillview.table.api.IMembershipSet;
 import org.hillview.table.api.IRowIterator;
 
+import javax.annotation.Nullable;
+
 /**
  * A class that computes an approximation of the number of distinct elements in a column. Elements
  * are identified via their hashcode. The class uses the HyperLogLog algorithm for large estimates
  * and LinearCounting algorithm for small estimates.
+ * When few registers are set they are stored in a sparse form, which is smaller
+ * when the result is serialized.
  */
 public class HLogLog implements IJson {
     private final int regNum; //number of registers
     private final int logRegNum;
-    private final byte[] registers;
+    /**
+     * Dense registers; null if the registers are sparse.
+     */
+    @Nullable
+    private byte[] registers;
+    /**
+     * Sparse registers: the non-zero registers, encoded as index << 8 | value,
+     * sorted by index.  Null if the registers are dense.
+     */
+    @Nullable
+    private int[] sparseRegisters;
     private final long seed;
     public long distinctItemCount; // Field so that value is accessible after serializing
 
@@ -43,7 +58,8 @@ public class HLogLog implements IJson {
     public HLogLog(int logRegNum, long seed) {
         HLogLog.checkSpaceValid(logRegNum);
         this.regNum = 1 << logRegNum;
-        this.registers = new byte[this.regNum];
+        this.registers = null;
+        this.sparseRegisters = new int[0];
         this.logRegNum = logRegNum;
         this.seed = seed;
     }
@@ -53,27 +69,68 @@ public class HLogLog implements IJson {
      * Uses the first bits to identify the register and then counts trailing zeros
      * @param itemHash already assumed to be a random hash of the item
      */
-    private void add(long itemHash) {
-        int index =  (int) itemHash >>> (Long.SIZE - this.logRegNum);
+    private static void add(byte[] registers, int logRegNum, long itemHash) {
+        int index =  (int) itemHash >>> (Long.SIZE - logRegNum);
         byte zeros = (byte) (Long.numberOfTrailingZeros(itemHash) + 1);
-        if (zeros > this.registers[index])
-            this.registers[index] = zeros;
+        if (zeros > registers[index])
+            registers[index] = zeros;
+    }
+
+    /**
+     * Derives the hash used for an item from the unseeded hash code of the column,
+     * by scrambling it with the seed (using the MurmurHash3 finalizer).
+     */
+    private static long seededHash(long hashCode, long seedMix) {
+        long h = hashCode ^ seedMix;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
     }
 
     /**
      * Creates a Hyperloglog data structure from a column and membership set. Uses the hash code
-     * of the objects in the column as identifier.
+     * of the objects in the column as identifier.  If the set contains a large fraction
+     * of the rows it can hold (e.g., most rows of a chunk of a large table) the hash
+     * codes of all the rows are obtained in bulk from the column, which usually keeps
+     * them, so that subsequent sketches do not hash the data again.
      */
     public void createHLL(IColumn column, IMembershipSet memSet) {
-        final IRowIterator myIter = memSet.getIterator();
-        LongHashFunction hash = LongHashFunction.xx(this.seed);
-        int currRow = myIter.getNextRow();
-        while (currRow >= 0) {
-            if (!column.isMissing(currRow)) {
-                this.add(column.hashCode64(currRow, hash));
-             }
-            currRow = myIter.getNextRow();
+        final byte[] regs = this.getRegisters();
+        final int logRegs = this.logRegNum;
+        final long seedMix = seededHash(this.seed, 0x9E3779B97F4A7C15L);
+        if (memSet.getSize() * 4L >= memSet.getSpan()) {
+            final long[] hashCodes = column.hashCodes64();
+            if (memSet.getSize() == memSet.getMax()) {
+                for (long h : hashCodes)
+                    if (h != IColumn.MISSING_HASH_VALUE)
+                        add(regs, logRegs, seededHash(h, seedMix));
+            } else {
+                final IRowIterator myIter = memSet.getIterator();
+                final int[] rows = new int[ColumnAndConverter.batchSize];
+                int count;
+                do {
+                    count = myIter.getNextRows(rows);
+                    for (int i = 0; i < count; i++) {
+                        long h = hashCodes[rows[i]];
+                        if (h != IColumn.MISSING_HASH_VALUE)
+                            add(regs, logRegs, seededHash(h, seedMix));
+                    }
+                } while (count == rows.length);
+            }
+        } else {
+            final IRowIterator myIter = memSet.getIterator();
+            final LongHashFunction hash = LongHashFunction.xx(0);
+            int currRow = myIter.getNextRow();
+            while (currRow >= 0) {
+                if (!column.isMissing(currRow))
+                    add(regs, logRegs, seededHash(column.hashCode64(currRow, hash), seedMix));
+                currRow = myIter.getNextRow();
+            }
         }
+        this.setRegisters(regs);
         this.distinctItemsEstimator();
     }
 
@@ -81,12 +138,50 @@ public class HLogLog implements IJson {
         if ((otherHLL.regNum != this.regNum) || (otherHLL.seed != this.seed))
             throw new IllegalArgumentException("attempted union of non matching HLogLog classes");
         HLogLog result = new HLogLog(this.logRegNum, this.seed);
+        byte[] regs = this.getRegisters();
+        byte[] other = otherHLL.getRegisters();
         for (int i = 0; i < this.regNum; i++)
-            result.registers[i] = (byte) Integer.max(this.registers[i], otherHLL.registers[i]);
+            regs[i] = (byte) Integer.max(regs[i], other[i]);
+        result.setRegisters(regs);
         result.distinctItemsEstimator();
         return result;
     }
 
+    /**
+     * @return A dense copy of the registers.
+     */
+    private byte[] getRegisters() {
+        if (this.registers != null)
+            return this.registers.clone();
+        byte[] result = new byte[this.regNum];
+        assert this.sparseRegisters != null;
+        for (int entry : this.sparseRegisters)
+            result[entry >>> 8] = (byte) entry;
+        return result;
+    }
+
+    /**
+     * Stores the registers, using the sparse form if it is smaller.
+     */
+    private void setRegisters(byte[] regs) {
+        int nonZero = 0;
+        for (byte r : regs)
+            if (r != 0)
+                nonZero++;
+        if (nonZero * Integer.BYTES < this.regNum) {
+            int[] sparse = new int[nonZero];
+            int j = 0;
+            for (int i = 0; i < regs.length; i++)
+                if (regs[i] != 0)
+                    sparse[j++] = (i << 8) | regs[i];
+            this.sparseRegisters = sparse;
+            this.registers = null;
+        } else {
+            this.registers = regs;
+            this.sparseRegisters = null;
+        }
+    }
+
     /**
      * @return an estimation of the number of distinct items
      */
@@ -103,10 +198,18 @@ public class HLogLog implements IJson {
         }
         double rawEstimate = 0;
         int zeroRegs = 0;
-        for (int i = 0; i < this.regNum; i++) {
-            rawEstimate += Math.pow(2, -this.registers[i]);
-            if (this.registers[i] == 0)
-                zeroRegs ++;
+        if (this.registers != null) {
+            for (int i = 0; i < this.regNum; i++) {
+                rawEstimate += Math.pow(2, -this.registers[i]);
+                if (this.registers[i] == 0)
+                    zeroRegs ++;
+            }
+        } else {
+            assert this.sparseRegisters != null;
+            zeroRegs = this.regNum - this.sparseRegisters.length;
+            rawEstimate = zeroRegs;
+            for (int entry : this.sparseRegisters)
+                rawEstimate += Math.pow(2, -(byte) entry);
         }
         rawEstimate = 1 / rawEstimate;
         rawEstimate = rawEstimate * alpha * this.regNum * this.regNum;
@@ -17,7 +17,14 @@
 
 package org.hillview.sketches;
 import org.hillview.dataset.api.IJson;
+import org.hillview.dataset.remoting.Codecs;
+import org.hillview.dataset.remoting.ICodec;
 import org.hillview.table.api.*;
+import org.hillview.utils.Converters;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
@@ -47,36 +54,41 @@ public class HeatMap implements Serializable, IJson {
                               final long seed, final boolean enforceRate) {
         final ISampledRowIterator myIter = membershipSet.getIteratorOverSample(
                 samplingRate, seed, enforceRate);
-        int currRow = myIter.getNextRow();
-        while (currRow >= 0) {
-            boolean isMissingD1 = columnD1.isMissing(currRow);
-            boolean isMissingD2 = columnD2.isMissing(currRow);
-            if (isMissingD1 || isMissingD2) {
-                if (!isMissingD1) {
-                    // only column 2 is missing
-                    double val1 = columnD1.asDouble(currRow);
-                    this.histogramMissingY.addValue(val1);
-                } else if (!isMissingD2) {
-                    // only column 1 is missing
-                    double val2 = columnD2.asDouble(currRow);
-                    this.histogramMissingX.addValue(val2);
+        final int[] rows = new int[ColumnAndConverter.batchSize];
+        final double[] values1 = new double[rows.length];
+        final double[] values2 = new double[rows.length];
+        final boolean[] missing1 = new boolean[rows.length];
+        final boolean[] missing2 = new boolean[rows.length];
+        int count;
+        do {
+            count = myIter.getNextRows(rows);
+            columnD1.asDoubles(rows, count, values1, missing1);
+            columnD2.asDoubles(rows, count, values2, missing2);
+            for (int i = 0; i < count; i++) {
+                boolean isMissingD1 = missing1[i];
+                boolean isMissingD2 = missing2[i];
+                if (isMissingD1 || isMissingD2) {
+                    if (!isMissingD1) {
+                        // only column 2 is missing
+                        this.histogramMissingY.addValue(values1[i]);
+                    } else if (!isMissingD2) {
+                        // only column 1 is missing
+                        this.histogramMissingX.addValue(values2[i]);
+                    } else {
+                        // both are missing
+                        this.missingData++;
+                    }
                 } else {
-                    // both are missing
-                    this.missingData++;
-                }
-            } else {
-                double val1 = columnD1.asDouble(currRow);
-                double val2 = columnD2.asDouble(currRow);
-                int index1 = this.bucketDescX.indexOf(val1);
-                int index2 = this.bucketDescY.indexOf(val2);
-                if ((index1 >= 0) && (index2 >= 0)) {
-                    this.buckets[index1][index2]++;
-                    this.totalSize++;
+                    int index1 = this.bucketDescX.indexOf(values1[i]);
+                    int index2 = this.bucketDescY.indexOf(values2[i]);
+                    if ((index1 >= 0) && (index2 >= 0)) {
+                        this.buckets[index1][index2]++;
+                        this.totalSize++;
+                    }
+                    else this.outOfRange++;
                 }
-                else this.outOfRange++;
             }
-            currRow = myIter.getNextRow();
-        }
+        } while (count == rows.length);
         samplingRate = myIter.rate();
         if (samplingRate < 1) {
             this.histogramMissingX.rescale(myIter.rate());
@@ -124,4 +136,38 @@ public class HeatMap implements Serializable, IJson {
         unionH.histogramMissingY = this.histogramMissingY.union(otherHeatmap.histogramMissingY);
         return unionH;
     }
+
+    public static class Codec implements ICodec<HeatMap> {
+        @Override
+        public void encode(HeatMap value, DataOutputStream out) throws IOException {
+            Codecs.write(value.bucketDescX, out);
+            Codecs.write(value.bucketDescY, out);
+            for (long[] row : value.buckets)
+                Codecs.writeLongs(row, out);
+            Codecs.writeVarLong(value.missingData, out);
+            Codecs.writeVarLong(value.outOfRange, out);
+            Codecs.write(value.histogramMissingX, out);
+            Codecs.write(value.histogramMissingY, out);
+            Codecs.writeVarLong(value.totalSize, out);
+        }
+
+        @Override
+        public HeatMap decode(DataInputStream in) throws IOException {
+            IBucketsDescription x = Converters.checkNull((IBucketsDescription)Codecs.read(in));
+            IBucketsDescription y = Converters.checkNull((IBucketsDescription)Codecs.read(in));
+            HeatMap result = new HeatMap(x, y);
+            for (int i = 0; i < result.buckets.length; i++) {
+                long[] row = Codecs.readLongs(in);
+                if (row.length != result.buckets[i].length)
+                    throw new RuntimeException("Mismatched number of heatmap buckets");
+                System.arraycopy(row, 0, result.buckets[i], 0, row.length);
+            }
+            result.missingData = Codecs.readVarLong(in);
+            result.outOfRange = Codecs.readVarLong(in);
+            result.histogramMissingX = Converters.checkNull((Histogram)Codecs.read(in));
+            result.histogramMissingY = Converters.checkNull((Histogram)Codecs.read(in));
+            result.totalSize = Codecs.readVarLong(in);
+            return result;
+        }
+    }
 }
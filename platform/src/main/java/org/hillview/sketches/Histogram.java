@@ -17,7 +17,14 @@
 
 package org.hillview.sketches;
 
+import org.hillview.dataset.remoting.Codecs;
+import org.hillview.dataset.remoting.ICodec;
 import org.hillview.table.api.*;
+import org.hillview.utils.Converters;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
@@ -55,19 +62,24 @@ public class Histogram implements Serializable {
         if (sampleRate <= 0)
             throw new RuntimeException("Negative sampling rate");
         final ISampledRowIterator myIter = membershipSet.getIteratorOverSample(sampleRate, seed, enforceRate);
-        int currRow = myIter.getNextRow();
-        while (currRow >= 0) {
-            if (column.isMissing(currRow))
-                this.missingData++;
-            else {
-                double val = column.asDouble(currRow);
-                int index = this.bucketDescription.indexOf(val);
-                if (index >= 0)
-                    this.buckets[index]++;
-                else this.outOfRange++;
+        final int[] rows = new int[ColumnAndConverter.batchSize];
+        final double[] values = new double[rows.length];
+        final boolean[] missing = new boolean[rows.length];
+        int count;
+        do {
+            count = myIter.getNextRows(rows);
+            column.asDoubles(rows, count, values, missing);
+            for (int i = 0; i < count; i++) {
+                if (missing[i]) {
+                    this.missingData++;
+                } else {
+                    int index = this.bucketDescription.indexOf(values[i]);
+                    if (index >= 0)
+                        this.buckets[index]++;
+                    else this.outOfRange++;
+                }
             }
-            currRow = myIter.getNextRow();
-        }
+        } while (count == rows.length);
         this.rescale(myIter.rate());
     }
 
@@ -116,4 +128,28 @@ public class Histogram implements Serializable {
         }
         return builder.toString();
     }
+
+    public static class Codec implements ICodec<Histogram> {
+        @Override
+        public void encode(Histogram value, DataOutputStream out) throws IOException {
+            Codecs.write(value.bucketDescription, out);
+            Codecs.writeLongs(value.buckets, out);
+            Codecs.writeVarLong(value.missingData, out);
+            Codecs.writeVarLong(value.outOfRange, out);
+        }
+
+        @Override
+        public Histogram decode(DataInputStream in) throws IOException {
+            IBucketsDescription description = Converters.checkNull(
+                    (IBucketsDescription)Codecs.read(in));
+            Histogram result = new Histogram(description);
+            long[] buckets = Codecs.readLongs(in);
+            if (buckets.length != result.buckets.length)
+                throw new RuntimeException("Mismatched number of histogram buckets");
+            System.arraycopy(buckets, 0, result.buckets, 0, buckets.length);
+            result.missingData = Codecs.readVarLong(in);
+            result.outOfRange = Codecs.readVarLong(in);
+            return result;
+        }
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.sketches;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * A primitive version of IntTreeTopK for long keys.  Keeps the maxSize smallest
+ * distinct keys pushed, with the number of times each key was pushed and the
+ * first row that had the key.  A max-heap of the keys gives the current cutoff,
+ * so most keys are rejected with a single comparison.
+ */
+public class LongTopK {
+    private final int maxSize;
+    /**
+     * Max-heap with the distinct keys; only the first size elements are used.
+     */
+    private final long[] heap;
+    private int size;
+    private final Long2IntOpenHashMap counts;
+    private final Long2IntOpenHashMap rows;
+
+    public LongTopK(final int maxSize) {
+        this.maxSize = maxSize;
+        this.heap = new long[maxSize + 1];
+        this.size = 0;
+        this.counts = new Long2IntOpenHashMap(maxSize + 1);
+        this.rows = new Long2IntOpenHashMap(maxSize + 1);
+    }
+
+    /**
+     * Add a key.
+     * @param key  Key that is added.
+     * @param row  Row that has this key.
+     */
+    public void push(final long key, final int row) {
+        if (this.size == this.maxSize && (this.size == 0 || key > this.heap[0]))
+            return;
+        if (this.counts.addTo(key, 1) != 0)
+            return;
+        this.rows.put(key, row);
+        this.heapInsert(key);
+        if (this.size > this.maxSize) {
+            long evicted = this.heapRemoveMax();
+            this.counts.remove(evicted);
+            this.rows.remove(evicted);
+        }
+    }
+
+    /**
+     * Add count keys.
+     * @param keys  Keys that are added.
+     * @param rows  Rows that have these keys; if null the rows are start, ..., start + count - 1.
+     */
+    public void push(final long[] keys, @Nullable final int[] rows, final int start, final int count) {
+        if (this.maxSize == 0)
+            return;
+        // Keys larger than the threshold are rejected without calling push
+        long threshold = this.threshold();
+        for (int i = 0; i < count; i++) {
+            if (keys[i] > threshold)
+                continue;
+            this.push(keys[i], rows == null ? start + i : rows[i]);
+            threshold = this.threshold();
+        }
+    }
+
+    private long threshold() {
+        return this.size == this.maxSize ? this.heap[0] : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return The keys in increasing order.
+     */
+    public long[] getKeys() {
+        long[] result = Arrays.copyOf(this.heap, this.size);
+        Arrays.sort(result);
+        return result;
+    }
+
+    public int getCount(final long key) {
+        return this.counts.get(key);
+    }
+
+    /**
+     * @return The first row pushed with this key.
+     */
+    public int getRow(final long key) {
+        return this.rows.get(key);
+    }
+
+    private void heapInsert(final long key) {
+        int index = this.size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (this.heap[parent] >= key)
+                break;
+            this.heap[index] = this.heap[parent];
+            index = parent;
+        }
+        this.heap[index] = key;
+    }
+
+    private long heapRemoveMax() {
+        long result = this.heap[0];
+        long last = this.heap[--this.size];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= this.size)
+                break;
+            if (child + 1 < this.size && this.heap[child + 1] > this.heap[child])
+                child++;
+            if (this.heap[child] <= last)
+                break;
+            this.heap[index] = this.heap[child];
+            index = child;
+        }
+        this.heap[index] = last;
+        return result;
+    }
+}
@@ -21,11 +21,17 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.hillview.dataset.api.IJson;
+import org.hillview.dataset.remoting.Codecs;
+import org.hillview.dataset.remoting.ICodec;
 import org.hillview.table.Schema;
 import org.hillview.table.SmallTable;
 import org.hillview.table.api.IRowIterator;
 import org.hillview.table.rows.RowSnapshot;
+import org.hillview.utils.Converters;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -125,4 +131,28 @@ public class NextKList implements Serializable, IJson {
         }
         return result;
     }
+
+    public static class Codec implements ICodec<NextKList> {
+        @Override
+        public void encode(NextKList value, DataOutputStream out) throws IOException {
+            Codecs.write(value.table, out);
+            Codecs.writeVarLong(value.count.size(), out);
+            for (int c : value.count)
+                Codecs.writeVarLong(c, out);
+            Codecs.writeVarLong(value.startPosition, out);
+            Codecs.writeVarLong(value.rowsScanned, out);
+        }
+
+        @Override
+        public NextKList decode(DataInputStream in) throws IOException {
+            SmallTable table = Converters.checkNull((SmallTable)Codecs.read(in));
+            int size = (int)Codecs.readVarLong(in);
+            List<Integer> count = new ArrayList<Integer>(size);
+            for (int i = 0; i < size; i++)
+                count.add((int)Codecs.readVarLong(in));
+            long startPosition = Codecs.readVarLong(in);
+            long rowsScanned = Codecs.readVarLong(in);
+            return new NextKList(table, count, startPosition, rowsScanned);
+        }
+    }
 }
@@ -18,6 +18,7 @@
 package org.hillview.sketches;
 
 import it.unimi.dsi.fastutil.ints.Int2IntSortedMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.hillview.dataset.api.ISketch;
 import org.hillview.table.*;
 import org.hillview.table.api.*;
@@ -60,6 +61,13 @@ public class NextKSketch implements ISketch<ITable, NextKList> {
      */
     @Override
     public NextKList create(ITable data) {
+        SortedRowIndex index = data.getSortedRowIndex(this.recordOrder);
+        if (index != null)
+            return this.create(data, index);
+        NextKList result = SingleColumnNextK.create(
+                data, this.recordOrder, this.topRow, this.maxSize);
+        if (result != null)
+            return result;
         IndexComparator comp = this.recordOrder.getComparator(data);
         IntTreeTopK topK = new IntTreeTopK(this.maxSize, comp);
         IRowIterator rowIt = data.getRowIterator();
@@ -82,6 +90,33 @@ public class NextKSketch implements ISketch<ITable, NextKList> {
         return new NextKList(topKRows, count, position, data.getNumOfRows());
     }
 
+    /**
+     * Same as create, using an index which has the rows of the table in sorted
+     * order: the rows before topRow are found by binary search, and only the
+     * rows that are returned are visited.
+     */
+    private NextKList create(ITable data, SortedRowIndex index) {
+        IndexComparator comp = this.recordOrder.getComparator(data);
+        int position = this.topRow == null ? 0 : index.lowerBound(data, this.topRow);
+        IntArrayList rows = new IntArrayList(this.maxSize);
+        List<Integer> count = new ArrayList<Integer>(this.maxSize);
+        for (int i = position; i < index.size(); i++) {
+            int row = index.getRow(i);
+            int last = rows.size() - 1;
+            if (last >= 0 && comp.compare(rows.getInt(last), row) == 0) {
+                count.set(last, count.get(last) + 1);
+                continue;
+            }
+            if (rows.size() == this.maxSize)
+                break;
+            rows.add(row);
+            count.add(1);
+        }
+        IRowOrder rowOrder = new ArrayRowOrder(rows.toIntArray());
+        SmallTable topKRows = data.compress(this.recordOrder.toSchema(), rowOrder);
+        return new NextKList(topKRows, count, position, data.getNumOfRows());
+    }
+
     /**
      * Given two Columns left and right, merge them to a single Column, using an Integer
      * array mergeOrder which represents the order in which elements merge as follows:
@@ -157,6 +192,9 @@ public class NextKSketch implements ISketch<ITable, NextKList> {
         assert right != null;
         if (!left.table.getSchema().equals(right.table.getSchema()))
             throw new RuntimeException("The schemas do not match.");
+        NextKList result = SingleColumnNextK.add(left, right, this.recordOrder, this.maxSize);
+        if (result != null)
+            return result;
         int width = left.table.getSchema().getColumnCount();
         List<IColumn> mergedCol = new ArrayList<IColumn>(width);
         List<Integer> mergeOrder = this.recordOrder.getIntMergeOrder(left.table, right.table);
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.sketches;
+
+import net.openhft.hashing.LongHashFunction;
+import org.hillview.table.Schema;
+import org.hillview.table.SmallTable;
+import org.hillview.table.api.*;
+import org.hillview.table.rows.RowSnapshot;
+
+import java.util.List;
+
+/**
+ * Computes a long key for each row of a table, restricted to the columns
+ * of a schema, so that sketches which group equal rows can use primitive
+ * hash maps instead of hashing row snapshots.  A single category column
+ * uses the dictionary codes and a single integer column the values; these
+ * keys are exact: two rows have the same key if and only if they are equal.
+ * Other schemas use a 64-bit hash of the row, computed with hashCode64.
+ */
+abstract class RowKeys {
+    /**
+     * Key of the rows with a missing value in a single-column schema.
+     */
+    static final long missingKey = Long.MIN_VALUE;
+    /**
+     * Key of a value that does not appear in a category column.
+     */
+    static final long absentKey = Long.MAX_VALUE;
+
+    /**
+     * Creates the keys for the columns in the schema of a table.
+     */
+    static RowKeys create(ITable data, Schema schema) {
+        List<IColumn> columns = data.getColumns(schema);
+        if (columns.size() == 1) {
+            IColumn column = columns.get(0);
+            if (column instanceof ICategoryColumn)
+                return new CategoryKeys((ICategoryColumn)column);
+            if (column.getKind() == ContentsKind.Integer)
+                return new IntKeys(column);
+        }
+        return new HashKeys(schema, columns);
+    }
+
+    /**
+     * True if equal keys always correspond to equal rows.
+     */
+    abstract boolean isExact();
+
+    /**
+     * Sets keys[i] to the key of row rows[i] for each i smaller than count.
+     * The rows array has at most ColumnAndConverter.batchSize elements.
+     */
+    abstract void getKeys(int[] rows, int count, long[] keys);
+
+    /**
+     * Computes the keys that the rows of the table would have if they
+     * were equal to the given row snapshots.
+     */
+    abstract long[] getKeys(List<RowSnapshot> rows);
+
+    private static final class CategoryKeys extends RowKeys {
+        final ICategoryColumn column;
+        final int[] codes = new int[ColumnAndConverter.batchSize];
+
+        CategoryKeys(ICategoryColumn column) {
+            this.column = column;
+        }
+
+        @Override
+        boolean isExact() { return true; }
+
+        @Override
+        void getKeys(int[] rows, int count, long[] keys) {
+            this.column.getCodes(rows, count, this.codes);
+            for (int i = 0; i < count; i++)
+                keys[i] = this.codes[i] < 0 ? missingKey : this.codes[i];
+        }
+
+        @Override
+        long[] getKeys(List<RowSnapshot> rows) {
+            String name = this.column.getName();
+            long[] result = new long[rows.size()];
+            for (int i = 0; i < result.length; i++) {
+                RowSnapshot row = rows.get(i);
+                if (row.isMissing(name)) {
+                    result[i] = missingKey;
+                } else {
+                    int code = this.column.getCode(row.getString(name));
+                    result[i] = code < 0 ? absentKey : code;
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class IntKeys extends RowKeys {
+        final IColumn column;
+        final int[] values = new int[ColumnAndConverter.batchSize];
+        final boolean[] missing = new boolean[ColumnAndConverter.batchSize];
+
+        IntKeys(IColumn column) {
+            this.column = column;
+        }
+
+        @Override
+        boolean isExact() { return true; }
+
+        @Override
+        void getKeys(int[] rows, int count, long[] keys) {
+            this.column.getInts(rows, count, this.values, this.missing);
+            for (int i = 0; i < count; i++)
+                keys[i] = this.missing[i] ? missingKey : this.values[i];
+        }
+
+        @Override
+        long[] getKeys(List<RowSnapshot> rows) {
+            String name = this.column.getName();
+            long[] result = new long[rows.size()];
+            for (int i = 0; i < result.length; i++) {
+                RowSnapshot row = rows.get(i);
+                result[i] = row.isMissing(name) ? missingKey : row.getInt(name);
+            }
+            return result;
+        }
+    }
+
+    private static final class HashKeys extends RowKeys {
+        /**
+         * Hash used for missing values.
+         */
+        static final long missingHash = 0x5DEECE66DL;
+        /**
+         * Multiplier used to combine the hashes of the columns.
+         */
+        static final long multiplier = 0x9E3779B97F4A7C15L;
+
+        final Schema schema;
+        final List<IColumn> columns;
+        final LongHashFunction hash = LongHashFunction.xx(0);
+
+        HashKeys(Schema schema, List<IColumn> columns) {
+            this.schema = schema;
+            this.columns = columns;
+        }
+
+        @Override
+        boolean isExact() { return false; }
+
+        @Override
+        void getKeys(int[] rows, int count, long[] keys) {
+            for (int i = 0; i < count; i++)
+                keys[i] = 0;
+            for (IColumn column : this.columns) {
+                for (int i = 0; i < count; i++) {
+                    int row = rows[i];
+                    long h = column.isMissing(row) ? missingHash : column.hashCode64(row, this.hash);
+                    keys[i] = keys[i] * multiplier + h;
+                }
+            }
+        }
+
+        /**
+         * The hashes of the row snapshots are computed by storing them in a table.
+         */
+        @Override
+        long[] getKeys(List<RowSnapshot> rows) {
+            SmallTable table = new SmallTable(this.schema, rows);
+            HashKeys keys = new HashKeys(this.schema, table.getColumns(this.schema));
+            int[] indexes = new int[rows.size()];
+            for (int i = 0; i < indexes.length; i++)
+                indexes[i] = i;
+            long[] result = new long[rows.size()];
+            keys.getKeys(indexes, indexes.length, result);
+            return result;
+        }
+    }
+}
@@ -17,10 +17,16 @@
 
 package org.hillview.sketches;
 
+import org.hillview.dataset.remoting.Codecs;
+import org.hillview.dataset.remoting.ICodec;
 import org.hillview.table.ArrayRowOrder;
 import org.hillview.table.rows.RowSnapshot;
 import org.hillview.table.SmallTable;
+import org.hillview.utils.Converters;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
@@ -61,4 +67,16 @@ public class SampleList implements Serializable {
             return this.table.compress(new ArrayRowOrder(order));
         }
     }
+
+    public static class Codec implements ICodec<SampleList> {
+        @Override
+        public void encode(SampleList value, DataOutputStream out) throws IOException {
+            Codecs.write(value.table, out);
+        }
+
+        @Override
+        public SampleList decode(DataInputStream in) throws IOException {
+            return new SampleList(Converters.checkNull((SmallTable)Codecs.read(in)));
+        }
+    }
 }
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.sketches;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import org.hillview.table.*;
+import org.hillview.table.api.*;
+import org.hillview.table.columns.BaseArrayColumn;
+import org.hillview.table.rows.RowSnapshot;
+import org.hillview.utils.Converters;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Specialized NextK computations for record orders with a single column.
+ * Numeric columns (including dates and durations) are mapped to long keys
+ * whose order is the sort order, and a LongTopK finds the smallest keys.
+ * Category columns count the rows for each distinct code and sort only
+ * the distinct values.  Merging two lists compares keys or strings directly,
+ * without materializing row snapshots.
+ */
+final class SingleColumnNextK {
+    private SingleColumnNextK() {}
+
+    /**
+     * Key used for missing values; these sort after all other values.
+     */
+    private static final long missingKey = Long.MAX_VALUE;
+
+    private static boolean isNumeric(ContentsKind kind) {
+        switch (kind) {
+            case Integer:
+            case Double:
+            case Date:
+            case Duration:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Maps a double to a long such that the longs are ordered like
+     * the doubles are ordered by Double.compare.
+     */
+    private static long doubleKey(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * Computes the sort keys of count rows of a numeric column.
+     * @param rows     Rows; if null the rows are start, ..., start + count - 1.
+     */
+    private static void getKeys(IColumn column, boolean ascending, @Nullable int[] rows,
+                                int start, int count, long[] keys, BatchValues buffers) {
+        boolean[] missing = buffers.missing;
+        if (column.getKind() == ContentsKind.Integer) {
+            int[] values = buffers.ints;
+            if (rows != null)
+                column.getInts(rows, count, values, missing);
+            else
+                column.getInts(start, count, values, missing);
+            for (int i = 0; i < count; i++)
+                keys[i] = missing[i] ? missingKey : values[i];
+        } else {
+            double[] values = buffers.doubles;
+            IStringConverter converter = NoStringConverter.getConverterInstance();
+            if (rows != null)
+                column.asDoubles(rows, count, converter, values, missing);
+            else
+                column.asDoubles(start, count, converter, values, missing);
+            for (int i = 0; i < count; i++)
+                keys[i] = missing[i] ? missingKey : doubleKey(values[i]);
+        }
+        if (!ascending)
+            for (int i = 0; i < count; i++)
+                keys[i] = ~keys[i];
+    }
+
+    private static long getKey(RowSnapshot row, ColumnDescription desc, boolean ascending) {
+        long key;
+        if (row.isMissing(desc.name)) {
+            key = missingKey;
+        } else {
+            switch (desc.kind) {
+                case Integer:
+                    key = row.getInt(desc.name);
+                    break;
+                case Double:
+                    key = doubleKey(row.getDouble(desc.name));
+                    break;
+                case Date:
+                    key = doubleKey(Converters.toDouble(row.getDate(desc.name)));
+                    break;
+                case Duration:
+                    key = doubleKey(Converters.toDouble(row.getDuration(desc.name)));
+                    break;
+                default:
+                    throw new RuntimeException("Unexpected kind " + desc.kind);
+            }
+        }
+        return ascending ? key : ~key;
+    }
+
+    /**
+     * Compares strings in the order of the string column comparator,
+     * where missing values come last.
+     */
+    private static int compareStrings(@Nullable String left, @Nullable String right,
+                                      boolean ascending) {
+        int c;
+        if (left == null)
+            c = right == null ? 0 : 1;
+        else if (right == null)
+            c = -1;
+        else
+            c = left.compareTo(right);
+        return ascending ? c : -c;
+    }
+
+    /**
+     * Buffers used to read batches of values.
+     */
+    private static final class BatchValues {
+        final boolean[] missing = new boolean[ColumnAndConverter.batchSize];
+        final int[] ints = new int[ColumnAndConverter.batchSize];
+        final double[] doubles = new double[ColumnAndConverter.batchSize];
+    }
+
+    /**
+     * Computes the NextK list of a table if the order has a single column
+     * that can be handled by a specialized method.
+     * @return null if the order is not handled.
+     */
+    @Nullable
+    static NextKList create(ITable data, RecordOrder order,
+                            @Nullable RowSnapshot topRow, int maxSize) {
+        if (order.getSize() != 1)
+            return null;
+        ColumnSortOrientation orientation = order.getOrientation(0);
+        ColumnDescription desc = orientation.columnDescription;
+        if (isNumeric(desc.kind)) {
+            IColumn column = data.getLoadedColumn(desc.name).column;
+            return createNumeric(data, column, order, topRow, maxSize);
+        }
+        if (desc.kind == ContentsKind.Category) {
+            IColumn column = data.getLoadedColumn(desc.name).column;
+            if (column instanceof ICategoryColumn)
+                return createCategory(data, (ICategoryColumn)column, order, topRow, maxSize);
+        }
+        return null;
+    }
+
+    private static NextKList createNumeric(ITable data, IColumn column, RecordOrder order,
+                                           @Nullable RowSnapshot topRow, int maxSize) {
+        ColumnSortOrientation orientation = order.getOrientation(0);
+        boolean ascending = orientation.isAscending;
+        long topKey = topRow == null ? Long.MIN_VALUE :
+                getKey(topRow, orientation.columnDescription, ascending);
+        LongTopK topK = new LongTopK(maxSize);
+        BatchValues buffers = new BatchValues();
+        int[] rows = new int[ColumnAndConverter.batchSize];
+        long[] keys = new long[ColumnAndConverter.batchSize];
+        IMembershipSet members = data.getMembershipSet();
+        // When all rows are present they are read as contiguous ranges
+        boolean full = members.getSize() == members.getMax();
+        IRowIterator rowIt = members.getIterator();
+        int position = 0;
+        int start = 0;
+        int count;
+        do {
+            if (full) {
+                count = Math.min(keys.length, members.getMax() - start);
+                getKeys(column, ascending, null, start, count, keys, buffers);
+            } else {
+                count = rowIt.getNextRows(rows);
+                getKeys(column, ascending, rows, 0, count, keys, buffers);
+            }
+            if (topRow == null) {
+                topK.push(keys, full ? null : rows, start, count);
+            } else {
+                // Count the keys smaller than topKey and push the others
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    if (keys[i] < topKey) {
+                        position++;
+                    } else {
+                        keys[kept] = keys[i];
+                        rows[kept] = full ? start + i : rows[i];
+                        kept++;
+                    }
+                }
+                topK.push(keys, rows, 0, kept);
+            }
+            start += count;
+        } while (count == rows.length);
+        long[] sorted = topK.getKeys();
+        int[] resultRows = new int[sorted.length];
+        List<Integer> counts = new ArrayList<Integer>(sorted.length);
+        for (int i = 0; i < sorted.length; i++) {
+            resultRows[i] = topK.getRow(sorted[i]);
+            counts.add(topK.getCount(sorted[i]));
+        }
+        SmallTable topKRows = data.compress(order.toSchema(), new ArrayRowOrder(resultRows));
+        return new NextKList(topKRows, counts, position, data.getNumOfRows());
+    }
+
+    private static NextKList createCategory(ITable data, ICategoryColumn column, RecordOrder order,
+                                            @Nullable RowSnapshot topRow, int maxSize) {
+        ColumnSortOrientation orientation = order.getOrientation(0);
+        boolean ascending = orientation.isAscending;
+        // Number of rows and first row for each code; codes are small
+        // integers, and missing values (code -1) are stored at index 0.
+        int[] codeCounts = new int[16];
+        int[] codeRows = new int[16];
+        int[] rows = new int[ColumnAndConverter.batchSize];
+        int[] codes = new int[ColumnAndConverter.batchSize];
+        IRowIterator rowIt = data.getRowIterator();
+        int count;
+        do {
+            count = rowIt.getNextRows(rows);
+            column.getCodes(rows, count, codes);
+            for (int i = 0; i < count; i++) {
+                int index = codes[i] + 1;
+                if (index >= codeCounts.length) {
+                    int length = Math.max(index + 1, 2 * codeCounts.length);
+                    codeCounts = Arrays.copyOf(codeCounts, length);
+                    codeRows = Arrays.copyOf(codeRows, length);
+                }
+                if (codeCounts[index]++ == 0)
+                    codeRows[index] = rows[i];
+            }
+        } while (count == rows.length);
+
+        int distinctCount = 0;
+        for (int c : codeCounts)
+            if (c > 0)
+                distinctCount++;
+        int[] distinct = new int[distinctCount];
+        String[] values = new String[codeCounts.length];
+        distinctCount = 0;
+        for (int i = 0; i < codeCounts.length; i++) {
+            if (codeCounts[i] == 0)
+                continue;
+            distinct[distinctCount++] = i;
+            values[i] = i == 0 ? null : column.getString(codeRows[i]);
+        }
+        IntArrays.quickSort(distinct,
+                (x, y) -> compareStrings(values[x], values[y], ascending));
+
+        String colName = orientation.columnDescription.name;
+        boolean hasTop = topRow != null;
+        String top = hasTop ? topRow.getString(colName) : null;
+        int position = 0;
+        int[] resultRows = new int[Math.min(maxSize, distinct.length)];
+        List<Integer> counts = new ArrayList<Integer>(resultRows.length);
+        for (int index : distinct) {
+            if (hasTop && compareStrings(values[index], top, ascending) < 0) {
+                position += codeCounts[index];
+            } else if (counts.size() < resultRows.length) {
+                resultRows[counts.size()] = codeRows[index];
+                counts.add(codeCounts[index]);
+            }
+        }
+        if (counts.size() < resultRows.length)
+            resultRows = Arrays.copyOf(resultRows, counts.size());
+        SmallTable topKRows = data.compress(order.toSchema(), new ArrayRowOrder(resultRows));
+        return new NextKList(topKRows, counts, position, data.getNumOfRows());
+    }
+
+    /**
+     * Merges two NextK lists sorted on a single column, comparing the values
+     * in the two columns directly.
+     * @return null if the order is not handled.
+     */
+    @Nullable
+    static NextKList add(NextKList left, NextKList right, RecordOrder order, int maxSize) {
+        if (order.getSize() != 1)
+            return null;
+        ColumnSortOrientation orientation = order.getOrientation(0);
+        ColumnDescription desc = orientation.columnDescription;
+        if (desc.kind == ContentsKind.None)
+            return null;
+        boolean ascending = orientation.isAscending;
+        IColumn leftCol = left.table.getColumn(desc.name);
+        IColumn rightCol = right.table.getColumn(desc.name);
+        int leftSize = left.table.getNumOfRows();
+        int rightSize = right.table.getNumOfRows();
+
+        IntBinaryOperator compare;
+        if (isNumeric(desc.kind)) {
+            BatchValues buffers = new BatchValues();
+            long[] leftKeys = keys(leftCol, ascending, leftSize, buffers);
+            long[] rightKeys = keys(rightCol, ascending, rightSize, buffers);
+            compare = (i, j) -> Long.compare(leftKeys[i], rightKeys[j]);
+        } else {
+            compare = (i, j) -> compareStrings(
+                    leftCol.getString(i), rightCol.getString(j), ascending);
+        }
+
+        // For each output row the left and right rows merged into it, or -1
+        int capacity = Math.min(maxSize, leftSize + rightSize);
+        int[] fromLeft = new int[capacity];
+        int[] fromRight = new int[capacity];
+        int size = 0;
+        int i = 0, j = 0;
+        while (size < capacity && (i < leftSize || j < rightSize)) {
+            int c;
+            if (i == leftSize)
+                c = 1;
+            else if (j == rightSize)
+                c = -1;
+            else
+                c = compare.applyAsInt(i, j);
+            fromLeft[size] = c <= 0 ? i++ : -1;
+            fromRight[size] = c >= 0 ? j++ : -1;
+            size++;
+        }
+
+        IMutableColumn merged = BaseArrayColumn.create(desc, size);
+        List<Integer> mergedCounts = new ArrayList<Integer>(size);
+        for (int k = 0; k < size; k++) {
+            int mergedCount = 0;
+            if (fromLeft[k] >= 0) {
+                copy(leftCol, fromLeft[k], merged, k);
+                mergedCount += left.count.get(fromLeft[k]);
+            } else {
+                copy(rightCol, fromRight[k], merged, k);
+            }
+            if (fromRight[k] >= 0)
+                mergedCount += right.count.get(fromRight[k]);
+            mergedCounts.add(mergedCount);
+        }
+        List<IColumn> columns = new ArrayList<IColumn>(1);
+        columns.add(merged);
+        return new NextKList(new SmallTable(columns), mergedCounts,
+                left.startPosition + right.startPosition,
+                left.rowsScanned + right.rowsScanned);
+    }
+
+    private static long[] keys(IColumn column, boolean ascending, int size, BatchValues buffers) {
+        long[] result = new long[size];
+        long[] keys = new long[ColumnAndConverter.batchSize];
+        for (int start = 0; start < size; start += keys.length) {
+            int count = Math.min(keys.length, size - start);
+            getKeys(column, ascending, null, start, count, keys, buffers);
+            System.arraycopy(keys, 0, result, start, count);
+        }
+        return result;
+    }
+
+    private static void copy(IColumn from, int row, IMutableColumn to, int index) {
+        if (from.isMissing(row)) {
+            to.setMissing(index);
+            return;
+        }
+        switch (from.getKind()) {
+            case Integer:
+                to.set(index, from.getInt(row));
+                break;
+            case Double:
+            case Date:
+            case Duration:
+                to.set(index, from.asDouble(row, NoStringConverter.getConverterInstance()));
+                break;
+            default:
+                to.set(index, from.getString(row));
+                break;
+        }
+    }
+}
@@ -14,7 +14,6 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.hillview.storage;
 
 import com.univocity.parsers.csv.CsvFormat;
@@ -24,17 +23,30 @@ import org.hillview.table.api.*;
 import org.hillview.table.ColumnDescription;
 import org.hillview.table.Schema;
 import org.hillview.table.Table;
+import org.hillview.table.columns.BaseListColumn;
+import org.hillview.table.columns.CategoryListColumn;
 import org.hillview.table.membership.FullMembershipSet;
 import org.hillview.table.rows.GuessSchema;
+import org.hillview.utils.Converters;
 import org.hillview.utils.HillviewLogger;
+import org.hillview.utils.Linq;
 import org.hillview.utils.Utilities;
 
 import javax.annotation.Nullable;
 import java.io.*;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Knows how to read a CSV file (comma-separated file).
+ * If the configuration allows it, large uncompressed files are split at line boundaries
+ * into chunks that are parsed in parallel and concatenated at the end; this assumes that
+ * quoted fields do not contain newlines.
+ * Unless a schema file is given, the kind of each column is guessed from a prefix
+ * of the file, and the values are parsed directly into columns of that kind.
+ * Columns with values that do not match the guessed kind are parsed again as strings,
+ * and their kind is guessed from all their values.
  */
 public class CsvFileLoader extends TextFileLoader {
     public static class Config implements Serializable {
@@ -50,8 +62,18 @@ public class CsvFileLoader extends TextFileLoader {
          * If true the file is expected to have a header row.
          */
         public boolean hasHeaderRow;
+        /**
+         * If true large uncompressed files are split at line boundaries and the chunks
+         * are parsed in parallel.  This is only correct if no quoted field contains a newline.
+         */
+        public boolean splitAtLineBreaks;
     }
 
+    /**
+     * Number of rows at the start of the file used to guess the column kinds.
+     */
+    private static final int sampleRows = 10000;
+
     private final Config configuration;
     @Nullable
     private Schema actualSchema;
@@ -65,115 +87,323 @@ public class CsvFileLoader extends TextFileLoader {
         this.allowFewerColumns = configuration.allowFewerColumns;
     }
 
-    public ITable load() {
-        if (!Utilities.isNullOrEmpty(this.schemaPath))
-            this.actualSchema = Schema.readFromJsonFile(Paths.get(this.schemaPath));
+    private CsvParserSettings createSettings() {
+        CsvParserSettings settings = new CsvParserSettings();
+        CsvFormat format = new CsvFormat();
+        format.setDelimiter(this.configuration.separator);
+        settings.setFormat(format);
+        settings.setIgnoreTrailingWhitespaces(true);
+        settings.setEmptyValue("");
+        settings.setNullValue(null);
+        settings.setReadInputOnSeparateThread(false);
+        if (!Utilities.isNullOrEmpty(this.schemaPath) && this.actualSchema != null)
+            settings.setMaxColumns(this.actualSchema.getColumnCount());
+        else
+            settings.setMaxColumns(50000);
+        return settings;
+    }
 
+    @Nullable
+    private static String[] parseNext(CsvParser reader, TextFileLoader loader) {
+        try {
+            return reader.parseNext();
+        } catch (Exception ex) {
+            loader.error(ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the header row and a sample of the rows to create this.actualSchema.
+     * @param guessKinds  If true the column kinds are guessed from the sample.
+     * @return For each column, true if the sample had no values for the column,
+     *         so its kind has to be guessed from all its values.
+     */
+    private boolean[] createSchema(boolean guessKinds) {
         Reader file = null;
         try {
             file = this.getFileReader();
-            CsvParserSettings settings = new CsvParserSettings();
-            CsvFormat format = new CsvFormat();
-            format.setDelimiter(this.configuration.separator);
-            settings.setFormat(format);
-            settings.setIgnoreTrailingWhitespaces(true);
-            settings.setEmptyValue("");
-            settings.setNullValue(null);
-            settings.setReadInputOnSeparateThread(false);
-            if (this.actualSchema != null)
-                settings.setMaxColumns(this.actualSchema.getColumnCount());
-            else
-                settings.setMaxColumns(50000);
-            CsvParser reader = new CsvParser(settings);
+            CsvParser reader = new CsvParser(this.createSettings());
             reader.beginParsing(file);
 
+            Schema schema = this.actualSchema;
             if (this.configuration.hasHeaderRow) {
-                @Nullable
-                String[] line = null;
-                try {
-                    line = reader.parseNext();
-                } catch (Exception ex) {
-                    this.error(ex.getMessage());
-                }
+                String[] line = parseNext(reader, this);
                 if (line == null)
                     throw new RuntimeException("Missing header row " + this.filename);
-                if (this.actualSchema == null) {
+                if (schema == null) {
                     HillviewLogger.instance.info("Creating schema");
-                    this.actualSchema = new Schema();
+                    schema = new Schema();
                     int index = 0;
                     for (String col : line) {
                         if ((col == null) || col.isEmpty())
-                            col = this.actualSchema.newColumnName("Column_" + Integer.toString(index));
-                        col = this.actualSchema.newColumnName(col);
+                            col = schema.newColumnName("Column_" + Integer.toString(index));
+                        col = schema.newColumnName(col);
                         ColumnDescription cd = new ColumnDescription(col,
                                 ContentsKind.String);
-                        this.actualSchema.append(cd);
+                        schema.append(cd);
                         index++;
                     }
-                } else {
-                    this.currentRow++;
                 }
             }
 
-            String[] firstLine = null;
-            if (this.actualSchema == null) {
-                int columnCount;
-                this.actualSchema = new Schema();
-                firstLine = reader.parseNext();
-                if (firstLine == null)
-                    throw new RuntimeException("Cannot create schema from empty CSV file");
-                columnCount = firstLine.length;
+            List<String[]> sample = new ArrayList<String[]>();
+            if (guessKinds || schema == null) {
+                while (sample.size() < sampleRows) {
+                    String[] line = parseNext(reader, this);
+                    if (line == null)
+                        break;
+                    sample.add(line);
+                }
+            }
+            reader.stopParsing();
 
+            if (schema == null) {
+                if (sample.isEmpty())
+                    throw new RuntimeException("Cannot create schema from empty CSV file");
+                schema = new Schema();
+                int columnCount = sample.get(0).length;
                 for (int i = 0; i < columnCount; i++) {
                     ColumnDescription cd = new ColumnDescription("Column " + Integer.toString(i),
                             ContentsKind.String);
-                    this.actualSchema.append(cd);
+                    schema.append(cd);
                 }
             }
 
-            assert this.actualSchema != null;
-            this.columns = this.actualSchema.createAppendableColumns();
+            boolean[] unknown = new boolean[schema.getColumnCount()];
+            if (guessKinds) {
+                Schema guessed = new Schema();
+                int index = 0;
+                for (ColumnDescription cd : schema.getColumnDescriptions()) {
+                    final int ci = index;
+                    List<String> values = new ArrayList<String>(sample.size());
+                    for (String[] row : sample)
+                        values.add(ci < row.length ? row[ci] : "");
+                    GuessSchema.SchemaInfo info = new GuessSchema().guess(values);
+                    ContentsKind kind = info.kind;
+                    if (kind == ContentsKind.None) {
+                        // all elements are null
+                        unknown[ci] = true;
+                        kind = ContentsKind.String;
+                    }
+                    guessed.append(new ColumnDescription(cd.name, kind));
+                    index++;
+                }
+                schema = guessed;
+            }
+            this.actualSchema = schema;
+            return unknown;
+        } finally {
+            this.close(file);
+        }
+    }
 
-            if (firstLine != null)
-                this.append(firstLine);
-            while (true) {
-                @Nullable
-                String[] line = null;
+    /**
+     * Parses a range of the file into columns.
+     */
+    private class ChunkLoader extends TextFileLoader {
+        /**
+         * Byte range of the chunk; if end is negative the whole file is read.
+         */
+        final long start;
+        final long end;
+        private final Schema schema;
+        /**
+         * If not null only the columns with these indexes are read from the file.
+         */
+        @Nullable
+        private final Integer[] selected;
+        private final boolean checkKinds;
+        /**
+         * For each column, true if some values do not match the column kind.
+         */
+        final boolean[] conflicts;
+
+        ChunkLoader(long start, long end, Schema schema,
+                    @Nullable Integer[] selected, boolean checkKinds) {
+            super(CsvFileLoader.this.filename);
+            this.startOffset = Math.max(start, 0);
+            this.start = start;
+            this.end = end;
+            this.schema = schema;
+            this.selected = selected;
+            this.checkKinds = checkKinds;
+            this.conflicts = new boolean[schema.getColumnCount()];
+            this.allowFewerColumns = CsvFileLoader.this.allowFewerColumns;
+        }
+
+        @Override
+        void appendValue(int columnIndex, @Nullable String value) {
+            assert this.columns != null;
+            IAppendableColumn col = this.columns[columnIndex];
+            if (this.checkKinds && col.getKind() == ContentsKind.Integer &&
+                    value != null && !value.isEmpty()) {
+                // The integer column parser truncates values such as 2.5.
                 try {
-                    line = reader.parseNext();
-                } catch (Exception ex) {
-                    this.error(ex.getMessage());
+                    col.append(Integer.parseInt(value));
+                } catch (NumberFormatException ex) {
+                    this.conflicts[columnIndex] = true;
+                    col.appendMissing();
                 }
-                if (line == null)
-                    break;
-                this.append(line);
+            } else {
+                col.parseAndAppendString(value);
             }
+        }
 
-            IColumn[] sealed = new IColumn[this.columns.length];
-            reader.stopParsing();
-            IMembershipSet ms = null;
-            for (int ci = 0; ci < this.columns.length; ci++) {
-                IAppendableColumn c = this.columns[ci];
-                IColumn s = c.seal();
-                if (ms == null)
-                    ms = new FullMembershipSet(s.sizeInRows());
-                if (Utilities.isNullOrEmpty(this.schemaPath)) {
-                    GuessSchema gs = new GuessSchema();
-                    GuessSchema.SchemaInfo info = gs.guess((IStringColumn)s);
-                    if (info.kind != ContentsKind.String &&
-                            info.kind != ContentsKind.None)  // all elements are null
-                        sealed[ci] = s.convertKind(info.kind, c.getName(), ms);
-                    else
-                        sealed[ci] = s;
-                } else {
-                    sealed[ci] = s;
+        IColumn[] parse() {
+            Reader file = null;
+            try {
+                file = this.end < 0 ? this.getFileReader() : this.getFileReader(this.start, this.end);
+                CsvParserSettings settings = CsvFileLoader.this.createSettings();
+                if (this.selected != null)
+                    settings.selectIndexes(this.selected);
+                CsvParser reader = new CsvParser(settings);
+                reader.beginParsing(file);
+                if (this.start == 0 && CsvFileLoader.this.configuration.hasHeaderRow) {
+                    parseNext(reader, this);
+                    this.currentRow++;
+                }
+
+                this.columns = this.schema.createAppendableColumns();
+                while (true) {
+                    String[] line = parseNext(reader, this);
+                    if (line == null)
+                        break;
+                    this.append(line);
+                }
+                reader.stopParsing();
+
+                IColumn[] sealed = new IColumn[this.columns.length];
+                for (int ci = 0; ci < this.columns.length; ci++) {
+                    sealed[ci] = this.columns[ci].seal();
+                    if (this.checkKinds &&
+                            ((BaseListColumn)this.columns[ci]).getParsingExceptionCount() > 0)
+                        this.conflicts[ci] = true;
                 }
-                assert sealed[ci] != null;
+                return sealed;
+            } finally {
+                this.close(file);
             }
+        }
 
-            return new Table(sealed, this.filename, null);
-        } finally {
-            this.close(file);
+        @Override
+        public ITable load() {
+            return new Table(this.parse(), this.filename, null);
+        }
+    }
+
+    private static List<IColumn[]> parseChunks(List<ChunkLoader> chunks) {
+        return runInParallel(Linq.map(chunks, c -> c::parse));
+    }
+
+    /**
+     * Guess the kind of the columns whose values conflict with the kind guessed
+     * from the sample, or whose kind could not be guessed from the sample, and
+     * convert them.  The conflicting columns are parsed again as strings.
+     */
+    private void guessRemainingKinds(List<ChunkLoader> chunks, List<IColumn[]> data,
+                                     boolean[] unknown) {
+        Schema schema = Converters.checkNull(this.actualSchema);
+        List<ColumnDescription> descriptions = schema.getColumnDescriptions();
+        List<Integer> conflicting = new ArrayList<Integer>();
+        for (int ci = 0; ci < descriptions.size(); ci++) {
+            for (ChunkLoader c : chunks) {
+                if (c.conflicts[ci]) {
+                    conflicting.add(ci);
+                    break;
+                }
+            }
+        }
+
+        List<IColumn[]> strings = null;
+        if (!conflicting.isEmpty()) {
+            HillviewLogger.instance.info("Parsing columns again", "{0}:{1}",
+                    this.filename, conflicting);
+            Schema stringSchema = new Schema();
+            for (int ci : conflicting)
+                stringSchema.append(new ColumnDescription(
+                        descriptions.get(ci).name, ContentsKind.String));
+            Integer[] selected = conflicting.toArray(new Integer[0]);
+            List<ChunkLoader> again = new ArrayList<ChunkLoader>(chunks.size());
+            for (ChunkLoader c : chunks)
+                again.add(new ChunkLoader(c.start, c.end, stringSchema, selected, false));
+            strings = parseChunks(again);
+        }
+
+        Schema result = new Schema();
+        for (int ci = 0; ci < descriptions.size(); ci++) {
+            ColumnDescription cd = descriptions.get(ci);
+            int conflictIndex = conflicting.indexOf(ci);
+            if (!unknown[ci] && conflictIndex < 0) {
+                result.append(cd);
+                continue;
+            }
+            List<IStringColumn> pieces = new ArrayList<IStringColumn>(data.size());
+            for (int k = 0; k < data.size(); k++) {
+                IColumn piece = conflictIndex >= 0 ?
+                        Converters.checkNull(strings).get(k)[conflictIndex] : data.get(k)[ci];
+                pieces.add((IStringColumn)piece);
+            }
+            GuessSchema.SchemaInfo info = new GuessSchema().guessAll(pieces);
+            ContentsKind kind = info.kind;
+            if (kind == ContentsKind.None)  // all elements are null
+                kind = ContentsKind.String;
+            for (int k = 0; k < data.size(); k++) {
+                IStringColumn piece = pieces.get(k);
+                data.get(k)[ci] = kind == ContentsKind.String ? piece :
+                        piece.convertKind(kind, cd.name, new FullMembershipSet(piece.sizeInRows()));
+            }
+            result.append(new ColumnDescription(cd.name, kind));
+        }
+        this.actualSchema = result;
+    }
+
+    /**
+     * Concatenate the pieces of column ci from all chunks.  The pieces are
+     * removed from the chunks as they are copied.
+     */
+    private static IColumn concatenate(List<IColumn[]> data, int ci) {
+        List<IColumn> pieces = new ArrayList<IColumn>(data.size());
+        for (IColumn[] chunk : data) {
+            pieces.add(chunk[ci]);
+            chunk[ci] = null;
+        }
+        return BaseListColumn.concatenate(pieces);
+    }
+
+    public ITable load() {
+        if (!Utilities.isNullOrEmpty(this.schemaPath))
+            this.actualSchema = Schema.readFromJsonFile(Paths.get(this.schemaPath));
+        final boolean guessKinds = Utilities.isNullOrEmpty(this.schemaPath);
+        final boolean[] unknown = this.createSchema(guessKinds);
+        final Schema schema = Converters.checkNull(this.actualSchema);
+
+        final List<ChunkLoader> chunks = new ArrayList<ChunkLoader>();
+        final long[] boundaries = this.configuration.splitAtLineBreaks ?
+                this.chunkBoundaries() : null;
+        if (boundaries == null) {
+            chunks.add(new ChunkLoader(0, -1, schema, null, guessKinds));
+        } else {
+            HillviewLogger.instance.info("Reading file in chunks", "{0}:{1}",
+                    this.filename, boundaries.length - 1);
+            for (int i = 0; i < boundaries.length - 1; i++)
+                chunks.add(new ChunkLoader(
+                        boundaries[i], boundaries[i + 1], schema, null, guessKinds));
+        }
+        final List<IColumn[]> data = parseChunks(chunks);
+        if (guessKinds)
+            this.guessRemainingKinds(chunks, data, unknown);
+
+        final IColumn[] columns = new IColumn[schema.getColumnCount()];
+        for (int ci = 0; ci < columns.length; ci++) {
+            IColumn column = concatenate(data, ci);
+            if (guessKinds && column instanceof CategoryListColumn &&
+                    ((CategoryListColumn)column).getDistinctCount() > ICategoryColumn.maxDistinctCount / 2)
+                // The sample did not have enough distinct values.
+                column = column.convertKind(ContentsKind.String, column.getName(),
+                        new FullMembershipSet(column.sizeInRows()));
+            columns[ci] = column;
         }
+        return new Table(columns, this.filename, null);
     }
 }
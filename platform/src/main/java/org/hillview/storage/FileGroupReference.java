@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.storage;
+
+import org.hillview.table.Schema;
+import org.hillview.table.Table;
+import org.hillview.table.api.ColumnAndConverter;
+import org.hillview.table.api.ColumnAndConverterDescription;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.ITable;
+import org.hillview.table.columns.BaseListColumn;
+import org.hillview.utils.Linq;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A reference to a group of small files that are loaded together into a single table.
+ * Each partition of a dataset has a fixed cost (a LocalDataSet, a task for each sketch,
+ * a partial result to combine), so loading many small files as one partition is cheaper.
+ * All files in a group must produce tables with the same schema.  The table loaded
+ * is named after the first file in the group, and it records the names of all files
+ * in the group.  All the columns of the files are read when the group is loaded, and
+ * the table cannot reload them, so files whose columns are loaded lazily are not grouped.
+ */
+public class FileGroupReference implements IFileReference {
+    private final List<IFileReference> files;
+
+    private FileGroupReference(List<IFileReference> files) {
+        this.files = files;
+    }
+
+    /**
+     * Groups consecutive files until each group has at least groupSizeInBytes bytes.
+     * Files that are larger than this, and files whose columns are loaded lazily,
+     * are left alone: they end the current group and are not grouped with other files.
+     * @param files             Files to group.
+     * @param groupSizeInBytes  Target size of a group; if not positive the files are not grouped.
+     */
+    public static List<IFileReference> coalesce(List<IFileReference> files, long groupSizeInBytes) {
+        if (groupSizeInBytes <= 0)
+            return files;
+        List<IFileReference> result = new ArrayList<IFileReference>();
+        List<IFileReference> group = new ArrayList<IFileReference>();
+        long size = 0;
+        for (IFileReference file : files) {
+            if (file.loadsColumnsLazily() || file.getSizeInBytes() >= groupSizeInBytes) {
+                if (!group.isEmpty())
+                    result.add(create(group));
+                result.add(file);
+                group = new ArrayList<IFileReference>();
+                size = 0;
+                continue;
+            }
+            group.add(file);
+            size += file.getSizeInBytes();
+            if (size >= groupSizeInBytes) {
+                result.add(create(group));
+                group = new ArrayList<IFileReference>();
+                size = 0;
+            }
+        }
+        if (!group.isEmpty())
+            result.add(create(group));
+        return result;
+    }
+
+    private static IFileReference create(List<IFileReference> group) {
+        if (group.size() == 1)
+            return group.get(0);
+        return new FileGroupReference(group);
+    }
+
+    public List<IFileReference> getFiles() {
+        return this.files;
+    }
+
+    @Override
+    public ITable load() {
+        List<ITable> tables = Linq.map(this.files, IFileReference::load);
+        Schema schema = tables.get(0).getSchema();
+        List<ColumnAndConverterDescription> ccds =
+                ColumnAndConverterDescription.create(schema.getColumnNames());
+        List<List<IColumn>> pieces = new ArrayList<List<IColumn>>();
+        for (int i = 0; i < ccds.size(); i++)
+            pieces.add(new ArrayList<IColumn>(tables.size()));
+        for (int t = 0; t < tables.size(); t++) {
+            ITable table = tables.get(t);
+            if (!table.getSchema().equals(schema))
+                throw new RuntimeException("Files " + this.files.get(0).getPathname() + " and " +
+                        this.files.get(t).getPathname() + " have different schemas");
+            List<IColumn> columns = Linq.map(table.getLoadedColumns(ccds), c -> c.column);
+            if (table.getNumOfRows() != table.getMembershipSet().getMax())
+                // Only keep the rows that are present
+                columns = new Table(columns, table.getMembershipSet(), null, null)
+                        .compress(table.getMembershipSet()).getColumns(schema);
+            for (int i = 0; i < columns.size(); i++)
+                pieces.get(i).add(columns.get(i));
+            tables.set(t, null);
+        }
+        List<IColumn> columns = Linq.map(pieces, BaseListColumn::concatenate);
+        return new Table(columns, this.getPathname(), null).asLoadedFrom(
+                Linq.map(this.files, IFileReference::getPathname));
+    }
+
+    @Override
+    public long getSizeInBytes() {
+        long size = 0;
+        for (IFileReference file : this.files)
+            size += file.getSizeInBytes();
+        return size;
+    }
+
+    /**
+     * The path of the first file in the group; the loaded table records all of them.
+     */
+    @Override
+    public String getPathname() {
+        return this.files.get(0).getPathname();
+    }
+}
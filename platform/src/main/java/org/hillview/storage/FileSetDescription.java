@@ -18,13 +18,17 @@
 package org.hillview.storage;
 
 import org.hillview.dataset.api.IJson;
+import org.hillview.table.Table;
+import org.hillview.table.api.IMembershipSet;
 import org.hillview.table.api.ITable;
+import org.hillview.table.filters.RangeFilterDescription;
 import org.hillview.utils.Utilities;
 
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.Serializable;
 import java.nio.file.Paths;
+import java.util.Collections;
 
 /**
  * Describes a set of files to load.  Not all fields are always used.
@@ -67,6 +71,20 @@ public class FileSetDescription implements Serializable, IJson {
      * Used for testing: allows reading the same data multiple times.
      */
     public int repeat = 1;
+    /**
+     * If not null only the rows passing this filter are loaded.
+     * For ORC files the stripes that cannot contain such rows are not read.
+     */
+    @Nullable
+    public RangeFilterDescription rangeFilter = null;
+    /**
+     * If positive, consecutive files are grouped until each group has at least this
+     * many bytes, and each group is loaded as a single table.  This reduces the
+     * per-partition overhead when there are many small files.  The files in a group
+     * must have the same schema.  Files whose columns are loaded lazily (ORC and
+     * Parquet) are not grouped.
+     */
+    public long groupSizeInBytes = 0;
 
     @Nullable
     private String getSchemaPath() {
@@ -106,7 +124,8 @@ public class FileSetDescription implements Serializable, IJson {
                     break;
                 case "orc":
                     loader = new OrcFileLoader(
-                            this.pathname, FileSetDescription.this.getSchemaPath(), true);
+                            this.pathname, FileSetDescription.this.getSchemaPath(), true,
+                            FileSetDescription.this.rangeFilter);
                     break;
                 case "parquet":
                     loader = new ParquetFileLoader(
@@ -123,7 +142,41 @@ public class FileSetDescription implements Serializable, IJson {
                     throw new RuntimeException(
                             "Unexpected file kind " + FileSetDescription.this.fileKind);
             }
-            return loader.load();
+            final TextFileLoader fileLoader = loader;
+            ITable table = TableSnapshot.load(this.pathname, this.snapshotKey(), fileLoader::load);
+            RangeFilterDescription filter = FileSetDescription.this.rangeFilter;
+            if (filter != null) {
+                IMembershipSet rows = table.getMembershipSet().filterRows(filter.getFilter(table));
+                table = table.selectRowsFromFullTable(rows);
+            }
+            if (table instanceof Table)
+                table = ((Table)table).asLoadedFrom(Collections.singletonList(this.pathname));
+            return table;
+        }
+
+        /**
+         * Describes the way the file is loaded, so a snapshot is only reused for the same options.
+         */
+        private String snapshotKey() {
+            return FileSetDescription.this.fileKind + ":" +
+                    new File(this.pathname).getAbsolutePath() + ":" +
+                    FileSetDescription.this.getSchemaPath() + ":" +
+                    FileSetDescription.this.headerRow + ":" +
+                    // The filter only changes the data read from ORC files
+                    (FileSetDescription.this.rangeFilter == null ||
+                            !FileSetDescription.this.fileKind.equals("orc") ? "" :
+                            FileSetDescription.this.rangeFilter.toJson());
+        }
+
+        @Override
+        public String getPathname() {
+            return this.pathname;
+        }
+
+        @Override
+        public boolean loadsColumnsLazily() {
+            String kind = FileSetDescription.this.fileKind;
+            return kind.equals("orc") || kind.equals("parquet");
         }
 
         public long getSizeInBytes() {
@@ -34,4 +34,16 @@ public interface IFileReference {
      * The size of the file in bytes.
      */
     long getSizeInBytes();
+
+    /**
+     * The path of the file.
+     */
+    String getPathname();
+
+    /**
+     * True if the table loaded only reads the data of a column when it is used.
+     */
+    default boolean loadsColumnsLazily() {
+        return false;
+    }
 }
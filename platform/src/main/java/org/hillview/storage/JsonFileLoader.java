@@ -17,16 +17,20 @@
 
 package org.hillview.storage;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.internal.Streams;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.hillview.table.ColumnDescription;
 import org.hillview.table.Schema;
 import org.hillview.table.Table;
 import org.hillview.table.api.*;
+import org.hillview.table.columns.BaseListColumn;
+import org.hillview.utils.Converters;
+import org.hillview.utils.HillviewLogger;
+import org.hillview.utils.Linq;
 
 import javax.annotation.Nullable;
 import java.io.*;
@@ -36,15 +40,27 @@ import java.util.*;
 /**
  * Reads data from a file containing data encoded as JSON.
  * The assumed format is as follows:
- * - the file contains a single JSON array
+ * - the file contains a single JSON array, or a sequence of JSON objects
+ *   (newline-delimited JSON, with one object on each line)
  * - the array elements are flat JSON objects
  * - each value will become a row in the table
- * - all JSON objects have the same structure (schema)
+ * - all JSON objects have the same structure (schema); missing properties
+ *   become missing values, and properties that are not in the schema are ignored
  * - JSON objects generate a column for each property
+ * The file is read one token at a time and the values are appended directly to
+ * the columns, so the memory needed is proportional to the size of the table.
+ * Unless a schema file is given, the schema is guessed from a prefix of the file.
+ * Large uncompressed newline-delimited files are split at line boundaries into
+ * chunks that are parsed in parallel and concatenated at the end; this is only
+ * done when each boundary falls between two objects.
  * TODO: add support for sparse data, with different schemas and hierarchical objects.
- * TODO: add support for streaming reads
  */
 public class JsonFileLoader extends TextFileLoader {
+    /**
+     * Number of objects at the start of the file used to guess the schema.
+     */
+    private static final int sampleRows = 10000;
+
     @Nullable
     private final String schemaPath;
 
@@ -55,32 +71,254 @@ public class JsonFileLoader extends TextFileLoader {
         this.currentColumn = -1;
     }
 
+    private static JsonReader createReader(Reader file) {
+        JsonReader reader = new JsonReader(file);
+        reader.setLenient(false);
+        return reader;
+    }
+
+    /**
+     * True if there is another element in the current array, or another
+     * value at the top level.
+     * @param topLevel  If true the reader is not inside an array.
+     */
+    private static boolean hasNext(JsonReader reader, boolean topLevel) throws IOException {
+        if (!topLevel)
+            return reader.hasNext();
+        // A sequence of values at the top level is only accepted by a lenient reader;
+        // the values themselves are still parsed strictly.
+        reader.setLenient(true);
+        try {
+            // JsonReader.hasNext does not detect the end of the document
+            return reader.peek() != JsonToken.END_DOCUMENT && reader.hasNext();
+        } finally {
+            reader.setLenient(false);
+        }
+    }
+
+    /**
+     * Iterates over at most limit JSON elements, parsing each of them.
+     */
+    private static class ElementIterator implements Iterator<JsonElement> {
+        private final JsonReader reader;
+        private final boolean topLevel;
+        private int limit;
+
+        ElementIterator(JsonReader reader, boolean topLevel, int limit) {
+            this.reader = reader;
+            this.topLevel = topLevel;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return this.limit > 0 && JsonFileLoader.hasNext(this.reader, this.topLevel);
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        @Override
+        public JsonElement next() {
+            this.limit--;
+            return Streams.parse(this.reader);
+        }
+    }
+
     public ITable load() {
         Schema schema = null;
         if (this.schemaPath != null)
             schema = Schema.readFromJsonFile(Paths.get(this.schemaPath));
 
+        boolean isArray;
         Reader file = this.getFileReader();
-        JsonReader jReader = new JsonReader(file);
-        JsonElement elem = Streams.parse(jReader);
-        if (!elem.isJsonArray())
-            throw new RuntimeException("Expected a JSON array in " + filename);
-        JsonArray array = elem.getAsJsonArray();
-        if (array.size() == 0 && schema == null)
-            throw new RuntimeException("Empty JSON array in " + filename);
-
-        if (schema == null)
-            schema = this.guessSchema(filename, array.iterator());
-        IAppendableColumn[] columns = schema.createAppendableColumns();
+        try {
+            JsonReader reader = createReader(file);
+            isArray = reader.peek() == JsonToken.BEGIN_ARRAY;
+            if (isArray) {
+                reader.beginArray();
+                if (!hasNext(reader, false) && schema == null)
+                    throw new RuntimeException("Empty JSON array in " + filename);
+            }
+            if (schema == null)
+                schema = this.guessSchema(filename, new ElementIterator(reader, !isArray, sampleRows));
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            this.close(file);
+        }
 
-        this.currentRow = 0;
-        for (JsonElement e : array)
-            this.append(columns, e);
+        List<ChunkLoader> chunks = new ArrayList<ChunkLoader>();
+        // An array cannot be split at line boundaries.
+        long[] boundaries = isArray ? null : this.chunkBoundaries();
+        if (boundaries != null && !this.separatesObjects(boundaries))
+            // Probably objects that span multiple lines.
+            boundaries = null;
+        if (boundaries == null) {
+            chunks.add(new ChunkLoader(0, -1, schema, isArray));
+        } else {
+            HillviewLogger.instance.info("Reading file in chunks", "{0}:{1}",
+                    this.filename, boundaries.length - 1);
+            for (int i = 0; i < boundaries.length - 1; i++)
+                chunks.add(new ChunkLoader(boundaries[i], boundaries[i + 1], schema, false));
+        }
+        List<IColumn[]> data = runInParallel(Linq.map(chunks, c -> c::parse));
 
-        this.close(file);
+        IColumn[] columns = new IColumn[schema.getColumnCount()];
+        for (int ci = 0; ci < columns.length; ci++) {
+            List<IColumn> pieces = new ArrayList<IColumn>(data.size());
+            for (IColumn[] chunk : data) {
+                pieces.add(chunk[ci]);
+                chunk[ci] = null;
+            }
+            columns[ci] = BaseListColumn.concatenate(pieces);
+        }
         return new Table(columns, this.filename, null);
     }
 
+    /**
+     * Checks that each chunk boundary separates two top-level objects: the line
+     * before the boundary ends with '}' and the next line starts with '{'.
+     * In valid JSON this sequence cannot appear inside an object.
+     * @param boundaries  Boundaries produced by chunkBoundaries.
+     */
+    private boolean separatesObjects(long[] boundaries) {
+        try (RandomAccessFile file = new RandomAccessFile(this.filename, "r")) {
+            for (int i = 1; i < boundaries.length - 1; i++) {
+                long start = boundaries[i];
+                file.seek(start);
+                if (file.read() != '{')
+                    return false;
+                // The byte at start - 1 is a newline.
+                long position = start - 2;
+                if (position < 0)
+                    return false;
+                file.seek(position);
+                int c = file.read();
+                if (c == '\r' && position > 0) {
+                    file.seek(--position);
+                    c = file.read();
+                }
+                if (c != '}')
+                    return false;
+            }
+            return true;
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Parses a range of the file into columns.
+     */
+    private class ChunkLoader extends TextFileLoader {
+        /**
+         * Byte range of the chunk; if end is negative the whole file is read.
+         */
+        private final long start;
+        private final long end;
+        private final Schema schema;
+        /**
+         * If true the objects are the elements of an array.
+         */
+        private final boolean isArray;
+
+        ChunkLoader(long start, long end, Schema schema, boolean isArray) {
+            super(JsonFileLoader.this.filename);
+            this.start = start;
+            this.end = end;
+            this.schema = schema;
+            this.isArray = isArray;
+            this.startOffset = Math.max(start, 0);
+        }
+
+        IColumn[] parse() {
+            Reader file = null;
+            try {
+                file = this.end < 0 ? this.getFileReader() : this.getFileReader(this.start, this.end);
+                JsonReader reader = createReader(file);
+                IAppendableColumn[] columns = this.schema.createAppendableColumns();
+                this.columns = columns;
+                Map<String, Integer> index = new HashMap<String, Integer>();
+                for (int ci = 0; ci < columns.length; ci++)
+                    index.put(columns[ci].getName(), ci);
+                boolean[] present = new boolean[columns.length];
+
+                if (this.isArray)
+                    reader.beginArray();
+                while (JsonFileLoader.hasNext(reader, !this.isArray)) {
+                    this.appendObject(reader, index, present);
+                    this.currentRow++;
+                }
+
+                IColumn[] sealed = new IColumn[columns.length];
+                for (int ci = 0; ci < columns.length; ci++)
+                    sealed[ci] = columns[ci].seal();
+                return sealed;
+            } catch (IOException|IllegalStateException|NumberFormatException ex) {
+                this.error(ex);
+                throw new RuntimeException(ex);  // not reached
+            } finally {
+                this.close(file);
+            }
+        }
+
+        /**
+         * Reads one JSON object and appends its properties to the columns.
+         * @param index    Index of each column in the schema.
+         * @param present  Scratch space; indicates which columns have a value.
+         */
+        private void appendObject(JsonReader reader, Map<String, Integer> index,
+                                  boolean[] present) throws IOException {
+            IAppendableColumn[] columns = Converters.checkNull(this.columns);
+            Arrays.fill(present, false);
+            if (reader.peek() != JsonToken.BEGIN_OBJECT)
+                this.error("Expected a JSON object");
+            reader.beginObject();
+            while (reader.hasNext()) {
+                Integer ci = index.get(reader.nextName());
+                if (ci == null || present[ci]) {
+                    reader.skipValue();
+                    continue;
+                }
+                this.currentColumn = ci;
+                IAppendableColumn col = columns[ci];
+                present[ci] = true;
+                switch (reader.peek()) {
+                    case NULL:
+                        reader.nextNull();
+                        col.appendMissing();
+                        break;
+                    case BOOLEAN:
+                        col.parseAndAppendString(reader.nextBoolean() ? "true" : "false");
+                        break;
+                    case NUMBER:
+                        if (col.getKind() == ContentsKind.Double)
+                            col.append(reader.nextDouble());
+                        else
+                            col.parseAndAppendString(reader.nextString());
+                        break;
+                    case STRING:
+                        col.parseAndAppendString(reader.nextString());
+                        break;
+                    default:
+                        this.error("Values must be simple");
+                }
+            }
+            reader.endObject();
+            this.currentColumn = -1;
+            for (int ci = 0; ci < columns.length; ci++)
+                if (!present[ci])
+                    columns[ci].appendMissing();
+        }
+
+        @Override
+        public ITable load() {
+            return new Table(this.parse(), this.filename, null);
+        }
+    }
+
     private static ContentsKind getKind(@Nullable JsonElement e) {
         if (e == null || e.isJsonNull())
             return ContentsKind.None;
@@ -96,54 +334,47 @@ public class JsonFileLoader extends TextFileLoader {
         throw new RuntimeException("Unexpected JSON value " + prim);
     }
 
+    /**
+     * Guess the schema from a collection of JSON objects.  There is a column for each
+     * property with simple values; its kind is guessed from the values in all objects.
+     * Properties whose values are arrays or objects are ignored.
+     */
     Schema guessSchema(String filename, Iterator<JsonElement> collection) {
         Map<String, ContentsKind> colKind = new LinkedHashMap<String, ContentsKind>();
-        Set<String> unknownColumns = new HashSet<String>();
+        Set<String> ignored = new HashSet<String>();
 
         if (!collection.hasNext())
             throw new RuntimeException("Empty json collection in " + filename);
 
-        // Try to guess schema based on first element
-        JsonElement el = collection.next();
-        if (!el.isJsonObject())
-            throw new RuntimeException("Expected a JSON array of JSON objects " + filename);
-        JsonObject object = el.getAsJsonObject();
-
-        for (Map.Entry<String, JsonElement> e : object.entrySet()) {
-            String name = e.getKey();
-            JsonElement value = e.getValue();
-            if (value.isJsonArray() || value.isJsonObject())
-                throw new RuntimeException("Values must be simple " + value);
-            ContentsKind kind = JsonFileLoader.getKind(value);
-            if (kind == ContentsKind.None)
-                unknownColumns.add(name);
-            colKind.put(name, kind);
-        }
-
-        // If we could not guess schema scan the rest of the elements.
-        this.currentRow = 1;
-        List<String> found = new ArrayList<String>();
-        while (unknownColumns.size() != 0 && collection.hasNext()) {
-            el = collection.next();
-            this.currentRow++;
+        this.currentRow = 0;
+        while (collection.hasNext()) {
+            JsonElement el = collection.next();
             if (!el.isJsonObject())
                 this.error("Expected a JSON array of JSON objects");
-            object = el.getAsJsonObject();
-
-            for (String u: unknownColumns) {
-                JsonElement e = object.get(u);
-                ContentsKind k = JsonFileLoader.getKind(e);
-                if (k != ContentsKind.None) {
-                    found.add(u);
-                    colKind.put(u, k);
+            JsonObject object = el.getAsJsonObject();
+
+            for (Map.Entry<String, JsonElement> e : object.entrySet()) {
+                String name = e.getKey();
+                JsonElement value = e.getValue();
+                if (value.isJsonArray() || value.isJsonObject()) {
+                    ignored.add(name);
+                    continue;
                 }
+                ContentsKind kind = JsonFileLoader.getKind(value);
+                ContentsKind previous = colKind.get(name);
+                if (previous == null || previous == ContentsKind.None)
+                    colKind.put(name, kind);
+                else if (kind != ContentsKind.None && kind != previous)
+                    // e.g., both numbers and strings
+                    colKind.put(name, ContentsKind.String);
             }
-            unknownColumns.removeAll(found);
-            found.clear();
+            this.currentRow++;
         }
 
         Schema schema = new Schema();
         for (Map.Entry<String, ContentsKind> e: colKind.entrySet()) {
+            if (ignored.contains(e.getKey()))
+                continue;
             ContentsKind kind = e.getValue();
             if (kind == ContentsKind.None)
                 // This column is always null
@@ -170,9 +401,12 @@ public class JsonFileLoader extends TextFileLoader {
             JsonPrimitive prim = el.getAsJsonPrimitive();
 
             if (prim.isBoolean()) {
-                col.append(prim.getAsBoolean() ? "true" : "false");
+                col.parseAndAppendString(prim.getAsBoolean() ? "true" : "false");
             } else if (prim.isNumber()) {
-                col.append(prim.getAsDouble());
+                if (col.getKind() == ContentsKind.Double)
+                    col.append(prim.getAsDouble());
+                else
+                    col.parseAndAppendString(prim.getAsString());
             } else if (prim.isString()) {
                 col.parseAndAppendString(prim.getAsString());
             } else {
@@ -20,17 +20,17 @@ package org.hillview.storage;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.ql.exec.vector.*;
-import org.apache.orc.OrcFile;
-import org.apache.orc.Reader;
-import org.apache.orc.RecordReader;
-import org.apache.orc.TypeDescription;
+import org.apache.orc.*;
 import org.hillview.table.ColumnDescription;
 import org.hillview.table.Schema;
 import org.hillview.table.Table;
 import org.hillview.table.api.*;
 import org.hillview.table.columns.BaseListColumn;
+import org.hillview.table.columns.DoubleListColumn;
+import org.hillview.table.filters.RangeFilterDescription;
 import org.hillview.utils.Converters;
-import org.hillview.utils.Linq;
+import org.hillview.utils.ExecutorUtils;
+import org.hillview.utils.HillviewLogger;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
@@ -39,12 +39,17 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * A Loader for Apache ORC file formats
  * https://orc.apache.org
+ * Ranges of stripes of a file are read in parallel and concatenated at the end.
  */
 public class OrcFileLoader extends TextFileLoader {
+    private static final long millisPerDay = 24 * 60 * 60 * 1000;
     private final boolean lazy;
     private final Configuration conf = new Configuration();
     /**
@@ -63,11 +68,37 @@ public class OrcFileLoader extends TextFileLoader {
      */
     @Nullable
     private Schema hillviewSchema = null;
+    /**
+     * If not null, the stripes which cannot contain rows passing this filter are skipped.
+     */
+    @Nullable
+    private final RangeFilterDescription filter;
+    /**
+     * Stripes of the file that are read; computed by load.
+     */
+    @Nullable
+    private List<StripeInformation> stripes = null;
 
     public OrcFileLoader(String path, @Nullable String schemaPath, boolean lazy) {
+        this(path, schemaPath, lazy, null);
+    }
+
+    /**
+     * Create a loader for an ORC file.
+     * @param path        File to load.
+     * @param schemaPath  Optional Hillview schema imposed on the data.
+     * @param lazy        If true columns are loaded when they are first used.
+     * @param filter      If not null, the stripes whose statistics show that they
+     *                    contain no rows passing the filter are not loaded.  The rows
+     *                    of the other stripes are not filtered; the caller should
+     *                    apply the filter to the loaded table.
+     */
+    public OrcFileLoader(String path, @Nullable String schemaPath, boolean lazy,
+                         @Nullable RangeFilterDescription filter) {
         super(path);
         this.lazy = lazy;
         this.schemaPath = schemaPath;
+        this.filter = filter;
     }
 
     private boolean[] project(List<String> columns) {
@@ -88,19 +119,47 @@ public class OrcFileLoader extends TextFileLoader {
     class OrcColumnLoader implements IColumnLoader {
         @Override
         public List<IColumn> loadColumns(List<String> names) {
-            try {
-                boolean[] toRead = OrcFileLoader.this.project(names);
-                Reader.Options options = new Reader.Options();
-                options = options.include(toRead);
-                Reader reader = OrcFile.createReader(new Path(filename),
-                        OrcFile.readerOptions(OrcFileLoader.this.conf));
-                List<IAppendableColumn> result = readColumns(
-                        reader, options, OrcFileLoader.this.hillviewSchema);
-                return Linq.map(result, e -> e);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+            boolean[] toRead = OrcFileLoader.this.project(names);
+            return OrcFileLoader.this.readColumns(toRead);
+        }
+    }
+
+    /**
+     * Selects the stripes of the file that may contain rows passing the filter.
+     */
+    private List<StripeInformation> selectStripes(Reader reader) throws IOException {
+        List<StripeInformation> all = reader.getStripes();
+        if (this.filter == null)
+            return all;
+        assert this.schema != null;
+        int column = this.schema.getFieldNames().indexOf(this.filter.getColumnName());
+        if (column < 0)
+            throw new RuntimeException("No column named " + this.filter.getColumnName());
+        List<StripeStatistics> statistics = reader.getStripeStatistics();
+        List<StripeInformation> result = new ArrayList<StripeInformation>();
+        for (int i = 0; i < all.size(); i++) {
+            // Column 0 is the struct holding all the columns.
+            ColumnStatistics stats = statistics.get(i).getColumnStatistics()[column + 1];
+            if (this.mayMatch(stats))
+                result.add(all.get(i));
+        }
+        HillviewLogger.instance.info("Stripes selected by filter", "{0}: {1}/{2}",
+                this.filename, result.size(), all.size());
+        return result;
+    }
+
+    private boolean mayMatch(ColumnStatistics stats) {
+        assert this.filter != null;
+        if (stats.getNumberOfValues() == 0)
+            return this.filter.mayMatch(Double.NaN, Double.NaN, true);
+        if (stats instanceof IntegerColumnStatistics) {
+            IntegerColumnStatistics is = (IntegerColumnStatistics)stats;
+            return this.filter.mayMatch(is.getMinimum(), is.getMaximum(), stats.hasNull());
+        } else if (stats instanceof DoubleColumnStatistics) {
+            DoubleColumnStatistics ds = (DoubleColumnStatistics)stats;
+            return this.filter.mayMatch(ds.getMinimum(), ds.getMaximum(), stats.hasNull());
         }
+        return true;
     }
 
     /**
@@ -162,6 +221,8 @@ public class OrcFileLoader extends TextFileLoader {
     @SuppressWarnings("ConstantConditions")
     private static void appendColumn(IAppendableColumn to, ColumnVector vec,
                                      TypeDescription.Category simple, int count) {
+        if (!vec.isRepeating && appendNumeric(to, vec, simple, count))
+            return;
         // See for example
         // https://github.com/apache/orc/blob/master/java/mapreduce/src/java/org/apache/orc/mapred/OrcMapredRecordReader.java
         for (int iRow=0; iRow < count; iRow++) {
@@ -250,8 +311,7 @@ public class OrcFileLoader extends TextFileLoader {
                     long l = lcv.vector[row];
                     // see https://orc.apache.org/docs/encodings.html
                     // Dates do not have hours/minutes, just a number of days
-                    Instant instant = Instant.ofEpochSecond(0);
-                    Instant value = instant.plus(l, ChronoUnit.DAYS);
+                    double millis = (double)l * millisPerDay;
                     switch (to.getKind()) {
                         case None:
                         case Integer:
@@ -261,23 +321,22 @@ public class OrcFileLoader extends TextFileLoader {
                         case Category:
                         case Json:
                         case String:
-                            to.append(value.toString());
+                            to.append(Instant.ofEpochSecond(0).plus(l, ChronoUnit.DAYS).toString());
                             break;
                         case Double:
-                            to.append(Converters.toDouble(value));
-                            break;
                         case Date:
-                            to.append(value);
+                            // Date columns store the number of milliseconds since the epoch
+                            to.append(millis);
                             break;
                     }
                     break;
                 }
                 case TIMESTAMP: {
                     TimestampColumnVector tcv = (TimestampColumnVector) vec;
+                    // time is in milliseconds; nanos are the nanoseconds within
+                    // the second, so they include the milliseconds as well.
                     long time = tcv.time[row];
                     int nanos = tcv.nanos[row];
-                    Instant instant = Instant.ofEpochMilli(time);
-                    instant = instant.plusNanos(nanos);
                     switch (to.getKind()) {
                         case None:
                         case Integer:
@@ -287,13 +346,12 @@ public class OrcFileLoader extends TextFileLoader {
                         case Category:
                         case Json:
                         case String:
-                            to.append(instant.toString());
+                            to.append(Instant.ofEpochSecond(
+                                    Math.floorDiv(time, 1000), nanos).toString());
                             break;
                         case Double:
-                            to.append(Converters.toDouble(instant));
-                            break;
                         case Date:
-                            to.append(instant);
+                            to.append((double)time);
                             break;
                     }
                     break;
@@ -311,10 +369,199 @@ public class OrcFileLoader extends TextFileLoader {
         }
     }
 
+    /**
+     * Append the data in a numeric vec column with a loop specialized for the
+     * source and destination types.  Doubles without missing values are copied in bulk.
+     * @return  False if there is no specialized loop for these types.
+     */
+    private static boolean appendNumeric(IAppendableColumn to, ColumnVector vec,
+                                         TypeDescription.Category simple, int count) {
+        @Nullable final boolean[] isNull = vec.noNulls ? null : vec.isNull;
+        final ContentsKind kind = to.getKind();
+        switch (simple) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG: {
+                final long[] data = ((LongColumnVector) vec).vector;
+                if (kind == ContentsKind.Integer) {
+                    for (int i = 0; i < count; i++) {
+                        if (isNull != null && isNull[i])
+                            to.appendMissing();
+                        else
+                            to.append((int) data[i]);
+                    }
+                    return true;
+                } else if (kind == ContentsKind.Double) {
+                    for (int i = 0; i < count; i++) {
+                        if (isNull != null && isNull[i])
+                            to.appendMissing();
+                        else
+                            to.append((double) data[i]);
+                    }
+                    return true;
+                }
+                return false;
+            }
+            case FLOAT:
+            case DOUBLE: {
+                if (kind != ContentsKind.Double)
+                    return false;
+                final double[] data = ((DoubleColumnVector) vec).vector;
+                if (isNull == null && to instanceof DoubleListColumn) {
+                    ((DoubleListColumn) to).append(data, 0, count);
+                    return true;
+                }
+                for (int i = 0; i < count; i++) {
+                    if (isNull != null && isNull[i])
+                        to.appendMissing();
+                    else
+                        to.append(data[i]);
+                }
+                return true;
+            }
+            case DATE: {
+                if (kind != ContentsKind.Date && kind != ContentsKind.Double)
+                    return false;
+                final long[] data = ((LongColumnVector) vec).vector;
+                for (int i = 0; i < count; i++) {
+                    if (isNull != null && isNull[i])
+                        to.appendMissing();
+                    else
+                        to.append((double) data[i] * millisPerDay);
+                }
+                return true;
+            }
+            case TIMESTAMP: {
+                if (kind != ContentsKind.Date && kind != ContentsKind.Double)
+                    return false;
+                final long[] time = ((TimestampColumnVector) vec).time;
+                for (int i = 0; i < count; i++) {
+                    if (isNull != null && isNull[i])
+                        to.appendMissing();
+                    else
+                        to.append((double) time[i]);
+                }
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * A contiguous range of bytes in the file, holding one or more stripes.
+     */
+    private static class StripeRange {
+        final long offset;
+        long length;
+        long rows;
+
+        StripeRange(StripeInformation stripe) {
+            this.offset = stripe.getOffset();
+            this.length = stripe.getLength();
+            this.rows = stripe.getNumberOfRows();
+        }
+
+        boolean isAdjacent(StripeInformation stripe) {
+            return this.offset + this.length == stripe.getOffset();
+        }
+
+        void add(StripeInformation stripe) {
+            this.length += stripe.getLength();
+            this.rows += stripe.getNumberOfRows();
+        }
+    }
+
+    /**
+     * Group the stripes selected by load in ranges that are read in parallel;
+     * there is about one range per processor.
+     */
+    private List<StripeRange> getRanges() {
+        List<StripeInformation> toRead = Converters.checkNull(this.stripes);
+        long totalRows = 0;
+        for (StripeInformation stripe : toRead)
+            totalRows += stripe.getNumberOfRows();
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long rowsPerRange = (totalRows + parallelism - 1) / parallelism;
+
+        List<StripeRange> result = new ArrayList<StripeRange>();
+        StripeRange current = null;
+        for (StripeInformation stripe : toRead) {
+            if (current != null && current.isAdjacent(stripe) && current.rows < rowsPerRange) {
+                current.add(stripe);
+            } else {
+                current = new StripeRange(stripe);
+                result.add(current);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read the columns selected by include from the stripes selected by load.
+     * The stripes are grouped in ranges which are read in parallel.
+     * @param include  Columns to read, indexed by ORC column id; if null all columns are read.
+     */
+    private List<IColumn> readColumns(@Nullable boolean[] include) {
+        List<StripeRange> ranges = this.getRanges();
+        List<Callable<List<IColumn>>> tasks = new ArrayList<Callable<List<IColumn>>>();
+        for (StripeRange range : ranges)
+            tasks.add(() -> this.readRange(include, range));
+        List<List<IColumn>> pieces = new ArrayList<List<IColumn>>(tasks.size());
+        try {
+            if (tasks.size() <= 1) {
+                // An empty list of ranges still produces the (empty) columns
+                pieces.add(this.readRange(include, ranges.isEmpty() ? null : ranges.get(0)));
+            } else {
+                List<Future<List<IColumn>>> futures =
+                        ExecutorUtils.getLoadExecutorService().invokeAll(tasks);
+                for (Future<List<IColumn>> f : futures)
+                    pieces.add(f.get());
+            }
+        } catch (IOException | InterruptedException ex) {
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException)ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        }
+
+        int columnCount = pieces.get(0).size();
+        List<IColumn> result = new ArrayList<IColumn>(columnCount);
+        for (int ci = 0; ci < columnCount; ci++) {
+            List<IColumn> column = new ArrayList<IColumn>(pieces.size());
+            for (List<IColumn> p : pieces)
+                column.add(p.get(ci));
+            result.add(BaseListColumn.concatenate(column));
+        }
+        return result;
+    }
+
+    /**
+     * Read the columns selected by include from a range of stripes.
+     * @param range  Range to read; if null no rows are read.
+     */
+    private List<IColumn> readRange(@Nullable boolean[] include,
+                                    @Nullable StripeRange range) throws IOException {
+        Reader reader = OrcFile.createReader(new Path(this.filename),
+                OrcFile.readerOptions(this.conf));
+        Reader.Options options = new Reader.Options();
+        if (include != null)
+            options = options.include(include);
+        if (range != null)
+            options = options.range(range.offset, range.length);
+        List<IAppendableColumn> columns = readColumns(
+                reader, options, this.hillviewSchema, range != null);
+        List<IColumn> result = new ArrayList<IColumn>(columns.size());
+        for (IAppendableColumn c : columns)
+            result.add(c.seal());
+        return result;
+    }
+
     private static List<IAppendableColumn> readColumns(
-            Reader reader, Reader.Options options, @Nullable Schema hillviewSchema)
-            throws IOException {
-        RecordReader rows = reader.rows(options);
+            Reader reader, Reader.Options options, @Nullable Schema hillviewSchema,
+            boolean readRows) throws IOException {
         TypeDescription schema = reader.getSchema();
         List<ColumnDescription> desc = getDescriptions(schema);
         List<ColumnDescription> hillviewDesc = null;
@@ -335,6 +582,9 @@ public class OrcFileLoader extends TextFileLoader {
             }
         }
 
+        if (!readRows)
+            return toCreate;
+        RecordReader rows = reader.rows(options);
         VectorizedRowBatch batch = schema.createRowBatch();
         while (rows.nextBatch(batch)) {
             int index = 0;
@@ -359,6 +609,7 @@ public class OrcFileLoader extends TextFileLoader {
                     OrcFile.readerOptions(conf));
             this.schema = reader.getSchema();
             assert this.schema != null;
+            this.stripes = this.selectStripes(reader);
             Table result;
 
             if (this.lazy) {
@@ -370,11 +621,12 @@ public class OrcFileLoader extends TextFileLoader {
                         throw new RuntimeException("Schema in JSON file does not match Orc schema");
                     desc = imposed;
                 }
-                long rowCount = reader.getNumberOfRows();
+                long rowCount = 0;
+                for (StripeInformation stripe : this.stripes)
+                    rowCount += stripe.getNumberOfRows();
                 result = Table.createLazyTable(desc, (int)rowCount, this.filename, lazyLoader);
             } else {
-                Reader.Options options = new Reader.Options();
-                List<IAppendableColumn> cols = readColumns(reader, options, this.hillviewSchema);
+                List<IColumn> cols = this.readColumns(null);
                 this.close(null);
                 result = new Table(cols, this.filename, null);
             }
@@ -42,7 +42,6 @@ import org.hillview.table.columns.BaseListColumn;
 import org.hillview.utils.Linq;
 
 import java.io.IOException;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -130,8 +129,8 @@ public class ParquetFileLoader extends TextFileLoader {
                     int julianDay = nt.getJulianDay();
                     long nanosOfDay = nt.getTimeOfDayNanos();
                     long epochSeconds = (julianDay - JULIAN_DAY_NUMBER_FOR_UNIX_EPOCH) * 24 * 60 * 60;
-                    Instant inst = Instant.ofEpochSecond(epochSeconds, nanosOfDay);
-                    col.append(inst);
+                    // Date columns store the number of milliseconds since the epoch
+                    col.append(epochSeconds * 1000.0 + nanosOfDay / 1000000);
                     break;
                 }
                 default:
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.storage;
+
+import net.openhft.hashing.LongHashFunction;
+import org.hillview.dataset.api.IJson;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.Schema;
+import org.hillview.table.Table;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.ITable;
+import org.hillview.table.columns.ColumnFile;
+import org.hillview.utils.HillviewLogger;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * Caches tables loaded from files in the native columnar format, so that a worker
+ * that restarts can memory-map the tables instead of parsing the files again.
+ * The snapshot of a file is a folder with a schema, a description of the source
+ * file, and one column file for each column.  A snapshot is only used if the
+ * source file has not changed since the snapshot was written.
+ */
+public class TableSnapshot {
+    private static final String schemaFile = "schema";
+    private static final String sourceFile = "source";
+    /**
+     * Folder where snapshots are stored; if null snapshots are not used.
+     */
+    @Nullable
+    private static Path folder = null;
+
+    public static void setFolder(@Nullable String folder) {
+        TableSnapshot.folder = folder == null ? null : Paths.get(folder);
+    }
+
+    /**
+     * Return the table stored in the snapshot of a file, or create the snapshot.
+     * @param pathname  File that is being loaded.
+     * @param key       Describes how the file is loaded; snapshots are only
+     *                  used to load a file in the same way.
+     * @param loader    Loads the file if there is no valid snapshot.
+     */
+    public static ITable load(String pathname, String key, Supplier<ITable> loader) {
+        if (folder == null)
+            return loader.get();
+        File source = new File(pathname);
+        Properties properties = new Properties();
+        properties.setProperty("key", key);
+        properties.setProperty("length", Long.toString(source.length()));
+        properties.setProperty("modified", Long.toString(source.lastModified()));
+        String name = source.getName() + "-" +
+                Long.toHexString(LongHashFunction.xx().hashChars(key));
+        Path snapshot = folder.resolve(name);
+
+        try {
+            ITable result = open(snapshot, pathname, properties);
+            if (result != null)
+                return result;
+        } catch (Exception ex) {
+            HillviewLogger.instance.error("Could not open snapshot " + snapshot, ex);
+        }
+
+        ITable table = loader.get();
+        try {
+            write(table, snapshot, properties);
+        } catch (Exception ex) {
+            HillviewLogger.instance.error("Could not write snapshot " + snapshot, ex);
+        }
+        return table;
+    }
+
+    private static Path columnFile(Path snapshot, int index) {
+        return snapshot.resolve("column" + index);
+    }
+
+    @Nullable
+    private static ITable open(Path snapshot, String pathname, Properties expected)
+            throws IOException {
+        Path source = snapshot.resolve(sourceFile);
+        if (!Files.exists(source))
+            return null;
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        if (!properties.equals(expected))
+            return null;
+        String json = new String(Files.readAllBytes(snapshot.resolve(schemaFile)),
+                StandardCharsets.UTF_8);
+        Schema schema = IJson.gsonInstance.fromJson(json, Schema.class);
+        List<IColumn> columns = new ArrayList<IColumn>(schema.getColumnCount());
+        int index = 0;
+        for (ColumnDescription cd : schema.getColumnDescriptions()) {
+            columns.add(ColumnFile.map(cd, columnFile(snapshot, index)));
+            index++;
+        }
+        HillviewLogger.instance.info("Opened snapshot", "{0}", snapshot);
+        return new Table(columns, pathname, null);
+    }
+
+    /**
+     * Write the snapshot into a temporary folder, and then rename it,
+     * so that a partially written snapshot is never used.
+     */
+    private static void write(ITable table, Path snapshot, Properties properties)
+            throws IOException {
+        Path parent = snapshot.getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempDirectory(parent, snapshot.getFileName().toString());
+        try {
+            Schema schema = table.getSchema();
+            int index = 0;
+            for (String col : schema.getColumnNames()) {
+                // Columns are loaded one at a time, so lazy tables need not fit in memory.
+                IColumn column = table.getLoadedColumn(col).column;
+                ColumnFile.write(column, columnFile(temporary, index));
+                index++;
+            }
+            schema.writeToJsonFile(temporary.resolve(schemaFile));
+            try (Writer writer = Files.newBufferedWriter(
+                    temporary.resolve(sourceFile), StandardCharsets.UTF_8)) {
+                properties.store(writer, null);
+            }
+            delete(snapshot);
+            Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            HillviewLogger.instance.info("Wrote snapshot", "{0}", snapshot);
+        } finally {
+            delete(temporary);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory))
+            return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path f : files)
+                Files.delete(f);
+        }
+        Files.delete(directory);
+    }
+}
@@ -21,14 +21,23 @@ import org.apache.commons.compress.compressors.CompressorException;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.io.ByteOrderMark;
 import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.hillview.table.api.IAppendableColumn;
+import org.hillview.table.api.IColumn;
 import org.hillview.table.api.ITable;
+import org.hillview.utils.ExecutorUtils;
 import org.hillview.utils.HillviewLogger;
 import org.hillview.utils.Utilities;
 
 
 import javax.annotation.Nullable;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Abstract class for a reader that reads data from a text file and keeps
@@ -55,6 +64,19 @@ abstract class TextFileLoader {
     private InputStream compressedStream = null;
     @Nullable
     private BOMInputStream bomStream = null;
+    /**
+     * Character set of the file; set by getFileReader.
+     */
+    @Nullable
+    String charsetName = null;
+    /**
+     * Offset in the file of the first byte read; the rows are counted from there.
+     */
+    long startOffset = 0;
+    /**
+     * Uncompressed files larger than this are split in chunks of about this size.
+     */
+    private long chunkSize = 1L << 26;
 
     TextFileLoader(String path) {
         this.filename = path;
@@ -64,6 +86,12 @@ abstract class TextFileLoader {
         this.currentToken = null;
     }
 
+    public void setChunkSize(long bytes) {
+        if (bytes <= 0)
+            throw new RuntimeException("Chunk size must be positive: " + bytes);
+        this.chunkSize = bytes;
+    }
+
     Reader getFileReader() {
         try {
             HillviewLogger.instance.info("Reading file", "{0}", this.filename);
@@ -83,13 +111,111 @@ abstract class TextFileLoader {
                     ByteOrderMark.UTF_16LE, ByteOrderMark.UTF_16BE,
                     ByteOrderMark.UTF_32LE, ByteOrderMark.UTF_32BE);
             ByteOrderMark bom = this.bomStream.getBOM();
-            String charsetName = bom == null ? "UTF-8" : bom.getCharsetName();
-            return new InputStreamReader(this.bomStream, charsetName);
+            this.charsetName = bom == null ? "UTF-8" : bom.getCharsetName();
+            return new InputStreamReader(this.bomStream, this.charsetName);
         } catch (IOException|CompressorException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Reader for the bytes of an uncompressed UTF-8 file in the range [start, end).
+     * A byte order mark at the start of the range is skipped.
+     */
+    Reader getFileReader(long start, long end) {
+        try {
+            HillviewLogger.instance.info("Reading file", "{0}:{1}-{2}", this.filename, start, end);
+            FileInputStream fis = new FileInputStream(this.filename);
+            this.inputStream = fis;
+            fis.getChannel().position(start);
+            this.bufferedInputStream = new BufferedInputStream(new BoundedInputStream(fis, end - start));
+            this.bomStream = new BOMInputStream(this.bufferedInputStream);
+            this.charsetName = "UTF-8";
+            return new InputStreamReader(this.bomStream, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Offset of the first line that starts at or after the specified position,
+     * or -1 if there is none.
+     */
+    private static long nextLineStart(RandomAccessFile file, long position) throws IOException {
+        byte[] buffer = new byte[4096];
+        file.seek(position);
+        while (true) {
+            int read = file.read(buffer);
+            if (read <= 0)
+                return -1;
+            for (int i = 0; i < read; i++)
+                if (buffer[i] == '\n')
+                    return position + i + 1;
+            position += read;
+        }
+    }
+
+    /**
+     * The offsets of the chunks of the file, which start at line boundaries;
+     * the last element is the file size.  Returns null if the file cannot be split.
+     * The character set must have been detected by getFileReader.
+     */
+    @Nullable
+    long[] chunkBoundaries() {
+        if (Utilities.isCompressed(this.filename) || !"UTF-8".equals(this.charsetName))
+            return null;
+        File file = new File(this.filename);
+        long size = file.length();
+        if (size <= this.chunkSize)
+            return null;
+        List<Long> boundaries = new ArrayList<Long>();
+        boundaries.add(0L);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long position = this.chunkSize;
+            while (position < size) {
+                long start = nextLineStart(raf, position);
+                if (start < 0 || start >= size)
+                    break;
+                boundaries.add(start);
+                position = start + this.chunkSize;
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        boundaries.add(size);
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = boundaries.get(i);
+        return result;
+    }
+
+    /**
+     * Runs the tasks that parse the chunks of a file in parallel.
+     * @return The columns produced by each task, in order.
+     */
+    static List<IColumn[]> runInParallel(List<Callable<IColumn[]>> tasks) {
+        List<IColumn[]> result = new ArrayList<IColumn[]>(tasks.size());
+        try {
+            if (tasks.size() == 1) {
+                result.add(tasks.get(0).call());
+                return result;
+            }
+            List<Future<IColumn[]>> futures =
+                    ExecutorUtils.getLoadExecutorService().invokeAll(tasks);
+            for (Future<IColumn[]> f : futures)
+                result.add(f.get());
+            return result;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException)ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
     /**
      * Relinquishes all resources used.
      * @param reader   Reader that was created by getFileReader, or null.
@@ -120,7 +246,7 @@ abstract class TextFileLoader {
                 this.error("Too many columns " + data.length + " vs " + columnCount);
             for (this.currentColumn = 0; this.currentColumn < data.length; this.currentColumn++) {
                 this.currentToken = data[this.currentColumn];
-                this.columns[this.currentColumn].parseAndAppendString(this.currentToken);
+                this.appendValue(this.currentColumn, this.currentToken);
                 this.currentField++;
                 if ((this.currentField % 100000) == 0) {
                     System.out.print(".");
@@ -133,7 +259,7 @@ abstract class TextFileLoader {
                 else {
                     this.currentToken = "";
                     for (int i = data.length; i < columnCount; i++)
-                        this.columns[i].parseAndAppendString(this.currentToken);
+                        this.appendValue(i, this.currentToken);
                 }
             }
             this.currentRow++;
@@ -142,6 +268,14 @@ abstract class TextFileLoader {
         }
     }
 
+    /**
+     * Parse a value and append it to the specified column.
+     */
+    void appendValue(int columnIndex, @Nullable String value) {
+        assert this.columns != null;
+        this.columns[columnIndex].parseAndAppendString(value);
+    }
+
     private String errorMessage() {
         String columnName = "";
         if (this.columns != null) {
@@ -150,7 +284,9 @@ abstract class TextFileLoader {
         }
 
         return "Error while parsing file " + this.filename + "@" + Utilities.getHostName() +
-                " line " + this.currentRow + (this.currentColumn >= 0 ?
+                " line " + this.currentRow +
+                (this.startOffset > 0 ? " of the chunk starting at byte " + this.startOffset : "") +
+                (this.currentColumn >= 0 ?
                 " column " + this.currentColumn + columnName : "")
                 + (this.currentToken != null ? " token " + this.currentToken : "");
     }
@@ -163,7 +299,7 @@ abstract class TextFileLoader {
         throw new RuntimeException(this.errorMessage() + ": " + message);
     }
 
-    private void error(Exception ex) {
+    void error(Exception ex) {
         throw new RuntimeException(this.errorMessage(), ex);
     }
 
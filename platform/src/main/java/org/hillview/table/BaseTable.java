@@ -22,6 +22,7 @@ import org.hillview.table.columns.BaseArrayColumn;
 import org.hillview.table.rows.RowSnapshot;
 import org.hillview.utils.Linq;
 
+import javax.annotation.Nullable;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -37,6 +38,14 @@ public abstract class BaseTable implements ITable, Serializable {
      * Maps columns name to an IColumn.
      */
     final HashMap<String, IColumn> columns;
+    @Nullable
+    private transient SortedRowIndex.Cache sortedRowIndexes;
+    /**
+     * This table holds the rows in the range [indexStart, indexEnd) of the
+     * table that owns the sortedRowIndexes.
+     */
+    private int indexStart = 0;
+    private int indexEnd = Integer.MAX_VALUE;
 
     /**
      * @return An iterator over the rows in the table.
@@ -64,6 +73,32 @@ public abstract class BaseTable implements ITable, Serializable {
         }
     }
 
+    /**
+     * The index is built when the same order is requested the second time,
+     * and a few indexes are kept with the table.
+     */
+    @Nullable
+    @Override
+    public SortedRowIndex getSortedRowIndex(RecordOrder order) {
+        return this.getSortedRowIndexCache().get(this, order, this.indexStart, this.indexEnd);
+    }
+
+    private synchronized SortedRowIndex.Cache getSortedRowIndexCache() {
+        if (this.sortedRowIndexes == null)
+            this.sortedRowIndexes = new SortedRowIndex.Cache();
+        return this.sortedRowIndexes;
+    }
+
+    /**
+     * Makes this table share the sorted indexes of other; this table must have
+     * the same columns, and the rows of other in the range [start, end).
+     */
+    void shareSortedRowIndexes(BaseTable other, int start, int end) {
+        this.sortedRowIndexes = other.getSortedRowIndexCache();
+        this.indexStart = Math.max(other.indexStart, start);
+        this.indexEnd = Math.min(other.indexEnd, Math.min(end, this.getMembershipSet().getMax()));
+    }
+
     /**
      * Returns columns in the order they appear in the schema.
      */
@@ -206,4 +206,18 @@ public class RecordOrder implements Serializable {
         }
         return merge;
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if ((o == null) || (getClass() != o.getClass())) return false;
+
+        final RecordOrder that = (RecordOrder) o;
+        return this.sortOrientationList.equals(that.sortOrientationList);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.sortOrientationList.hashCode();
+    }
 }
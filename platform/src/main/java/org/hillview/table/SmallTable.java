@@ -21,17 +21,27 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.hillview.dataset.api.IJson;
+import org.hillview.dataset.remoting.Codecs;
+import org.hillview.dataset.remoting.ICodec;
 import org.hillview.table.api.*;
+import org.hillview.table.columns.DoubleArrayColumn;
+import org.hillview.table.columns.IntArrayColumn;
 import org.hillview.table.columns.ObjectArrayColumn;
 import org.hillview.table.membership.FullMembershipSet;
+import org.hillview.table.membership.RangeMembershipSet;
 import org.hillview.table.rows.RowSnapshot;
+import org.hillview.utils.Converters;
 import org.hillview.utils.Linq;
 
 import javax.annotation.Nullable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
 
 /**
  * A SmallTable is similar to a Table, but it is intended to be shipped over the network.
@@ -92,9 +102,17 @@ public class SmallTable extends BaseTable implements Serializable, IJson {
     }
 
     public SmallTable(final Schema schema) {
+        this(schema, 0);
+    }
+
+    /**
+     * Create a table with the specified schema and number of rows; this is only useful
+     * when the schema has no columns, e.g., when decoding such a table.
+     */
+    private SmallTable(final Schema schema, int rowCount) {
         super(schema);
         this.schema = schema;
-        this.rowCount = 0;
+        this.rowCount = rowCount;
         this.check();
     }
 
@@ -130,6 +148,15 @@ public class SmallTable extends BaseTable implements Serializable, IJson {
         return this.compress(set);
     }
 
+    /**
+     * Unlike selectRowsFromFullTable this does not copy the data.
+     */
+    @Override
+    public ITable selectRange(int start, int end) {
+        return new Table(this.getColumns(),
+                new RangeMembershipSet(this.getMembershipSet(), start, end), null, null);
+    }
+
     @Override
     public ITable project(Schema schema) {
         List<IColumn> cols = this.getColumns(schema);
@@ -203,4 +230,170 @@ public class SmallTable extends BaseTable implements Serializable, IJson {
             return new SmallTable();
         }
     }
+
+    /**
+     * Encodes the table column by column.  Each column has a bitmap of missing values
+     * followed by the present values in a kind-specific representation; strings are
+     * dictionary-encoded, since small tables often repeat the same values.
+     * Integer and double columns are decoded as arrays of primitive values, all other
+     * columns as ObjectArrayColumns.
+     */
+    public static class Codec implements ICodec<SmallTable> {
+        @Override
+        public void encode(SmallTable value, DataOutputStream out) throws IOException {
+            final int rows = value.getNumOfRows();
+            Codecs.writeVarLong(value.schema.getColumnCount(), out);
+            Codecs.writeVarLong(rows, out);
+            for (ColumnDescription cd : value.schema.getColumnDescriptions()) {
+                IColumn col = value.getColumn(cd.name);
+                Codecs.writeString(cd.name, out);
+                out.writeByte(cd.kind.ordinal());
+                BitSet missing = new BitSet(rows);
+                for (int i = 0; i < rows; i++)
+                    if (col.isMissing(i))
+                        missing.set(i);
+                byte[] missingBytes = missing.toByteArray();
+                Codecs.writeVarLong(missingBytes.length, out);
+                out.write(missingBytes);
+
+                if (cd.kind == ContentsKind.Integer || cd.kind == ContentsKind.Double) {
+                    // Primitive values are written as a single block, which is cheap to decode.
+                    int present = rows - missing.cardinality();
+                    ByteBuffer block = ByteBuffer.allocate(
+                            present * (cd.kind == ContentsKind.Integer ? 4 : 8));
+                    for (int i = 0; i < rows; i++) {
+                        if (missing.get(i))
+                            continue;
+                        if (cd.kind == ContentsKind.Integer)
+                            block.putInt(col.getInt(i));
+                        else
+                            block.putDouble(col.getDouble(i));
+                    }
+                    out.write(block.array());
+                    continue;
+                }
+
+                HashMap<String, Integer> dictionary = new HashMap<String, Integer>();
+                for (int i = 0; i < rows; i++) {
+                    if (missing.get(i))
+                        continue;
+                    switch (cd.kind) {
+                        case Category:
+                        case String:
+                        case Json:
+                            String s = Converters.checkNull(col.getString(i));
+                            Integer code = dictionary.get(s);
+                            if (code == null) {
+                                Codecs.writeVarLong(dictionary.size(), out);
+                                Codecs.writeString(s, out);
+                                dictionary.put(s, dictionary.size());
+                            } else {
+                                Codecs.writeVarLong(code, out);
+                            }
+                            break;
+                        case Date:
+                            Instant date = Converters.checkNull(col.getDate(i));
+                            out.writeLong(date.getEpochSecond());
+                            out.writeInt(date.getNano());
+                            break;
+                        case Duration:
+                            Duration duration = Converters.checkNull(col.getDuration(i));
+                            out.writeLong(duration.getSeconds());
+                            out.writeInt(duration.getNano());
+                            break;
+                        default:
+                            Codecs.write(col.getObject(i), out);
+                            break;
+                    }
+                }
+            }
+        }
+
+        private static ByteBuffer readBlock(DataInputStream in, int size) throws IOException {
+            byte[] block = new byte[size];
+            in.readFully(block);
+            return ByteBuffer.wrap(block);
+        }
+
+        @Override
+        public SmallTable decode(DataInputStream in) throws IOException {
+            final int columnCount = (int)Codecs.readVarLong(in);
+            final int rows = (int)Codecs.readVarLong(in);
+            final ContentsKind[] kinds = ContentsKind.values();
+            final Schema schema = new Schema();
+            final List<IColumn> columns = new ArrayList<IColumn>(columnCount);
+            for (int c = 0; c < columnCount; c++) {
+                String name = Codecs.readString(in);
+                ColumnDescription cd = new ColumnDescription(name, kinds[in.readUnsignedByte()]);
+                byte[] missingBytes = new byte[(int)Codecs.readVarLong(in)];
+                in.readFully(missingBytes);
+                BitSet missing = BitSet.valueOf(missingBytes);
+                int present = rows - missing.cardinality();
+
+                final IColumn column;
+                switch (cd.kind) {
+                    case Integer: {
+                        IntArrayColumn col = new IntArrayColumn(cd, rows);
+                        ByteBuffer block = readBlock(in, present * 4);
+                        for (int i = 0; i < rows; i++) {
+                            if (missing.get(i))
+                                col.setMissing(i);
+                            else
+                                col.set(i, block.getInt());
+                        }
+                        column = col;
+                        break;
+                    }
+                    case Double: {
+                        DoubleArrayColumn col = new DoubleArrayColumn(cd, rows);
+                        ByteBuffer block = readBlock(in, present * 8);
+                        for (int i = 0; i < rows; i++) {
+                            if (missing.get(i))
+                                col.setMissing(i);
+                            else
+                                col.set(i, block.getDouble());
+                        }
+                        column = col;
+                        break;
+                    }
+                    default: {
+                        ObjectArrayColumn col = new ObjectArrayColumn(cd, rows);
+                        List<String> dictionary = new ArrayList<String>();
+                        for (int i = 0; i < rows; i++) {
+                            if (missing.get(i))
+                                continue;
+                            switch (cd.kind) {
+                                case Category:
+                                case String:
+                                case Json:
+                                    int code = (int)Codecs.readVarLong(in);
+                                    if (code == dictionary.size())
+                                        dictionary.add(Codecs.readString(in));
+                                    col.set(i, dictionary.get(code));
+                                    break;
+                                case Date:
+                                    long seconds = in.readLong();
+                                    col.set(i, Instant.ofEpochSecond(seconds, in.readInt()));
+                                    break;
+                                case Duration:
+                                    long dSeconds = in.readLong();
+                                    col.set(i, Duration.ofSeconds(dSeconds, in.readInt()));
+                                    break;
+                                default:
+                                    col.set(i, Codecs.read(in));
+                                    break;
+                            }
+                        }
+                        column = col;
+                        break;
+                    }
+                }
+                schema.append(cd);
+                columns.add(column);
+            }
+            if (columnCount == 0)
+                return new SmallTable(schema, rows);
+            return new SmallTable(columns, schema);
+        }
+    }
 }
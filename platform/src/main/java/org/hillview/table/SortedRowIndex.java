@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import org.hillview.table.api.ITable;
+import org.hillview.table.columns.ColumnCache;
+import org.hillview.table.rows.RowSnapshot;
+import org.hillview.table.rows.VirtualRowSnapshot;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * The rows of a table sorted according to a RecordOrder: a permutation of the
+ * rows in the membership set of the table.  The index only holds row numbers,
+ * so it does not keep the column data in memory.
+ */
+public final class SortedRowIndex {
+    private final RecordOrder order;
+    private final int[] rows;
+
+    private SortedRowIndex(RecordOrder order, int[] rows) {
+        this.order = order;
+        this.rows = rows;
+    }
+
+    /**
+     * Sort all the rows of a table.  The column comparators are not
+     * thread-safe, so the sort is sequential.
+     */
+    public static SortedRowIndex create(ITable table, RecordOrder order) {
+        int[] rows = table.getMembershipSet().getRows();
+        IntArrays.quickSort(rows, order.getComparator(table));
+        return new SortedRowIndex(order, rows);
+    }
+
+    public RecordOrder getOrder() {
+        return this.order;
+    }
+
+    public int size() {
+        return this.rows.length;
+    }
+
+    /**
+     * @return The row which is at the specified position in the sorted order.
+     */
+    public int getRow(int position) {
+        return this.rows[position];
+    }
+
+    /**
+     * @param table   Table that was used to build the index.
+     * @param topRow  A row that is compared with the rows of the table.
+     * @return The number of rows of the table that come before topRow in the
+     * sorted order; this is also the position of the first row that is not
+     * smaller than topRow.
+     */
+    public int lowerBound(ITable table, RowSnapshot topRow) {
+        VirtualRowSnapshot vw = new VirtualRowSnapshot(table, this.order.toSchema());
+        int low = 0;
+        int high = this.rows.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            vw.setRow(this.rows[middle]);
+            if (topRow.compareTo(vw, this.order) > 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * The indexes kept by a table.  An index is only built when the same
+     * order is requested for the second time, so tables that are sorted once
+     * do not pay for sorting all their rows.
+     * The tables that hold ranges of the rows of a table (e.g., the chunks
+     * created by selectRange) share its cache; each index covers the
+     * rows in a range.  The indexes are sorted without holding the lock, so
+     * chunks are indexed in parallel.  The memory of the indexes is reported
+     * to the ColumnCache, which may drop them.
+     */
+    static final class Cache implements ColumnCache.IIndexOwner {
+        /**
+         * The indexes hold in total at most this many times the rows of the table.
+         */
+        private static final int maxIndexes = 2;
+        private static final int maxRequested = 256;
+
+        private static final class Key {
+            final RecordOrder order;
+            final int start;
+            final int end;
+
+            Key(RecordOrder order, int start, int end) {
+                this.order = order;
+                this.start = start;
+                this.end = end;
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (this == o) return true;
+                if (o == null || getClass() != o.getClass()) return false;
+                Key key = (Key) o;
+                return this.start == key.start && this.end == key.end &&
+                        this.order.equals(key.order);
+            }
+
+            @Override
+            public int hashCode() {
+                return 31 * (31 * this.order.hashCode() + this.start) + this.end;
+            }
+        }
+
+        /**
+         * Indexes in access order: the first one is the least recently used.
+         */
+        private final LinkedHashMap<Key, SortedRowIndex> indexes =
+                new LinkedHashMap<Key, SortedRowIndex>(4, 0.75f, true);
+        /**
+         * Total number of rows in the indexes.
+         */
+        private long indexedRows;
+        /**
+         * Orders requested once, for which no index was built yet.
+         */
+        private final HashSet<Key> requested = new HashSet<Key>();
+        /**
+         * Indexes that are being built by some thread.
+         */
+        private final HashSet<Key> building = new HashSet<Key>();
+
+        /**
+         * Get the index of a table.
+         * @param table  Table that uses this cache.
+         * @param order  Order of the rows.
+         * @param start  The table holds the rows of the table that owns
+         *               the cache with indexes in [start, end).
+         * @param end    End of the range of rows (exclusive).
+         */
+        @Nullable
+        SortedRowIndex get(ITable table, RecordOrder order, int start, int end) {
+            Key key = new Key(order, start, end);
+            synchronized (this) {
+                SortedRowIndex result = this.indexes.get(key);
+                if (result != null) {
+                    ColumnCache.instance.indexUsed(result.rows);
+                    return result;
+                }
+                if (this.building.contains(key))
+                    // Do not wait for the other thread
+                    return null;
+                if (!this.requested.remove(key)) {
+                    if (this.requested.size() >= maxRequested)
+                        this.requested.clear();
+                    this.requested.add(key);
+                    return null;
+                }
+                this.building.add(key);
+            }
+
+            SortedRowIndex result;
+            try {
+                result = SortedRowIndex.create(table, order);
+            } finally {
+                synchronized (this) {
+                    this.building.remove(key);
+                }
+            }
+            List<int[]> dropped = new ArrayList<int[]>();
+            synchronized (this) {
+                this.indexes.put(key, result);
+                this.indexedRows += result.size();
+                long maxRows = (long)maxIndexes * table.getMembershipSet().getMax();
+                Iterator<SortedRowIndex> it = this.indexes.values().iterator();
+                while (this.indexedRows > maxRows && this.indexes.size() > 1) {
+                    SortedRowIndex evicted = it.next();
+                    this.indexedRows -= evicted.size();
+                    dropped.add(evicted.rows);
+                    it.remove();
+                }
+            }
+            // The ColumnCache calls us while holding its lock, so we call it without ours.
+            ColumnCache.instance.indexBuilt(this, result.rows);
+            for (int[] rows : dropped)
+                ColumnCache.instance.indexDropped(rows);
+            return result;
+        }
+
+        @Override
+        public synchronized boolean hasIndex(int[] rows) {
+            for (SortedRowIndex index : this.indexes.values())
+                if (index.rows == rows)
+                    return true;
+            return false;
+        }
+
+        @Override
+        public synchronized void dropIndex(int[] rows) {
+            Iterator<SortedRowIndex> it = this.indexes.values().iterator();
+            while (it.hasNext()) {
+                SortedRowIndex index = it.next();
+                if (index.rows == rows) {
+                    this.indexedRows -= index.size();
+                    it.remove();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.hillview.table;
 import org.hillview.table.api.*;
 import org.hillview.table.columns.LazyColumn;
 import org.hillview.table.membership.FullMembershipSet;
+import org.hillview.table.membership.RangeMembershipSet;
 import org.hillview.utils.Linq;
 
 import javax.annotation.Nullable;
@@ -49,6 +50,12 @@ public class Table extends BaseTable {
      */
     @Nullable
     private final String sourceFile;
+    /**
+     * Files that were loaded to produce this table; only set by asLoadedFrom,
+     * so tables derived from this one do not have it.
+     */
+    @Nullable
+    private List<String> loadedFiles;
 
     /**
      * Create an empty table with the specified schema.
@@ -154,21 +161,39 @@ public class Table extends BaseTable {
             IColumn col = this.columns.get(name);
             if (col == null)
                 throw new RuntimeException("No column named " + name);
-            if (!col.isLoaded())
+            // Renamed lazy columns are loaded through the column they rename.
+            if (!col.isLoaded() && !(col instanceof LazyColumn && ((LazyColumn)col).isRenamed()))
                 toLoad.add(name);
         }
         if (!toLoad.isEmpty()) {
             if (this.columnLoader == null)
                 throw new RuntimeException("Cannot load columns dynamically");
-            List<IColumn> cols = this.columnLoader.loadColumns(toLoad);
-            for (IColumn c: cols)
-                this.columns.put(c.getName(), c);
+            // Many tables can share the same lazy columns and loader (e.g., the
+            // tables created by selectRange); we synchronize on the loader so that
+            // the columns are only loaded once.
+            synchronized (this.columnLoader) {
+                toLoad.removeIf(n -> this.columns.get(n).isLoaded());
+                if (!toLoad.isEmpty()) {
+                    List<IColumn> cols = this.columnLoader.loadColumns(toLoad);
+                    for (IColumn c : cols) {
+                        IColumn lazy = this.columns.get(c.getName());
+                        // Lazy columns stay in the table, so that the ColumnCache
+                        // can unload their data.
+                        if (lazy instanceof LazyColumn)
+                            ((LazyColumn)lazy).setData(c);
+                        else
+                            this.columns.put(c.getName(), c);
+                    }
+                }
+            }
         }
         for (ColumnAndConverterDescription column : columns) {
             String name = column.columnName;
             IColumn col = this.columns.get(name);
             if (col == null)
                 throw new RuntimeException("Cannot get column " + name);
+            if (col instanceof LazyColumn)
+                col = ((LazyColumn)col).getLoadedData();
             result.add(new ColumnAndConverter(col, column.getConverter()));
         }
         return result;
@@ -180,6 +205,23 @@ public class Table extends BaseTable {
         return this.sourceFile;
     }
 
+    @Nullable
+    @Override
+    public List<String> getLoadedFiles() {
+        return this.loadedFiles;
+    }
+
+    /**
+     * Returns a table with the same data which records that it holds
+     * all the data loaded from the specified files.
+     */
+    public Table asLoadedFrom(List<String> files) {
+        Table result = new Table(this.getColumns(), this.members, this.schema,
+                this.sourceFile, this.columnLoader);
+        result.loadedFiles = files;
+        return result;
+    }
+
     @Override
     public Schema getSchema() {
         return this.schema;
@@ -201,6 +243,19 @@ public class Table extends BaseTable {
         return this.members.getSize();
     }
 
+    /**
+     * The result shares the sorted indexes of this table, so that indexes of
+     * the chunks of a large table are reused by subsequent sketches.
+     */
+    @Override
+    public ITable selectRange(int start, int end) {
+        Table result = new Table(this.getColumns(),
+                new RangeMembershipSet(this.members, start, end),
+                this.schema, this.sourceFile, this.columnLoader);
+        result.shareSortedRowIndexes(this, start, end);
+        return result;
+    }
+
     /**
      * Creates a new table that has the same columns but a different set of rows.
      * @param set: Membership set of the resulting table.
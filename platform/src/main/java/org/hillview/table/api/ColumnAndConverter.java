@@ -27,6 +27,11 @@ import java.time.Instant;
  * Convenience class packing a column and its associated string converter.
  */
 public class ColumnAndConverter {
+    /**
+     * Number of rows processed at once by the batch methods.
+     */
+    public static final int batchSize = 1024;
+
     public final IColumn column;
     private final IStringConverter converter;
 
@@ -75,4 +80,24 @@ public class ColumnAndConverter {
     public double asDouble(int rowIndex) {
         return this.column.asDouble(rowIndex, this.converter);
     }
+
+    private static boolean isContiguous(int[] rows, int count) {
+        if (count == 0)
+            return false;
+        for (int i = 1; i < count; i++)
+            if (rows[i] != rows[0] + i)
+                return false;
+        return true;
+    }
+
+    /**
+     * Batch version of isMissing and asDouble; see IColumn.asDoubles.
+     * If the rows are consecutive the contiguous version is used.
+     */
+    public void asDoubles(int[] rows, int count, double[] values, boolean[] missing) {
+        if (isContiguous(rows, count))
+            this.column.asDoubles(rows[0], count, this.converter, values, missing);
+        else
+            this.column.asDoubles(rows, count, this.converter, values, missing);
+    }
 }
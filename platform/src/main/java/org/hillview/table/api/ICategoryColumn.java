@@ -22,4 +22,17 @@ public interface ICategoryColumn extends IStringColumn {
      * A categorical column should not have more than this many distinct values.
      */
     int maxDistinctCount = 10000;
+
+    /**
+     * Rows have the same value if and only if they have the same code.
+     * @param value  A value that is not missing.
+     * @return The code of the value, or -1 if no row has this value.
+     */
+    int getCode(String value);
+
+    /**
+     * Sets codes[i] to the code of the value in row rows[i] for each i smaller
+     * than count, or to -1 if the value is missing.
+     */
+    void getCodes(int[] rows, int count, int[] codes);
 }
@@ -99,6 +99,55 @@ public interface IColumn extends Serializable {
      */
     double asDouble(int rowIndex, IStringConverter converter);
 
+    /**
+     * Batch version of isMissing and asDouble.  For each i smaller than count
+     * sets missing[i] to isMissing(rows[i]), and values[i] to asDouble(rows[i], converter)
+     * if the row is not missing.  Columns stored in arrays override this method to
+     * avoid the virtual calls for each row.
+     */
+    default void asDoubles(int[] rows, int count, IStringConverter converter,
+                           double[] values, boolean[] missing) {
+        for (int i = 0; i < count; i++) {
+            missing[i] = this.isMissing(rows[i]);
+            if (!missing[i])
+                values[i] = this.asDouble(rows[i], converter);
+        }
+    }
+
+    /**
+     * Same as asDoubles for the contiguous rows start, ..., start + count - 1.
+     */
+    default void asDoubles(int start, int count, IStringConverter converter,
+                           double[] values, boolean[] missing) {
+        for (int i = 0; i < count; i++) {
+            missing[i] = this.isMissing(start + i);
+            if (!missing[i])
+                values[i] = this.asDouble(start + i, converter);
+        }
+    }
+
+    /**
+     * Batch version of isMissing and getInt, similar to asDoubles.
+     */
+    default void getInts(int[] rows, int count, int[] values, boolean[] missing) {
+        for (int i = 0; i < count; i++) {
+            missing[i] = this.isMissing(rows[i]);
+            if (!missing[i])
+                values[i] = this.getInt(rows[i]);
+        }
+    }
+
+    /**
+     * Same as getInts for the contiguous rows start, ..., start + count - 1.
+     */
+    default void getInts(int start, int count, int[] values, boolean[] missing) {
+        for (int i = 0; i < count; i++) {
+            missing[i] = this.isMissing(start + i);
+            if (!missing[i])
+                values[i] = this.getInt(start + i);
+        }
+    }
+
     // Returns null only if the object is missing.
     @Nullable
     String asString(int rowIndex);
@@ -201,5 +250,28 @@ public interface IColumn extends Serializable {
      */
     long hashCode64(int rowIndex, LongHashFunction hash);
 
+    /**
+     * Hash codes of all the rows of the column, computed by hashCode64 with
+     * LongHashFunction.xx(0); missing rows have MISSING_HASH_VALUE.
+     * Columns may keep the result, so the array must not be modified.
+     */
+    default long[] hashCodes64() {
+        final LongHashFunction hash = LongHashFunction.xx(0);
+        final long[] result = new long[this.sizeInRows()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = this.isMissing(i) ? MISSING_HASH_VALUE : this.hashCode64(i, hash);
+        return result;
+    }
+
+    /**
+     * @return Per-block statistics of the column, or null if they are not
+     * available for this column.  Columns compute the statistics when first
+     * requested and keep them.
+     */
+    @Nullable
+    default BlockStatistics getBlockStatistics() {
+        return null;
+    }
+
     long MISSING_HASH_VALUE = 0;
 }
\ No newline at end of file
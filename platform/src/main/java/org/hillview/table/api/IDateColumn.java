@@ -54,11 +54,10 @@ public interface IDateColumn extends IColumn {
                 } else if (jMissing) {
                     return -1;
                 } else {
-                    Instant di = IDateColumn.this.getDate(i);
-                    Instant dj = IDateColumn.this.getDate(j);
-                    assert di != null;
-                    assert dj != null;
-                    return di.compareTo(dj);
+                    // Compare the numeric representations; this does not allocate objects
+                    IStringConverter converter = NoStringConverter.getConverterInstance();
+                    return Double.compare(IDateColumn.this.asDouble(i, converter),
+                            IDateColumn.this.asDouble(j, converter));
                 }
             }
         };
@@ -56,11 +56,9 @@ public interface IDurationColumn extends IColumn {
                 } else if (jMissing) {
                     return -1;
                 } else {
-                    Duration di = IDurationColumn.this.getDuration(i);
-                    Duration dj = IDurationColumn.this.getDuration(j);
-                    assert di != null;
-                    assert dj != null;
-                    return di.compareTo(dj);
+                    IStringConverter converter = NoStringConverter.getConverterInstance();
+                    return Double.compare(IDurationColumn.this.asDouble(i, converter),
+                            IDurationColumn.this.asDouble(j, converter));
                 }
             }
         };
@@ -17,6 +17,7 @@
 
 package org.hillview.table.api;
 
+import org.hillview.table.columns.BlockStatistics;
 import org.hillview.table.membership.MembershipSetFactory;
 import org.hillview.utils.Randomness;
 import java.util.function.IntPredicate;
@@ -32,6 +33,14 @@ public interface IMembershipSet extends IRowOrder {
      */
     int getMax();
 
+    /**
+     * @return The number of consecutive row indexes that can hold the rows of this set;
+     * the density of the set is getSize() / getSpan().
+     */
+    default int getSpan() {
+        return this.getMax();
+    }
+
     /**
      * @param rowIndex A non-negative row index.
      * @return True if the given rowIndex is a member of the set.
@@ -39,14 +48,30 @@ public interface IMembershipSet extends IRowOrder {
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     boolean isMember(int rowIndex);
 
+    /**
+     * Returns an iterator over the rows of this set whose indexes are in the
+     * range [start, end).  Implementations that can seek efficiently should
+     * override this method; the default one scans the whole set.
+     * @param start  First row index (inclusive).
+     * @param end    Last row index (exclusive).
+     */
+    default IRowIterator getIterator(final int start, final int end) {
+        final IRowIterator baseIterator = this.getIterator();
+        return () -> {
+            int row = baseIterator.getNextRow();
+            while (row >= 0 && (row < start || row >= end))
+                row = baseIterator.getNextRow();
+            return row;
+        };
+    }
+
     /**
      * Return a membership containing only the rows in the current one where
      * the predicate evaluates to true.
      * @param predicate  Predicate evaluated for each row.
      */
     default IMembershipSet filter(IntPredicate predicate) {
-        int estimatedSize = MembershipSetFactory.estimateSize(this, predicate);
-        IMutableMembershipSet ms = MembershipSetFactory.create(this.getSize(), estimatedSize);
+        IMutableMembershipSet ms = MembershipSetFactory.create(this.getMax());
 
         IRowIterator baseIterator = this.getIterator();
         int tmp = baseIterator.getNextRow();
@@ -58,6 +83,52 @@ public interface IMembershipSet extends IRowOrder {
         return ms.seal();
     }
 
+    /**
+     * Return a membership containing only the rows in the current one
+     * selected by a table filter.  Blocks of rows that the filter selects
+     * or rejects as a whole are handled without testing each row; the other
+     * rows are tested in batches.
+     * @param filter  Filter that is applied.
+     */
+    default IMembershipSet filterRows(ITableFilter filter) {
+        final int blocks = BlockStatistics.blockCount(this.getMax());
+        final ITableFilter.BlockResult[] results = new ITableFilter.BlockResult[blocks];
+        for (int b = 0; b < blocks; b++)
+            results[b] = filter.testBlock(b);
+
+        final IMutableMembershipSet ms = MembershipSetFactory.create(this.getMax());
+        final int[] rows = new int[ColumnAndConverter.batchSize];
+        final boolean[] selected = new boolean[rows.length];
+        int b = 0;
+        while (b < blocks) {
+            // Process consecutive blocks with the same result together
+            int e = b + 1;
+            while (e < blocks && results[e] == results[b])
+                e++;
+            if (results[b] != ITableFilter.BlockResult.None) {
+                final boolean all = results[b] == ITableFilter.BlockResult.All;
+                final int end = e == blocks ? this.getMax() : BlockStatistics.blockStart(e);
+                final IRowIterator iter = (b == 0 && e == blocks) ? this.getIterator() :
+                        this.getIterator(BlockStatistics.blockStart(b), end);
+                int count;
+                do {
+                    count = iter.getNextRows(rows);
+                    if (all) {
+                        for (int i = 0; i < count; i++)
+                            ms.add(rows[i]);
+                    } else {
+                        filter.test(rows, count, selected);
+                        for (int i = 0; i < count; i++)
+                            if (selected[i])
+                                ms.add(rows[i]);
+                    }
+                } while (count == rows.length);
+            }
+            b = e;
+        }
+        return ms.seal();
+    }
+
     /**
      * @return an IMembershipSet containing k samples from the membership map. The samples are made
      * without replacement. Returns the full set if its size is smaller than k. The pseudo-random
@@ -86,8 +157,7 @@ public interface IMembershipSet extends IRowOrder {
     }
 
     default IMembershipSet setMinus(IMembershipSet other) {
-        IMutableMembershipSet mms = MembershipSetFactory.create(
-                this.getMax(), this.getSize() - other.getSize());
+        IMutableMembershipSet mms = MembershipSetFactory.create(this.getMax());
         final IRowIterator iter = this.getIterator();
         int curr = iter.getNextRow();
         while (curr >= 0) {
@@ -99,8 +169,7 @@ public interface IMembershipSet extends IRowOrder {
     }
 
     default IMembershipSet union(final IMembershipSet other) {
-        IMutableMembershipSet mms = MembershipSetFactory.create(
-                this.getMax(), this.getSize() + other.getSize());
+        IMutableMembershipSet mms = MembershipSetFactory.create(this.getMax());
         IRowIterator iter = this.getIterator();
         int curr = iter.getNextRow();
         while (curr >= 0) {
@@ -118,8 +187,7 @@ public interface IMembershipSet extends IRowOrder {
     }
 
     default IMembershipSet intersection(final IMembershipSet other) {
-        IMutableMembershipSet mms = MembershipSetFactory.create(
-                this.getMax(), Math.min(this.getSize(), other.getSize()));
+        IMutableMembershipSet mms = MembershipSetFactory.create(this.getMax());
         final IRowIterator iter = this.getIterator();
         int curr = iter.getNextRow();
         while (curr >= 0) {
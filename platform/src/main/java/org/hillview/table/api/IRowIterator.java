@@ -25,4 +25,20 @@ public interface IRowIterator {
     // Returns -1 when iteration is completed; else it returns
     // the index of the next row.
     int getNextRow();
+
+    /**
+     * Stores the next rows in the array, up to its length.
+     * @return The number of rows stored.  If this is smaller than the length
+     * of the array the iteration is completed, and the iterator should not be used anymore.
+     */
+    default int getNextRows(int[] rows) {
+        int count = 0;
+        while (count < rows.length) {
+            int row = this.getNextRow();
+            if (row < 0)
+                break;
+            rows[count++] = row;
+        }
+        return count;
+    }
 }
@@ -24,4 +24,12 @@ import javax.annotation.Nullable;
  */
 public interface IStringFilter {
     boolean test(@Nullable String s);
+
+    /**
+     * Test a string stored as UTF-8 bytes.  The default implementation
+     * decodes the string; filters override it to work on the bytes.
+     */
+    default boolean test(Utf8Slice s) {
+        return this.test(s.toString());
+    }
 }
@@ -17,8 +17,12 @@
 
 package org.hillview.table.api;
 
+import org.hillview.dataset.api.ISplittable;
+import org.hillview.table.RecordOrder;
 import org.hillview.table.Schema;
 import org.hillview.table.SmallTable;
+import org.hillview.table.SortedRowIndex;
+import org.hillview.table.membership.RangeMembershipSet;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
@@ -29,7 +33,7 @@ import java.util.List;
  * An ITable object has a schema, a set of columns, and a MembershipSet.
  * All columns have the same size.
  */
-public interface ITable {
+public interface ITable extends ISplittable<ITable> {
     /**
      * The local name of the file where this table was loaded from.
      * This returns null if the table is not associated with a file.
@@ -37,6 +41,16 @@ public interface ITable {
     @Nullable
     String getSourceFile();
 
+    /**
+     * The files whose data this table holds, if the table was produced
+     * by loading them.  This returns null for tables derived from other
+     * tables, e.g., by filtering or projection.
+     */
+    @Nullable
+    default List<String> getLoadedFiles() {
+        return null;
+    }
+
     /**
      * The schema of the table, describing the set of columns.
      */
@@ -57,6 +71,36 @@ public interface ITable {
      */
     int getNumOfRows();
 
+    /**
+     * @return The rows of this table sorted in the specified order, or null
+     * if the table does not have such an index.  Tables may build the index
+     * lazily and keep it for subsequent requests.
+     */
+    @Nullable
+    default SortedRowIndex getSortedRowIndex(RecordOrder order) {
+        return null;
+    }
+
+    @Override
+    default int elementCount() {
+        return this.getNumOfRows();
+    }
+
+    @Override
+    default int indexRange() {
+        return this.getMembershipSet().getMax();
+    }
+
+    /**
+     * Creates a table which shares the columns with this one, but which only
+     * contains the present rows with indexes in the range [start, end).
+     */
+    @Override
+    default ITable selectRange(int start, int end) {
+        return this.selectRowsFromFullTable(
+                new RangeMembershipSet(this.getMembershipSet(), start, end));
+    }
+
     /**
      * Creates a small table by keeping only the rows in the IRowOrder and
      * the columns in the subSchema.
@@ -21,9 +21,68 @@ package org.hillview.table.api;
  * Interface implemented by filters that run over all rows in a table.
  */
 public interface ITableFilter {
+    /**
+     * Result of a filter for all the rows of a block.
+     */
+    enum BlockResult {
+        /**
+         * No row in the block is selected.
+         */
+        None,
+        /**
+         * All rows in the block are selected.
+         */
+        All,
+        /**
+         * Each row must be tested.
+         */
+        Some;
+
+        public BlockResult complement() {
+            switch (this) {
+                case None:
+                    return All;
+                case All:
+                    return None;
+                default:
+                    return Some;
+            }
+        }
+
+        /**
+         * @return The result for rows selected by both this and the other filter.
+         */
+        public BlockResult and(BlockResult other) {
+            if (this == None || other == None)
+                return None;
+            if (this == All && other == All)
+                return All;
+            return Some;
+        }
+    }
+
     /**
      * Tests whether a row is selected or not.
      * @param rowIndex Row index in the table.
      */
     boolean test(int rowIndex);
+
+    /**
+     * Batch version of test: for each i smaller than count sets selected[i]
+     * to test(rows[i]).  Filters override this with loops specialized for
+     * the kind of the column and the comparison performed.
+     */
+    default void test(int[] rows, int count, boolean[] selected) {
+        for (int i = 0; i < count; i++)
+            selected[i] = this.test(rows[i]);
+    }
+
+    /**
+     * Tests all the rows of a block at once, typically using the
+     * statistics of the columns.
+     * @param block  Block number; the rows of the block are described by BlockStatistics.
+     */
+    default BlockResult testBlock(int block) {
+        return BlockResult.Some;
+    }
 }
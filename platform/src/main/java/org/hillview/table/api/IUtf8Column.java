@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.api;
+
+import net.openhft.hashing.LongHashFunction;
+
+/**
+ * A column of strings stored as UTF-8 bytes.  Algorithms can access the
+ * bytes through a Utf8Slice instead of creating a String for each value.
+ */
+public interface IUtf8Column extends IStringColumn {
+    /**
+     * Point a slice to the value in a row.
+     * @return False if the value is missing; the slice is then unchanged.
+     */
+    boolean getSlice(int rowIndex, Utf8Slice slice);
+
+    /**
+     * @return True if each distinct value is stored exactly once.  In this
+     * case two rows have the same value if and only if they have the same
+     * location.
+     */
+    boolean isDictionaryEncoded();
+
+    /**
+     * @return A number that identifies where the value of the row is stored,
+     * or -1 if the value is missing.
+     */
+    long getLocation(int rowIndex);
+
+    @Override
+    default IndexComparator getComparator() {
+        final Utf8Slice left = new Utf8Slice();
+        final Utf8Slice right = new Utf8Slice();
+        return new IndexComparator() {
+            @Override
+            public int compare(final int i, final int j) {
+                boolean iPresent = IUtf8Column.this.getSlice(i, left);
+                boolean jPresent = IUtf8Column.this.getSlice(j, right);
+                if (!iPresent && !jPresent) {
+                    return 0;
+                } else if (!iPresent) {
+                    return 1;
+                } else if (!jPresent) {
+                    return -1;
+                } else {
+                    return left.compareTo(right);
+                }
+            }
+        };
+    }
+
+    @Override
+    default long hashCode64(int rowIndex, LongHashFunction hash) {
+        Utf8Slice slice = new Utf8Slice();
+        boolean present = this.getSlice(rowIndex, slice);
+        assert present;
+        return slice.hashChars(hash);
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.api;
+
+import net.openhft.hashing.LongHashFunction;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A reference to a UTF-8 encoded string stored in a byte buffer.  Slices are mutable;
+ * a slice is allocated once and pointed successively to the values in a column,
+ * so that the values can be compared, hashed and searched without creating String objects.
+ * When all the bytes are ASCII the slice can also be used as a CharSequence; in general
+ * the CharSequence methods treat each byte as a character.
+ */
+public final class Utf8Slice implements CharSequence {
+    private static final ByteBuffer empty = ByteBuffer.allocate(0);
+    /**
+     * Scratch space used when decoding strings for hashing.
+     */
+    private static final ThreadLocal<char[]> scratch =
+            ThreadLocal.withInitial(() -> new char[256]);
+
+    private ByteBuffer buffer;
+    private int start;
+    private int length;
+
+    public Utf8Slice() {
+        this.buffer = empty;
+    }
+
+    /**
+     * Create a slice pointing to the encoding of a string.
+     */
+    public Utf8Slice(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        this.set(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Point the slice to length bytes starting at start in the buffer.
+     */
+    public void set(ByteBuffer buffer, int start, int length) {
+        this.buffer = buffer;
+        this.start = start;
+        this.length = length;
+    }
+
+    public int byteLength() {
+        return this.length;
+    }
+
+    public byte byteAt(int index) {
+        return this.buffer.get(this.start + index);
+    }
+
+    public boolean isAscii() {
+        for (int i = 0; i < this.length; i++)
+            if (this.buffer.get(this.start + i) < 0)
+                return false;
+        return true;
+    }
+
+    public boolean equalsBytes(byte[] value) {
+        if (value.length != this.length)
+            return false;
+        for (int i = 0; i < this.length; i++)
+            if (this.buffer.get(this.start + i) != value[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * @return The index of the first occurrence of the given bytes, or -1 if they do not occur.
+     * For UTF-8 this is equivalent to searching the decoded string.
+     */
+    public int indexOf(byte[] value) {
+        return this.indexOf(value, false);
+    }
+
+    /**
+     * Compare with a value ignoring the case of ASCII letters.
+     * @param lowerCaseValue  Value with all ASCII letters in lower case.
+     */
+    public boolean equalsIgnoreCaseAscii(byte[] lowerCaseValue) {
+        return lowerCaseValue.length == this.length && this.indexOf(lowerCaseValue, true) == 0;
+    }
+
+    /**
+     * Search a value ignoring the case of ASCII letters.
+     * @param lowerCaseValue  Value with all ASCII letters in lower case.
+     * @return The index of the first occurrence, or -1.
+     */
+    public int indexOfIgnoreCaseAscii(byte[] lowerCaseValue) {
+        return this.indexOf(lowerCaseValue, true);
+    }
+
+    private static byte toLowerAscii(byte b) {
+        return (b >= 'A' && b <= 'Z') ? (byte)(b + ('a' - 'A')) : b;
+    }
+
+    private int indexOf(byte[] value, boolean ignoreCase) {
+        int last = this.length - value.length;
+        outer:
+        for (int i = 0; i <= last; i++) {
+            for (int j = 0; j < value.length; j++) {
+                byte b = this.buffer.get(this.start + i + j);
+                if (ignoreCase)
+                    b = toLowerAscii(b);
+                if (b != value[j])
+                    continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Compare two slices in the same order as String.compareTo compares the decoded
+     * strings.  UTF-8 byte order is code point order, which differs from the UTF-16
+     * order used by Java only between supplementary characters and U+E000-U+FFFF.
+     */
+    public int compareTo(Utf8Slice other) {
+        int n = Math.min(this.length, other.length);
+        for (int i = 0; i < n; i++) {
+            int x = this.buffer.get(this.start + i) & 0xFF;
+            int y = other.buffer.get(other.start + i) & 0xFF;
+            if (x != y) {
+                if (x >= 0xEE && y >= 0xEE) {
+                    // Lead bytes 0xEE and 0xEF encode U+E000-U+FFFF, which sort after
+                    // the surrogate pairs of the characters with lead bytes 0xF0-0xF4.
+                    if (x <= 0xEF)
+                        x += 0x10;
+                    if (y <= 0xEF)
+                        y += 0x10;
+                }
+                return x - y;
+            }
+        }
+        return this.length - other.length;
+    }
+
+    /**
+     * Hash the decoded string; the result is the same as hash.hashChars(this.toString()).
+     */
+    public long hashChars(LongHashFunction hash) {
+        char[] chars = scratch.get();
+        if (chars.length < this.length) {
+            chars = new char[Math.max(this.length, chars.length * 2)];
+            scratch.set(chars);
+        }
+        int count = 0;
+        int end = this.start + this.length;
+        for (int i = this.start; i < end; ) {
+            int c = this.buffer.get(i++) & 0xFF;
+            if (c < 0x80) {
+                chars[count++] = (char)c;
+            } else if (c < 0xE0) {
+                chars[count++] = (char)(((c & 0x1F) << 6) | (this.buffer.get(i++) & 0x3F));
+            } else if (c < 0xF0) {
+                chars[count++] = (char)(((c & 0x0F) << 12) |
+                        ((this.buffer.get(i++) & 0x3F) << 6) | (this.buffer.get(i++) & 0x3F));
+            } else {
+                int cp = ((c & 0x07) << 18) | ((this.buffer.get(i++) & 0x3F) << 12) |
+                        ((this.buffer.get(i++) & 0x3F) << 6) | (this.buffer.get(i++) & 0x3F);
+                chars[count++] = Character.highSurrogate(cp);
+                chars[count++] = Character.lowSurrogate(cp);
+            }
+        }
+        return hash.hashChars(chars, 0, count);
+    }
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char)(this.byteAt(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        Utf8Slice result = new Utf8Slice();
+        result.set(this.buffer, this.start + start, end - start);
+        return result;
+    }
+
+    /**
+     * @return The decoded string.
+     */
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[this.length];
+        for (int i = 0; i < this.length; i++)
+            bytes[i] = this.buffer.get(this.start + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
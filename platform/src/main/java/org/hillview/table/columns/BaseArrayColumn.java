@@ -23,6 +23,7 @@ import org.hillview.table.api.IMutableColumn;
 import javax.annotation.Nullable;
 import java.io.Serializable;
 import java.security.InvalidParameterException;
+import java.util.Arrays;
 import java.util.BitSet;
 
 /**
@@ -56,6 +57,27 @@ public abstract class BaseArrayColumn extends BaseColumn implements Serializable
         this.missing.set(rowIndex);
     }
 
+    /**
+     * Sets missing[i] to isMissing(rows[i]) for each i smaller than count.
+     */
+    void getMissing(final int[] rows, final int count, final boolean[] missing) {
+        assert this.missing != null;
+        for (int i = 0; i < count; i++)
+            missing[i] = this.missing.get(rows[i]);
+    }
+
+    /**
+     * Sets missing[i] to isMissing(start + i) for each i smaller than count.
+     */
+    void getMissing(final int start, final int count, final boolean[] missing) {
+        assert this.missing != null;
+        Arrays.fill(missing, 0, count, false);
+        for (int row = this.missing.nextSetBit(start);
+             row >= 0 && row < start + count;
+             row = this.missing.nextSetBit(row + 1))
+            missing[row - start] = true;
+    }
+
     /**
      * Create an empty column with the specified description.
      * @param description Column description.
@@ -21,6 +21,8 @@ import org.hillview.table.ColumnDescription;
 import org.hillview.table.api.ContentsKind;
 import org.hillview.table.api.IColumn;
 
+import javax.annotation.Nullable;
+
 import java.time.Duration;
 import java.time.Instant;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -33,6 +35,10 @@ abstract class BaseColumn implements IColumn {
     int parsingExceptionCount;
     private static final AtomicInteger uniqueId = new AtomicInteger(0);
     private final int id;
+    @Nullable
+    private transient volatile BlockStatistics blockStatistics;
+    @Nullable
+    private transient volatile long[] hashCodes;
 
     void checkKind(ContentsKind kind) {
         if (this.description.kind != kind)
@@ -78,6 +84,59 @@ abstract class BaseColumn implements IColumn {
     @Override
     public boolean isMissing(final int rowIndex) { throw new UnsupportedOperationException(); }
 
+    /**
+     * The statistics are recomputed if the column has grown since they were
+     * computed.  Columns are not otherwise mutated once they are in use.
+     */
+    @Nullable
+    @Override
+    public BlockStatistics getBlockStatistics() {
+        if (this.description.kind == ContentsKind.None)
+            return null;
+        BlockStatistics result = this.blockStatistics;
+        if (result == null || result.getRowCount() != this.sizeInRows()) {
+            result = BlockStatistics.compute(this);
+            this.blockStatistics = result;
+        }
+        return result;
+    }
+
+    /**
+     * The hash codes are kept until the ColumnCache drops them to stay within
+     * its budget, and are recomputed if the column has grown.
+     */
+    @Override
+    public long[] hashCodes64() {
+        long[] result = this.hashCodes;
+        if (result != null && result.length == this.sizeInRows()) {
+            ColumnCache.instance.hashCodesUsed(result);
+            return result;
+        }
+        synchronized (this) {
+            result = this.hashCodes;
+            if (result != null && result.length == this.sizeInRows())
+                return result;
+            if (result != null)
+                ColumnCache.instance.hashCodesDropped(result);
+            result = this.computeHashCodes64();
+            this.hashCodes = result;
+        }
+        ColumnCache.instance.hashCodesComputed(this, result);
+        return result;
+    }
+
+    long[] computeHashCodes64() {
+        return IColumn.super.hashCodes64();
+    }
+
+    /**
+     * Called by the ColumnCache to release an array of hash codes.
+     */
+    void dropHashCodes(long[] hashCodes) {
+        if (this.hashCodes == hashCodes)
+            this.hashCodes = null;
+    }
+
     public int getParsingExceptionCount() { return this.parsingExceptionCount; }
 
     @Override
@@ -19,12 +19,14 @@ package org.hillview.table.columns;
 
 import org.hillview.table.ColumnDescription;
 import org.hillview.table.api.IAppendableColumn;
+import org.hillview.table.api.IColumn;
 
 import javax.annotation.Nullable;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.List;
 
 /**
  * Base class for a column that can grow in size.
@@ -110,6 +112,18 @@ public abstract class BaseListColumn extends BaseColumn implements IAppendableCo
         this.size++;
     }
 
+    /**
+     * Mark as missing the rows starting at first whose bits are set.
+     * The rows must have been appended already.
+     */
+    void setMissing(final int first, final BitSet bits) {
+        assert this.missing != null;
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            final int row = first + i;
+            this.missing.get(row >> LogSegmentSize).set(row & SegmentMask);
+        }
+    }
+
     void parseEmptyOrNull() {
         this.appendMissing();
     }
@@ -127,7 +141,7 @@ public abstract class BaseListColumn extends BaseColumn implements IAppendableCo
                 return new CategoryListColumn(desc);
             case String:
             case Json:
-                return new StringListColumn(desc);
+                return new Utf8ListColumn(desc);
             case Date:
                 return new DateListColumn(desc);
             case Integer:
@@ -140,4 +154,52 @@ public abstract class BaseListColumn extends BaseColumn implements IAppendableCo
                 throw new RuntimeException("Unexpected description " + desc.toString());
         }
     }
+
+    /**
+     * Concatenate columns that have the same description, e.g., the pieces
+     * of a file that were read in parallel.  The pieces are removed from the
+     * list as they are copied.
+     */
+    public static IColumn concatenate(List<IColumn> pieces) {
+        if (pieces.size() == 1)
+            return pieces.get(0);
+        ColumnDescription cd = pieces.get(0).getDescription();
+        BaseListColumn result = BaseListColumn.create(cd);
+        for (int k = 0; k < pieces.size(); k++) {
+            IColumn piece = pieces.get(k);
+            pieces.set(k, null);
+            if (result instanceof IntListColumn && piece instanceof IntListColumn) {
+                ((IntListColumn)result).appendColumn((IntListColumn)piece);
+                continue;
+            }
+            if (result instanceof DoubleListColumn && piece instanceof DoubleListColumn) {
+                ((DoubleListColumn)result).appendColumn((DoubleListColumn)piece);
+                continue;
+            }
+            for (int i = 0; i < piece.sizeInRows(); i++) {
+                if (piece.isMissing(i)) {
+                    result.appendMissing();
+                    continue;
+                }
+                switch (cd.kind) {
+                    case Integer:
+                        result.append(piece.getInt(i));
+                        break;
+                    case Double:
+                        result.append(piece.getDouble(i));
+                        break;
+                    case Date:
+                        result.append(piece.getDate(i));
+                        break;
+                    case Duration:
+                        result.append(piece.getDuration(i));
+                        break;
+                    default:
+                        result.append(piece.getString(i));
+                        break;
+                }
+            }
+        }
+        return result.seal();
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.columns;
+
+import org.hillview.table.ColumnDescription;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Base class for columns whose data is stored in a memory-mapped file
+ * written by ColumnFile.  The buffer is shared by all renamed copies of a column.
+ */
+abstract class BaseMappedColumn extends BaseColumn {
+    /**
+     * Buffer holding the whole column file.
+     */
+    final ByteBuffer buffer;
+    final int rowCount;
+    /**
+     * Offset of the missing-value bitmap in the buffer; negative if there are no missing values.
+     */
+    private final int missingOffset;
+    /**
+     * Offset of the data section in the buffer.
+     */
+    final int dataOffset;
+
+    BaseMappedColumn(ColumnDescription description, ByteBuffer buffer,
+                     int rowCount, int missingOffset, int dataOffset) {
+        super(description);
+        this.buffer = buffer;
+        this.rowCount = rowCount;
+        this.missingOffset = missingOffset;
+        this.dataOffset = dataOffset;
+    }
+
+    BaseMappedColumn(ColumnDescription description, BaseMappedColumn other) {
+        this(description, other.buffer, other.rowCount, other.missingOffset, other.dataOffset);
+    }
+
+    @Override
+    public boolean isLoaded() { return true; }
+
+    @Override
+    public int sizeInRows() { return this.rowCount; }
+
+    @Override
+    public boolean isMissing(final int rowIndex) {
+        if (this.missingOffset < 0)
+            return false;
+        long word = this.buffer.getLong(this.missingOffset + ((rowIndex >>> 6) << 3));
+        return (word & (1L << rowIndex)) != 0;
+    }
+
+    /**
+     * Decode the UTF-8 string stored in the buffer between the specified offsets.
+     * Uses only absolute reads, so it can be called concurrently.
+     */
+    String readString(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = this.buffer.get(start + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
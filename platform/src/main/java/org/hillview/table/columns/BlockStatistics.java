@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.columns;
+
+import org.hillview.table.NoStringConverter;
+import org.hillview.table.api.ColumnAndConverter;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IStringConverter;
+
+import javax.annotation.Nullable;
+
+/**
+ * Minimum, maximum and number of missing values for each block of consecutive
+ * rows of a column (a zone map).  Filters and sketches use these to skip or to
+ * accept a whole block of rows without looking at each row.
+ * For numeric, date and duration columns the bounds are the asDouble values;
+ * for the other columns the bounds are strings.
+ */
+public final class BlockStatistics {
+    public static final int LogBlockSize = 16;
+    public static final int BlockSize = 1 << LogBlockSize;
+
+    private final int rowCount;
+    private final int[] missingCount;
+    /**
+     * Bounds of numeric blocks; NaN if the block contains NaN values, since
+     * these are not ordered.
+     */
+    @Nullable
+    private final double[] min;
+    @Nullable
+    private final double[] max;
+    @Nullable
+    private final String[] minString;
+    @Nullable
+    private final String[] maxString;
+
+    private BlockStatistics(int rowCount, boolean numeric) {
+        this.rowCount = rowCount;
+        int blocks = blockCount(rowCount);
+        this.missingCount = new int[blocks];
+        if (numeric) {
+            this.min = new double[blocks];
+            this.max = new double[blocks];
+            this.minString = null;
+            this.maxString = null;
+        } else {
+            this.min = null;
+            this.max = null;
+            this.minString = new String[blocks];
+            this.maxString = new String[blocks];
+        }
+    }
+
+    /**
+     * @return The number of blocks needed for the specified number of rows.
+     */
+    public static int blockCount(int rowCount) {
+        return (rowCount + BlockSize - 1) >>> LogBlockSize;
+    }
+
+    /**
+     * @return The first row of the specified block.
+     */
+    public static int blockStart(int block) {
+        return block << LogBlockSize;
+    }
+
+    /**
+     * Scan a column and compute the statistics of each block.
+     */
+    public static BlockStatistics compute(IColumn column) {
+        switch (column.getKind()) {
+            case Integer:
+            case Double:
+            case Date:
+            case Duration:
+                return computeNumeric(column);
+            default:
+                return computeStrings(column);
+        }
+    }
+
+    private static BlockStatistics computeNumeric(IColumn column) {
+        BlockStatistics result = new BlockStatistics(column.sizeInRows(), true);
+        assert result.min != null;
+        assert result.max != null;
+        IStringConverter converter = NoStringConverter.getConverterInstance();
+        double[] values = new double[ColumnAndConverter.batchSize];
+        boolean[] missing = new boolean[values.length];
+        for (int block = 0; block < result.getBlockCount(); block++) {
+            int end = result.blockEnd(block);
+            int missingCount = 0;
+            boolean nan = false;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int start = blockStart(block); start < end; start += values.length) {
+                int count = Math.min(values.length, end - start);
+                column.asDoubles(start, count, converter, values, missing);
+                for (int i = 0; i < count; i++) {
+                    if (missing[i]) {
+                        missingCount++;
+                        continue;
+                    }
+                    double v = values[i];
+                    if (v < min)
+                        min = v;
+                    if (v > max)
+                        max = v;
+                    nan |= Double.isNaN(v);
+                }
+            }
+            result.missingCount[block] = missingCount;
+            result.min[block] = nan ? Double.NaN : min;
+            result.max[block] = nan ? Double.NaN : max;
+        }
+        return result;
+    }
+
+    private static BlockStatistics computeStrings(IColumn column) {
+        BlockStatistics result = new BlockStatistics(column.sizeInRows(), false);
+        assert result.minString != null;
+        assert result.maxString != null;
+        for (int block = 0; block < result.getBlockCount(); block++) {
+            int end = result.blockEnd(block);
+            int missingCount = 0;
+            String min = null;
+            String max = null;
+            for (int row = blockStart(block); row < end; row++) {
+                String s = column.isMissing(row) ? null : column.getString(row);
+                if (s == null) {
+                    missingCount++;
+                    continue;
+                }
+                if (min == null || s.compareTo(min) < 0)
+                    min = s;
+                if (max == null || s.compareTo(max) > 0)
+                    max = s;
+            }
+            result.missingCount[block] = missingCount;
+            result.minString[block] = min;
+            result.maxString[block] = max;
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of rows of the column when the statistics were computed.
+     */
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    public int getBlockCount() {
+        return this.missingCount.length;
+    }
+
+    /**
+     * @return The row after the last row of the specified block.
+     */
+    public int blockEnd(int block) {
+        return Math.min(this.rowCount, blockStart(block + 1));
+    }
+
+    public boolean isNumeric() {
+        return this.min != null;
+    }
+
+    public int getMissingCount(int block) {
+        return this.missingCount[block];
+    }
+
+    public int getPresentCount(int block) {
+        return this.blockEnd(block) - blockStart(block) - this.missingCount[block];
+    }
+
+    /**
+     * @return The smallest present value in a block of a numeric column.
+     * Only meaningful if the block has present values; NaN if the values
+     * in the block are not ordered.
+     */
+    public double getMin(int block) {
+        assert this.min != null;
+        return this.min[block];
+    }
+
+    /**
+     * @return The largest present value in a block of a numeric column;
+     * see getMin.
+     */
+    public double getMax(int block) {
+        assert this.max != null;
+        return this.max[block];
+    }
+
+    /**
+     * @return The smallest present value in a block of a string column, or
+     * null if the block has no present values.
+     */
+    @Nullable
+    public String getMinString(int block) {
+        assert this.minString != null;
+        return this.minString[block];
+    }
+
+    @Nullable
+    public String getMaxString(int block) {
+        assert this.maxString != null;
+        return this.maxString[block];
+    }
+}
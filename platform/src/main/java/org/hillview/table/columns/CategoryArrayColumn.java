@@ -90,6 +90,57 @@ public class CategoryArrayColumn extends BaseArrayColumn
         return this.encoding.decode(this.data[rowIndex]);
     }
 
+    @Override
+    public int getCode(String value) {
+        return this.encoding.lookup(value);
+    }
+
+    @Override
+    public void getCodes(int[] rows, int count, int[] codes) {
+        final int missingCode = this.encoding.lookup(null);
+        for (int i = 0; i < count; i++) {
+            int code = this.data[rows[i]];
+            codes[i] = code == missingCode ? -1 : code;
+        }
+    }
+
+    /**
+     * Each distinct value is converted only once for each batch
+     * if there are fewer distinct values than rows in the batch.
+     */
+    @Override
+    public void asDoubles(int[] rows, int count, IStringConverter converter,
+                          double[] values, boolean[] missing) {
+        final int distinct = this.encoding.size();
+        final double[] converted = distinct <= count ? new double[distinct] : null;
+        final boolean[] done = distinct <= count ? new boolean[distinct] : null;
+        for (int i = 0; i < count; i++) {
+            int code = this.data[rows[i]];
+            String value = this.encoding.decode(code);
+            missing[i] = value == null;
+            if (value == null)
+                continue;
+            if (converted == null) {
+                values[i] = converter.asDouble(value);
+            } else {
+                if (!done[code]) {
+                    converted[code] = converter.asDouble(value);
+                    done[code] = true;
+                }
+                values[i] = converted[code];
+            }
+        }
+    }
+
+    @Override
+    public void asDoubles(int start, int count, IStringConverter converter,
+                          double[] values, boolean[] missing) {
+        int[] rows = new int[count];
+        for (int i = 0; i < count; i++)
+            rows[i] = start + i;
+        this.asDoubles(rows, count, converter, values, missing);
+    }
+
     @Override
     public int sizeInRows() {
         return this.data.length;
@@ -37,9 +37,21 @@ class CategoryEncoding {
         this.intDecoding = new Int2ObjectOpenHashMap<String>(100);
     }
 
+    /**
+     * Number of distinct values encoded.
+     */
+    int size() { return this.intEncoding.size(); }
+
     @Nullable
     String decode(int code) { return this.intDecoding.getOrDefault(code, null); }
 
+    /**
+     * @return The code of a value, or -1 if the value has not been encoded.
+     */
+    int lookup(@Nullable String value) {
+        return this.intEncoding.getOrDefault(value, KEY_NOT_FOUND);
+    }
+
     int encode(@Nullable String value) {
         final int ret = this.intEncoding.getOrDefault(value, KEY_NOT_FOUND);
         if (ret != KEY_NOT_FOUND)
@@ -72,9 +72,10 @@ public class CategoryListColumn extends BaseListColumn implements ICategoryColum
         this.size = size;
     }
 
-    @Nullable
-    @Override
-    public String getString(final int rowIndex) {
+    /**
+     * @return The code of the value in the specified row.
+     */
+    private int getEncoded(final int rowIndex) {
         if (rowIndex > this.size)
             throw new ArrayIndexOutOfBoundsException(
                     "Index " + rowIndex + " larger than " + this.size);
@@ -83,24 +84,46 @@ public class CategoryListColumn extends BaseListColumn implements ICategoryColum
         if (segmentId < this.firstShortSegment) {
             // use the byte segments
             byte[] segment = this.byteSegments.get(segmentId);
-            byte index = segment[localIndex];
-            return this.encoding.decode(Byte.toUnsignedInt(index));
+            return Byte.toUnsignedInt(segment[localIndex]);
         } else if (segmentId < this.firstIntSegment) {
             segmentId = segmentId - this.firstShortSegment;
             short[] segment = this.shortSegments.get(segmentId);
-            short index = segment[localIndex];
-            return this.encoding.decode(Short.toUnsignedInt(index));
+            return Short.toUnsignedInt(segment[localIndex]);
         } else {
             segmentId = segmentId - this.firstIntSegment;
             int[] segment = this.intSegments.get(segmentId);
-            int index = segment[localIndex];
-            return this.encoding.decode(index);
+            return segment[localIndex];
+        }
+    }
+
+    @Nullable
+    @Override
+    public String getString(final int rowIndex) {
+        return this.encoding.decode(this.getEncoded(rowIndex));
+    }
+
+    @Override
+    public int getCode(String value) {
+        return this.encoding.lookup(value);
+    }
+
+    @Override
+    public void getCodes(int[] rows, int count, int[] codes) {
+        final int missingCode = this.encoding.lookup(null);
+        for (int i = 0; i < count; i++) {
+            int code = this.getEncoded(rows[i]);
+            codes[i] = code == missingCode ? -1 : code;
         }
     }
 
     @Override
     public IColumn seal() { return this; }
 
+    /**
+     * Number of distinct values in this column.
+     */
+    public int getDistinctCount() { return this.encoding.size(); }
+
     @Override
     void grow() {
         if (this.firstIntSegment == Integer.MAX_VALUE) {
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.table.columns;
+
+import org.hillview.table.api.IColumn;
+import org.hillview.utils.HillviewLogger;
+
+import javax.annotation.Nullable;
+import java.lang.ref.WeakReference;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of the data of lazy columns that is loaded in memory in this worker.
+ * When the estimated size of the loaded data exceeds a budget the least-recently
+ * used columns are unloaded; they are reloaded on demand by their IColumnLoader.
+ * Columns used while a PinScope is open on the current thread (e.g., during a
+ * sketch) are not evicted until the scope is closed.
+ * The cache also accounts for the arrays of hash codes that columns keep and
+ * for the sorted row indexes that tables keep; these are dropped before any
+ * column data is unloaded.
+ */
+public final class ColumnCache {
+    public static final ColumnCache instance =
+            new ColumnCache(Runtime.getRuntime().maxMemory() / 2);
+
+    private static final class Entry {
+        final IColumn data;
+        final long bytes;
+        int pins;
+
+        Entry(IColumn data, long bytes) {
+            this.data = data;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * A structure that keeps indexes of rows, which it can drop on demand.
+     * The cache calls its methods while holding its own lock, so the owner
+     * must not call the cache while holding a lock that these methods need.
+     */
+    public interface IIndexOwner {
+        /**
+         * True if the owner still keeps this index.
+         */
+        boolean hasIndex(int[] rows);
+        /**
+         * Stop keeping this index.
+         */
+        void dropIndex(int[] rows);
+    }
+
+    private static final class IndexEntry {
+        final WeakReference<IIndexOwner> owner;
+        final long bytes;
+
+        IndexEntry(IIndexOwner owner, long bytes) {
+            this.owner = new WeakReference<IIndexOwner>(owner);
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class HashCodesEntry {
+        final WeakReference<BaseColumn> column;
+        final long bytes;
+
+        HashCodesEntry(BaseColumn column, long bytes) {
+            this.column = new WeakReference<BaseColumn>(column);
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Entries in access order: the first entry is the least recently used.
+     */
+    private final LinkedHashMap<LazyColumn, Entry> entries =
+            new LinkedHashMap<LazyColumn, Entry>(16, 0.75f, true);
+    /**
+     * Hash codes kept by columns, indexed by the array, in access order.
+     * The columns are weakly referenced, so the cache does not keep them alive.
+     */
+    private final LinkedHashMap<long[], HashCodesEntry> hashCodes =
+            new LinkedHashMap<long[], HashCodesEntry>(16, 0.75f, true);
+    /**
+     * Row indexes, indexed by the array, in access order.
+     */
+    private final LinkedHashMap<int[], IndexEntry> indexes =
+            new LinkedHashMap<int[], IndexEntry>(16, 0.75f, true);
+    private final ThreadLocal<PinScope> currentScope = new ThreadLocal<PinScope>();
+    private long budget;
+    private long usedBytes;
+    private long hits;
+    private long loads;
+    private long evictions;
+
+    private ColumnCache(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Set the maximum number of bytes of column data to keep loaded.  Pinned
+     * columns can cause the budget to be temporarily exceeded.
+     */
+    public synchronized void setBudget(long bytes) {
+        if (bytes <= 0)
+            throw new RuntimeException("Column cache budget must be positive: " + bytes);
+        this.budget = bytes;
+        this.evict(null);
+    }
+
+    public synchronized long getBudget() { return this.budget; }
+
+    public synchronized long getUsedBytes() { return this.usedBytes; }
+
+    /**
+     * Rough estimate of the memory used by the data in a column.
+     */
+    static long estimateBytes(IColumn column) {
+        if (column instanceof Utf8ListColumn)
+            return ((Utf8ListColumn)column).estimateBytes();
+        final long rows = column.sizeInRows();
+        final long perRow;
+        switch (column.getKind()) {
+            case Integer:
+            case Category:  // categories are stored as integer codes
+                perRow = 4;
+                break;
+            case Double:
+            case Date:
+            case Duration:
+                perRow = 8;
+                break;
+            case String:
+            case Json:
+            default:
+                perRow = 64;  // reference plus a short String object
+                break;
+        }
+        return rows * perRow + rows / 8;  // missing bitmap
+    }
+
+    /**
+     * Called when a lazy column has loaded its data.
+     */
+    void loaded(LazyColumn column, IColumn data) {
+        this.use(column, data, false);
+    }
+
+    /**
+     * Record a use of the data of a lazy column; the column is pinned if a PinScope
+     * is open on the current thread.
+     */
+    void use(LazyColumn column, IColumn data) {
+        this.use(column, data, true);
+    }
+
+    private synchronized void use(LazyColumn column, IColumn data, boolean pin) {
+        Entry entry = this.entries.get(column);
+        if (entry != null && entry.data == data) {
+            if (pin)
+                this.hits++;
+        } else {
+            if (entry != null)
+                this.usedBytes -= entry.bytes;
+            Entry old = entry;
+            entry = new Entry(data, estimateBytes(data));
+            if (old != null)
+                entry.pins = old.pins;
+            this.entries.put(column, entry);
+            this.usedBytes += entry.bytes;
+            // The data may have been evicted after it was handed to our caller.
+            column.restore(data);
+            this.loads++;
+        }
+        if (pin) {
+            PinScope scope = this.currentScope.get();
+            if (scope != null) {
+                scope.pinned.add(column);
+                entry.pins++;
+            }
+        }
+        this.evict(column);
+    }
+
+    /**
+     * Called when a column has computed an array of hash codes that it keeps.
+     */
+    synchronized void hashCodesComputed(BaseColumn column, long[] hashCodes) {
+        HashCodesEntry entry = new HashCodesEntry(column, 8L * hashCodes.length);
+        this.hashCodes.put(hashCodes, entry);
+        this.usedBytes += entry.bytes;
+        this.evict(null);
+    }
+
+    /**
+     * Record a use of the hash codes kept by a column.
+     */
+    synchronized void hashCodesUsed(long[] hashCodes) {
+        this.hashCodes.get(hashCodes);
+    }
+
+    /**
+     * Called when a column no longer keeps an array of hash codes.
+     */
+    synchronized void hashCodesDropped(long[] hashCodes) {
+        HashCodesEntry entry = this.hashCodes.remove(hashCodes);
+        if (entry != null)
+            this.usedBytes -= entry.bytes;
+    }
+
+    /**
+     * Called when an index of rows was built; it is kept until the owner drops it.
+     */
+    public synchronized void indexBuilt(IIndexOwner owner, int[] rows) {
+        // The owner may already have dropped the index.
+        if (!owner.hasIndex(rows) || this.indexes.containsKey(rows))
+            return;
+        IndexEntry entry = new IndexEntry(owner, 4L * rows.length);
+        this.indexes.put(rows, entry);
+        this.usedBytes += entry.bytes;
+        this.evict(null);
+    }
+
+    /**
+     * Record a use of an index of rows.
+     */
+    public synchronized void indexUsed(int[] rows) {
+        this.indexes.get(rows);
+    }
+
+    /**
+     * Called when the owner of an index of rows no longer keeps it.
+     */
+    public synchronized void indexDropped(int[] rows) {
+        IndexEntry entry = this.indexes.remove(rows);
+        if (entry != null)
+            this.usedBytes -= entry.bytes;
+    }
+
+    private synchronized void unpin(List<LazyColumn> columns) {
+        for (LazyColumn c : columns) {
+            Entry entry = this.entries.get(c);
+            if (entry != null && entry.pins > 0)
+                entry.pins--;
+        }
+        this.evict(null);
+    }
+
+    /**
+     * Unload least-recently used unpinned columns until the data fits in the budget.
+     * @param keep  Column that should not be evicted.
+     */
+    private void evict(@Nullable LazyColumn keep) {
+        Iterator<Map.Entry<long[], HashCodesEntry>> hashIt = this.hashCodes.entrySet().iterator();
+        while (this.usedBytes > this.budget && hashIt.hasNext()) {
+            Map.Entry<long[], HashCodesEntry> e = hashIt.next();
+            BaseColumn column = e.getValue().column.get();
+            if (column != null)
+                column.dropHashCodes(e.getKey());
+            this.usedBytes -= e.getValue().bytes;
+            hashIt.remove();
+        }
+        Iterator<Map.Entry<int[], IndexEntry>> indexIt = this.indexes.entrySet().iterator();
+        while (this.usedBytes > this.budget && indexIt.hasNext()) {
+            Map.Entry<int[], IndexEntry> e = indexIt.next();
+            IIndexOwner owner = e.getValue().owner.get();
+            if (owner != null)
+                owner.dropIndex(e.getKey());
+            this.usedBytes -= e.getValue().bytes;
+            indexIt.remove();
+        }
+        Iterator<Map.Entry<LazyColumn, Entry>> it = this.entries.entrySet().iterator();
+        while (this.usedBytes > this.budget && it.hasNext()) {
+            Map.Entry<LazyColumn, Entry> e = it.next();
+            if (e.getKey() == keep || e.getValue().pins > 0)
+                continue;
+            HillviewLogger.instance.info("Evicting column", "{0}", e.getKey());
+            e.getKey().unload(e.getValue().data);
+            this.usedBytes -= e.getValue().bytes;
+            this.evictions++;
+            it.remove();
+        }
+    }
+
+    /**
+     * Unload all columns that are not pinned.
+     */
+    public synchronized void clear() {
+        long saved = this.budget;
+        this.budget = 0;
+        this.evict(null);
+        this.budget = saved;
+    }
+
+    /**
+     * Start a scope where all the columns used by the current thread are pinned.
+     * Scopes can be nested.
+     */
+    public PinScope pinScope() {
+        PinScope scope = new PinScope(this.currentScope.get());
+        this.currentScope.set(scope);
+        return scope;
+    }
+
+    public final class PinScope implements AutoCloseable {
+        @Nullable
+        private final PinScope previous;
+        private final List<LazyColumn> pinned = new ArrayList<LazyColumn>();
+
+        private PinScope(@Nullable PinScope previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            ColumnCache.this.currentScope.set(this.previous);
+            ColumnCache.this.unpin(this.pinned);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        NumberFormat format = NumberFormat.getIntegerInstance();
+        return "column cache: " + this.entries.size() + " columns, " +
+                this.hashCodes.size() + " hash code arrays, " +
+                this.indexes.size() + " row indexes, " +
+                format.format(this.usedBytes) + "/" + format.format(this.budget) + " bytes, " +
+                this.hits + " hits, " + this.loads + " loads, " + this.evictions + " evictions";
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.columns;
+
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IColumn;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Reads and writes columns in the native on-disk format, which
+ * can be memory-mapped and accessed without deserialization.
+ * All numbers are little-endian.  A file has the following sections:
+ * - header: magic, version, kind, row count, 1 if there is a missing bitmap, 0
+ * - missing bitmap: one long for each 64 rows, present only if the column has missing values
+ * - data: depends on the kind; see the Mapped*Column classes.
+ */
+public class ColumnFile {
+    private static final int magic = 0x48564346;  // HVCF
+    private static final int version = 1;
+    private static final int headerSize = 24;
+
+    /**
+     * Buffered little-endian writer to a file channel.
+     */
+    private static class Output implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private long position;
+
+        Output(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            this.position = 0;
+        }
+
+        private void reserve(int bytes) throws IOException {
+            if (this.buffer.remaining() < bytes)
+                this.flush();
+            this.position += bytes;
+            if (this.position > Integer.MAX_VALUE)
+                throw new RuntimeException("Column file too large");
+        }
+
+        void putInt(int value) throws IOException {
+            this.reserve(4);
+            this.buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            this.reserve(8);
+            this.buffer.putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            this.reserve(8);
+            this.buffer.putDouble(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int done = 0;
+            while (done < bytes.length) {
+                if (!this.buffer.hasRemaining())
+                    this.flush();
+                int count = Math.min(this.buffer.remaining(), bytes.length - done);
+                this.reserve(count);
+                this.buffer.put(bytes, done, count);
+                done += count;
+            }
+        }
+
+        private void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining())
+                this.channel.write(this.buffer);
+            this.buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.flush();
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Writes the strings as offsets followed by their UTF-8 bytes.
+     * Missing strings are written as empty strings.
+     */
+    private static void writeStrings(Output output, List<String> values) throws IOException {
+        List<byte[]> encoded = new ArrayList<byte[]>(values.size());
+        int offset = 0;
+        output.putInt(offset);
+        for (String s : values) {
+            byte[] bytes = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            offset += bytes.length;
+            output.putInt(offset);
+        }
+        for (byte[] b : encoded)
+            output.putBytes(b);
+    }
+
+    /**
+     * Write the column to the specified file.
+     */
+    public static void write(IColumn column, Path file) {
+        final int rows = column.sizeInRows();
+        final ContentsKind kind = column.getKind();
+        boolean hasMissing = false;
+        long[] missing = new long[(rows + 63) >>> 6];
+        for (int i = 0; i < rows; i++) {
+            if (column.isMissing(i)) {
+                missing[i >>> 6] |= 1L << i;
+                hasMissing = true;
+            }
+        }
+
+        try (Output output = new Output(file)) {
+            output.putInt(magic);
+            output.putInt(version);
+            output.putInt(kind.ordinal());
+            output.putInt(rows);
+            output.putInt(hasMissing ? 1 : 0);
+            output.putInt(0);
+            if (hasMissing)
+                for (long l : missing)
+                    output.putLong(l);
+
+            switch (kind) {
+                case Integer:
+                    for (int i = 0; i < rows; i++)
+                        output.putInt(column.isMissing(i) ? 0 : column.getInt(i));
+                    break;
+                case Double:
+                case Date:
+                case Duration:
+                    // Dates and durations are stored as doubles in memory as well
+                    for (int i = 0; i < rows; i++)
+                        output.putDouble(column.isMissing(i) ? 0 : column.asDouble(i, null));
+                    break;
+                case Category: {
+                    HashMap<String, Integer> codes = new HashMap<String, Integer>();
+                    List<String> dictionary = new ArrayList<String>();
+                    for (int i = 0; i < rows; i++) {
+                        String s = column.getString(i);
+                        if (s == null) {
+                            output.putInt(0);
+                            continue;
+                        }
+                        Integer code = codes.get(s);
+                        if (code == null) {
+                            code = dictionary.size();
+                            codes.put(s, code);
+                            dictionary.add(s);
+                        }
+                        output.putInt(code);
+                    }
+                    output.putInt(dictionary.size());
+                    writeStrings(output, dictionary);
+                    break;
+                }
+                case String:
+                case Json: {
+                    List<String> values = new ArrayList<String>(rows);
+                    for (int i = 0; i < rows; i++)
+                        values.add(column.getString(i));
+                    writeStrings(output, values);
+                    break;
+                }
+                default:
+                    throw new RuntimeException("Unexpected column kind " + kind);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Map a column file in memory.
+     * @param description  Description of the column; its kind must match the file.
+     * @param file         File written by write.
+     */
+    public static IColumn map(ColumnDescription description, Path file) {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < headerSize || buffer.getInt(0) != magic)
+            throw new RuntimeException("Not a column file: " + file);
+        if (buffer.getInt(4) != version)
+            throw new RuntimeException("Unsupported column file version " + buffer.getInt(4));
+        if (buffer.getInt(8) != description.kind.ordinal())
+            throw new RuntimeException("Column file " + file + " does not contain " + description);
+        int rows = buffer.getInt(12);
+        int missingOffset = -1;
+        int dataOffset = headerSize;
+        if (buffer.getInt(16) != 0) {
+            missingOffset = headerSize;
+            dataOffset += ((rows + 63) >>> 6) << 3;
+        }
+
+        switch (description.kind) {
+            case Integer:
+                return new MappedIntColumn(description, buffer, rows, missingOffset, dataOffset);
+            case Double:
+                return new MappedDoubleColumn(description, buffer, rows, missingOffset, dataOffset);
+            case Date:
+                return new MappedDateColumn(description, buffer, rows, missingOffset, dataOffset);
+            case Duration:
+                return new MappedDurationColumn(description, buffer, rows, missingOffset, dataOffset);
+            case Category:
+                return new MappedCategoryColumn(description, buffer, rows, missingOffset, dataOffset);
+            case String:
+            case Json:
+                return new MappedStringColumn(description, buffer, rows, missingOffset, dataOffset);
+            default:
+                throw new RuntimeException("Unexpected column kind " + description.kind);
+        }
+    }
+}
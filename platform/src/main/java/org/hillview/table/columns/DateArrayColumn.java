@@ -42,6 +42,8 @@ public final class DateArrayColumn
                            final Instant[] data) {
         super(description, data.length);
         this.checkKind(ContentsKind.Date);
+        for (int i = 0; i < data.length; i++)
+            this.set(i, data[i]);
     }
 
     @Override
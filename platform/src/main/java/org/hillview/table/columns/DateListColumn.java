@@ -70,8 +70,7 @@ public class DateListColumn
                 this.dateParser = new DateParsing(s);
             }
             try {
-                Instant dt = this.dateParser.parse(s);
-                this.append(dt);
+                this.append(this.dateParser.parseMillis(s));
             } catch (Exception e) {
                 this.parsingExceptionCount++;
                 this.parseEmptyOrNull();
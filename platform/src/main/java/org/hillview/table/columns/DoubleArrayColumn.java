@@ -22,6 +22,7 @@ import org.hillview.table.api.ContentsKind;
 import org.hillview.table.api.IColumn;
 import org.hillview.table.api.IDoubleColumn;
 import org.hillview.table.api.IMutableColumn;
+import org.hillview.table.api.IStringConverter;
 
 import javax.annotation.Nullable;
 
@@ -61,6 +62,21 @@ public class DoubleArrayColumn
     @Override
     public double getDouble(final int rowIndex) { return this.data[rowIndex];}
 
+    @Override
+    public void asDoubles(int[] rows, int count, @Nullable IStringConverter unused,
+                          double[] values, boolean[] missing) {
+        this.getMissing(rows, count, missing);
+        for (int i = 0; i < count; i++)
+            values[i] = this.data[rows[i]];
+    }
+
+    @Override
+    public void asDoubles(int start, int count, @Nullable IStringConverter unused,
+                          double[] values, boolean[] missing) {
+        this.getMissing(start, count, missing);
+        System.arraycopy(this.data, start, values, 0, count);
+    }
+
     @Override
     public void set(int rowIndex, @Nullable Object value) {
         if (value == null)
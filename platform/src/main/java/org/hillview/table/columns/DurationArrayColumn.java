@@ -41,6 +41,8 @@ public final class DurationArrayColumn extends DoubleArrayColumn
                                final Duration[] data) {
         super(description, data.length);
         this.checkKind(ContentsKind.Duration);
+        for (int i = 0; i < data.length; i++)
+            this.set(i, data[i]);
     }
 
     @Override
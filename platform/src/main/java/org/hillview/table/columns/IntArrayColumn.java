@@ -68,6 +68,35 @@ public final class IntArrayColumn
         return this.data[rowIndex];
     }
 
+    @Override
+    public void asDoubles(int[] rows, int count, @Nullable IStringConverter unused,
+                          double[] values, boolean[] missing) {
+        this.getMissing(rows, count, missing);
+        for (int i = 0; i < count; i++)
+            values[i] = this.data[rows[i]];
+    }
+
+    @Override
+    public void asDoubles(int start, int count, @Nullable IStringConverter unused,
+                          double[] values, boolean[] missing) {
+        this.getMissing(start, count, missing);
+        for (int i = 0; i < count; i++)
+            values[i] = this.data[start + i];
+    }
+
+    @Override
+    public void getInts(int[] rows, int count, int[] values, boolean[] missing) {
+        this.getMissing(rows, count, missing);
+        for (int i = 0; i < count; i++)
+            values[i] = this.data[rows[i]];
+    }
+
+    @Override
+    public void getInts(int start, int count, int[] values, boolean[] missing) {
+        this.getMissing(start, count, missing);
+        System.arraycopy(this.data, start, values, 0, count);
+    }
+
     @Override
     public void set(int rowIndex, @Nullable Object value) {
         if (value == null)
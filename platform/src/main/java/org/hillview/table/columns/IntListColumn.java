@@ -88,6 +88,39 @@ public final class IntListColumn
         this.size++;
     }
 
+    /**
+     * Append count values from an array starting at index start.
+     * None of the values is missing.
+     */
+    @SuppressWarnings("Duplicates")
+    public void append(final int[] values, final int start, final int count) {
+        int done = 0;
+        while (done < count) {
+            final int segmentId = this.size >> LogSegmentSize;
+            final int localIndex = this.size & SegmentMask;
+            if (this.segments.size() == segmentId)
+                this.grow();
+            final int length = Math.min(count - done, SegmentSize - localIndex);
+            System.arraycopy(values, start + done, this.segments.get(segmentId), localIndex, length);
+            this.size += length;
+            done += length;
+        }
+    }
+
+    /**
+     * Append all the values of another column.
+     */
+    @SuppressWarnings("Duplicates")
+    public void appendColumn(final IntListColumn other) {
+        for (int s = 0; s < other.segments.size(); s++) {
+            final int first = this.size;
+            final int count = Math.min(SegmentSize, other.size - s * SegmentSize);
+            this.append(other.segments.get(s), 0, count);
+            if (other.missing != null)
+                this.setMissing(first, other.missing.get(s));
+        }
+    }
+
     @Override
     public void parseAndAppendString(@Nullable String s) {
         if ((s == null) || s.isEmpty())
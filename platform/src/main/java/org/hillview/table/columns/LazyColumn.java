@@ -30,25 +30,52 @@ import java.util.List;
 
 /**
  * The contents of a lazy column is loaded lazily.
+ * The loaded data is registered with the ColumnCache, which may unload it
+ * again; it is then reloaded on demand.  A renamed lazy column shares the
+ * data and the cache entry of the column it was created from.
  */
 public class LazyColumn extends BaseColumn {
     @Nullable
-    private IColumn data;
+    private volatile IColumn data;
     private final IColumnLoader loader;
     private final int size;
+    /**
+     * If not null this column is a renamed view of source, which holds the data.
+     */
+    @Nullable
+    private final LazyColumn source;
 
     public LazyColumn(final ColumnDescription description, int size, IColumnLoader loader) {
         super(description);
         this.data = null;
         this.loader = loader;
         this.size = size;
+        this.source = null;
+    }
+
+    private LazyColumn(final ColumnDescription description, LazyColumn source) {
+        super(description);
+        this.data = null;
+        this.loader = source.loader;
+        this.size = source.size;
+        this.source = source;
     }
 
     @Override
     public boolean isLoaded() {
+        if (this.source != null)
+            return this.source.isLoaded();
         return this.data != null;
     }
 
+    /**
+     * True if this column was obtained by renaming another lazy column; the
+     * loader only knows the original name, so the data is loaded through it.
+     */
+    public boolean isRenamed() {
+        return this.source != null;
+    }
+
     @Override
     public int sizeInRows() {
         return this.size;
@@ -100,10 +127,8 @@ public class LazyColumn extends BaseColumn {
 
     @Override
     public IColumn rename(String newName) {
-        LazyColumn result =
-                new LazyColumn(this.description.rename(newName), this.size, this.loader);
-        result.data = this.data;
-        return result;
+        LazyColumn original = this.source != null ? this.source : this;
+        return new LazyColumn(this.description.rename(newName), original);
     }
 
     @Override
@@ -116,17 +141,76 @@ public class LazyColumn extends BaseColumn {
         return this.ensureLoaded().hashCode64(rowIndex, hash);
     }
 
-    synchronized private IColumn ensureLoaded() {
-        if (this.data != null)
-            return this.data;
+    @Override
+    long[] computeHashCodes64() {
+        IColumn current = this.ensureLoaded();
+        if (current instanceof BaseColumn)
+            // Do not keep a second copy in the loaded column
+            return ((BaseColumn)current).computeHashCodes64();
+        return current.hashCodes64();
+    }
+
+    /**
+     * Supply the data for this column, when it was loaded by other means.
+     * @param data  Loaded column data.
+     */
+    synchronized public void setData(IColumn data) {
+        if (this.source != null) {
+            this.source.setData(data);
+            return;
+        }
+        if (this.data == null) {
+            this.data = data;
+            ColumnCache.instance.loaded(this, data);
+        }
+    }
+
+    /**
+     * Get the data of this column, loading it if necessary.  If a pin scope
+     * is open in the current thread the data stays in memory until it is closed.
+     */
+    public IColumn getLoadedData() {
+        if (this.source != null)
+            return this.source.getLoadedData();
+        IColumn result = this.ensureLoaded();
+        ColumnCache.instance.use(this, result);
+        return result;
+    }
+
+    /**
+     * Called by the ColumnCache to release the data, if it has not been replaced.
+     */
+    void unload(IColumn expected) {
+        if (this.data == expected)
+            this.data = null;
+    }
+
+    /**
+     * Called by the ColumnCache when data which was unloaded is in use again.
+     */
+    void restore(IColumn data) {
+        this.data = data;
+    }
+
+    private IColumn ensureLoaded() {
+        if (this.source != null)
+            return this.source.ensureLoaded();
+        return this.load();
+    }
+
+    synchronized private IColumn load() {
+        IColumn current = this.data;
+        if (current != null)
+            return current;
         HillviewLogger.instance.info("Loading data for lazy column", "{0}", this);
         List<String> toLoad = new ArrayList<String>();
         toLoad.add(this.getName());
         List<IColumn> loaded = this.loader.loadColumns(toLoad);
         if (loaded.size() != 1)
             throw new RuntimeException("Expected 1 column to be loaded, not " + loaded.size());
-        this.data = loaded.get(0);
-        assert this.data != null;
-        return this.data;
+        IColumn result = loaded.get(0);
+        this.data = result;
+        ColumnCache.instance.loaded(this, result);
+        return result;
     }
 }
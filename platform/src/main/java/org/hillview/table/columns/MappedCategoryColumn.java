@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.columns;
+
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.ICategoryColumn;
+import org.hillview.table.api.IColumn;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+
+/**
+ * Categorical column stored in a memory-mapped file.
+ * The data section holds one integer code for each row, followed by the dictionary:
+ * the number of distinct values, their offsets, and their UTF-8 bytes.
+ * The dictionary is decoded when the column is opened.
+ */
+public final class MappedCategoryColumn extends BaseMappedColumn implements ICategoryColumn {
+    private final String[] dictionary;
+
+    MappedCategoryColumn(ColumnDescription description, ByteBuffer buffer,
+                         int rowCount, int missingOffset, int dataOffset) {
+        super(description, buffer, rowCount, missingOffset, dataOffset);
+        this.checkKind(ContentsKind.Category);
+        int dictionaryOffset = dataOffset + (rowCount << 2);
+        int count = buffer.getInt(dictionaryOffset);
+        int bytes = dictionaryOffset + ((count + 2) << 2);
+        this.dictionary = new String[count];
+        for (int i = 0; i < count; i++) {
+            int offset = dictionaryOffset + ((i + 1) << 2);
+            this.dictionary[i] = this.readString(
+                    bytes + buffer.getInt(offset), bytes + buffer.getInt(offset + 4));
+        }
+    }
+
+    private MappedCategoryColumn(ColumnDescription description, MappedCategoryColumn other) {
+        super(description, other);
+        this.dictionary = other.dictionary;
+    }
+
+    @Nullable
+    @Override
+    public String getString(final int rowIndex) {
+        if (this.isMissing(rowIndex))
+            return null;
+        return this.dictionary[this.buffer.getInt(this.dataOffset + (rowIndex << 2))];
+    }
+
+    @Override
+    public int getCode(String value) {
+        for (int i = 0; i < this.dictionary.length; i++)
+            if (this.dictionary[i].equals(value))
+                return i;
+        return -1;
+    }
+
+    @Override
+    public void getCodes(int[] rows, int count, int[] codes) {
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            codes[i] = this.isMissing(row) ? -1 :
+                    this.buffer.getInt(this.dataOffset + (row << 2));
+        }
+    }
+
+    @Override
+    public IColumn rename(String newName) {
+        return new MappedCategoryColumn(this.description.rename(newName), this);
+    }
+}
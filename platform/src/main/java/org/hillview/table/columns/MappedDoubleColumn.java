@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.columns;
+
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IDoubleColumn;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Column of doubles stored in a memory-mapped file.
+ */
+public class MappedDoubleColumn extends BaseMappedColumn implements IDoubleColumn {
+    MappedDoubleColumn(ColumnDescription description, ByteBuffer buffer,
+                       int rowCount, int missingOffset, int dataOffset) {
+        super(description, buffer, rowCount, missingOffset, dataOffset);
+        if (description.kind != ContentsKind.Date && description.kind != ContentsKind.Duration)
+            this.checkKind(ContentsKind.Double);
+    }
+
+    MappedDoubleColumn(ColumnDescription description, MappedDoubleColumn other) {
+        super(description, other);
+    }
+
+    @Override
+    public double getDouble(final int rowIndex) {
+        return this.buffer.getDouble(this.dataOffset + (rowIndex << 3));
+    }
+
+    @Override
+    public IColumn rename(String newName) {
+        return new MappedDoubleColumn(this.description.rename(newName), this);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.columns;
+
+import net.openhft.hashing.LongHashFunction;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.api.*;
+import org.hillview.utils.Converters;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+/*
+ * Column of durations stored in a memory-mapped file.
+ * Durations are actually stored as doubles.
+ */
+@SuppressWarnings("EmptyMethod")
+public final class MappedDurationColumn extends MappedDoubleColumn implements IDurationColumn {
+    MappedDurationColumn(ColumnDescription description, ByteBuffer buffer,
+                     int rowCount, int missingOffset, int dataOffset) {
+        super(description, buffer, rowCount, missingOffset, dataOffset);
+        this.checkKind(ContentsKind.Duration);
+    }
+
+    private MappedDurationColumn(ColumnDescription description, MappedDurationColumn other) {
+        super(description, other);
+    }
+
+    @Override
+    public Duration getDuration(final int rowIndex) {
+        return Converters.toDuration(this.getDouble(rowIndex));
+    }
+
+    @Override
+    public IColumn rename(String newName) {
+        return new MappedDurationColumn(this.description.rename(newName), this);
+    }
+
+    @Override
+    public double asDouble(int rowIndex, IStringConverter unused) {
+        return super.getDouble(rowIndex);
+    }
+
+    @Override
+    public String asString(int rowIndex) {
+        assert !this.isMissing(rowIndex);
+        //noinspection ConstantConditions
+        return this.getDuration(rowIndex).toString();
+    }
+
+    @Override
+    public IndexComparator getComparator() {
+        return super.getComparator();
+    }
+
+    @Override
+    public long hashCode64(int rowIndex, LongHashFunction hash) {
+        return super.hashCode64(rowIndex, hash);
+    }
+
+    @Override
+    public IColumn convertKind(
+            ContentsKind kind, String newColName, IMembershipSet set) {
+        return IDurationColumn.super.convertKind(kind, newColName, set);
+    }
+}
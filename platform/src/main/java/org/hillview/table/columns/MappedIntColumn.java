@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.columns;
+
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IIntColumn;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Column of integers stored in a memory-mapped file.
+ */
+public final class MappedIntColumn extends BaseMappedColumn implements IIntColumn {
+    MappedIntColumn(ColumnDescription description, ByteBuffer buffer,
+                    int rowCount, int missingOffset, int dataOffset) {
+        super(description, buffer, rowCount, missingOffset, dataOffset);
+        this.checkKind(ContentsKind.Integer);
+    }
+
+    private MappedIntColumn(ColumnDescription description, MappedIntColumn other) {
+        super(description, other);
+    }
+
+    @Override
+    public int getInt(final int rowIndex) {
+        return this.buffer.getInt(this.dataOffset + (rowIndex << 2));
+    }
+
+    @Override
+    public IColumn rename(String newName) {
+        return new MappedIntColumn(this.description.rename(newName), this);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.columns;
+
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IStringColumn;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.security.InvalidParameterException;
+
+/**
+ * Column of strings stored in a memory-mapped file.
+ * The data section holds rowCount + 1 offsets followed by the UTF-8 bytes
+ * of all strings; strings are decoded when they are accessed.
+ */
+public final class MappedStringColumn extends BaseMappedColumn implements IStringColumn {
+    MappedStringColumn(ColumnDescription description, ByteBuffer buffer,
+                       int rowCount, int missingOffset, int dataOffset) {
+        super(description, buffer, rowCount, missingOffset, dataOffset);
+        if ((this.description.kind != ContentsKind.String) &&
+                (this.description.kind != ContentsKind.Json))
+            throw new InvalidParameterException("Kind should be String or Json "
+                    + this.description.kind);
+    }
+
+    private MappedStringColumn(ColumnDescription description, MappedStringColumn other) {
+        super(description, other);
+    }
+
+    @Nullable
+    @Override
+    public String getString(final int rowIndex) {
+        if (this.isMissing(rowIndex))
+            return null;
+        int offset = this.dataOffset + (rowIndex << 2);
+        int bytes = this.dataOffset + ((this.rowCount + 1) << 2);
+        return this.readString(bytes + this.buffer.getInt(offset),
+                bytes + this.buffer.getInt(offset + 4));
+    }
+
+    @Override
+    public IColumn rename(String newName) {
+        return new MappedStringColumn(this.description.rename(newName), this);
+    }
+}
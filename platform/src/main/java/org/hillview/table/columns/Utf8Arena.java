@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.columns;
+
+import org.hillview.table.api.Utf8Slice;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Stores UTF-8 encoded strings in large byte buffers, by default allocated outside
+ * of the Java heap.  Each string is stored as its length (a varint) followed by its bytes,
+ * and is identified by a location: the index of the buffer in the high 32 bits and
+ * the offset within the buffer in the low 32 bits.  An arena can be shared by several
+ * columns.  Strings are never removed; the memory is reclaimed when the arena is
+ * garbage-collected.
+ */
+public final class Utf8Arena implements Serializable {
+    /**
+     * Buffers start small, so that arenas holding few strings use little memory,
+     * and double in size up to maxChunkSize.
+     */
+    static final int initialChunkSize = 1 << 12;
+    static final int maxChunkSize = 1 << 20;
+    private final boolean direct;
+    /**
+     * The position of each buffer is the number of bytes used.
+     */
+    private transient ArrayList<ByteBuffer> chunks;
+
+    public Utf8Arena() {
+        this(true);
+    }
+
+    /**
+     * @param direct  If true the buffers are allocated outside of the Java heap.
+     */
+    public Utf8Arena(boolean direct) {
+        this.direct = direct;
+        this.chunks = new ArrayList<ByteBuffer>();
+    }
+
+    private ByteBuffer allocate(int size) {
+        return this.direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    /**
+     * Store a string.
+     * @param bytes  UTF-8 encoding of the string.
+     * @return       The location of the string.
+     */
+    public synchronized long add(byte[] bytes) {
+        int needed = bytes.length + 5;  // at most 5 bytes for the length
+        ByteBuffer last = this.chunks.isEmpty() ? null : this.chunks.get(this.chunks.size() - 1);
+        if (last == null || last.remaining() < needed) {
+            int size = last == null ? initialChunkSize :
+                    (int)Math.min(maxChunkSize, 2L * last.capacity());
+            last = this.allocate(Math.max(size, needed));
+            this.chunks.add(last);
+        }
+        long location = ((long)(this.chunks.size() - 1) << 32) | last.position();
+        int length = bytes.length;
+        while ((length & ~0x7F) != 0) {
+            last.put((byte)((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        last.put((byte)length);
+        last.put(bytes);
+        return location;
+    }
+
+    /**
+     * Point a slice to the string stored at a location.
+     */
+    public void get(long location, Utf8Slice slice) {
+        ByteBuffer chunk = this.chunks.get((int)(location >>> 32));
+        int offset = (int)location;
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = chunk.get(offset++);
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        slice.set(chunk, offset, length);
+    }
+
+    /**
+     * @return The number of bytes used by the stored strings.
+     */
+    public synchronized long usedBytes() {
+        long result = 0;
+        for (ByteBuffer b : this.chunks)
+            result += b.position();
+        return result;
+    }
+
+    /**
+     * @return The number of bytes allocated for the buffers, including the unused ones.
+     */
+    public synchronized long allocatedBytes() {
+        long result = 0;
+        for (ByteBuffer b : this.chunks)
+            result += b.capacity();
+        return result;
+    }
+
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(this.chunks.size());
+        byte[] tmp = new byte[8192];
+        for (ByteBuffer chunk : this.chunks) {
+            ByteBuffer data = chunk.duplicate();
+            data.flip();
+            out.writeInt(data.remaining());
+            while (data.hasRemaining()) {
+                int n = Math.min(tmp.length, data.remaining());
+                data.get(tmp, 0, n);
+                out.write(tmp, 0, n);
+            }
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int count = in.readInt();
+        this.chunks = new ArrayList<ByteBuffer>(count);
+        byte[] tmp = new byte[8192];
+        for (int i = 0; i < count; i++) {
+            int used = in.readInt();
+            // The buffer is full, so later strings go to a new buffer.
+            ByteBuffer chunk = this.allocate(used);
+            while (chunk.hasRemaining()) {
+                int n = Math.min(tmp.length, chunk.remaining());
+                in.readFully(tmp, 0, n);
+                chunk.put(tmp, 0, n);
+            }
+            this.chunks.add(chunk);
+        }
+    }
+}
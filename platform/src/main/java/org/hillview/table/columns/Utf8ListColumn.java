@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.columns;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.api.*;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * A column of strings that can grow in size.  The strings are stored UTF-8 encoded
+ * in a Utf8Arena; each row only holds the location of its string.
+ * While the column has few distinct values each value is stored once, and the
+ * decoded strings are kept, so getString does not have to decode them.
+ */
+public class Utf8ListColumn extends BaseListColumn implements IUtf8Column {
+    /**
+     * Maximum number of distinct values that are deduplicated.
+     */
+    static final int dictionaryLimit = 1 << 12;
+
+    private final Utf8Arena arena;
+    /**
+     * Location of the string in each row; -1 for missing values.
+     */
+    private final ArrayList<long[]> segments;
+    /**
+     * Maps each value to its location while the column is built.
+     * Null when the column is sealed or when it has too many distinct values.
+     */
+    @Nullable
+    private Object2LongOpenHashMap<String> dictionary;
+    /**
+     * Maps each location to the decoded string; null if the column is not
+     * dictionary-encoded.
+     */
+    @Nullable
+    private Long2ObjectOpenHashMap<String> decoded;
+
+    public Utf8ListColumn(final ColumnDescription desc) {
+        this(desc, new Utf8Arena());
+    }
+
+    /**
+     * Create a column.
+     * @param desc   Column description.
+     * @param arena  Arena storing the strings, which may be shared with other columns.
+     */
+    public Utf8ListColumn(final ColumnDescription desc, final Utf8Arena arena) {
+        super(desc);
+        if ((desc.kind != ContentsKind.String) &&
+                (desc.kind != ContentsKind.Json) &&
+                (desc.kind != ContentsKind.Category))
+            throw new IllegalArgumentException("Unexpected column kind " + desc.kind);
+        this.arena = arena;
+        this.segments = new ArrayList<long []>();
+        this.dictionary = new Object2LongOpenHashMap<String>();
+        this.dictionary.defaultReturnValue(-1);
+        this.decoded = new Long2ObjectOpenHashMap<String>();
+    }
+
+    private Utf8ListColumn(ColumnDescription desc, Utf8ListColumn other) {
+        super(desc);
+        this.arena = other.arena;
+        this.segments = other.segments;
+        this.size = other.size;
+        this.dictionary = null;
+        this.decoded = other.decoded;
+    }
+
+    @Override
+    public IColumn seal() {
+        this.dictionary = null;
+        return this;
+    }
+
+    @Override
+    public long getLocation(final int rowIndex) {
+        final int segmentId = rowIndex >> LogSegmentSize;
+        final int localIndex = rowIndex & SegmentMask;
+        return this.segments.get(segmentId)[localIndex];
+    }
+
+    @Override
+    public boolean getSlice(final int rowIndex, final Utf8Slice slice) {
+        long location = this.getLocation(rowIndex);
+        if (location < 0)
+            return false;
+        this.arena.get(location, slice);
+        return true;
+    }
+
+    @Override
+    public boolean isDictionaryEncoded() {
+        return this.decoded != null;
+    }
+
+    @Nullable
+    @Override
+    public String getString(final int rowIndex) {
+        long location = this.getLocation(rowIndex);
+        if (location < 0)
+            return null;
+        if (this.decoded != null)
+            return this.decoded.get(location);
+        Utf8Slice slice = new Utf8Slice();
+        this.arena.get(location, slice);
+        return slice.toString();
+    }
+
+    @Override
+    void grow() {
+        this.segments.add(new long[SegmentSize]);
+        this.growMissing();
+    }
+
+    private long store(String value) {
+        if (this.dictionary != null) {
+            long location = this.dictionary.getLong(value);
+            if (location >= 0)
+                return location;
+            if (this.dictionary.size() < dictionaryLimit) {
+                location = this.arena.add(value.getBytes(StandardCharsets.UTF_8));
+                this.dictionary.put(value, location);
+                assert this.decoded != null;
+                this.decoded.put(location, value);
+                return location;
+            }
+            this.dictionary = null;
+            this.decoded = null;
+        }
+        return this.arena.add(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void append(@Nullable String value) {
+        final int segmentId = this.size >> LogSegmentSize;
+        final int localIndex = this.size & SegmentMask;
+        int segmentCount = this.segments.size();
+        if (segmentCount == segmentId)
+            this.grow();
+        else if (segmentCount != segmentId + 1)
+            throw new RuntimeException("Not appending in last segment: " + segmentId + "/" + segmentCount);
+
+        long[] segment = this.segments.get(segmentId);
+        segment[localIndex] = value == null ? -1 : this.store(value);
+        this.size++;
+    }
+
+    @Override
+    public boolean isMissing(final int rowIndex) {
+        return this.getLocation(rowIndex) < 0;
+    }
+
+    @Override
+    public IColumn rename(String newName) {
+        return new Utf8ListColumn(this.description.rename(newName), this);
+    }
+
+    @Override
+    public void appendMissing() {
+        this.append((String)null);
+    }
+
+    @Override
+    public void parseAndAppendString(@Nullable String s) {
+        this.append(s);
+    }
+
+    /**
+     * @return An estimate of the memory used by the column.  When the arena is
+     * shared the bytes of the other columns are counted as well.
+     */
+    long estimateBytes() {
+        return 8L * this.size + this.arena.allocatedBytes();
+    }
+}
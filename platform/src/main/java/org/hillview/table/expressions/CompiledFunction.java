@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.table.expressions;
+
+import org.hillview.table.Schema;
+import org.hillview.table.api.*;
+import org.hillview.utils.HillviewLogger;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A JavaScript function that computes a new column and which has been compiled
+ * into a tree of Expressions, which are evaluated over batches of rows, avoiding
+ * the cost of invoking the JavaScript engine for each row.  Only a subset of
+ * JavaScript can be compiled; see ExpressionParser.  The compiled function
+ * cannot evaluate rows where one of the columns it reads is missing; these
+ * rows must be evaluated by the JavaScript engine.
+ * This class is not thread-safe.
+ */
+public class CompiledFunction {
+    private final Expression expression;
+    private final ContentsKind outputKind;
+    /**
+     * Columns read by the expression.
+     */
+    private final List<ColumnAndConverter> inputs;
+    private final double[] numbers;
+    private final String[] strings;
+    private final boolean[] booleans;
+
+    private CompiledFunction(Expression expression, ContentsKind outputKind,
+                             List<ColumnAndConverter> inputs) {
+        this.expression = expression;
+        this.outputKind = outputKind;
+        this.inputs = inputs;
+        this.numbers = expression.isNumeric() ? Expression.doubles() : new double[0];
+        this.strings = expression.type == Expression.Type.String ?
+                Expression.strings() : new String[0];
+        this.booleans = expression.type == Expression.Type.Boolean ?
+                Expression.booleans() : new boolean[0];
+    }
+
+    private static boolean canProduce(Expression.Type type, ContentsKind kind) {
+        switch (kind) {
+            case Integer:
+            case Double:
+                return type == Expression.Type.Number;
+            case Category:
+            case String:
+            case Json:
+                return type == Expression.Type.String || type == Expression.Type.Boolean;
+            case Date:
+                return type == Expression.Type.Date;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Compile a JavaScript function.
+     * @param jsFunction     Source of the JavaScript function 'map'.
+     * @param table          Table the function is evaluated on.
+     * @param inputColumns   Columns that the function can access.
+     * @param columnRenameMap  Map from original column names to the names visible to the function.
+     * @param outputKind     Kind of the column produced.
+     * @return               The compiled function, or null if the function cannot be compiled.
+     */
+    @Nullable
+    public static CompiledFunction compile(
+            String jsFunction, ITable table, Schema inputColumns,
+            @Nullable HashMap<String, String> columnRenameMap, ContentsKind outputKind) {
+        Map<String, String> originalName = new HashMap<String, String>();
+        for (String name : inputColumns.getColumnNames()) {
+            String visible = name;
+            if (columnRenameMap != null && columnRenameMap.containsKey(name))
+                visible = columnRenameMap.get(name);
+            originalName.put(visible, name);
+        }
+
+        Map<String, ColumnAndConverter> inputs = new HashMap<String, ColumnAndConverter>();
+        Function<String, Expression> columns = visible -> {
+            String name = originalName.get(visible);
+            if (name == null)
+                return null;
+            ContentsKind kind = inputColumns.getKind(name);
+            if (kind != ContentsKind.Integer && kind != ContentsKind.Double &&
+                    kind != ContentsKind.Date && kind != ContentsKind.String &&
+                    kind != ContentsKind.Category && kind != ContentsKind.Json)
+                return null;
+            ColumnAndConverter column = inputs.computeIfAbsent(
+                    name, n -> table.getLoadedColumn(n));
+            switch (kind) {
+                case Integer:
+                case Double:
+                    return new Expression.NumberColumn(column, Expression.Type.Number);
+                case Date:
+                    return new Expression.NumberColumn(column, Expression.Type.Date);
+                default:
+                    return new Expression.StringColumn(column);
+            }
+        };
+        try {
+            ExpressionParser parser = new ExpressionParser(jsFunction, columns);
+            Expression expression = parser.parse();
+            if (!canProduce(expression.type, outputKind))
+                throw new ExpressionParser.UnsupportedException(
+                        "Cannot produce " + outputKind + " from " + expression.type);
+            return new CompiledFunction(expression, outputKind,
+                    new ArrayList<ColumnAndConverter>(inputs.values()));
+        } catch (ExpressionParser.UnsupportedException ex) {
+            HillviewLogger.instance.info("Function not compiled", "{0}", ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Evaluate the function on a batch of rows and write the results in the output column.
+     * @param rows      Rows to evaluate the function on.
+     * @param count     Number of rows in the rows array.
+     * @param output    Column where the results are written.
+     * @param fallback  For each row this is set to true if the row was not evaluated
+     *                  because some of its inputs are missing.
+     */
+    public void evaluate(int[] rows, int count, IMutableColumn output, boolean[] fallback) {
+        for (int i = 0; i < count; i++)
+            fallback[i] = false;
+        for (ColumnAndConverter input : this.inputs) {
+            for (int i = 0; i < count; i++)
+                if (input.isMissing(rows[i]))
+                    fallback[i] = true;
+        }
+
+        switch (this.expression.type) {
+            case Number:
+                this.expression.numbers(rows, count, this.numbers);
+                if (this.outputKind == ContentsKind.Integer) {
+                    for (int i = 0; i < count; i++)
+                        if (!fallback[i])
+                            output.set(rows[i], (int)this.numbers[i]);
+                } else {
+                    for (int i = 0; i < count; i++)
+                        if (!fallback[i])
+                            output.set(rows[i], this.numbers[i]);
+                }
+                break;
+            case Date:
+                this.expression.numbers(rows, count, this.numbers);
+                for (int i = 0; i < count; i++)
+                    // Dates are stored as integral numbers of milliseconds
+                    if (!fallback[i])
+                        output.set(rows[i], (double)(long)this.numbers[i]);
+                break;
+            case String:
+                this.expression.strings(rows, count, this.strings);
+                for (int i = 0; i < count; i++)
+                    if (!fallback[i])
+                        output.set(rows[i], this.strings[i]);
+                break;
+            case Boolean:
+                this.expression.booleans(rows, count, this.booleans);
+                for (int i = 0; i < count; i++)
+                    if (!fallback[i])
+                        output.set(rows[i], this.booleans[i] ? "true" : "false");
+                break;
+        }
+    }
+}
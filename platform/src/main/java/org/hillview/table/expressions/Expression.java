@@ -0,0 +1,799 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.table.expressions;
+
+import org.hillview.table.api.ColumnAndConverter;
+
+import javax.annotation.Nullable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * A compiled expression that is evaluated on batches of rows of a table.
+ * The semantics of all operations are the ones of the JavaScript operations
+ * they are compiled from, for inputs that are not missing.
+ */
+abstract class Expression {
+    enum Type {
+        Number,
+        String,
+        Boolean,
+        /**
+         * Dates are represented by the number of milliseconds since the epoch.
+         */
+        Date
+    }
+
+    final Type type;
+
+    Expression(Type type) {
+        this.type = type;
+    }
+
+    /**
+     * Evaluate a Number or Date expression.
+     * @param rows   Rows to evaluate the expression on.
+     * @param count  Number of rows in the rows array.
+     * @param out    Result for each row.
+     */
+    void numbers(int[] rows, int count, double[] out) {
+        throw new RuntimeException("Not a number: " + this.type);
+    }
+
+    void strings(int[] rows, int count, String[] out) {
+        throw new RuntimeException("Not a string: " + this.type);
+    }
+
+    void booleans(int[] rows, int count, boolean[] out) {
+        throw new RuntimeException("Not a boolean: " + this.type);
+    }
+
+    boolean isNumeric() {
+        return this.type == Type.Number || this.type == Type.Date;
+    }
+
+    static double[] doubles() {
+        return new double[ColumnAndConverter.batchSize];
+    }
+
+    static String[] strings() {
+        return new String[ColumnAndConverter.batchSize];
+    }
+
+    static boolean[] booleans() {
+        return new boolean[ColumnAndConverter.batchSize];
+    }
+
+    static class NumberConstant extends Expression {
+        final double value;
+
+        NumberConstant(double value) {
+            super(Type.Number);
+            this.value = value;
+        }
+
+        @Override
+        void numbers(int[] rows, int count, double[] out) {
+            for (int i = 0; i < count; i++)
+                out[i] = this.value;
+        }
+    }
+
+    static class StringConstant extends Expression {
+        final String value;
+
+        StringConstant(String value) {
+            super(Type.String);
+            this.value = value;
+        }
+
+        @Override
+        void strings(int[] rows, int count, String[] out) {
+            for (int i = 0; i < count; i++)
+                out[i] = this.value;
+        }
+    }
+
+    static class BooleanConstant extends Expression {
+        final boolean value;
+
+        BooleanConstant(boolean value) {
+            super(Type.Boolean);
+            this.value = value;
+        }
+
+        @Override
+        void booleans(int[] rows, int count, boolean[] out) {
+            for (int i = 0; i < count; i++)
+                out[i] = this.value;
+        }
+    }
+
+    /**
+     * A numeric or date column.
+     */
+    static class NumberColumn extends Expression {
+        final ColumnAndConverter column;
+        final boolean[] missing = booleans();
+
+        NumberColumn(ColumnAndConverter column, Type type) {
+            super(type);
+            this.column = column;
+        }
+
+        @Override
+        void numbers(int[] rows, int count, double[] out) {
+            this.column.asDoubles(rows, count, out, this.missing);
+        }
+    }
+
+    static class StringColumn extends Expression {
+        final ColumnAndConverter column;
+
+        StringColumn(ColumnAndConverter column) {
+            super(Type.String);
+            this.column = column;
+        }
+
+        @Override
+        void strings(int[] rows, int count, String[] out) {
+            for (int i = 0; i < count; i++) {
+                String s = this.column.getString(rows[i]);
+                // Rows with missing values are not evaluated; avoid nulls.
+                out[i] = s == null ? "" : s;
+            }
+        }
+    }
+
+    static class Arithmetic extends Expression {
+        final char op;
+        final Expression left;
+        final Expression right;
+        final double[] rightValues = doubles();
+
+        Arithmetic(char op, Expression left, Expression right) {
+            super(Type.Number);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        void numbers(int[] rows, int count, double[] out) {
+            this.left.numbers(rows, count, out);
+            this.right.numbers(rows, count, this.rightValues);
+            final double[] r = this.rightValues;
+            switch (this.op) {
+                case '+':
+                    for (int i = 0; i < count; i++)
+                        out[i] += r[i];
+                    break;
+                case '-':
+                    for (int i = 0; i < count; i++)
+                        out[i] -= r[i];
+                    break;
+                case '*':
+                    for (int i = 0; i < count; i++)
+                        out[i] *= r[i];
+                    break;
+                case '/':
+                    for (int i = 0; i < count; i++)
+                        out[i] /= r[i];
+                    break;
+                case '%':
+                    for (int i = 0; i < count; i++)
+                        out[i] %= r[i];
+                    break;
+                default:
+                    throw new RuntimeException("Unexpected operation " + this.op);
+            }
+        }
+    }
+
+    static class Negate extends Expression {
+        final Expression operand;
+
+        Negate(Expression operand) {
+            super(Type.Number);
+            this.operand = operand;
+        }
+
+        @Override
+        void numbers(int[] rows, int count, double[] out) {
+            this.operand.numbers(rows, count, out);
+            for (int i = 0; i < count; i++)
+                out[i] = -out[i];
+        }
+    }
+
+    static class Concat extends Expression {
+        final Expression left;
+        final Expression right;
+        final String[] rightValues = strings();
+
+        Concat(Expression left, Expression right) {
+            super(Type.String);
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        void strings(int[] rows, int count, String[] out) {
+            this.left.strings(rows, count, out);
+            this.right.strings(rows, count, this.rightValues);
+            for (int i = 0; i < count; i++)
+                out[i] = out[i].concat(this.rightValues[i]);
+        }
+    }
+
+    /**
+     * Comparison of two values of the same type.
+     */
+    static class Compare extends Expression {
+        final String op;
+        final Expression left;
+        final Expression right;
+        final double[] leftNumbers;
+        final double[] rightNumbers;
+        final String[] leftStrings;
+        final String[] rightStrings;
+        final boolean[] rightBooleans;
+
+        Compare(String op, Expression left, Expression right) {
+            super(Type.Boolean);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+            boolean numeric = left.isNumeric();
+            this.leftNumbers = numeric ? doubles() : new double[0];
+            this.rightNumbers = numeric ? doubles() : new double[0];
+            boolean string = left.type == Type.String;
+            this.leftStrings = string ? strings() : new String[0];
+            this.rightStrings = string ? strings() : new String[0];
+            this.rightBooleans = left.type == Type.Boolean ? booleans() : new boolean[0];
+        }
+
+        @Override
+        void booleans(int[] rows, int count, boolean[] out) {
+            switch (this.left.type) {
+                case Number:
+                case Date: {
+                    this.left.numbers(rows, count, this.leftNumbers);
+                    this.right.numbers(rows, count, this.rightNumbers);
+                    final double[] l = this.leftNumbers;
+                    final double[] r = this.rightNumbers;
+                    switch (this.op) {
+                        case "==":
+                            for (int i = 0; i < count; i++)
+                                out[i] = l[i] == r[i];
+                            break;
+                        case "!=":
+                            for (int i = 0; i < count; i++)
+                                out[i] = l[i] != r[i];
+                            break;
+                        case "<":
+                            for (int i = 0; i < count; i++)
+                                out[i] = l[i] < r[i];
+                            break;
+                        case "<=":
+                            for (int i = 0; i < count; i++)
+                                out[i] = l[i] <= r[i];
+                            break;
+                        case ">":
+                            for (int i = 0; i < count; i++)
+                                out[i] = l[i] > r[i];
+                            break;
+                        case ">=":
+                            for (int i = 0; i < count; i++)
+                                out[i] = l[i] >= r[i];
+                            break;
+                        default:
+                            throw new RuntimeException("Unexpected comparison " + this.op);
+                    }
+                    break;
+                }
+                case String: {
+                    this.left.strings(rows, count, this.leftStrings);
+                    this.right.strings(rows, count, this.rightStrings);
+                    for (int i = 0; i < count; i++) {
+                        int c = this.leftStrings[i].compareTo(this.rightStrings[i]);
+                        out[i] = compare(this.op, c);
+                    }
+                    break;
+                }
+                case Boolean: {
+                    this.left.booleans(rows, count, out);
+                    this.right.booleans(rows, count, this.rightBooleans);
+                    boolean equal = this.op.equals("==");
+                    for (int i = 0; i < count; i++)
+                        out[i] = (out[i] == this.rightBooleans[i]) == equal;
+                    break;
+                }
+            }
+        }
+
+        static boolean compare(String op, int comparison) {
+            switch (op) {
+                case "==":
+                    return comparison == 0;
+                case "!=":
+                    return comparison != 0;
+                case "<":
+                    return comparison < 0;
+                case "<=":
+                    return comparison <= 0;
+                case ">":
+                    return comparison > 0;
+                case ">=":
+                    return comparison >= 0;
+                default:
+                    throw new RuntimeException("Unexpected comparison " + op);
+            }
+        }
+    }
+
+    static class Logical extends Expression {
+        final boolean and;
+        final Expression left;
+        final Expression right;
+        final boolean[] rightValues = booleans();
+
+        Logical(boolean and, Expression left, Expression right) {
+            super(Type.Boolean);
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        void booleans(int[] rows, int count, boolean[] out) {
+            // The operands have no side effects, so both can be evaluated.
+            this.left.booleans(rows, count, out);
+            this.right.booleans(rows, count, this.rightValues);
+            if (this.and) {
+                for (int i = 0; i < count; i++)
+                    out[i] &= this.rightValues[i];
+            } else {
+                for (int i = 0; i < count; i++)
+                    out[i] |= this.rightValues[i];
+            }
+        }
+    }
+
+    static class Not extends Expression {
+        final Expression operand;
+
+        Not(Expression operand) {
+            super(Type.Boolean);
+            this.operand = operand;
+        }
+
+        @Override
+        void booleans(int[] rows, int count, boolean[] out) {
+            this.operand.booleans(rows, count, out);
+            for (int i = 0; i < count; i++)
+                out[i] = !out[i];
+        }
+    }
+
+    /**
+     * The ?: operator; both alternatives have the same type.
+     */
+    static class Conditional extends Expression {
+        final Expression condition;
+        final Expression ifTrue;
+        final Expression ifFalse;
+        final boolean[] conditionValues = booleans();
+        final double[] numberValues;
+        final String[] stringValues;
+        final boolean[] booleanValues;
+
+        Conditional(Expression condition, Expression ifTrue, Expression ifFalse) {
+            super(ifTrue.type);
+            this.condition = condition;
+            this.ifTrue = ifTrue;
+            this.ifFalse = ifFalse;
+            this.numberValues = ifTrue.isNumeric() ? doubles() : new double[0];
+            this.stringValues = ifTrue.type == Type.String ? strings() : new String[0];
+            this.booleanValues = ifTrue.type == Type.Boolean ? booleans() : new boolean[0];
+        }
+
+        @Override
+        void numbers(int[] rows, int count, double[] out) {
+            this.condition.booleans(rows, count, this.conditionValues);
+            this.ifTrue.numbers(rows, count, out);
+            this.ifFalse.numbers(rows, count, this.numberValues);
+            for (int i = 0; i < count; i++)
+                if (!this.conditionValues[i])
+                    out[i] = this.numberValues[i];
+        }
+
+        @Override
+        void strings(int[] rows, int count, String[] out) {
+            this.condition.booleans(rows, count, this.conditionValues);
+            this.ifTrue.strings(rows, count, out);
+            this.ifFalse.strings(rows, count, this.stringValues);
+            for (int i = 0; i < count; i++)
+                if (!this.conditionValues[i])
+                    out[i] = this.stringValues[i];
+        }
+
+        @Override
+        void booleans(int[] rows, int count, boolean[] out) {
+            this.condition.booleans(rows, count, this.conditionValues);
+            this.ifTrue.booleans(rows, count, out);
+            this.ifFalse.booleans(rows, count, this.booleanValues);
+            for (int i = 0; i < count; i++)
+                if (!this.conditionValues[i])
+                    out[i] = this.booleanValues[i];
+        }
+    }
+
+    /**
+     * A function of the JavaScript Math object.
+     */
+    static class MathFunction extends Expression {
+        final String function;
+        final Expression[] arguments;
+        final double[] second;
+
+        MathFunction(String function, Expression[] arguments) {
+            super(Type.Number);
+            this.function = function;
+            this.arguments = arguments;
+            this.second = arguments.length > 1 ? doubles() : new double[0];
+        }
+
+        static int argumentCount(String function) {
+            switch (function) {
+                case "abs":
+                case "floor":
+                case "ceil":
+                case "round":
+                case "sqrt":
+                case "log":
+                case "exp":
+                    return 1;
+                case "pow":
+                case "min":
+                case "max":
+                    return 2;
+                default:
+                    return -1;
+            }
+        }
+
+        /**
+         * JavaScript rounds halfway cases towards +Infinity.
+         */
+        static double round(double d) {
+            double r = Math.floor(d);
+            if (d - r >= 0.5)
+                r += 1;
+            return r;
+        }
+
+        @Override
+        void numbers(int[] rows, int count, double[] out) {
+            this.arguments[0].numbers(rows, count, out);
+            if (this.arguments.length > 1)
+                this.arguments[1].numbers(rows, count, this.second);
+            final double[] s = this.second;
+            switch (this.function) {
+                case "abs":
+                    for (int i = 0; i < count; i++)
+                        out[i] = Math.abs(out[i]);
+                    break;
+                case "floor":
+                    for (int i = 0; i < count; i++)
+                        out[i] = Math.floor(out[i]);
+                    break;
+                case "ceil":
+                    for (int i = 0; i < count; i++)
+                        out[i] = Math.ceil(out[i]);
+                    break;
+                case "round":
+                    for (int i = 0; i < count; i++)
+                        out[i] = round(out[i]);
+                    break;
+                case "sqrt":
+                    for (int i = 0; i < count; i++)
+                        out[i] = Math.sqrt(out[i]);
+                    break;
+                case "log":
+                    for (int i = 0; i < count; i++)
+                        out[i] = Math.log(out[i]);
+                    break;
+                case "exp":
+                    for (int i = 0; i < count; i++)
+                        out[i] = Math.exp(out[i]);
+                    break;
+                case "pow":
+                    for (int i = 0; i < count; i++)
+                        out[i] = Math.pow(out[i], s[i]);
+                    break;
+                case "min":
+                    for (int i = 0; i < count; i++)
+                        out[i] = Math.min(out[i], s[i]);
+                    break;
+                case "max":
+                    for (int i = 0; i < count; i++)
+                        out[i] = Math.max(out[i], s[i]);
+                    break;
+                default:
+                    throw new RuntimeException("Unexpected function " + this.function);
+            }
+        }
+    }
+
+    static class StringLength extends Expression {
+        final Expression string;
+        final String[] values = strings();
+
+        StringLength(Expression string) {
+            super(Type.Number);
+            this.string = string;
+        }
+
+        @Override
+        void numbers(int[] rows, int count, double[] out) {
+            this.string.strings(rows, count, this.values);
+            for (int i = 0; i < count; i++)
+                out[i] = this.values[i].length();
+        }
+    }
+
+    static class ChangeCase extends Expression {
+        final boolean upper;
+        final Expression string;
+
+        ChangeCase(boolean upper, Expression string) {
+            super(Type.String);
+            this.upper = upper;
+            this.string = string;
+        }
+
+        @Override
+        void strings(int[] rows, int count, String[] out) {
+            this.string.strings(rows, count, out);
+            for (int i = 0; i < count; i++)
+                out[i] = this.upper ? out[i].toUpperCase(Locale.ROOT) : out[i].toLowerCase(Locale.ROOT);
+        }
+    }
+
+    static class IndexOf extends Expression {
+        final Expression string;
+        final Expression search;
+        final String[] values = strings();
+        final String[] searched = strings();
+
+        IndexOf(Expression string, Expression search) {
+            super(Type.Number);
+            this.string = string;
+            this.search = search;
+        }
+
+        @Override
+        void numbers(int[] rows, int count, double[] out) {
+            this.string.strings(rows, count, this.values);
+            this.search.strings(rows, count, this.searched);
+            for (int i = 0; i < count; i++)
+                out[i] = this.values[i].indexOf(this.searched[i]);
+        }
+    }
+
+    /**
+     * The JavaScript substring method, which clamps its arguments
+     * and swaps them if they are out of order.
+     */
+    static class Substring extends Expression {
+        final Expression string;
+        final Expression start;
+        /**
+         * If null the substring extends to the end of the string.
+         */
+        @Nullable
+        final Expression end;
+        final double[] starts = doubles();
+        final double[] ends;
+
+        Substring(Expression string, Expression start, @Nullable Expression end) {
+            super(Type.String);
+            this.string = string;
+            this.start = start;
+            this.end = end;
+            this.ends = end != null ? doubles() : new double[0];
+        }
+
+        static int clamp(double d, int length) {
+            if (Double.isNaN(d) || d < 0)
+                return 0;
+            return d > length ? length : (int)d;
+        }
+
+        @Override
+        void strings(int[] rows, int count, String[] out) {
+            this.string.strings(rows, count, out);
+            this.start.numbers(rows, count, this.starts);
+            if (this.end != null)
+                this.end.numbers(rows, count, this.ends);
+            for (int i = 0; i < count; i++) {
+                String s = out[i];
+                int from = clamp(this.starts[i], s.length());
+                int to = this.end != null ? clamp(this.ends[i], s.length()) : s.length();
+                out[i] = s.substring(Math.min(from, to), Math.max(from, to));
+            }
+        }
+    }
+
+    /**
+     * Methods of JavaScript Date objects that return a component of the date.
+     * The methods without UTC in the name use the local time zone, like JavaScript.
+     */
+    static class DateComponent extends Expression {
+        final String method;
+        final Expression date;
+        final TimeZone zone = TimeZone.getDefault();
+
+        DateComponent(String method, Expression date) {
+            super(Type.Number);
+            this.method = method;
+            this.date = date;
+        }
+
+        static boolean isComponent(String method) {
+            switch (method.replace("UTC", "")) {
+                case "getFullYear":
+                case "getMonth":
+                case "getDate":
+                case "getDay":
+                case "getHours":
+                case "getMinutes":
+                case "getSeconds":
+                case "getMilliseconds":
+                    return true;
+                default:
+                    return method.equals("getTime") || method.equals("valueOf");
+            }
+        }
+
+        @Override
+        void numbers(int[] rows, int count, double[] out) {
+            this.date.numbers(rows, count, out);
+            if (this.method.equals("getTime") || this.method.equals("valueOf"))
+                return;
+            boolean utc = this.method.contains("UTC");
+            String component = this.method.replace("UTC", "");
+            for (int i = 0; i < count; i++) {
+                double d = out[i];
+                if (Double.isNaN(d))
+                    continue;
+                long millis = (long)d;
+                if (!utc)
+                    millis += this.zone.getOffset(millis);
+                LocalDateTime time = LocalDateTime.ofEpochSecond(
+                        Math.floorDiv(millis, 1000), 0, ZoneOffset.UTC);
+                switch (component) {
+                    case "getFullYear":
+                        out[i] = time.getYear();
+                        break;
+                    case "getMonth":
+                        out[i] = time.getMonthValue() - 1;
+                        break;
+                    case "getDate":
+                        out[i] = time.getDayOfMonth();
+                        break;
+                    case "getDay":
+                        out[i] = time.getDayOfWeek().getValue() % 7;
+                        break;
+                    case "getHours":
+                        out[i] = time.getHour();
+                        break;
+                    case "getMinutes":
+                        out[i] = time.getMinute();
+                        break;
+                    case "getSeconds":
+                        out[i] = time.getSecond();
+                        break;
+                    case "getMilliseconds":
+                        out[i] = Math.floorMod(millis, 1000);
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * The JavaScript Date constructor.  With one argument it is a number of
+     * milliseconds or a date; with more it has the components of a local time:
+     * year, month (from 0), day, hours, minutes, seconds, milliseconds.
+     */
+    static class NewDate extends Expression {
+        final Expression[] arguments;
+        final double[][] values;
+        final TimeZone zone = TimeZone.getDefault();
+
+        NewDate(Expression[] arguments) {
+            super(Type.Date);
+            this.arguments = arguments;
+            this.values = new double[arguments.length][];
+            for (int i = 1; i < arguments.length; i++)
+                this.values[i] = doubles();
+        }
+
+        static double integer(double d) {
+            return d < 0 ? Math.ceil(d) : Math.floor(d);
+        }
+
+        /**
+         * The time in UTC corresponding to a local time; same algorithm as Nashorn.
+         */
+        double utc(double local) {
+            double raw = local - this.zone.getRawOffset();
+            return raw - this.zone.getOffset((long)raw) + this.zone.getRawOffset();
+        }
+
+        double makeDate(double[] components) {
+            for (double c : components)
+                if (Double.isNaN(c) || Double.isInfinite(c))
+                    return Double.NaN;
+            double year = integer(components[0]);
+            if (0 <= year && year <= 99)
+                year += 1900;
+            double month = integer(components[1]);
+            double y = year + Math.floor(month / 12);
+            double m = month - Math.floor(month / 12) * 12;
+            if (Math.abs(y) > 400000)
+                return Double.NaN;
+            long day = LocalDate.of((int)y, (int)m + 1, 1).toEpochDay();
+            double days = day + integer(components[2]) - 1;
+            double time = integer(components[3]) * 3600000 + integer(components[4]) * 60000 +
+                    integer(components[5]) * 1000 + integer(components[6]);
+            double result = this.utc(days * 86400000 + time);
+            if (Math.abs(result) > 8.64e15)
+                return Double.NaN;
+            return integer(result);
+        }
+
+        @Override
+        void numbers(int[] rows, int count, double[] out) {
+            this.arguments[0].numbers(rows, count, out);
+            if (this.arguments.length == 1) {
+                // Time values are integers
+                for (int i = 0; i < count; i++) {
+                    double d = out[i];
+                    out[i] = Double.isNaN(d) || Math.abs(d) > 8.64e15 ? Double.NaN : integer(d);
+                }
+                return;
+            }
+            for (int a = 1; a < this.arguments.length; a++)
+                this.arguments[a].numbers(rows, count, this.values[a]);
+            // Missing components: day 1, time 0
+            double[] components = new double[] { 0, 0, 1, 0, 0, 0, 0 };
+            for (int i = 0; i < count; i++) {
+                components[0] = out[i];
+                for (int a = 1; a < this.arguments.length; a++)
+                    components[a] = this.values[a][i];
+                out[i] = this.makeDate(components);
+            }
+        }
+    }
+}
@@ -0,0 +1,508 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.table.expressions;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Parses a subset of JavaScript into an Expression.  The accepted programs
+ * have the shape
+ *     function map(row) { return expression; }
+ * where the expression uses literals, the columns of the row, arithmetic,
+ * comparisons, logical operators, the ?: operator, some functions of the
+ * Math object, some methods of strings and dates, and the Date constructor.
+ * Any program that is outside of this subset, or that is not well-typed,
+ * causes an UnsupportedException.
+ */
+class ExpressionParser {
+    /**
+     * Thrown for programs that cannot be compiled.
+     */
+    static class UnsupportedException extends RuntimeException {
+        UnsupportedException(String message) {
+            super(message);
+        }
+    }
+
+    private enum TokenKind {
+        Identifier,
+        Number,
+        String,
+        Punctuation,
+        End
+    }
+
+    private static class Token {
+        final TokenKind kind;
+        final String text;
+        final double number;
+
+        Token(TokenKind kind, String text, double number) {
+            this.kind = kind;
+            this.text = text;
+            this.number = number;
+        }
+
+        boolean is(String text) {
+            return (this.kind == TokenKind.Punctuation || this.kind == TokenKind.Identifier) &&
+                    this.text.equals(text);
+        }
+
+        @Override
+        public String toString() {
+            return this.text;
+        }
+    }
+
+    /**
+     * Punctuation sorted so that longer operators are matched first.
+     */
+    private static final String[] punctuation = {
+            "===", "!==", "==", "!=", "<=", ">=", "&&", "||",
+            "<", ">", "+", "-", "*", "/", "%", "!", "?", ":",
+            "(", ")", "[", "]", "{", "}", ".", ",", ";"
+    };
+
+    private final List<Token> tokens;
+    private int position;
+    /**
+     * Returns the expression reading a column given its visible name, or null if
+     * there is no such column.
+     */
+    private final Function<String, Expression> columns;
+    @Nullable
+    private String rowVariable;
+
+    ExpressionParser(String program, Function<String, Expression> columns) {
+        this.tokens = tokenize(program);
+        this.position = 0;
+        this.columns = columns;
+        this.rowVariable = null;
+    }
+
+    private static List<Token> tokenize(String program) {
+        List<Token> result = new ArrayList<Token>();
+        int i = 0;
+        final int length = program.length();
+        while (i < length) {
+            char c = program.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '/' && i + 1 < length && program.charAt(i + 1) == '/') {
+                while (i < length && program.charAt(i) != '\n')
+                    i++;
+            } else if (c == '/' && i + 1 < length && program.charAt(i + 1) == '*') {
+                int end = program.indexOf("*/", i + 2);
+                if (end < 0)
+                    throw new UnsupportedException("Unterminated comment");
+                i = end + 2;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < length && Character.isJavaIdentifierPart(program.charAt(i)))
+                    i++;
+                result.add(new Token(TokenKind.Identifier, program.substring(start, i), 0));
+            } else if (Character.isDigit(c) ||
+                    (c == '.' && i + 1 < length && Character.isDigit(program.charAt(i + 1)))) {
+                int start = i;
+                while (i < length && (Character.isDigit(program.charAt(i)) || program.charAt(i) == '.'))
+                    i++;
+                if (i < length && (program.charAt(i) == 'e' || program.charAt(i) == 'E')) {
+                    i++;
+                    if (i < length && (program.charAt(i) == '+' || program.charAt(i) == '-'))
+                        i++;
+                    while (i < length && Character.isDigit(program.charAt(i)))
+                        i++;
+                }
+                if (i < length && Character.isJavaIdentifierPart(program.charAt(i)))
+                    // e.g., hexadecimal numbers
+                    throw new UnsupportedException("Unsupported number " + program.substring(start, i + 1));
+                String text = program.substring(start, i);
+                double value;
+                try {
+                    value = Double.parseDouble(text);
+                } catch (NumberFormatException ex) {
+                    throw new UnsupportedException("Cannot parse number " + text);
+                }
+                result.add(new Token(TokenKind.Number, text, value));
+            } else if (c == '\'' || c == '"') {
+                StringBuilder builder = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= length)
+                        throw new UnsupportedException("Unterminated string");
+                    char s = program.charAt(i++);
+                    if (s == c)
+                        break;
+                    if (s == '\\') {
+                        if (i >= length)
+                            throw new UnsupportedException("Unterminated string");
+                        char e = program.charAt(i++);
+                        switch (e) {
+                            case 'n': builder.append('\n'); break;
+                            case 't': builder.append('\t'); break;
+                            case 'r': builder.append('\r'); break;
+                            case '\\':
+                            case '\'':
+                            case '"':
+                                builder.append(e);
+                                break;
+                            default:
+                                throw new UnsupportedException("Unsupported escape \\" + e);
+                        }
+                    } else {
+                        builder.append(s);
+                    }
+                }
+                result.add(new Token(TokenKind.String, builder.toString(), 0));
+            } else {
+                String op = null;
+                for (String p : punctuation) {
+                    if (program.startsWith(p, i)) {
+                        op = p;
+                        break;
+                    }
+                }
+                if (op == null)
+                    throw new UnsupportedException("Unexpected character " + c);
+                result.add(new Token(TokenKind.Punctuation, op, 0));
+                i += op.length();
+            }
+        }
+        result.add(new Token(TokenKind.End, "end of program", 0));
+        return result;
+    }
+
+    private Token peek() {
+        return this.tokens.get(this.position);
+    }
+
+    private Token next() {
+        Token result = this.tokens.get(this.position);
+        if (result.kind != TokenKind.End)
+            this.position++;
+        return result;
+    }
+
+    private boolean accept(String text) {
+        if (this.peek().is(text)) {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String text) {
+        if (!this.accept(text))
+            throw new UnsupportedException("Expected " + text + " not " + this.peek());
+    }
+
+    private String identifier() {
+        Token token = this.next();
+        if (token.kind != TokenKind.Identifier)
+            throw new UnsupportedException("Expected an identifier not " + token);
+        return token.text;
+    }
+
+    private static void check(Expression e, Expression.Type type, String operation) {
+        if (e.type != type)
+            throw new UnsupportedException(operation + " applied to " + e.type);
+    }
+
+    /**
+     * Parse the function called 'map'.
+     */
+    Expression parse() {
+        this.expect("function");
+        String name = this.identifier();
+        if (!name.equals("map"))
+            throw new UnsupportedException("Function is not called map");
+        this.expect("(");
+        this.rowVariable = this.identifier();
+        this.expect(")");
+        this.expect("{");
+        this.expect("return");
+        Expression result = this.conditional();
+        this.accept(";");
+        this.expect("}");
+        this.accept(";");
+        if (this.peek().kind != TokenKind.End)
+            throw new UnsupportedException("Unexpected " + this.peek());
+        return result;
+    }
+
+    private Expression conditional() {
+        Expression condition = this.or();
+        if (!this.accept("?"))
+            return condition;
+        check(condition, Expression.Type.Boolean, "?:");
+        Expression ifTrue = this.conditional();
+        this.expect(":");
+        Expression ifFalse = this.conditional();
+        if (ifTrue.type != ifFalse.type)
+            throw new UnsupportedException("?: with different types " +
+                    ifTrue.type + " and " + ifFalse.type);
+        return new Expression.Conditional(condition, ifTrue, ifFalse);
+    }
+
+    private Expression or() {
+        Expression left = this.and();
+        while (this.accept("||")) {
+            Expression right = this.and();
+            check(left, Expression.Type.Boolean, "||");
+            check(right, Expression.Type.Boolean, "||");
+            left = new Expression.Logical(false, left, right);
+        }
+        return left;
+    }
+
+    private Expression and() {
+        Expression left = this.equality();
+        while (this.accept("&&")) {
+            Expression right = this.equality();
+            check(left, Expression.Type.Boolean, "&&");
+            check(right, Expression.Type.Boolean, "&&");
+            left = new Expression.Logical(true, left, right);
+        }
+        return left;
+    }
+
+    private Expression equality() {
+        Expression left = this.relational();
+        while (true) {
+            Token op = this.peek();
+            if (!op.is("==") && !op.is("!=") && !op.is("===") && !op.is("!=="))
+                return left;
+            this.next();
+            Expression right = this.relational();
+            // Dates are objects, which are compared by reference
+            if (left.type != right.type || left.type == Expression.Type.Date)
+                throw new UnsupportedException(op + " applied to " + left.type + " and " + right.type);
+            String comparison = op.text.startsWith("!") ? "!=" : "==";
+            left = new Expression.Compare(comparison, left, right);
+        }
+    }
+
+    private Expression relational() {
+        Expression left = this.additive();
+        while (true) {
+            Token op = this.peek();
+            if (!op.is("<") && !op.is("<=") && !op.is(">") && !op.is(">="))
+                return left;
+            this.next();
+            Expression right = this.additive();
+            if (left.type != right.type || left.type == Expression.Type.Boolean)
+                throw new UnsupportedException(op + " applied to " + left.type + " and " + right.type);
+            left = new Expression.Compare(op.text, left, right);
+        }
+    }
+
+    private Expression additive() {
+        Expression left = this.multiplicative();
+        while (true) {
+            Token op = this.peek();
+            if (!op.is("+") && !op.is("-"))
+                return left;
+            this.next();
+            Expression right = this.multiplicative();
+            if (op.is("+") && left.type == Expression.Type.String &&
+                    right.type == Expression.Type.String) {
+                left = new Expression.Concat(left, right);
+            } else {
+                check(left, Expression.Type.Number, op.text);
+                check(right, Expression.Type.Number, op.text);
+                left = new Expression.Arithmetic(op.text.charAt(0), left, right);
+            }
+        }
+    }
+
+    private Expression multiplicative() {
+        Expression left = this.unary();
+        while (true) {
+            Token op = this.peek();
+            if (!op.is("*") && !op.is("/") && !op.is("%"))
+                return left;
+            this.next();
+            Expression right = this.unary();
+            check(left, Expression.Type.Number, op.text);
+            check(right, Expression.Type.Number, op.text);
+            left = new Expression.Arithmetic(op.text.charAt(0), left, right);
+        }
+    }
+
+    private Expression unary() {
+        if (this.accept("-")) {
+            Expression operand = this.unary();
+            check(operand, Expression.Type.Number, "-");
+            if (operand instanceof Expression.NumberConstant)
+                return new Expression.NumberConstant(-((Expression.NumberConstant)operand).value);
+            return new Expression.Negate(operand);
+        }
+        if (this.accept("+")) {
+            Expression operand = this.unary();
+            check(operand, Expression.Type.Number, "+");
+            return operand;
+        }
+        if (this.accept("!")) {
+            Expression operand = this.unary();
+            check(operand, Expression.Type.Boolean, "!");
+            return new Expression.Not(operand);
+        }
+        return this.postfix();
+    }
+
+    private Expression[] arguments() {
+        this.expect("(");
+        List<Expression> result = new ArrayList<Expression>();
+        if (!this.accept(")")) {
+            do {
+                result.add(this.conditional());
+            } while (this.accept(","));
+            this.expect(")");
+        }
+        return result.toArray(new Expression[0]);
+    }
+
+    private Expression postfix() {
+        Expression result = this.primary();
+        while (true) {
+            if (this.peek().is("[")) {
+                throw new UnsupportedException("Unsupported indexing");
+            } else if (this.accept(".")) {
+                String member = this.identifier();
+                if (member.equals("length") && !this.peek().is("(")) {
+                    check(result, Expression.Type.String, member);
+                    result = new Expression.StringLength(result);
+                    continue;
+                }
+                Expression[] args = this.arguments();
+                result = this.method(result, member, args);
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private Expression method(Expression object, String method, Expression[] args) {
+        if (object.type == Expression.Type.String) {
+            switch (method) {
+                case "toUpperCase":
+                case "toLowerCase":
+                    if (args.length == 0)
+                        return new Expression.ChangeCase(method.equals("toUpperCase"), object);
+                    break;
+                case "substring":
+                    if (args.length == 1 || args.length == 2) {
+                        for (Expression a : args)
+                            check(a, Expression.Type.Number, method);
+                        return new Expression.Substring(
+                                object, args[0], args.length == 2 ? args[1] : null);
+                    }
+                    break;
+                case "indexOf":
+                    if (args.length == 1) {
+                        check(args[0], Expression.Type.String, method);
+                        return new Expression.IndexOf(object, args[0]);
+                    }
+                    break;
+            }
+        } else if (object.type == Expression.Type.Date) {
+            if (args.length == 0 && Expression.DateComponent.isComponent(method))
+                return new Expression.DateComponent(method, object);
+        }
+        throw new UnsupportedException("Unsupported method " + method + " of " + object.type);
+    }
+
+    private Expression primary() {
+        Token token = this.next();
+        switch (token.kind) {
+            case Number:
+                return new Expression.NumberConstant(token.number);
+            case String:
+                return new Expression.StringConstant(token.text);
+            case Punctuation:
+                if (token.is("(")) {
+                    Expression result = this.conditional();
+                    this.expect(")");
+                    return result;
+                }
+                break;
+            case Identifier:
+                switch (token.text) {
+                    case "true":
+                        return new Expression.BooleanConstant(true);
+                    case "false":
+                        return new Expression.BooleanConstant(false);
+                    case "Math":
+                        return this.math();
+                    case "new":
+                        return this.newDate();
+                }
+                if (token.text.equals(this.rowVariable))
+                    return this.column();
+                break;
+        }
+        throw new UnsupportedException("Unexpected " + token);
+    }
+
+    private Expression column() {
+        String name;
+        if (this.accept("[")) {
+            Token token = this.next();
+            if (token.kind != TokenKind.String)
+                throw new UnsupportedException("Column name is not a string constant");
+            name = token.text;
+            this.expect("]");
+        } else {
+            this.expect(".");
+            name = this.identifier();
+        }
+        Expression result = this.columns.apply(name);
+        if (result == null)
+            throw new UnsupportedException("Unsupported column " + name);
+        return result;
+    }
+
+    private Expression math() {
+        this.expect(".");
+        String function = this.identifier();
+        Expression[] args = this.arguments();
+        if (Expression.MathFunction.argumentCount(function) != args.length)
+            throw new UnsupportedException("Unsupported function Math." + function);
+        for (Expression a : args)
+            check(a, Expression.Type.Number, "Math." + function);
+        return new Expression.MathFunction(function, args);
+    }
+
+    private Expression newDate() {
+        this.expect("Date");
+        Expression[] args = this.arguments();
+        if (args.length == 1) {
+            if (args[0].type == Expression.Type.Date)
+                return args[0];
+            check(args[0], Expression.Type.Number, "new Date");
+            return new Expression.NewDate(args);
+        }
+        if (args.length < 2 || args.length > 7)
+            throw new UnsupportedException("Unsupported Date constructor");
+        for (Expression a : args)
+            check(a, Expression.Type.Number, "new Date");
+        return new Expression.NewDate(args);
+    }
+}
@@ -25,6 +25,8 @@ import org.hillview.table.api.ITableFilter;
 public class AndFilter implements ITableFilter {
     private final ITableFilter first;
     private final ITableFilter second;
+    private final BatchBuffers buffers = new BatchBuffers();
+    private boolean[] secondSelected = new boolean[0];
 
     AndFilter(ITableFilter first, ITableFilter second) {
         this.first = first;
@@ -35,6 +37,33 @@ public class AndFilter implements ITableFilter {
         return this.first.test(rowIndex) && this.second.test(rowIndex);
     }
 
+    /**
+     * The second filter only tests the rows selected by the first one.
+     */
+    @Override
+    public void test(int[] rows, int count, boolean[] selected) {
+        this.first.test(rows, count, selected);
+        final int[] remaining = this.buffers.ints(count);
+        int remainingCount = 0;
+        for (int i = 0; i < count; i++)
+            if (selected[i])
+                remaining[remainingCount++] = rows[i];
+        if (remainingCount == 0)
+            return;
+        if (this.secondSelected.length < remainingCount)
+            this.secondSelected = new boolean[Math.max(remainingCount, count)];
+        this.second.test(remaining, remainingCount, this.secondSelected);
+        int next = 0;
+        for (int i = 0; i < count; i++)
+            if (selected[i])
+                selected[i] = this.secondSelected[next++];
+    }
+
+    @Override
+    public BlockResult testBlock(int block) {
+        return this.first.testBlock(block).and(this.second.testBlock(block));
+    }
+
     public String toString() {
         return "FilterAnd(" + this.first.toString() + " && " + this.second.toString() + ")";
     }
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.filters;
+
+import org.hillview.table.api.ColumnAndConverter;
+
+/**
+ * Scratch arrays reused by a filter for all the batches of rows it tests.
+ * A filter is used by a single thread, so the arrays are not shared.
+ */
+final class BatchBuffers {
+    private double[] values = new double[ColumnAndConverter.batchSize];
+    private boolean[] missing = new boolean[ColumnAndConverter.batchSize];
+    private int[] ints = new int[ColumnAndConverter.batchSize];
+
+    double[] values(int count) {
+        if (this.values.length < count)
+            this.values = new double[count];
+        return this.values;
+    }
+
+    boolean[] missing(int count) {
+        if (this.missing.length < count)
+            this.missing = new boolean[count];
+        return this.missing;
+    }
+
+    int[] ints(int count) {
+        if (this.ints.length < count)
+            this.ints = new int[count];
+        return this.ints;
+    }
+}
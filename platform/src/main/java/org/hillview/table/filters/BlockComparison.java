@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.filters;
+
+import org.hillview.table.api.ITableFilter.BlockResult;
+
+/**
+ * Decides the result of comparing a constant with all values of a block at
+ * once, given the smallest and largest value in the block.
+ */
+final class BlockComparison {
+    private BlockComparison() {}
+
+    /**
+     * @return The sign of the comparison between a value and a bound.
+     */
+    static int sign(double value, double bound) {
+        if (value < bound)
+            return -1;
+        if (value > bound)
+            return 1;
+        return 0;
+    }
+
+    static int sign(String value, String bound) {
+        return Integer.signum(value.compareTo(bound));
+    }
+
+    /**
+     * Compute the result of "constant op value" for all the rows of a block.
+     * @param op             One of "==", "!=", "<", ">", "<=", ">=".
+     * @param vsMin          Sign of comparing the constant with the smallest value in the block.
+     * @param vsMax          Sign of comparing the constant with the largest value in the block.
+     * @param presentCount   Number of present values in the block.
+     * @param missingCount   Number of missing values in the block.
+     * @param missingResult  Result of the comparison for missing values.
+     */
+    static BlockResult compare(String op, int vsMin, int vsMax,
+                               int presentCount, int missingCount, boolean missingResult) {
+        boolean allValues;
+        boolean noValues;
+        if (presentCount == 0) {
+            allValues = true;
+            noValues = true;
+        } else {
+            switch (op) {
+                case "==":
+                    allValues = vsMin == 0 && vsMax == 0;
+                    noValues = vsMin < 0 || vsMax > 0;
+                    break;
+                case "!=":
+                    allValues = vsMin < 0 || vsMax > 0;
+                    noValues = vsMin == 0 && vsMax == 0;
+                    break;
+                case "<":
+                    allValues = vsMin < 0;
+                    noValues = vsMax >= 0;
+                    break;
+                case ">":
+                    allValues = vsMax > 0;
+                    noValues = vsMin <= 0;
+                    break;
+                case "<=":
+                    allValues = vsMin <= 0;
+                    noValues = vsMax > 0;
+                    break;
+                case ">=":
+                    allValues = vsMax >= 0;
+                    noValues = vsMin < 0;
+                    break;
+                default:
+                    return BlockResult.Some;
+            }
+        }
+        if (allValues && (missingCount == 0 || missingResult))
+            return BlockResult.All;
+        if (noValues && (missingCount == 0 || !missingResult))
+            return BlockResult.None;
+        return BlockResult.Some;
+    }
+}
@@ -18,8 +18,10 @@
 package org.hillview.table.filters;
 
 import org.hillview.table.api.*;
+import org.hillview.table.columns.BlockStatistics;
 
 import javax.annotation.Nullable;
+import java.util.Arrays;
 import java.util.function.Predicate;
 
 /**
@@ -57,6 +59,18 @@ public class ComparisonFilterDescription implements ITableFilterDescription {
     public class ComparisonFilter implements ITableFilter {
         private final ColumnAndConverter column;
         private final Predicate<Integer> comparator;
+        /**
+         * Value compared for numeric columns.
+         */
+        private double numericValue;
+        /**
+         * For numeric columns: the result of the comparison when the value in
+         * a row is smaller than, equal to, or larger than the compared value,
+         * or NaN.  Null for other columns.
+         */
+        @Nullable
+        private boolean[] outcomes;
+        private final BatchBuffers buffers = new BatchBuffers();
 
         ComparisonFilter(ITable table) {
             ColumnAndConverterDescription ccd = new ColumnAndConverterDescription
@@ -150,6 +164,8 @@ public class ComparisonFilterDescription implements ITableFilterDescription {
                     }
                 case Integer:
                     int i = Integer.parseInt(ComparisonFilterDescription.this.compareValue);
+                    this.numericValue = i;
+                    this.outcomes = outcomes(ComparisonFilterDescription.this.comparison);
                     switch (ComparisonFilterDescription.this.comparison) {
                         case "==":
                             this.comparator = index -> {
@@ -207,6 +223,8 @@ public class ComparisonFilterDescription implements ITableFilterDescription {
                 case Duration:
                 case Date:
                     double d = Double.parseDouble(ComparisonFilterDescription.this.compareValue);
+                    this.numericValue = d;
+                    this.outcomes = outcomes(ComparisonFilterDescription.this.comparison);
                     switch (ComparisonFilterDescription.this.comparison) {
                         case "==":
                             this.comparator = index -> {
@@ -272,5 +290,121 @@ public class ComparisonFilterDescription implements ITableFilterDescription {
         public boolean test(int rowIndex) {
             return this.comparator.test(rowIndex);
         }
+
+        /**
+         * @return The outcomes of "compareValue comparison x" for x smaller than,
+         * equal to, larger than compareValue, and for x NaN.
+         */
+        private boolean[] outcomes(String comparison) {
+            double[] values = { -1, 0, 1, Double.NaN };
+            boolean[] result = new boolean[values.length];
+            for (int k = 0; k < values.length; k++) {
+                double x = values[k];
+                switch (comparison) {
+                    case "==":
+                        result[k] = 0 == x;
+                        break;
+                    case "!=":
+                        result[k] = 0 != x;
+                        break;
+                    case ">":
+                        result[k] = 0 > x;
+                        break;
+                    case "<":
+                        result[k] = 0 < x;
+                        break;
+                    case "<=":
+                        result[k] = 0 <= x;
+                        break;
+                    case ">=":
+                        result[k] = 0 >= x;
+                        break;
+                    default:
+                        throw new RuntimeException("Unexpected comparison operation " + comparison);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @return The result of the comparators above for missing values.
+         */
+        private boolean missingResult(boolean numeric) {
+            String comparison = ComparisonFilterDescription.this.comparison;
+            if (comparison.equals("!=") || comparison.equals("<="))
+                return true;
+            return comparison.equals(numeric ? ">" : "<");
+        }
+
+        @Override
+        public void test(int[] rows, int count, boolean[] selected) {
+            String comparison = ComparisonFilterDescription.this.comparison;
+            if (this.outcomes != null) {
+                final boolean[] outcomes = this.outcomes;
+                final double value = this.numericValue;
+                final boolean missingResult = this.missingResult(true);
+                final double[] values = this.buffers.values(count);
+                final boolean[] missing = this.buffers.missing(count);
+                this.column.asDoubles(rows, count, values, missing);
+                for (int i = 0; i < count; i++) {
+                    if (missing[i]) {
+                        selected[i] = missingResult;
+                        continue;
+                    }
+                    final double x = values[i];
+                    selected[i] = outcomes[x < value ? 0 : x == value ? 1 : x > value ? 2 : 3];
+                }
+            } else if (this.column.column instanceof ICategoryColumn &&
+                    ComparisonFilterDescription.this.compareValue != null &&
+                    (comparison.equals("==") || comparison.equals("!="))) {
+                // Compare the category codes instead of the strings
+                ICategoryColumn category = (ICategoryColumn)this.column.column;
+                final boolean equal = comparison.equals("==");
+                final int code = category.getCode(ComparisonFilterDescription.this.compareValue);
+                if (code < 0) {
+                    Arrays.fill(selected, 0, count, !equal);
+                    return;
+                }
+                final int[] codes = this.buffers.ints(count);
+                category.getCodes(rows, count, codes);
+                for (int i = 0; i < count; i++)
+                    selected[i] = (codes[i] == code) == equal;
+            } else {
+                ITableFilter.super.test(rows, count, selected);
+            }
+        }
+
+        @Override
+        public BlockResult testBlock(int block) {
+            ComparisonFilterDescription desc = ComparisonFilterDescription.this;
+            BlockStatistics stats = this.column.column.getBlockStatistics();
+            if (desc.compareValue == null || stats == null || block >= stats.getBlockCount())
+                return BlockResult.Some;
+            int present = stats.getPresentCount(block);
+            int vsMin = 0;
+            int vsMax = 0;
+            boolean missingResult;
+            if (stats.isNumeric()) {
+                if (present > 0) {
+                    double min = stats.getMin(block);
+                    if (Double.isNaN(min))
+                        return BlockResult.Some;
+                    vsMin = BlockComparison.sign(this.numericValue, min);
+                    vsMax = BlockComparison.sign(this.numericValue, stats.getMax(block));
+                }
+                missingResult = this.missingResult(true);
+            } else {
+                if (present > 0) {
+                    String min = stats.getMinString(block);
+                    String max = stats.getMaxString(block);
+                    assert min != null && max != null;
+                    vsMin = BlockComparison.sign(desc.compareValue, min);
+                    vsMax = BlockComparison.sign(desc.compareValue, max);
+                }
+                missingResult = this.missingResult(false);
+            }
+            return BlockComparison.compare(desc.comparison, vsMin, vsMax,
+                    present, stats.getMissingCount(block), missingResult);
+        }
     }
 }
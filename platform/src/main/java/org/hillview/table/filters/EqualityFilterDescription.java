@@ -18,8 +18,10 @@
 package org.hillview.table.filters;
 
 import org.hillview.table.api.*;
+import org.hillview.table.columns.BlockStatistics;
 
 import javax.annotation.Nullable;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.regex.Pattern;
 
@@ -69,6 +71,7 @@ public class EqualityFilterDescription implements ITableFilterDescription {
         @Nullable
         ContentsKind compareKind;
         private final ColumnAndConverter column;
+        private final BatchBuffers buffers = new BatchBuffers();
 
         EqualityFilter(ITable table) {
             ColumnAndConverterDescription ccd = new ColumnAndConverterDescription
@@ -145,5 +148,82 @@ public class EqualityFilterDescription implements ITableFilterDescription {
                 return EqualityFilterDescription.this.complement^result;
             }
         }
+
+        @Override
+        public void test(int[] rows, int count, boolean[] selected) {
+            final boolean complement = EqualityFilterDescription.this.complement;
+            if (EqualityFilterDescription.this.asRegEx) {
+                ITableFilter.super.test(rows, count, selected);
+            } else if (this.column.column instanceof ICategoryColumn) {
+                // Compare the category codes instead of the strings
+                ICategoryColumn category = (ICategoryColumn)this.column.column;
+                final int code;
+                if (this.missing) {
+                    code = -1;
+                } else {
+                    assert this.s != null;
+                    code = category.getCode(this.s);
+                    if (code < 0) {
+                        Arrays.fill(selected, 0, count, complement);
+                        return;
+                    }
+                }
+                final int[] codes = this.buffers.ints(count);
+                category.getCodes(rows, count, codes);
+                for (int i = 0; i < count; i++)
+                    selected[i] = (codes[i] == code) != complement;
+            } else if (!this.missing && this.compareKind != ContentsKind.Category &&
+                    this.compareKind != ContentsKind.String && this.compareKind != ContentsKind.Json) {
+                final double value = this.compareKind == ContentsKind.Integer ? this.i : this.d;
+                final double[] values = this.buffers.values(count);
+                final boolean[] missing = this.buffers.missing(count);
+                this.column.asDoubles(rows, count, values, missing);
+                for (int i = 0; i < count; i++)
+                    selected[i] = (!missing[i] && values[i] == value) != complement;
+            } else {
+                ITableFilter.super.test(rows, count, selected);
+            }
+        }
+
+        @Override
+        public BlockResult testBlock(int block) {
+            BlockStatistics stats = this.column.column.getBlockStatistics();
+            if (EqualityFilterDescription.this.asRegEx ||
+                    stats == null || block >= stats.getBlockCount())
+                return BlockResult.Some;
+            int present = stats.getPresentCount(block);
+            int missing = stats.getMissingCount(block);
+            BlockResult result;
+            if (this.missing) {
+                if (present == 0)
+                    result = BlockResult.All;
+                else if (missing == 0)
+                    result = BlockResult.None;
+                else
+                    result = BlockResult.Some;
+            } else if (present == 0) {
+                result = BlockResult.None;
+            } else if (stats.isNumeric()) {
+                double min = stats.getMin(block);
+                if (Double.isNaN(min))
+                    return BlockResult.Some;
+                double value = this.compareKind == ContentsKind.Integer ? this.i : this.d;
+                result = BlockComparison.compare("==",
+                        BlockComparison.sign(value, min),
+                        BlockComparison.sign(value, stats.getMax(block)),
+                        present, missing, false);
+            } else {
+                String min = stats.getMinString(block);
+                String max = stats.getMaxString(block);
+                assert this.s != null && min != null && max != null;
+                result = BlockComparison.compare("==",
+                        BlockComparison.sign(this.s, min),
+                        BlockComparison.sign(this.s, max),
+                        present, missing, false);
+            }
+            if (EqualityFilterDescription.this.complement)
+                result = result.complement();
+            return result;
+        }
     }
 }
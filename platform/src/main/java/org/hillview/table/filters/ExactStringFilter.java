@@ -18,8 +18,10 @@
 package org.hillview.table.filters;
 
 import org.hillview.table.api.IStringFilter;
+import org.hillview.table.api.Utf8Slice;
 
 import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Returns true if a string equals a given string.
@@ -28,12 +30,21 @@ public class ExactStringFilter implements IStringFilter {
     @Nullable
     private final String toFind;
     private final boolean caseSensitive;
+    /**
+     * UTF-8 encoding of toFind.
+     */
+    @Nullable
+    private final byte[] bytes;
+    private final boolean asciiFold;
 
     ExactStringFilter(@Nullable String toFind, final boolean caseSensitive) {
         this.caseSensitive = caseSensitive;
         if (!caseSensitive && toFind != null)
             toFind = toFind.toLowerCase();
         this.toFind = toFind;
+        this.bytes = toFind == null ? null : toFind.getBytes(StandardCharsets.UTF_8);
+        this.asciiFold = !caseSensitive && toFind != null &&
+                StringFilterDescription.canFoldAscii(toFind);
     }
 
     @Override
@@ -46,4 +57,15 @@ public class ExactStringFilter implements IStringFilter {
             s = s.toLowerCase();
         return this.toFind.equals(s);
     }
+
+    @Override
+    public boolean test(Utf8Slice s) {
+        if (this.bytes == null)
+            return false;
+        if (this.caseSensitive)
+            return s.equalsBytes(this.bytes);
+        if (this.asciiFold && s.isAscii())
+            return s.equalsIgnoreCaseAscii(this.bytes);
+        return this.test(s.toString());
+    }
 }
@@ -19,6 +19,8 @@ package org.hillview.table.filters;
 
 import org.hillview.table.api.ITableFilter;
 
+import java.util.Arrays;
+
 /**
  * A TableFilter which returns always false.
  */
@@ -27,4 +29,14 @@ public class FalseTableFilter implements ITableFilter {
     public boolean test(final int rowIndex) {
         return false;
     }
+
+    @Override
+    public void test(int[] rows, int count, boolean[] selected) {
+        Arrays.fill(selected, 0, count, false);
+    }
+
+    @Override
+    public BlockResult testBlock(int block) {
+        return BlockResult.None;
+    }
 }
@@ -20,6 +20,7 @@ package org.hillview.table.filters;
 import org.hillview.table.NoStringConverter;
 import org.hillview.table.SortedStringsConverterDescription;
 import org.hillview.table.api.*;
+import org.hillview.table.columns.BlockStatistics;
 
 import javax.annotation.Nullable;
 
@@ -32,23 +33,63 @@ public class RangeFilterDescription implements ITableFilterDescription {
     @Nullable
     private String[] bucketBoundaries;  // only used for Categorical columns
 
+    @SuppressWarnings("unused")
+    private RangeFilterDescription() {}  // used by deserialization
+
+    public RangeFilterDescription(String columnName, double min, double max, boolean complement) {
+        this.columnName = columnName;
+        this.min = min;
+        this.max = max;
+        this.complement = complement;
+    }
+
+    public String getColumnName() {
+        return this.columnName;
+    }
+
+    /**
+     * Checks whether a block of data may contain rows that pass this filter;
+     * used to skip data using statistics computed ahead of time.
+     * @param min         Minimum value in the block.
+     * @param max         Maximum value in the block.
+     * @param hasMissing  True if the block may contain missing values.
+     * @return            False only if no row in the block can pass the filter.
+     */
+    public boolean mayMatch(double min, double max, boolean hasMissing) {
+        if (this.bucketBoundaries != null)
+            return true;
+        if (this.complement)
+            return hasMissing || !(this.min <= min && max <= this.max);
+        return this.min <= max && min <= this.max;
+    }
+
     @Override
     public ITableFilter getFilter(ITable table) {
         IStringConverterDescription conv = NoStringConverter.getDescriptionInstance();
+        @Nullable IStringConverter boundsConverter = null;
         if (this.bucketBoundaries != null) {
             conv = new SortedStringsConverterDescription(
                     this.bucketBoundaries, (int) Math.ceil(this.min), (int) Math.floor(this.max));
+            boundsConverter = conv.getConverter();
         }
         ColumnAndConverterDescription ccd = new ColumnAndConverterDescription(
                 this.columnName, conv);
-        return new RangeFilter(table.getLoadedColumn(ccd));
+        return new RangeFilter(table.getLoadedColumn(ccd), boundsConverter);
     }
 
     public class RangeFilter implements ITableFilter {
         final ColumnAndConverter column;
+        /**
+         * Converter for the bounds of string blocks; it preserves the order
+         * of the strings.  Null if the column is not converted.
+         */
+        @Nullable
+        final IStringConverter boundsConverter;
+        final BatchBuffers buffers = new BatchBuffers();
 
-        RangeFilter(ColumnAndConverter column) {
+        RangeFilter(ColumnAndConverter column, @Nullable IStringConverter boundsConverter) {
             this.column = column;
+            this.boundsConverter = boundsConverter;
         }
 
         public boolean test(int rowIndex) {
@@ -65,6 +106,53 @@ public class RangeFilterDescription implements ITableFilterDescription {
             return result;
         }
 
+        @Override
+        public void test(int[] rows, int count, boolean[] selected) {
+            final double min = RangeFilterDescription.this.min;
+            final double max = RangeFilterDescription.this.max;
+            final boolean complement = RangeFilterDescription.this.complement;
+            final double[] values = this.buffers.values(count);
+            final boolean[] missing = this.buffers.missing(count);
+            this.column.asDoubles(rows, count, values, missing);
+            for (int i = 0; i < count; i++) {
+                final double d = values[i];
+                selected[i] = (!missing[i] && min <= d && d <= max) != complement;
+            }
+        }
+
+        @Override
+        public BlockResult testBlock(int block) {
+            RangeFilterDescription desc = RangeFilterDescription.this;
+            BlockStatistics stats = this.column.column.getBlockStatistics();
+            if (stats == null || block >= stats.getBlockCount())
+                return BlockResult.Some;
+            double min;
+            double max;
+            if (stats.getPresentCount(block) == 0) {
+                min = max = 0;
+            } else if (stats.isNumeric()) {
+                min = stats.getMin(block);
+                max = stats.getMax(block);
+            } else if (this.boundsConverter != null) {
+                min = this.boundsConverter.asDouble(stats.getMinString(block));
+                max = this.boundsConverter.asDouble(stats.getMaxString(block));
+            } else {
+                return BlockResult.Some;
+            }
+            if (Double.isNaN(min))
+                return BlockResult.Some;
+            int present = stats.getPresentCount(block);
+            int missing = stats.getMissingCount(block);
+            BlockResult result = BlockComparison.compare(
+                    "<=", BlockComparison.sign(desc.min, min), BlockComparison.sign(desc.min, max),
+                    present, missing, false).and(BlockComparison.compare(
+                    ">=", BlockComparison.sign(desc.max, min), BlockComparison.sign(desc.max, max),
+                    present, missing, false));
+            if (desc.complement)
+                result = result.complement();
+            return result;
+        }
+
         public String toString() {
             return "Rangefilter[" + RangeFilterDescription.this.min + "," +
                     RangeFilterDescription.this.max + "]";
@@ -18,6 +18,7 @@
 package org.hillview.table.filters;
 
 import org.hillview.table.api.IStringFilter;
+import org.hillview.table.api.Utf8Slice;
 
 import javax.annotation.Nullable;
 import java.util.regex.Pattern;
@@ -25,6 +26,11 @@ import java.util.regex.Matcher;
 
 public class RegexStringFilter implements IStringFilter {
     private final Pattern pattern;
+    /**
+     * Reused when matching slices; filters are used by a single thread.
+     */
+    @Nullable
+    private Matcher matcher;
 
     public RegexStringFilter(String pattern, boolean caseSensitive) {
         this.pattern = Pattern.compile(pattern, caseSensitive ? 0 : Pattern.CASE_INSENSITIVE);
@@ -38,4 +44,18 @@ public class RegexStringFilter implements IStringFilter {
         Matcher m = this.pattern.matcher(s);
         return m.matches();
     }
+
+    @Override
+    public boolean test(Utf8Slice s) {
+        if (!s.isAscii())
+            return this.test(s.toString());
+        // An ASCII slice is a valid CharSequence.
+        if (this.matcher == null)
+            this.matcher = this.pattern.matcher(s);
+        else
+            this.matcher.reset(s);
+        boolean result = this.matcher.matches();
+        this.matcher.reset("");  // do not retain the slice
+        return result;
+    }
 }
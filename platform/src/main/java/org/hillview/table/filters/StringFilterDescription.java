@@ -53,6 +53,18 @@ public class StringFilterDescription implements Serializable {
         this.subString = subString;
     }
 
+    /**
+     * True if toLowerCase with the default locale maps the ASCII letters of
+     * this string to their ASCII lower-case letters, and keeps all other characters
+     * unchanged.  Then case-insensitive comparisons with ASCII text can be done on bytes.
+     */
+    static boolean canFoldAscii(String lowerCase) {
+        for (int i = 0; i < lowerCase.length(); i++)
+            if (lowerCase.charAt(i) >= 0x80)
+                return false;
+        return "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toLowerCase().equals("abcdefghijklmnopqrstuvwxyz");
+    }
+
     public IStringFilter getFilter() {
         if (this.asRegex) {
             assert this.toFind != null;
@@ -18,9 +18,11 @@
 package org.hillview.table.filters;
 
 import org.hillview.table.api.IStringFilter;
+import org.hillview.table.api.Utf8Slice;
 import org.hillview.utils.Converters;
 
 import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Returns true if a string contains a given string.
@@ -28,6 +30,14 @@ import javax.annotation.Nullable;
 public class SubStringFilter implements IStringFilter {
     private final String toFind;
     private final boolean caseSensitive;
+    /**
+     * UTF-8 encoding of toFind.
+     */
+    private final byte[] bytes;
+    /**
+     * True if case-insensitive matching can be done by folding ASCII letters.
+     */
+    private final boolean asciiFold;
 
     SubStringFilter(@Nullable String toFind, boolean caseSensitive) {
         // we do not allow null sub-strings
@@ -36,6 +46,8 @@ public class SubStringFilter implements IStringFilter {
         if (!caseSensitive)
             f = f.toLowerCase();
         this.toFind = f;
+        this.bytes = f.getBytes(StandardCharsets.UTF_8);
+        this.asciiFold = !caseSensitive && StringFilterDescription.canFoldAscii(f);
     }
 
     @Override
@@ -46,4 +58,14 @@ public class SubStringFilter implements IStringFilter {
             s = s.toLowerCase();
         return s.contains(this.toFind);
     }
+
+    @Override
+    public boolean test(Utf8Slice s) {
+        if (this.caseSensitive)
+            return s.indexOf(this.bytes) >= 0;
+        // Lower-casing some non-ASCII characters produces ASCII ones.
+        if (this.asciiFold && s.isAscii())
+            return s.indexOfIgnoreCaseAscii(this.bytes) >= 0;
+        return this.test(s.toString());
+    }
 }
@@ -74,7 +74,7 @@ public class DenseMembershipSet implements IMembershipSet, IMutableMembershipSet
             row = ri.getNextRow();
         }
 
-        IMutableMembershipSet mms = MembershipSetFactory.create(this.getMax(), k);
+        IMutableMembershipSet mms = MembershipSetFactory.create(this.getMax());
         for (i=0; i < k; i++)
             mms.add(chosen[i]);
         return mms.seal();
@@ -86,7 +86,7 @@ public class DenseMembershipSet implements IMembershipSet, IMutableMembershipSet
             return this.denseSample(k, seed);
         final int numOfTries = 5;
         final Randomness psg = new Randomness(seed);
-        IMutableMembershipSet mms = MembershipSetFactory.create(this.getMax(), k);
+        IMutableMembershipSet mms = MembershipSetFactory.create(this.getMax());
         int i = 0;
         while ((i < numOfTries * k) && (mms.size() < k)){
             int index = psg.nextInt(this.membershipMap.length());
@@ -123,6 +123,11 @@ public class DenseMembershipSet implements IMembershipSet, IMutableMembershipSet
         return new DenseMembershipIterator(this.membershipMap);
     }
 
+    @Override
+    public IRowIterator getIterator(final int start, final int end) {
+        return new DenseMembershipIterator(this.membershipMap, start, end);
+    }
+
     /**
      *
      * @param rate  Sampling rate.
@@ -186,15 +191,26 @@ public class DenseMembershipSet implements IMembershipSet, IMutableMembershipSet
     public static class DenseMembershipIterator implements IRowIterator {
         private final BitSet bits;
         private int current;
+        private final int end;
 
         DenseMembershipIterator(BitSet bits) {
+            this(bits, 0, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Iterator over the set bits with indexes in [start, end).
+         */
+        DenseMembershipIterator(BitSet bits, int start, int end) {
             this.bits = bits;
-            this.current = -1;
+            this.current = Math.max(start, 0) - 1;
+            this.end = end;
         }
 
         @Override
         public int getNextRow() {
             this.current = this.bits.nextSetBit(this.current + 1);
+            if (this.current >= this.end)
+                this.current = -1;
             return this.current;
         }
     }
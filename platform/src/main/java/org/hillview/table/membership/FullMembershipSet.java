@@ -59,6 +59,12 @@ public class FullMembershipSet implements IMembershipSet {
         return new FullMembershipIterator(this.rowCount);
     }
 
+    @Override
+    public IRowIterator getIterator(final int start, final int end) {
+        int last = Math.max(Math.min(end, this.rowCount), 0);
+        return new FullMembershipIterator(Math.min(Math.max(start, 0), last), last);
+    }
+
     /**
      * The procedure
      * samples k times with replacement so it may return a set with less than k distinct items
@@ -78,7 +84,7 @@ public class FullMembershipSet implements IMembershipSet {
         int l = k;
         if (k > (int)(this.rowCount * 0.7)) // sample the items that are not returned
             l = this.rowCount - k;
-        IMutableMembershipSet s = MembershipSetFactory.create(this.getMax(), k);
+        IMutableMembershipSet s = MembershipSetFactory.create(this.getMax());
         for (int i=0; i < l; i++)
             s.add(randomGenerator.nextInt(this.rowCount));
         while (s.size() < l)
@@ -150,10 +156,18 @@ public class FullMembershipSet implements IMembershipSet {
     }
 
     public static class FullMembershipIterator implements IRowIterator {
-        private int cursor = 0;
+        private int cursor;
         private final int range;
 
         public FullMembershipIterator(final int range) {
+            this(0, range);
+        }
+
+        /**
+         * Iterator over all the integers in [start, range).
+         */
+        FullMembershipIterator(final int start, final int range) {
+            this.cursor = start;
             this.range = range;
         }
 
@@ -165,5 +179,14 @@ public class FullMembershipSet implements IMembershipSet {
             }
             else return - 1;
         }
+
+        @Override
+        public int getNextRows(int[] rows) {
+            int count = Math.max(Math.min(rows.length, this.range - this.cursor), 0);
+            for (int i = 0; i < count; i++)
+                rows[i] = this.cursor + i;
+            this.cursor += count;
+            return count;
+        }
     }
 }
@@ -17,50 +17,19 @@
 
 package org.hillview.table.membership;
 
-import org.hillview.table.api.IMembershipSet;
 import org.hillview.table.api.IMutableMembershipSet;
-import org.hillview.table.api.IRowIterator;
-
-import java.util.function.IntPredicate;
 
 /**
  * This class knows how to create a membership set.
  */
 public class MembershipSetFactory {
-    private static final int sizeEstimationSampleSize = 40;
-
     /**
-     * Creates a mutable membership set.
-     * @param maxSize        Maximum size.
-     * @param estimatedSize  Estimated number of elements inside.
+     * Creates a mutable membership set.  The compressed bitmap representation
+     * adapts to the density of each region of the set, so no estimate of the
+     * number of elements is needed.
+     * @param maxSize  Maximum size.
      */
-    public static IMutableMembershipSet create(int maxSize, int estimatedSize) {
-        if (estimatedSize >= maxSize / 30)
-            return new DenseMembershipSet(maxSize, estimatedSize);
-        else
-            return new SparseMembershipSet(maxSize, estimatedSize);
+    public static IMutableMembershipSet create(int maxSize) {
+        return new RoaringMembershipSet(maxSize);
     }
-
-    /**
-     * Estimates the size of a filter applied to an IMembershipSet
-     * @return an approximation of the size based on sampling. May return 0.
-     * There are no strict guarantees on the quality of the approximation,
-     * but is good enough for initialization of a hash table sizes.
-     */
-    public static int estimateSize(final IMembershipSet baseMap,
-                                   final IntPredicate filter) {
-        final IMembershipSet sampleSet = baseMap.sample(sizeEstimationSampleSize, 0);
-        if (sampleSet.getSize() == 0)
-            return 0;
-        int eSize = 0;
-        final IRowIterator iter = sampleSet.getIterator();
-        int curr = iter.getNextRow();
-        while (curr >= 0) {
-            if (filter.test(curr))
-                eSize++;
-            curr = iter.getNextRow();
-        }
-        return (baseMap.getSize() * eSize) / sampleSet.getSize();
-    }
-
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.membership;
+
+import org.hillview.table.api.IMembershipSet;
+import org.hillview.table.api.IMutableMembershipSet;
+import org.hillview.table.api.IRowIterator;
+import org.hillview.table.api.ISampledRowIterator;
+import org.hillview.utils.Randomness;
+
+/**
+ * A view of a membership set which contains only the rows of the base set
+ * whose indexes fall within the range [start, end).  The view does not copy
+ * the base set; it is used to process a large table in pieces.
+ */
+public class RangeMembershipSet implements IMembershipSet {
+    private final IMembershipSet base;
+    private final int start;
+    private final int end;
+    private final static double samplingThreshold = 0.05;
+    /**
+     * Number of rows in the view; computed lazily, since for most
+     * base sets this requires a scan.  -1 if not yet computed.
+     */
+    private int size;
+
+    /**
+     * Create a view of a membership set.
+     * @param base   Set whose rows are selected.
+     * @param start  First row index in the view (inclusive).
+     * @param end    Last row index in the view (exclusive).
+     */
+    public RangeMembershipSet(final IMembershipSet base, final int start, final int end) {
+        if (start < 0 || end < start)
+            throw new IllegalArgumentException("Illegal range [" + start + ", " + end + ")");
+        this.base = base;
+        this.start = start;
+        this.end = Math.min(end, base.getMax());
+        if (base instanceof FullMembershipSet)
+            this.size = Math.max(this.end - this.start, 0);
+        else
+            this.size = -1;
+    }
+
+    @Override
+    public int getMax() {
+        return this.base.getMax();
+    }
+
+    @Override
+    public int getSpan() {
+        return Math.max(this.end - this.start, 0);
+    }
+
+    @Override
+    public boolean isMember(int rowIndex) {
+        return rowIndex >= this.start && rowIndex < this.end && this.base.isMember(rowIndex);
+    }
+
+    @Override
+    public int getSize() {
+        if (this.size < 0) {
+            int count = 0;
+            IRowIterator it = this.getIterator();
+            while (it.getNextRow() >= 0)
+                count++;
+            this.size = count;
+        }
+        return this.size;
+    }
+
+    @Override
+    public IRowIterator getIterator() {
+        return this.base.getIterator(this.start, this.end);
+    }
+
+    @Override
+    public IRowIterator getIterator(int start, int end) {
+        return this.base.getIterator(Math.max(start, this.start), Math.min(end, this.end));
+    }
+
+    /**
+     * Copies the rows of the view into a new membership set.
+     */
+    private IMembershipSet materialize() {
+        IMutableMembershipSet mms = MembershipSetFactory.create(this.getMax());
+        IRowIterator it = this.getIterator();
+        int row = it.getNextRow();
+        while (row >= 0) {
+            mms.add(row);
+            row = it.getNextRow();
+        }
+        return mms.seal();
+    }
+
+    @Override
+    public IMembershipSet sample(int k, long seed) {
+        if (k >= this.getSize())
+            return this;
+        return this.materialize().sample(k, seed);
+    }
+
+    @Override
+    public ISampledRowIterator getIteratorOverSample(double rate, long seed, boolean enforceRate) {
+        if (rate >= 1 || (!enforceRate && rate > samplingThreshold))
+            return new NoSampleRowIterator(this.getIterator());
+        return new RangeSampledRowIterator(this.getIterator(), rate, seed);
+    }
+
+    /**
+     * An iterator that skips a geometrically-distributed number of rows of the
+     * underlying iterator between the rows it returns.  The class has a Randomness
+     * object as a member which makes it non thread-safe.
+     */
+    private static class RangeSampledRowIterator implements ISampledRowIterator {
+        private final IRowIterator iterator;
+        private final Randomness prg;
+        private final double rate;
+
+        RangeSampledRowIterator(IRowIterator iterator, double rate, long seed) {
+            this.iterator = iterator;
+            this.prg = new Randomness(seed);
+            this.rate = rate;
+        }
+
+        @Override
+        public double rate() { return this.rate; }
+
+        @Override
+        public int getNextRow() {
+            int skip = this.prg.nextGeometric(this.rate);
+            int row = -1;
+            for (int i = 0; i < skip; i++) {
+                row = this.iterator.getNextRow();
+                if (row < 0)
+                    break;
+            }
+            return row;
+        }
+    }
+}
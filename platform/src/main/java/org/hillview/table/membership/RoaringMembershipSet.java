@@ -0,0 +1,792 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.membership;
+
+import org.hillview.table.api.IMembershipSet;
+import org.hillview.table.api.IMutableMembershipSet;
+import org.hillview.table.api.IRowIterator;
+import org.hillview.table.api.ISampledRowIterator;
+import org.hillview.utils.IntSet;
+import org.hillview.utils.Randomness;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A compressed bitmap membership set, organized like a Roaring bitmap.
+ * The row space is split into chunks of 2^16 rows; the rows of each chunk are stored
+ * in a container which is either a sorted array of the low 16 bits (when the chunk
+ * holds at most 4096 rows) or a bitmap of 1024 longs.  Empty chunks take no space.
+ * Set operations between two such sets are performed container by container using
+ * word-level operations, and sampling uses rank/select instead of rejection.
+ * The containers only hold primitive arrays, so serialization is cheap.
+ */
+public class RoaringMembershipSet implements IMembershipSet, IMutableMembershipSet, Serializable {
+    private static final int chunkBits = 16;
+    private static final int lowMask = (1 << chunkBits) - 1;
+    /**
+     * Maximum number of elements in an array container; beyond this a bitmap
+     * is smaller.
+     */
+    static final int arrayLimit = 4096;
+    private static final int bitmapWords = 1 << (chunkBits - 6);
+    private final static double samplingThreshold = 0.05;
+    private final static double samplingSizeMinimum = 100; // if size is smaller than this no need to sample
+
+    private final int max;
+    /**
+     * Containers indexed by row >>> 16; null for empty chunks.
+     */
+    private Container[] containers;
+    private int size;
+    /**
+     * ranks[i] is the number of rows stored in containers[0, i).
+     * Computed on demand; reset when the set changes.
+     */
+    @Nullable
+    private int[] ranks;
+
+    /**
+     * Create an empty set.
+     * @param max  Number of rows in the table the set is part of.
+     */
+    public RoaringMembershipSet(int max) {
+        this(max, new Container[(Math.max(max, 0) + lowMask) >>> chunkBits]);
+    }
+
+    private RoaringMembershipSet(int max, Container[] containers) {
+        this.max = max;
+        this.containers = containers;
+        this.size = 0;
+        for (Container c : containers)
+            if (c != null)
+                this.size += c.cardinality();
+        this.ranks = null;
+    }
+
+    @Override
+    public int getMax() {
+        return this.max;
+    }
+
+    @Override
+    public boolean isMember(int rowIndex) {
+        int key = rowIndex >>> chunkBits;
+        if (key >= this.containers.length)
+            return false;
+        Container c = this.containers[key];
+        return c != null && c.contains(rowIndex & lowMask);
+    }
+
+    @Override
+    public void add(int index) {
+        int key = index >>> chunkBits;
+        if (key >= this.containers.length)
+            this.containers = Arrays.copyOf(this.containers,
+                    Math.max(key + 1, this.containers.length * 2));
+        Container c = this.containers[key];
+        if (c == null) {
+            c = new ArrayContainer(4);
+            this.containers[key] = c;
+        }
+        int before = c.cardinality();
+        c = c.add(index & lowMask);
+        this.containers[key] = c;
+        this.size += c.cardinality() - before;
+        this.ranks = null;
+    }
+
+    @Override
+    public IMembershipSet seal() {
+        for (Container c : this.containers)
+            if (c != null)
+                c.trim();
+        return this;
+    }
+
+    @Override
+    public int getSize() {
+        return this.size;
+    }
+
+    @Override
+    public int size() { return this.size; }
+
+    private int[] getRanks() {
+        if (this.ranks == null) {
+            int[] r = new int[this.containers.length + 1];
+            for (int i = 0; i < this.containers.length; i++) {
+                Container c = this.containers[i];
+                r[i + 1] = r[i] + (c == null ? 0 : c.cardinality());
+            }
+            this.ranks = r;
+        }
+        return this.ranks;
+    }
+
+    /**
+     * @param row  A row index.
+     * @return The number of rows in the set that are smaller than row.
+     */
+    public int rank(int row) {
+        if (row <= 0)
+            return 0;
+        int key = row >>> chunkBits;
+        int[] r = this.getRanks();
+        if (key >= this.containers.length)
+            return this.size;
+        Container c = this.containers[key];
+        return r[key] + (c == null ? 0 : c.rank(row & lowMask));
+    }
+
+    /**
+     * @param index  A number between 0 and getSize() - 1.
+     * @return The index-th smallest row in the set.
+     */
+    public int select(int index) {
+        if (index < 0 || index >= this.size)
+            throw new IndexOutOfBoundsException("Index " + index + " not in set of size " + this.size);
+        int[] r = this.getRanks();
+        // Find the last container whose rank is <= index
+        int key = Arrays.binarySearch(r, index);
+        if (key < 0)
+            key = -key - 2;
+        while (this.containers[key] == null)
+            key++;
+        return (key << chunkBits) | this.containers[key].select(index - r[key]);
+    }
+
+    @Override
+    public IRowIterator getIterator() {
+        return new RoaringIterator(this.containers, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public IRowIterator getIterator(final int start, final int end) {
+        return new RoaringIterator(this.containers, start, end);
+    }
+
+    /**
+     * Samples k distinct rows uniformly: chooses k distinct ranks using Floyd's
+     * algorithm and selects the corresponding rows in a single pass.
+     */
+    @Override
+    public IMembershipSet sample(int k, long seed) {
+        if (k >= this.size)
+            return this;
+        if (k <= 0)
+            return new RoaringMembershipSet(this.max);
+        final Randomness psg = new Randomness(seed);
+        IntSet chosen = new IntSet(k);
+        int[] ranks = new int[k];
+        int index = 0;
+        for (int j = this.size - k; j < this.size; j++) {
+            int t = psg.nextInt(j + 1);
+            if (!chosen.add(t)) {
+                chosen.add(j);
+                t = j;
+            }
+            ranks[index++] = t;
+        }
+        Arrays.sort(ranks);
+        RoaringMembershipSet result = new RoaringMembershipSet(this.max);
+        RoaringIterator it = new RoaringIterator(this.containers, 0, Integer.MAX_VALUE);
+        int previous = -1;
+        for (int rank : ranks) {
+            result.add(it.advance(rank - previous));
+            previous = rank;
+        }
+        return result.seal();
+    }
+
+    @Override
+    public ISampledRowIterator getIteratorOverSample(double rate, long seed, boolean enforceRate) {
+        double usedRate;
+        if (enforceRate)
+            usedRate = rate;
+        else
+            usedRate = this.computeRate(rate);
+        if (usedRate >= 1)
+            return new NoSampleRowIterator(this.getIterator());
+        return new RoaringSampledRowIterator(this.containers, usedRate, seed);
+    }
+
+    private double computeRate(double rate) {
+        if (this.size < RoaringMembershipSet.samplingSizeMinimum)
+            return 1;
+        if (rate <= RoaringMembershipSet.samplingThreshold)
+            return rate;
+        else return 1;
+    }
+
+    @Nullable
+    private Container getContainer(int key) {
+        return key < this.containers.length ? this.containers[key] : null;
+    }
+
+    @Override
+    public IMembershipSet union(final IMembershipSet other) {
+        if (!(other instanceof RoaringMembershipSet))
+            return IMembershipSet.super.union(other);
+        RoaringMembershipSet o = (RoaringMembershipSet)other;
+        Container[] result = new Container[Math.max(this.containers.length, o.containers.length)];
+        for (int i = 0; i < result.length; i++) {
+            Container a = this.getContainer(i);
+            Container b = o.getContainer(i);
+            if (a == null)
+                result[i] = b == null ? null : b.copy();
+            else if (b == null)
+                result[i] = a.copy();
+            else
+                result[i] = a.or(b);
+        }
+        return new RoaringMembershipSet(Math.max(this.max, o.max), result);
+    }
+
+    @Override
+    public IMembershipSet intersection(final IMembershipSet other) {
+        if (!(other instanceof RoaringMembershipSet))
+            return IMembershipSet.super.intersection(other);
+        RoaringMembershipSet o = (RoaringMembershipSet)other;
+        Container[] result = new Container[Math.min(this.containers.length, o.containers.length)];
+        for (int i = 0; i < result.length; i++) {
+            Container a = this.containers[i];
+            Container b = o.containers[i];
+            if (a != null && b != null)
+                result[i] = a.and(b);
+        }
+        return new RoaringMembershipSet(this.max, result);
+    }
+
+    @Override
+    public IMembershipSet setMinus(final IMembershipSet other) {
+        if (!(other instanceof RoaringMembershipSet))
+            return IMembershipSet.super.setMinus(other);
+        RoaringMembershipSet o = (RoaringMembershipSet)other;
+        Container[] result = new Container[this.containers.length];
+        for (int i = 0; i < result.length; i++) {
+            Container a = this.containers[i];
+            Container b = o.getContainer(i);
+            if (a == null)
+                continue;
+            result[i] = b == null ? a.copy() : a.andNot(b);
+        }
+        return new RoaringMembershipSet(this.max, result);
+    }
+
+    /**
+     * The set of values within one chunk of 2^16 rows.  Values are the low 16 bits of the rows.
+     */
+    abstract static class Container implements Serializable {
+        abstract int cardinality();
+        abstract boolean contains(int low);
+        /**
+         * Adds a value to the container.
+         * @return The container holding the result, which may be a new one.
+         */
+        abstract Container add(int low);
+        /**
+         * @return The number of values smaller than low.
+         */
+        abstract int rank(int low);
+        /**
+         * @return The index-th smallest value.
+         */
+        abstract int select(int index);
+        abstract Container copy();
+        abstract Container or(Container other);
+        /**
+         * @return The intersection, or null if it is empty.
+         */
+        @Nullable
+        abstract Container and(Container other);
+        /**
+         * @return The difference, or null if it is empty.
+         */
+        @Nullable
+        abstract Container andNot(Container other);
+        /**
+         * Release unused space.
+         */
+        abstract void trim();
+
+        @Nullable
+        static Container fromArray(char[] values, int count) {
+            if (count == 0)
+                return null;
+            if (count > arrayLimit)
+                return BitmapContainer.fromArray(values, count);
+            return new ArrayContainer(
+                    values.length == count ? values : Arrays.copyOf(values, count), count);
+        }
+
+        /**
+         * Builds a container from a bitmap, converting it to an array if it is small.
+         */
+        @Nullable
+        static Container fromWords(long[] words) {
+            int count = 0;
+            for (long w : words)
+                count += Long.bitCount(w);
+            if (count == 0)
+                return null;
+            BitmapContainer result = new BitmapContainer(words, count);
+            if (count <= arrayLimit)
+                return result.toArray();
+            return result;
+        }
+    }
+
+    static final class ArrayContainer extends Container {
+        char[] values;
+        int count;
+
+        ArrayContainer(int capacity) {
+            this(new char[capacity], 0);
+        }
+
+        ArrayContainer(char[] values, int count) {
+            this.values = values;
+            this.count = count;
+        }
+
+        @Override
+        int cardinality() { return this.count; }
+
+        @Override
+        boolean contains(int low) {
+            return Arrays.binarySearch(this.values, 0, this.count, (char)low) >= 0;
+        }
+
+        @Override
+        Container add(int low) {
+            char c = (char)low;
+            int pos;
+            if (this.count == 0 || this.values[this.count - 1] < c) {
+                // Fast path: rows are usually added in increasing order.
+                pos = this.count;
+            } else {
+                pos = Arrays.binarySearch(this.values, 0, this.count, c);
+                if (pos >= 0)
+                    return this;
+                pos = -pos - 1;
+            }
+            if (this.count == arrayLimit) {
+                BitmapContainer result = BitmapContainer.fromArray(this.values, this.count);
+                return result.add(low);
+            }
+            if (this.count == this.values.length)
+                this.values = Arrays.copyOf(this.values, Math.min(arrayLimit, this.count * 2));
+            System.arraycopy(this.values, pos, this.values, pos + 1, this.count - pos);
+            this.values[pos] = c;
+            this.count++;
+            return this;
+        }
+
+        @Override
+        int rank(int low) {
+            int pos = Arrays.binarySearch(this.values, 0, this.count, (char)low);
+            return pos >= 0 ? pos : -pos - 1;
+        }
+
+        @Override
+        int select(int index) {
+            return this.values[index];
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(this.values, this.count), this.count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer)
+                return other.or(this);
+            ArrayContainer o = (ArrayContainer)other;
+            char[] result = new char[this.count + o.count];
+            int i = 0, j = 0, k = 0;
+            while (i < this.count && j < o.count) {
+                char a = this.values[i];
+                char b = o.values[j];
+                if (a < b) {
+                    result[k++] = a;
+                    i++;
+                } else if (b < a) {
+                    result[k++] = b;
+                    j++;
+                } else {
+                    result[k++] = a;
+                    i++;
+                    j++;
+                }
+            }
+            while (i < this.count)
+                result[k++] = this.values[i++];
+            while (j < o.count)
+                result[k++] = o.values[j++];
+            Container c = Container.fromArray(result, k);
+            assert c != null;
+            return c;
+        }
+
+        @Nullable
+        @Override
+        Container and(Container other) {
+            char[] result = new char[this.count];
+            int k = 0;
+            if (other instanceof BitmapContainer) {
+                for (int i = 0; i < this.count; i++)
+                    if (other.contains(this.values[i]))
+                        result[k++] = this.values[i];
+            } else {
+                ArrayContainer o = (ArrayContainer)other;
+                int i = 0, j = 0;
+                while (i < this.count && j < o.count) {
+                    char a = this.values[i];
+                    char b = o.values[j];
+                    if (a < b) {
+                        i++;
+                    } else if (b < a) {
+                        j++;
+                    } else {
+                        result[k++] = a;
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return Container.fromArray(result, k);
+        }
+
+        @Nullable
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[this.count];
+            int k = 0;
+            if (other instanceof BitmapContainer) {
+                for (int i = 0; i < this.count; i++)
+                    if (!other.contains(this.values[i]))
+                        result[k++] = this.values[i];
+            } else {
+                ArrayContainer o = (ArrayContainer)other;
+                int j = 0;
+                for (int i = 0; i < this.count; i++) {
+                    char a = this.values[i];
+                    while (j < o.count && o.values[j] < a)
+                        j++;
+                    if (j >= o.count || o.values[j] != a)
+                        result[k++] = a;
+                }
+            }
+            return Container.fromArray(result, k);
+        }
+
+        @Override
+        void trim() {
+            if (this.values.length != this.count)
+                this.values = Arrays.copyOf(this.values, this.count);
+        }
+    }
+
+    static final class BitmapContainer extends Container {
+        final long[] words;
+        int count;
+
+        BitmapContainer(long[] words, int count) {
+            this.words = words;
+            this.count = count;
+        }
+
+        static BitmapContainer fromArray(char[] values, int count) {
+            long[] words = new long[bitmapWords];
+            for (int i = 0; i < count; i++)
+                words[values[i] >>> 6] |= 1L << values[i];
+            return new BitmapContainer(words, count);
+        }
+
+        @Override
+        int cardinality() { return this.count; }
+
+        @Override
+        boolean contains(int low) {
+            return (this.words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Container add(int low) {
+            long bit = 1L << low;
+            int index = low >>> 6;
+            if ((this.words[index] & bit) == 0) {
+                this.words[index] |= bit;
+                this.count++;
+            }
+            return this;
+        }
+
+        @Override
+        int rank(int low) {
+            int index = low >>> 6;
+            int result = 0;
+            for (int i = 0; i < index; i++)
+                result += Long.bitCount(this.words[i]);
+            // (1L << low) - 1 masks the bits below low within the word.
+            return result + Long.bitCount(this.words[index] & ((1L << low) - 1));
+        }
+
+        @Override
+        int select(int index) {
+            for (int i = 0; i < this.words.length; i++) {
+                long w = this.words[i];
+                int bits = Long.bitCount(w);
+                if (index < bits) {
+                    for (int j = 0; j < index; j++)
+                        w &= w - 1;
+                    return (i << 6) + Long.numberOfTrailingZeros(w);
+                }
+                index -= bits;
+            }
+            throw new IndexOutOfBoundsException();
+        }
+
+        ArrayContainer toArray() {
+            char[] values = new char[this.count];
+            int k = 0;
+            for (int i = 0; i < this.words.length; i++) {
+                long w = this.words[i];
+                while (w != 0) {
+                    values[k++] = (char)((i << 6) + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+            return new ArrayContainer(values, k);
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(this.words.clone(), this.count);
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = this.words.clone();
+            if (other instanceof BitmapContainer) {
+                long[] o = ((BitmapContainer)other).words;
+                for (int i = 0; i < result.length; i++)
+                    result[i] |= o[i];
+            } else {
+                ArrayContainer o = (ArrayContainer)other;
+                for (int i = 0; i < o.count; i++)
+                    result[o.values[i] >>> 6] |= 1L << o.values[i];
+            }
+            Container c = Container.fromWords(result);
+            assert c != null;
+            return c;
+        }
+
+        @Nullable
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer)
+                return other.and(this);
+            long[] o = ((BitmapContainer)other).words;
+            long[] result = new long[bitmapWords];
+            for (int i = 0; i < result.length; i++)
+                result[i] = this.words[i] & o[i];
+            return Container.fromWords(result);
+        }
+
+        @Nullable
+        @Override
+        Container andNot(Container other) {
+            long[] result = this.words.clone();
+            if (other instanceof BitmapContainer) {
+                long[] o = ((BitmapContainer)other).words;
+                for (int i = 0; i < result.length; i++)
+                    result[i] &= ~o[i];
+            } else {
+                ArrayContainer o = (ArrayContainer)other;
+                for (int i = 0; i < o.count; i++)
+                    result[o.values[i] >>> 6] &= ~(1L << o.values[i]);
+            }
+            return Container.fromWords(result);
+        }
+
+        @Override
+        void trim() {}
+    }
+
+    /**
+     * Iterates over the rows in the range [start, end) in increasing order.
+     */
+    private static final class RoaringIterator implements IRowIterator {
+        private final Container[] containers;
+        private final int end;
+        /**
+         * Index of the current container.
+         */
+        private int key;
+        /**
+         * Row corresponding to the first value of the current container.
+         */
+        private int base;
+        // State when the current container is an array.
+        @Nullable
+        private char[] values;
+        private int count;
+        private int position;
+        // State when the current container is a bitmap.
+        @Nullable
+        private long[] words;
+        private int wordIndex;
+        /**
+         * Bits of words[wordIndex] that have not been returned yet.
+         */
+        private long word;
+
+        RoaringIterator(Container[] containers, int start, int end) {
+            this.containers = containers;
+            this.end = end;
+            start = Math.max(start, 0);
+            this.moveTo(start >>> chunkBits, start & lowMask);
+        }
+
+        /**
+         * Positions the iterator on the first non-empty container with index
+         * at least key, before the first value that is at least low.
+         * @return False if there are no more containers.
+         */
+        private boolean moveTo(int key, int low) {
+            this.values = null;
+            this.words = null;
+            for (; key < this.containers.length && (key << chunkBits) < this.end; key++, low = 0) {
+                Container c = this.containers[key];
+                if (c == null)
+                    continue;
+                this.key = key;
+                this.base = key << chunkBits;
+                if (c instanceof ArrayContainer) {
+                    ArrayContainer a = (ArrayContainer)c;
+                    this.values = a.values;
+                    this.count = a.count;
+                    this.position = low == 0 ? 0 : a.rank(low);
+                } else {
+                    BitmapContainer b = (BitmapContainer)c;
+                    this.words = b.words;
+                    this.wordIndex = low >>> 6;
+                    this.word = this.words[this.wordIndex] & (-1L << low);
+                }
+                return true;
+            }
+            this.key = this.containers.length;
+            return false;
+        }
+
+        private int checkEnd(int row) {
+            if (row < this.end)
+                return row;
+            this.values = null;
+            this.words = null;
+            this.key = this.containers.length;
+            return -1;
+        }
+
+        @Override
+        public int getNextRow() {
+            while (true) {
+                if (this.values != null) {
+                    if (this.position < this.count)
+                        return this.checkEnd(this.base | this.values[this.position++]);
+                } else if (this.words != null) {
+                    while (this.word != 0 || ++this.wordIndex < this.words.length) {
+                        if (this.word == 0) {
+                            this.word = this.words[this.wordIndex];
+                            continue;
+                        }
+                        int low = (this.wordIndex << 6) + Long.numberOfTrailingZeros(this.word);
+                        this.word &= this.word - 1;
+                        return this.checkEnd(this.base | low);
+                    }
+                }
+                if (!this.moveTo(this.key + 1, 0))
+                    return -1;
+            }
+        }
+
+        /**
+         * Skips over n - 1 rows and returns the next one.
+         * advance(1) is the same as getNextRow().
+         * @return The row, or -1 if there are fewer than n rows left.
+         */
+        int advance(int n) {
+            while (true) {
+                if (this.values != null) {
+                    int available = this.count - this.position;
+                    if (n <= available) {
+                        this.position += n;
+                        return this.checkEnd(this.base | this.values[this.position - 1]);
+                    }
+                    n -= available;
+                } else if (this.words != null) {
+                    while (true) {
+                        int bits = Long.bitCount(this.word);
+                        if (n <= bits) {
+                            for (int i = 1; i < n; i++)
+                                this.word &= this.word - 1;
+                            int low = (this.wordIndex << 6) + Long.numberOfTrailingZeros(this.word);
+                            this.word &= this.word - 1;
+                            return this.checkEnd(this.base | low);
+                        }
+                        n -= bits;
+                        if (++this.wordIndex >= this.words.length)
+                            break;
+                        this.word = this.words[this.wordIndex];
+                    }
+                }
+                if (!this.moveTo(this.key + 1, 0))
+                    return -1;
+            }
+        }
+    }
+
+    /**
+     * Iterates over a sample of the rows, skipping a geometrically distributed
+     * number of rows between consecutive samples.  The class has a Randomness
+     * object as a member which makes it non thread-safe.
+     */
+    private static class RoaringSampledRowIterator implements ISampledRowIterator {
+        private final RoaringIterator iterator;
+        private final Randomness prg;
+        private final double rate;
+
+        RoaringSampledRowIterator(Container[] containers, double rate, long seed) {
+            this.iterator = new RoaringIterator(containers, 0, Integer.MAX_VALUE);
+            this.prg = new Randomness(seed);
+            this.rate = rate;
+        }
+
+        @Override
+        public int getNextRow() {
+            return this.iterator.advance(this.prg.nextGeometric(this.rate));
+        }
+
+        @Override
+        public double rate() { return this.rate; }
+    }
+}
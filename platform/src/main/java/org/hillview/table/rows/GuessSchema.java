@@ -155,6 +155,21 @@ public class GuessSchema {
         return current;
     }
 
+    /**
+     * Guess the kind of a column that is stored in several pieces.
+     */
+    public SchemaInfo guessAll(Iterable<IStringColumn> pieces) {
+        SchemaInfo current = new SchemaInfo(ContentsKind.None, false);
+        for (IStringColumn column: pieces) {
+            for (int i=0; i < column.sizeInRows(); i++) {
+                this.guess(column.getString(i), current);
+                if (current.kind == ContentsKind.String)
+                    return current;
+            }
+        }
+        return current;
+    }
+
     private static boolean isJsonValid(final String json) throws IOException {
         return isJsonValid(new StringReader(json));
     }
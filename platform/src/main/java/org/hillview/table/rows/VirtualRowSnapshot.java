@@ -59,6 +59,11 @@ public class VirtualRowSnapshot extends BaseRowSnapshot {
     private int rowIndex = -1;
     private final Schema schema;
     private final HashMap<String, IColumn> columns;
+    /**
+     * Used to access strings stored as UTF-8.
+     */
+    @Nullable
+    private Utf8Slice slice;
 
     public VirtualRowSnapshot(
             final ITable table,
@@ -176,6 +181,33 @@ public class VirtualRowSnapshot extends BaseRowSnapshot {
         return col;
     }
 
+    /**
+     * Same as BaseRowSnapshot.matches, but strings stored as UTF-8 are
+     * tested without decoding them when possible.
+     */
+    @Override
+    public boolean matches(IStringFilter filter) {
+        if (!this.exists())
+            return false;
+        for (String column : this.getColumnNames()) {
+            IColumn col = this.getColumnChecked(column);
+            if (col instanceof IUtf8Column) {
+                if (this.slice == null)
+                    this.slice = new Utf8Slice();
+                boolean result;
+                if (((IUtf8Column)col).getSlice(this.rowIndex, this.slice))
+                    result = filter.test(this.slice);
+                else
+                    result = filter.test((String)null);
+                if (result)
+                    return true;
+            } else if (filter.test(col.asString(this.rowIndex))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public Object getObject(String colName) {
         return this.getColumnChecked(colName).getObject(this.rowIndex);
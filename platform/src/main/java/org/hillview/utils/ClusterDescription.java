@@ -27,27 +27,136 @@ import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
 import org.hillview.dataset.api.IJson;
 
+import java.io.Serializable;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Describes the list of hosts that comprise a cluster. The corresponding Json representation
  * would be:
  *          {
- *              "serverList": ["127.0.0.1:1234", "127.0.0.1:1235"]
+ *              "serverList": ["127.0.0.1:1234", "127.0.0.1:1235"],
+ *              "aggregationFanIn": 0
  *          }
  */
 public final class ClusterDescription implements IJson {
     private final List<HostAndPort> serverList;
+    /**
+     * If larger than 1 the results of the servers are combined by a tree of
+     * servers, where each node combines the results of at most this many servers
+     * at each level; see getAggregationTree.
+     */
+    private final int aggregationFanIn;
+
+    /**
+     * Prefix of the line of a cluster descriptor file that specifies the aggregation fan-in.
+     */
+    private static final String FANIN_PREFIX = "fanin=";
 
     public ClusterDescription(final List<HostAndPort> serverList) {
+        this(serverList, 0);
+    }
+
+    public ClusterDescription(final List<HostAndPort> serverList, int aggregationFanIn) {
         this.serverList = serverList;
+        this.aggregationFanIn = aggregationFanIn;
+    }
+
+    /**
+     * Parse the contents of a cluster descriptor file.  Each line contains a server
+     * as host:port.  Optionally a line fanin=k requests an aggregation tree
+     * with fan-in k.  Empty lines and lines starting with # are ignored.
+     */
+    public static ClusterDescription parse(final List<String> lines) {
+        List<HostAndPort> servers = new ArrayList<HostAndPort>();
+        int fanIn = 0;
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            if (line.startsWith(FANIN_PREFIX))
+                fanIn = Integer.parseInt(line.substring(FANIN_PREFIX.length()).trim());
+            else
+                servers.add(HostAndPort.fromString(line));
+        }
+        return new ClusterDescription(servers, fanIn);
     }
 
     public List<HostAndPort> getServerList() {
         return this.serverList;
     }
 
+    public int getAggregationFanIn() {
+        return this.aggregationFanIn;
+    }
+
+    /**
+     * A server in an aggregation tree.  The server combines its own results
+     * with the results of its children before sending them to its parent.
+     */
+    public static class AggregationNode implements Serializable {
+        public final HostAndPort server;
+        public final List<AggregationNode> children;
+
+        AggregationNode(HostAndPort server) {
+            this.server = server;
+            this.children = new ArrayList<AggregationNode>();
+        }
+
+        public boolean isLeaf() {
+            return this.children.isEmpty();
+        }
+
+        /**
+         * Add to the list all the nodes of this subtree that have children.
+         */
+        public void getAggregators(List<AggregationNode> result) {
+            if (this.isLeaf())
+                return;
+            result.add(this);
+            for (AggregationNode c : this.children)
+                c.getAggregators(result);
+        }
+
+        @Override
+        public String toString() {
+            if (this.isLeaf())
+                return this.server.toString();
+            return this.server + this.children.toString();
+        }
+    }
+
+    /**
+     * Organizes the servers into an aggregation tree.  The servers are split into
+     * groups of aggregationFanIn; the first server in each group becomes the parent
+     * of the others, and the parents are grouped again in the same way,
+     * until there are at most aggregationFanIn of them.  Thus the root receives results
+     * from at most aggregationFanIn servers, and each server from at most
+     * aggregationFanIn - 1 children for each level of the tree.  No additional
+     * machines are needed for the interior nodes.
+     * @return  The roots of the tree.  If the aggregation fan-in is 1 or less
+     *          this is a list of leaves, one for each server.
+     */
+    public List<AggregationNode> getAggregationTree() {
+        List<AggregationNode> level = new ArrayList<AggregationNode>(this.serverList.size());
+        for (HostAndPort server : this.serverList)
+            level.add(new AggregationNode(server));
+        if (this.aggregationFanIn <= 1)
+            return level;
+        while (level.size() > this.aggregationFanIn) {
+            List<AggregationNode> parents = new ArrayList<AggregationNode>();
+            for (int i = 0; i < level.size(); i += this.aggregationFanIn) {
+                AggregationNode parent = level.get(i);
+                int end = Math.min(level.size(), i + this.aggregationFanIn);
+                parent.children.addAll(level.subList(i + 1, end));
+                parents.add(parent);
+            }
+            level = parents;
+        }
+        return level;
+    }
+
     public static class HostAndPortSerializer implements JsonSerializer<HostAndPort> {
         public JsonElement serialize(HostAndPort hostAndPort, Type typeOfSchema,
                                      JsonSerializationContext context) {
@@ -24,13 +24,12 @@ import java.time.*;
  * Conversion to and from doubles of various supported datatypes.
  */
 public class Converters {
-    private static final Instant baseTime = LocalDateTime.of(
-            LocalDate.of(1970, 1, 1),
-            LocalTime.of(0, 0)).toInstant(ZoneOffset.UTC);
-
+    /**
+     * Dates are represented as the number of milliseconds since the epoch (Jan 1st 1970 UTC).
+     * This is computed without creating intermediate objects.
+     */
     public static double toDouble(final Instant d) {
-        Duration span = Duration.between(baseTime, d);
-        return Converters.toDouble(span);
+        return d.toEpochMilli();
     }
 
     public static double toDouble(final Duration d) {
@@ -46,8 +45,7 @@ public class Converters {
      * @return Span from base converted to a double.
      */
     public static Instant toDate(final double d) {
-        Duration span = toDuration(d);
-        return baseTime.plus(span);
+        return Instant.ofEpochMilli((long)d);
     }
 
     public static Duration toDuration(final double d) {
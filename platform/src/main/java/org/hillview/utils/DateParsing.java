@@ -38,6 +38,11 @@ public class DateParsing {
      * @see <a href="http://stackoverflow.com/questions/27454025/unable-to-obtain-localdatetime-from-temporalaccessor-when-parsing-localdatetime">Parsing LocalDateTime</a>
      */
     private boolean parseAsDate;
+    /**
+     * Time zone used to interpret the dates; looking up the default zone
+     * for each date is expensive.
+     */
+    private final ZoneId zone = ZoneId.systemDefault();
 
     private static final LinkedHashMap<String, String> DATE_FORMAT_REGEXPS =
             new LinkedHashMap<String, String>() {{
@@ -140,12 +145,29 @@ public class DateParsing {
         Converters.checkNull(this.parserFormatter);
         if (this.parseAsDate) {
             return LocalDate.parse(s.trim(), this.parserFormatter)
-                    .atStartOfDay(ZoneId.systemDefault())
+                    .atStartOfDay(this.zone)
                     .toInstant();
         } else {
             return LocalDateTime.parse(s.trim(), this.parserFormatter)
-                    .atZone(ZoneId.systemDefault())
+                    .atZone(this.zone)
                     .toInstant();
         }
     }
+
+    /**
+     * Parse a date and convert it to the representation used by date columns.
+     * Equivalent to Converters.toDouble(parse(s)), but does not allocate an Instant.
+     * @return The number of milliseconds since the epoch.
+     */
+    public double parseMillis(String s) {
+        Converters.checkNull(this.parserFormatter);
+        if (this.parseAsDate) {
+            return LocalDate.parse(s.trim(), this.parserFormatter)
+                    .atStartOfDay(this.zone)
+                    .toEpochSecond() * 1000.0;
+        } else {
+            LocalDateTime dt = LocalDateTime.parse(s.trim(), this.parserFormatter);
+            return dt.atZone(this.zone).toEpochSecond() * 1000.0 + dt.getNano() / 1000000;
+        }
+    }
 }
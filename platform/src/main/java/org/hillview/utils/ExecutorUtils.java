@@ -8,7 +8,10 @@ import rx.schedulers.Schedulers;
 import javax.annotation.Nullable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Custom thread pools
@@ -16,6 +19,8 @@ import java.util.concurrent.ThreadFactory;
 public class ExecutorUtils {
     @Nullable
     private static ExecutorService computeExecutorService = null;
+    @Nullable
+    private static ExecutorService loadExecutorService = null;
 
     // This machinery is used to create a separate thread to handle unsubscriptions.
     // If we don't do this unsubscriptions are queued behind on the thread that
@@ -38,6 +43,25 @@ public class ExecutorUtils {
                 newNamedThreadFactory(poolName, true, priority));
     }
 
+    /**
+     * Work-stealing thread pool: idle threads take tasks queued by busy threads.
+     * @param poolName   Pattern to use for the thread names.
+     * @param numThreads Number of threads in the pool.
+     */
+    public static ExecutorService newNamedWorkStealingPool(
+            final String poolName, final int numThreads) {
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory = pool -> {
+            ForkJoinWorkerThread thread =
+                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(poolName + "-" + threadCount.getAndIncrement());
+            return thread;
+        };
+        // asyncMode is true: FIFO order is better for tasks that are not joined.
+        // Tasks that wait for other tasks should submit them to another pool.
+        return new ForkJoinPool(numThreads, factory, null, true);
+    }
+
     /**
      * Default netty thread with faster access to thread local storage.
      */
@@ -73,17 +97,31 @@ public class ExecutorUtils {
     }
 
     /**
-     * Use for all compute-heavy tasks.
+     * Use for all compute-heavy tasks.  This is a work-stealing pool, so that
+     * the pieces of a large partition can be processed by all threads.
      */
     public static synchronized ExecutorService getComputeExecutorService() {
         if (computeExecutorService == null) {
             int cpuCount = Runtime.getRuntime().availableProcessors();
             HillviewLogger.instance.info("Detect CPUs", "Using {0} processors", cpuCount);
-            computeExecutorService = newNamedThreadPool("computation", cpuCount, -1);
+            computeExecutorService = newNamedWorkStealingPool("computation", cpuCount);
         }
         return computeExecutorService;
     }
 
+    /**
+     * Use for the pieces of a file that are read in parallel.  The threads that
+     * load a file wait for these pieces; if the pieces were queued in the compute
+     * pool behind the chunks of sketches, the waiting threads would be blocked by them.
+     */
+    public static synchronized ExecutorService getLoadExecutorService() {
+        if (loadExecutorService == null) {
+            int cpuCount = Runtime.getRuntime().availableProcessors();
+            loadExecutorService = newNamedThreadPool("load", cpuCount, -1);
+        }
+        return loadExecutorService;
+    }
+
     public static Scheduler getUnsubscribeScheduler() {
         return unsubScheduler;
     }
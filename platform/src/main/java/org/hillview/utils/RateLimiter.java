@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.utils;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.schedulers.Schedulers;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An RxJava operator that limits the rate of a stream where each value subsumes
+ * the previous ones, e.g., a stream of prefix sums of partial results.
+ * At most one value is emitted in each period; values that arrive too soon are
+ * held, and only the latest one is emitted when the period ends.  When the stream
+ * completes the held value, if any, is emitted immediately, followed by the completion.
+ * @param <T>  Type of values in the stream.
+ */
+public class RateLimiter<T> implements Observable.Operator<T, T> {
+    /**
+     * Minimum time between two values, in milliseconds.
+     */
+    private final long period;
+    private final Scheduler scheduler;
+
+    public RateLimiter(int maxPerSecond, Scheduler scheduler) {
+        if (maxPerSecond <= 0)
+            throw new RuntimeException("Rate must be positive: " + maxPerSecond);
+        this.period = 1000 / maxPerSecond;
+        this.scheduler = scheduler;
+    }
+
+    public RateLimiter(int maxPerSecond) {
+        this(maxPerSecond, Schedulers.computation());
+    }
+
+    @Override
+    public Subscriber<? super T> call(Subscriber<? super T> child) {
+        final Scheduler.Worker worker = this.scheduler.createWorker();
+        child.add(worker);
+        return new Subscriber<T>(child) {
+            /**
+             * Time when the last value was emitted.
+             */
+            private long lastSent = Long.MIN_VALUE / 2;
+            @Nullable
+            private T pending = null;
+            private boolean hasPending = false;
+            /**
+             * True if the emission of the pending value is scheduled.
+             */
+            private boolean scheduled = false;
+            private boolean completed = false;
+
+            /**
+             * Emits the pending value, if any.
+             * Values are emitted while holding the lock to keep them ordered.
+             */
+            private void sendPending() {
+                if (this.hasPending) {
+                    this.lastSent = RateLimiter.this.scheduler.now();
+                    T value = this.pending;
+                    this.pending = null;
+                    this.hasPending = false;
+                    child.onNext(value);
+                }
+            }
+
+            /**
+             * Called at the end of a period if there is a pending value.
+             */
+            private synchronized void flush() {
+                this.scheduled = false;
+                if (!this.completed)
+                    this.sendPending();
+            }
+
+            @Override
+            public synchronized void onNext(T value) {
+                long now = RateLimiter.this.scheduler.now();
+                long wait = this.lastSent + RateLimiter.this.period - now;
+                if (!this.scheduled && wait <= 0) {
+                    this.lastSent = now;
+                    child.onNext(value);
+                    return;
+                }
+                this.pending = value;
+                this.hasPending = true;
+                if (!this.scheduled) {
+                    this.scheduled = true;
+                    worker.schedule(this::flush, wait, TimeUnit.MILLISECONDS);
+                }
+            }
+
+            @Override
+            public synchronized void onCompleted() {
+                // The last value is the most complete one; do not wait for the period.
+                this.completed = true;
+                this.sendPending();
+                child.onCompleted();
+            }
+
+            @Override
+            public synchronized void onError(Throwable throwable) {
+                child.onError(throwable);
+            }
+        };
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.test;
+
+import com.google.common.net.HostAndPort;
+import org.hillview.dataset.LocalDataSet;
+import org.hillview.dataset.api.*;
+import org.hillview.dataset.remoting.HillviewServer;
+import org.hillview.management.ConfigureAggregation;
+import org.hillview.utils.ClusterDescription;
+import org.hillview.utils.Converters;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for aggregation trees of servers.
+ */
+public class AggregationTreeTest extends BaseTest {
+    private static class IncrementMap implements IMap<int[], int[]> {
+        @Override
+        public int[] apply(final int[] data) {
+            final int[] result = new int[data.length];
+            for (int i = 0; i < data.length; i++)
+                result[i] = data[i] + 1;
+            return result;
+        }
+    }
+
+    private static class SumSketch implements ISketch<int[], Integer> {
+        @Override @Nullable
+        public Integer zero() {
+            return 0;
+        }
+
+        @Override @Nullable
+        public Integer add(@Nullable final Integer left, @Nullable final Integer right) {
+            return Converters.checkNull(left) + Converters.checkNull(right);
+        }
+
+        @Override
+        public Integer create(final int[] data) {
+            int sum = 0;
+            for (int d : data)
+                sum += d;
+            return sum;
+        }
+    }
+
+    @Test
+    public void testTreeShape() {
+        ClusterDescription desc = ClusterDescription.parse(Arrays.asList(
+                "# servers", "h0:1", "h1:1", "h2:1", "", "h3:1", "h4:1", "h5:1", "h6:1", "fanin=2"));
+        Assert.assertEquals(7, desc.getServerList().size());
+        Assert.assertEquals(2, desc.getAggregationFanIn());
+        List<ClusterDescription.AggregationNode> tree = desc.getAggregationTree();
+        Assert.assertEquals("[h0:1[h1:1, h2:1[h3:1]], h4:1[h5:1, h6:1]]", tree.toString());
+
+        desc = new ClusterDescription(desc.getServerList());
+        tree = desc.getAggregationTree();
+        Assert.assertEquals(7, tree.size());
+        for (ClusterDescription.AggregationNode n : tree)
+            Assert.assertTrue(n.isLeaf());
+    }
+
+    @Test
+    public void testAggregation() throws Exception {
+        final int servers = 7;
+        final int size = 1000;
+        List<HillviewServer> running = new ArrayList<HillviewServer>();
+        List<HostAndPort> addresses = new ArrayList<HostAndPort>();
+        try {
+            for (int i = 0; i < servers; i++) {
+                HostAndPort address = HostAndPort.fromParts("127.0.0.1", 1250 + i);
+                final int[] data = new int[size];
+                for (int j = 0; j < size; j++)
+                    data[j] = i * size + j;
+                running.add(new HillviewServer(address, new LocalDataSet<int[]>(data)));
+                addresses.add(address);
+            }
+            ClusterDescription desc = new ClusterDescription(addresses, 3);
+            List<ClusterDescription.AggregationNode> tree = desc.getAggregationTree();
+            Assert.assertEquals(3, tree.size());
+            // The root dataset contains Empty objects, but the servers hold int[]
+            @SuppressWarnings("unchecked")
+            IDataSet<int[]> root = (IDataSet<int[]>)(Object)ConfigureAggregation.createRootDataset(tree);
+
+            final int expected = (servers * size) * (servers * size - 1) / 2;
+            int sum = root.sketch(new SumSketch())
+                    .map(e -> Converters.checkNull(e.deltaValue))
+                    .reduce((x, y) -> x + y)
+                    .toBlocking().last();
+            Assert.assertEquals(expected, sum);
+
+            IDataSet<int[]> incremented = root.map(new IncrementMap())
+                    .filter(p -> p.deltaValue != null)
+                    .toBlocking().last().deltaValue;
+            Assert.assertNotNull(incremented);
+            sum = incremented.sketch(new SumSketch())
+                    .map(e -> Converters.checkNull(e.deltaValue))
+                    .reduce((x, y) -> x + y)
+                    .toBlocking().last();
+            Assert.assertEquals(expected + servers * size, sum);
+        } finally {
+            for (HillviewServer s : running)
+                s.shutdown();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.test;
+
+import org.hillview.dataset.LocalDataSet;
+import org.hillview.dataset.ParallelDataSet;
+import org.hillview.dataset.api.ControlMessage;
+import org.hillview.dataset.api.Empty;
+import org.hillview.dataset.api.IDataSet;
+import org.hillview.dataset.api.IMap;
+import org.hillview.dataset.api.ISketch;
+import org.hillview.management.AppendNewFiles;
+import org.hillview.maps.FindFilesMapper;
+import org.hillview.maps.LoadFilesMapper;
+import org.hillview.storage.FileGroupReference;
+import org.hillview.storage.FileSetDescription;
+import org.hillview.storage.IFileReference;
+import org.hillview.table.api.ITable;
+import org.hillview.utils.Converters;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Test appending newly arrived files to a loaded dataset.
+ */
+public class AppendFilesTest extends BaseTest {
+    private static class RowCount implements ISketch<ITable, Integer> {
+        @Override
+        public Integer zero() {
+            return 0;
+        }
+
+        @Override
+        public Integer add(@Nullable Integer left, @Nullable Integer right) {
+            return Converters.checkNull(left) + Converters.checkNull(right);
+        }
+
+        @Override
+        public Integer create(@Nullable ITable data) {
+            return Converters.checkNull(data).getNumOfRows();
+        }
+    }
+
+    private static void writeFile(Path folder, String name, int rows) throws IOException {
+        StringBuilder builder = new StringBuilder("Name,Value\n");
+        for (int i = 0; i < rows; i++)
+            builder.append("n").append(i).append(",").append(i).append("\n");
+        Files.write(folder.resolve(name), builder.toString().getBytes());
+    }
+
+    @Test
+    public void testAppend() throws IOException {
+        Path folder = Files.createTempDirectory("append");
+        try {
+            writeFile(folder, "log0.csv", 10);
+            writeFile(folder, "log1.csv", 20);
+            FileSetDescription desc = new FileSetDescription();
+            desc.fileKind = "csv";
+            desc.folder = folder.toString();
+            desc.fileNamePattern = "log*.csv";
+
+            IDataSet<Empty> empty = new LocalDataSet<Empty>(Empty.getInstance());
+            IDataSet<IFileReference> files = empty.blockingFlatMap(new FindFilesMapper(desc));
+            IDataSet<ITable> tables = files.blockingMap(new LoadFilesMapper());
+            Assert.assertTrue(tables instanceof ParallelDataSet);
+            Assert.assertEquals(30, (int)tables.blockingSketch(new RowCount()));
+
+            // Nothing new
+            AppendNewFiles append = new AppendNewFiles(desc);
+            ControlMessage.StatusList status = tables.manage(append).toBlocking().last().deltaValue;
+            Assert.assertNotNull(status);
+            Assert.assertEquals(30, (int)tables.blockingSketch(new RowCount()));
+
+            writeFile(folder, "log2.csv", 5);
+            writeFile(folder, "other.csv", 100);
+            tables.manage(append).toBlocking().last();
+            List<IDataSet<ITable>> children = ((ParallelDataSet<ITable>)tables).getChildren();
+            Assert.assertEquals(3, children.size());
+            Assert.assertEquals(35, (int)tables.blockingSketch(new RowCount()));
+        } finally {
+            try (Stream<Path> paths = Files.walk(folder)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    public void testGrouping() throws IOException {
+        Path folder = Files.createTempDirectory("group");
+        try {
+            for (int i = 0; i < 10; i++)
+                writeFile(folder, "log" + i + ".csv", 100);
+            long fileSize = Files.size(folder.resolve("log0.csv"));
+            FileSetDescription desc = new FileSetDescription();
+            desc.fileKind = "csv";
+            desc.folder = folder.toString();
+            desc.fileNamePattern = "log*.csv";
+            desc.groupSizeInBytes = 3 * fileSize;
+
+            IDataSet<Empty> empty = new LocalDataSet<Empty>(Empty.getInstance());
+            IDataSet<IFileReference> files = empty.blockingFlatMap(new FindFilesMapper(desc));
+            IDataSet<ITable> tables = files.blockingMap(new LoadFilesMapper());
+            ParallelDataSet<ITable> pds = (ParallelDataSet<ITable>)tables;
+            Assert.assertEquals(4, pds.getChildren().size());
+            Assert.assertEquals(1000, (int)tables.blockingSketch(new RowCount()));
+
+            // Grouped files are not loaded again
+            AppendNewFiles append = new AppendNewFiles(desc);
+            tables.manage(append).toBlocking().last();
+            Assert.assertEquals(4, pds.getChildren().size());
+            for (int i = 10; i < 13; i++)
+                writeFile(folder, "log" + i + ".csv", 100);
+            ControlMessage.StatusList status = tables.manage(append).toBlocking().last().deltaValue;
+            Assert.assertNotNull(status);
+            Assert.assertTrue(status.toJson().contains("3 files appended"));
+            Assert.assertEquals(5, pds.getChildren().size());
+            Assert.assertEquals(1300, (int)tables.blockingSketch(new RowCount()));
+            // Each table is named after one of its files and records all of them.
+            int loaded = 0;
+            for (IDataSet<ITable> child : pds.getChildren()) {
+                ITable table = ((LocalDataSet<ITable>)child).data;
+                List<String> names = Converters.checkNull(table.getLoadedFiles());
+                Assert.assertEquals(names.get(0), table.getSourceFile());
+                Assert.assertTrue(Files.exists(Paths.get(names.get(0))));
+                loaded += names.size();
+            }
+            Assert.assertEquals(13, loaded);
+        } finally {
+            try (Stream<Path> paths = Files.walk(folder)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static class SizedFile implements IFileReference {
+        private final String name;
+        private final long size;
+        private final boolean lazy;
+
+        SizedFile(String name, long size, boolean lazy) {
+            this.name = name;
+            this.size = size;
+            this.lazy = lazy;
+        }
+
+        SizedFile(String name, long size) {
+            this(name, size, false);
+        }
+
+        @Override
+        public ITable load() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getSizeInBytes() {
+            return this.size;
+        }
+
+        @Override
+        public String getPathname() {
+            return this.name;
+        }
+
+        @Override
+        public boolean loadsColumnsLazily() {
+            return this.lazy;
+        }
+    }
+
+    @Test
+    public void testCoalesce() {
+        List<IFileReference> files = Arrays.asList(
+                new SizedFile("a", 10), new SizedFile("b", 10), new SizedFile("c", 100),
+                new SizedFile("d", 20), new SizedFile("e", 10), new SizedFile("f", 5));
+        List<IFileReference> groups = FileGroupReference.coalesce(files, 30);
+        // Large files are not grouped with the files before them.
+        Assert.assertEquals(4, groups.size());
+        Assert.assertEquals(2, ((FileGroupReference)groups.get(0)).getFiles().size());
+        Assert.assertSame(files.get(2), groups.get(1));
+        Assert.assertEquals(2, ((FileGroupReference)groups.get(2)).getFiles().size());
+        Assert.assertSame(files.get(5), groups.get(3));
+        Assert.assertEquals("d", groups.get(2).getPathname());
+
+        // Files whose columns are loaded lazily are not grouped.
+        files = Arrays.asList(
+                new SizedFile("a", 10), new SizedFile("b", 5, true), new SizedFile("c", 5, true));
+        groups = FileGroupReference.coalesce(files, 30);
+        Assert.assertEquals(files, groups);
+    }
+
+    @Test
+    public void testOnlyLoadedTables() throws IOException, InterruptedException {
+        Path folder = Files.createTempDirectory("append");
+        try {
+            writeFile(folder, "log0.csv", 10);
+            FileSetDescription desc = new FileSetDescription();
+            desc.fileKind = "csv";
+            desc.folder = folder.toString();
+            desc.fileNamePattern = "log*.csv";
+
+            IDataSet<Empty> empty = new LocalDataSet<Empty>(Empty.getInstance());
+            IDataSet<IFileReference> files = empty.blockingFlatMap(new FindFilesMapper(desc));
+            IDataSet<ITable> tables = files.blockingMap(new LoadFilesMapper());
+            IMap<ITable, ITable> firstRows = t -> t.selectRowsFromFullTable(
+                    t.getMembershipSet().filter(r -> r < 5));
+            IDataSet<ITable> filtered = tables.blockingMap(firstRows);
+            Assert.assertEquals(5, (int)filtered.blockingSketch(new RowCount()));
+
+            // A view derived from the loaded tables is not extended.
+            writeFile(folder, "log1.csv", 20);
+            AppendNewFiles append = new AppendNewFiles(desc);
+            filtered.manage(append).toBlocking().last();
+            Assert.assertEquals(5, (int)filtered.blockingSketch(new RowCount()));
+            Assert.assertEquals(10, (int)tables.blockingSketch(new RowCount()));
+
+            // Concurrent messages append each file once.
+            Thread[] threads = new Thread[4];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(() -> tables.manage(append).toBlocking().last());
+                threads[i].start();
+            }
+            for (Thread t : threads)
+                t.join();
+            Assert.assertEquals(30, (int)tables.blockingSketch(new RowCount()));
+        } finally {
+            try (Stream<Path> paths = Files.walk(folder)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.test;
+
+import org.hillview.dataset.api.IJson;
+import org.hillview.maps.FilterMap;
+import org.hillview.sketches.BasicColStatSketch;
+import org.hillview.sketches.BasicColStats;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.Table;
+import org.hillview.table.api.*;
+import org.hillview.table.columns.BlockStatistics;
+import org.hillview.table.columns.CategoryListColumn;
+import org.hillview.table.columns.DoubleListColumn;
+import org.hillview.table.columns.IntListColumn;
+import org.hillview.table.filters.ComparisonFilterDescription;
+import org.hillview.table.filters.EqualityFilterDescription;
+import org.hillview.table.filters.RangeFilterDescription;
+import org.hillview.table.filters.RangeFilterPair;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests for the per-block column statistics and the filters that use them.
+ * The results are compared with filters that test each row.
+ */
+public class BlockStatisticsTest extends BaseTest {
+    private static final int rows = 3 * BlockStatistics.BlockSize + 1000;
+
+    /**
+     * A table sorted on column "Sorted"; the column "Sparse" is missing in
+     * the first block, "Name" is sorted as well.
+     */
+    private static Table createTable() {
+        IntListColumn sorted = new IntListColumn(
+                new ColumnDescription("Sorted", ContentsKind.Integer));
+        DoubleListColumn sparse = new DoubleListColumn(
+                new ColumnDescription("Sparse", ContentsKind.Double));
+        CategoryListColumn name = new CategoryListColumn(
+                new ColumnDescription("Name", ContentsKind.Category));
+        for (int i = 0; i < rows; i++) {
+            sorted.append(i);
+            if (i < BlockStatistics.BlockSize)
+                sparse.appendMissing();
+            else
+                sparse.append((double)(i % 7));
+            name.append("n" + (i / BlockStatistics.BlockSize));
+        }
+        return new Table(Arrays.asList(sorted, sparse, name), null, null);
+    }
+
+    private static void checkFilter(ITable table, ITableFilterDescription description) {
+        ITableFilter filter = description.getFilter(table);
+        IMembershipSet expected = table.getMembershipSet().filter(filter::test);
+        IMembershipSet actual = new FilterMap(description).apply(table).getMembershipSet();
+        Assert.assertEquals(expected.getSize(), actual.getSize());
+        IRowIterator it = expected.getIterator();
+        for (int row = it.getNextRow(); row >= 0; row = it.getNextRow())
+            Assert.assertTrue(actual.isMember(row));
+    }
+
+    private static RangeFilterDescription range(String column, double min, double max,
+                                                boolean complement) {
+        String json = "{ columnName: \"" + column + "\", min: " + min + ", max: " + max +
+                ", complement: " + complement + " }";
+        return IJson.gsonInstance.fromJson(json, RangeFilterDescription.class);
+    }
+
+    @Test
+    public void testStatistics() {
+        Table table = createTable();
+        IColumn sorted = table.getLoadedColumn("Sorted").column;
+        BlockStatistics stats = sorted.getBlockStatistics();
+        Assert.assertNotNull(stats);
+        Assert.assertEquals(4, stats.getBlockCount());
+        Assert.assertEquals(BlockStatistics.BlockSize, stats.getMin(1), 0);
+        Assert.assertEquals(rows - 1, stats.getMax(3), 0);
+        Assert.assertEquals(1000, stats.getPresentCount(3));
+
+        stats = table.getLoadedColumn("Sparse").column.getBlockStatistics();
+        Assert.assertNotNull(stats);
+        Assert.assertEquals(0, stats.getPresentCount(0));
+        Assert.assertEquals(BlockStatistics.BlockSize, stats.getMissingCount(0));
+        Assert.assertEquals(0, stats.getMin(2), 0);
+        Assert.assertEquals(6, stats.getMax(2), 0);
+
+        stats = table.getLoadedColumn("Name").column.getBlockStatistics();
+        Assert.assertNotNull(stats);
+        Assert.assertFalse(stats.isNumeric());
+        Assert.assertEquals("n2", stats.getMinString(2));
+        Assert.assertEquals("n2", stats.getMaxString(2));
+    }
+
+    @Test
+    public void testBlockResults() {
+        Table table = createTable();
+        int middle = BlockStatistics.BlockSize + 10;
+        ITableFilter filter = range("Sorted", 0, middle, false).getFilter(table);
+        Assert.assertEquals(ITableFilter.BlockResult.All, filter.testBlock(0));
+        Assert.assertEquals(ITableFilter.BlockResult.Some, filter.testBlock(1));
+        Assert.assertEquals(ITableFilter.BlockResult.None, filter.testBlock(2));
+
+        filter = range("Sorted", 0, middle, true).getFilter(table);
+        Assert.assertEquals(ITableFilter.BlockResult.None, filter.testBlock(0));
+        Assert.assertEquals(ITableFilter.BlockResult.All, filter.testBlock(3));
+
+        filter = new EqualityFilterDescription("Name", "n1").getFilter(table);
+        Assert.assertEquals(ITableFilter.BlockResult.None, filter.testBlock(0));
+        Assert.assertEquals(ITableFilter.BlockResult.All, filter.testBlock(1));
+
+        filter = new EqualityFilterDescription("Sparse", null).getFilter(table);
+        Assert.assertEquals(ITableFilter.BlockResult.All, filter.testBlock(0));
+        Assert.assertEquals(ITableFilter.BlockResult.None, filter.testBlock(1));
+    }
+
+    @Test
+    public void testFilters() {
+        Table table = createTable();
+        int middle = 2 * BlockStatistics.BlockSize + 17;
+        for (boolean complement : new boolean[] { false, true }) {
+            checkFilter(table, range("Sorted", 100, middle, complement));
+            checkFilter(table, range("Sparse", 2, 4, complement));
+            checkFilter(table, range("Sparse", -1, 10, complement));
+            checkFilter(table, new EqualityFilterDescription(
+                    "Name", "n2", complement, false));
+            checkFilter(table, new EqualityFilterDescription(
+                    "Sparse", "3", complement, false));
+            checkFilter(table, new EqualityFilterDescription(
+                    "Sparse", null, complement, false));
+        }
+        checkFilter(table, new RangeFilterPair(
+                range("Sorted", 100, middle, false), range("Sparse", 2, 4, false)));
+        for (String op : new String[] { "==", "!=", "<", ">", "<=", ">=" }) {
+            checkFilter(table, new ComparisonFilterDescription(
+                    "Sorted", Integer.toString(middle), op));
+            checkFilter(table, new ComparisonFilterDescription("Sparse", "3", op));
+            checkFilter(table, new ComparisonFilterDescription("Sparse", "10", op));
+            checkFilter(table, new ComparisonFilterDescription("Name", "n1", op));
+        }
+    }
+
+    @Test
+    public void testRange() {
+        Table table = createTable();
+        for (String column : new String[] { "Sorted", "Sparse" }) {
+            ColumnAndConverterDescription ccd = new ColumnAndConverterDescription(column);
+            BasicColStats fromBlocks = new BasicColStatSketch(ccd, 0).create(table);
+            // A sketch with moments scans all rows.
+            BasicColStats scanned = new BasicColStatSketch(ccd, 1).create(table);
+            Assert.assertEquals(scanned.getMin(), fromBlocks.getMin(), 0);
+            Assert.assertEquals(scanned.getMax(), fromBlocks.getMax(), 0);
+            Assert.assertEquals(scanned.getPresentCount(), fromBlocks.getPresentCount());
+            Assert.assertEquals(scanned.getRowCount(), fromBlocks.getRowCount());
+        }
+    }
+}
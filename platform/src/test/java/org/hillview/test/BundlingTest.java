@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.test;
+
+import org.hillview.dataset.AdaptiveBundler;
+import org.hillview.dataset.api.IMonoid;
+import org.hillview.utils.Converters;
+import org.hillview.utils.RateLimiter;
+import org.junit.Assert;
+import org.junit.Test;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the operators that reduce the number of partial results.
+ */
+public class BundlingTest extends BaseTest {
+    private static class SlowSum implements IMonoid<Integer> {
+        @Nullable
+        @Override
+        public Integer zero() {
+            return 0;
+        }
+
+        @Nullable
+        @Override
+        public Integer add(@Nullable Integer left, @Nullable Integer right) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return Converters.checkNull(left) + Converters.checkNull(right);
+        }
+    }
+
+    @Test
+    public void testAdaptiveBundler() {
+        AdaptiveBundler<Integer> bundler = new AdaptiveBundler<Integer>(
+                10, TimeUnit.MILLISECONDS, new SlowSum());
+        Assert.assertEquals(10, bundler.getInterval());
+        Observable<Integer> data = Observable.interval(1, TimeUnit.MILLISECONDS)
+                .take(200)
+                .map(i -> (int)(long)i);
+        List<Integer> sums = bundler.bundle(data).toList().toBlocking().single();
+        int total = 0;
+        for (int s : sums)
+            total += s;
+        Assert.assertEquals(199 * 200 / 2, total);
+        Assert.assertTrue(sums.size() < 200);
+        // Adding takes much longer than the minimum interval, so the interval grows
+        Assert.assertTrue(bundler.getInterval() > 10);
+    }
+
+    @Test
+    public void testRateLimiter() {
+        TestScheduler scheduler = new TestScheduler();
+        PublishSubject<Integer> subject = PublishSubject.create();
+        TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>();
+        // At most one value every 200 milliseconds
+        subject.lift(new RateLimiter<Integer>(5, scheduler)).subscribe(subscriber);
+
+        subject.onNext(1);
+        subscriber.assertValues(1);
+        scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+        subject.onNext(2);
+        subject.onNext(3);
+        subscriber.assertValues(1);
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        subscriber.assertValues(1, 3);
+
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        subject.onNext(4);
+        subject.onNext(5);
+        subscriber.assertValues(1, 3);
+        // The pending value is sent as soon as the stream completes
+        subject.onCompleted();
+        Assert.assertEquals(Arrays.asList(1, 3, 5), subscriber.getOnNextEvents());
+        subscriber.assertCompleted();
+        // The scheduled flush does not send anything else
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        subscriber.assertValueCount(3);
+
+        subject = PublishSubject.create();
+        subscriber = new TestSubscriber<Integer>();
+        subject.lift(new RateLimiter<Integer>(5, scheduler)).subscribe(subscriber);
+        subject.onNext(5);
+        subject.onCompleted();
+        subscriber.assertValues(5);
+        subscriber.assertCompleted();
+    }
+}
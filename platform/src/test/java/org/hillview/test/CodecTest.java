@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.test;
+
+import org.hillview.dataset.api.PartialResult;
+import org.hillview.dataset.remoting.Codecs;
+import org.hillview.dataset.remoting.OperationResponse;
+import org.hillview.sketches.*;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.RecordOrder;
+import org.hillview.table.Schema;
+import org.hillview.table.SmallTable;
+import org.hillview.table.Table;
+import org.hillview.table.api.ColumnAndConverterDescription;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.columns.ObjectArrayColumn;
+import org.hillview.table.rows.RowSnapshot;
+import org.hillview.utils.Converters;
+import org.hillview.utils.TestTables;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Round-trip tests for the binary encoding used between servers and clients.
+ */
+public class CodecTest extends BaseTest {
+    private static <T> T roundTrip(T value) {
+        byte[] bytes = Codecs.encode(value);
+        return Codecs.decode(bytes);
+    }
+
+    private static void checkSame(SmallTable expected, SmallTable actual) {
+        Assert.assertEquals(expected.getSchema(), actual.getSchema());
+        Assert.assertEquals(expected.getNumOfRows(), actual.getNumOfRows());
+        Assert.assertEquals(expected.toJson(), actual.toJson());
+    }
+
+    @Test
+    public void testHistogram() {
+        Table table = TestTables.testRepTable();
+        HistogramSketch sketch = new HistogramSketch(new BucketsDescriptionEqSize(0, 50, 10),
+                new ColumnAndConverterDescription("Age"), 1.0, 0);
+        Histogram hist = sketch.create(table);
+        Histogram result = roundTrip(hist);
+        Assert.assertEquals(hist.toString(), result.toString());
+        Assert.assertEquals(hist.getMissingData(), result.getMissingData());
+        Assert.assertEquals(hist.getOutOfRange(), result.getOutOfRange());
+    }
+
+    @Test
+    public void testHeatMap() {
+        SmallTable table = TestTables.getMissingIntTable(1000, 2);
+        String[] cols = table.getSchema().getColumnNames().toArray(new String[0]);
+        HeatMapSketch sketch = new HeatMapSketch(new BucketsDescriptionEqSize(0, 100, 7),
+                new BucketsDescriptionEqSize(0, 100, 5),
+                new ColumnAndConverterDescription(cols[0]),
+                new ColumnAndConverterDescription(cols[1]), 1.0, 0);
+        HeatMap map = sketch.create(table);
+        HeatMap result = roundTrip(map);
+        Assert.assertEquals(map.toJson(), result.toJson());
+        Assert.assertEquals(map.getSize(), result.getSize());
+        Assert.assertEquals(map.getMissingHistogramD1().toString(),
+                result.getMissingHistogramD1().toString());
+        Assert.assertEquals(map.getMissingHistogramD2().toString(),
+                result.getMissingHistogramD2().toString());
+    }
+
+    @Test
+    public void testSmallTable() {
+        SmallTable table = TestTables.getMissingIntTable(100, 3);
+        checkSame(table, roundTrip(table));
+
+        Table rep = TestTables.testRepTable();
+        SmallTable small = rep.compress(rep.getMembershipSet());
+        checkSame(small, roundTrip(small));
+
+        ObjectArrayColumn dates = new ObjectArrayColumn(
+                new ColumnDescription("Date", ContentsKind.Date), 3);
+        dates.set(0, Instant.ofEpochSecond(1000, 12345));
+        dates.set(2, Instant.ofEpochSecond(-5));
+        ObjectArrayColumn durations = new ObjectArrayColumn(
+                new ColumnDescription("Duration", ContentsKind.Duration), 3);
+        durations.set(1, Duration.ofMillis(1500));
+        durations.set(2, Duration.ofSeconds(-3, 7));
+        List<IColumn> columns = new ArrayList<IColumn>();
+        columns.add(dates);
+        columns.add(durations);
+        SmallTable times = new SmallTable(columns);
+        SmallTable result = roundTrip(times);
+        checkSame(times, result);
+        Assert.assertTrue(result.getColumn("Date").isMissing(1));
+        Assert.assertEquals(Instant.ofEpochSecond(1000, 12345), result.getColumn("Date").getDate(0));
+        Assert.assertEquals(Duration.ofSeconds(-3, 7), result.getColumn("Duration").getDuration(2));
+
+        SmallTable empty = new SmallTable(rep.getSchema());
+        checkSame(empty, roundTrip(empty));
+
+        // A table without columns still has rows.
+        List<RowSnapshot> rows = new ArrayList<RowSnapshot>();
+        for (int i = 0; i < 5; i++)
+            rows.add(new RowSnapshot(rep, i, new Schema()));
+        SmallTable noColumns = new SmallTable(new Schema(), rows);
+        Assert.assertEquals(5, noColumns.getNumOfRows());
+        checkSame(noColumns, roundTrip(noColumns));
+    }
+
+    @Test
+    public void testNextKList() {
+        Table table = TestTables.testRepTable();
+        RecordOrder cso = new RecordOrder();
+        for (String colName : table.getSchema().getColumnNames())
+            cso.append(new ColumnSortOrientation(table.getSchema().getDescription(colName), true));
+        NextKSketch sketch = new NextKSketch(cso, new RowSnapshot(table, 3), 5);
+        NextKList list = sketch.create(table);
+        NextKList result = roundTrip(list);
+        Assert.assertEquals(list.toLongString(5), result.toLongString(5));
+        Assert.assertEquals(list.toJson(), result.toJson());
+        Assert.assertEquals(list.count, result.count);
+        Assert.assertEquals(list.startPosition, result.startPosition);
+    }
+
+    @Test
+    public void testSampleList() {
+        SampleList list = new SampleList(TestTables.getIntTable(50, 2));
+        SampleList result = roundTrip(list);
+        checkSame(list.table, result.table);
+    }
+
+    @Test
+    public void testWrappersAndFallback() {
+        Histogram hist = new Histogram(new BucketsDescriptionEqSize(0, 1, 2));
+        OperationResponse<PartialResult<Histogram>> response =
+                new OperationResponse<PartialResult<Histogram>>(
+                        new PartialResult<Histogram>(0.5, hist));
+        OperationResponse<PartialResult<Histogram>> result = roundTrip(response);
+        PartialResult<Histogram> pr = Converters.checkNull(result.result);
+        Assert.assertEquals(0.5, pr.deltaDone, 0);
+        Assert.assertEquals(hist.toString(), Converters.checkNull(pr.deltaValue).toString());
+
+        // No codec registered for these classes: Java serialization is used.
+        Assert.assertEquals("some string", roundTrip("some string"));
+        List<Integer> list = new ArrayList<Integer>();
+        list.add(3);
+        list.add(7);
+        Assert.assertEquals(list, roundTrip(list));
+        Assert.assertNull(roundTrip(null));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.test;
+
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.NoStringConverter;
+import org.hillview.table.RadixConverter;
+import org.hillview.table.api.*;
+import org.hillview.table.columns.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the batch accessors of columns.
+ */
+public class ColumnBatchTest extends BaseTest {
+    private static final int size = 1000;
+
+    private static void check(IColumn column, IStringConverter converter) {
+        final int[] rows = new int[100];
+        final double[] values = new double[rows.length];
+        final int[] ints = new int[rows.length];
+        final boolean[] missing = new boolean[rows.length];
+        final boolean isInt = column.getKind() == ContentsKind.Integer;
+        for (int i = 0; i < rows.length; i++)
+            rows[i] = (i * 7) % size;
+
+        column.asDoubles(rows, rows.length, converter, values, missing);
+        for (int i = 0; i < rows.length; i++) {
+            Assert.assertEquals(column.isMissing(rows[i]), missing[i]);
+            if (!missing[i])
+                Assert.assertEquals(column.asDouble(rows[i], converter), values[i], 0);
+        }
+        int start = 150;
+        column.asDoubles(start, rows.length, converter, values, missing);
+        for (int i = 0; i < rows.length; i++) {
+            Assert.assertEquals(column.isMissing(start + i), missing[i]);
+            if (!missing[i])
+                Assert.assertEquals(column.asDouble(start + i, converter), values[i], 0);
+        }
+        if (isInt) {
+            column.getInts(rows, rows.length, ints, missing);
+            for (int i = 0; i < rows.length; i++) {
+                Assert.assertEquals(column.isMissing(rows[i]), missing[i]);
+                if (!missing[i])
+                    Assert.assertEquals(column.getInt(rows[i]), ints[i]);
+            }
+            column.getInts(start, rows.length, ints, missing);
+            for (int i = 0; i < rows.length; i++) {
+                Assert.assertEquals(column.isMissing(start + i), missing[i]);
+                if (!missing[i])
+                    Assert.assertEquals(column.getInt(start + i), ints[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchAccess() {
+        IntArrayColumn ints = new IntArrayColumn(
+                new ColumnDescription("Int", ContentsKind.Integer), size);
+        DoubleArrayColumn doubles = new DoubleArrayColumn(
+                new ColumnDescription("Double", ContentsKind.Double), size);
+        CategoryArrayColumn categories = new CategoryArrayColumn(
+                new ColumnDescription("Category", ContentsKind.Category), size);
+        BaseListColumn list = BaseListColumn.create(
+                new ColumnDescription("List", ContentsKind.Integer));
+        for (int i = 0; i < size; i++) {
+            if (i % 3 == 0) {
+                ints.setMissing(i);
+                doubles.setMissing(i);
+                categories.setMissing(i);
+                list.appendMissing();
+            } else {
+                ints.set(i, i);
+                doubles.set(i, i / 10.0);
+                categories.set(i, "c" + (i % 10));
+                list.append(i);
+            }
+        }
+        check(ints, NoStringConverter.getConverterInstance());
+        check(doubles, NoStringConverter.getConverterInstance());
+        check(list.seal(), NoStringConverter.getConverterInstance());
+        check(categories, new RadixConverter());
+    }
+}
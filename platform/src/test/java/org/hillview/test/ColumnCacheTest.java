@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hillview.test;
+
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.Table;
+import org.hillview.table.api.*;
+import org.hillview.table.columns.ColumnCache;
+import org.hillview.table.columns.IntArrayColumn;
+import org.hillview.utils.Linq;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for the eviction of lazily loaded columns and of column hash codes.
+ */
+public class ColumnCacheTest extends BaseTest {
+    private static final int rows = 1000;
+
+    private static class CountingLoader implements IColumnLoader {
+        int loads = 0;
+
+        @Override
+        public synchronized List<IColumn> loadColumns(List<String> names) {
+            List<IColumn> result = new ArrayList<IColumn>();
+            for (String n : names) {
+                this.loads++;
+                int[] data = new int[rows];
+                for (int i = 0; i < rows; i++)
+                    data[i] = i;
+                result.add(new IntArrayColumn(new ColumnDescription(n, ContentsKind.Integer), data));
+            }
+            return result;
+        }
+    }
+
+    private static Table createTable(CountingLoader loader) {
+        List<ColumnDescription> desc = new ArrayList<ColumnDescription>();
+        desc.add(new ColumnDescription("A", ContentsKind.Integer));
+        desc.add(new ColumnDescription("B", ContentsKind.Integer));
+        return Table.createLazyTable(desc, rows, null, loader);
+    }
+
+    private static void load(ITable table, String... columns) {
+        List<ColumnAndConverter> loaded = table.getLoadedColumns(
+                Linq.map(Arrays.asList(columns), ColumnAndConverterDescription::new));
+        for (ColumnAndConverter c : loaded)
+            Assert.assertEquals(rows - 1, c.column.getInt(rows - 1));
+    }
+
+    private static boolean isLoaded(Table table, String column) {
+        for (IColumn c : table.getColumns())
+            if (c.getName().equals(column))
+                return c.isLoaded();
+        throw new RuntimeException("No column " + column);
+    }
+
+    @Test
+    public void testEviction() {
+        ColumnCache cache = ColumnCache.instance;
+        long budget = cache.getBudget();
+        try {
+            // Room for one column only.
+            cache.setBudget(6 * rows);
+            CountingLoader loader = new CountingLoader();
+            Table table = createTable(loader);
+            load(table, "A");
+            Assert.assertEquals(1, loader.loads);
+            load(table, "A");
+            Assert.assertEquals(1, loader.loads);
+            load(table, "B");
+            Assert.assertEquals(2, loader.loads);
+            Assert.assertFalse(isLoaded(table, "A"));
+            Assert.assertTrue(isLoaded(table, "B"));
+            // Evicted columns are reloaded on demand.
+            load(table, "A");
+            Assert.assertEquals(3, loader.loads);
+            Assert.assertFalse(isLoaded(table, "B"));
+        } finally {
+            cache.setBudget(budget);
+            cache.clear();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    public void testPinning() {
+        ColumnCache cache = ColumnCache.instance;
+        long budget = cache.getBudget();
+        try {
+            cache.setBudget(6 * rows);
+            CountingLoader loader = new CountingLoader();
+            Table table = createTable(loader);
+            try (ColumnCache.PinScope ignored = cache.pinScope()) {
+                load(table, "A");
+                load(table, "B");
+                // Both columns are pinned, so the budget is exceeded.
+                Assert.assertTrue(isLoaded(table, "A"));
+                Assert.assertTrue(isLoaded(table, "B"));
+                Assert.assertTrue(cache.getUsedBytes() > cache.getBudget());
+            }
+            Assert.assertTrue(cache.getUsedBytes() <= cache.getBudget());
+            Assert.assertFalse(isLoaded(table, "A"));
+            Assert.assertEquals(2, loader.loads);
+        } finally {
+            cache.setBudget(budget);
+            cache.clear();
+        }
+    }
+
+    @Test
+    public void testRename() {
+        ColumnCache cache = ColumnCache.instance;
+        long budget = cache.getBudget();
+        try {
+            cache.clear();
+            CountingLoader loader = new CountingLoader();
+            Table table = createTable(loader);
+            load(table, "A");
+            long used = cache.getUsedBytes();
+            IColumn a = table.getColumns().iterator().next();
+            IColumn renamed = a.rename("C");
+            Assert.assertEquals("C", renamed.getName());
+            Assert.assertTrue(renamed.isLoaded());
+            // The renamed column shares the cache entry of the original one.
+            Assert.assertEquals(rows - 1, renamed.getInt(rows - 1));
+            Assert.assertEquals(used, cache.getUsedBytes());
+            Assert.assertEquals(1, loader.loads);
+
+            // When the data is evicted both columns are unloaded, and it
+            // is reloaded using the original name.
+            cache.setBudget(6 * rows);
+            load(table, "B");
+            Assert.assertFalse(renamed.isLoaded());
+            Assert.assertEquals(rows - 1, renamed.rename("D").getInt(rows - 1));
+            Assert.assertTrue(a.isLoaded());
+            Assert.assertEquals(3, loader.loads);
+        } finally {
+            cache.setBudget(budget);
+            cache.clear();
+        }
+    }
+
+    @Test
+    public void testHashCodes() {
+        ColumnCache cache = ColumnCache.instance;
+        long budget = cache.getBudget();
+        try {
+            cache.clear();
+            CountingLoader loader = new CountingLoader();
+            IColumn column = loader.loadColumns(Arrays.asList("A")).get(0);
+            long used = cache.getUsedBytes();
+            long[] hashCodes = column.hashCodes64();
+            Assert.assertEquals(used + 8 * rows, cache.getUsedBytes());
+            Assert.assertSame(hashCodes, column.hashCodes64());
+            // Hash codes are dropped to stay within the budget.
+            cache.setBudget(4 * rows);
+            Assert.assertEquals(used, cache.getUsedBytes());
+            long[] recomputed = column.hashCodes64();
+            Assert.assertNotSame(hashCodes, recomputed);
+            Assert.assertArrayEquals(hashCodes, recomputed);
+        } finally {
+            cache.setBudget(budget);
+            cache.clear();
+        }
+    }
+}
@@ -127,6 +127,91 @@ public class CsvFileTest extends BaseTest {
         Assert.assertEquals("Table[3x5]", t.toString());
     }
 
+    @Test
+    public void readCsvFileInChunksTest() {
+        Path path = Paths.get(ontimeFolder, csvFile);
+        CsvFileLoader.Config config = new CsvFileLoader.Config();
+        config.allowFewerColumns = false;
+        config.hasHeaderRow = true;
+        CsvFileLoader r = new CsvFileLoader(path.toString(), config, null);
+        ITable whole = r.load();
+        config.splitAtLineBreaks = true;
+        r = new CsvFileLoader(path.toString(), config, null);
+        r.setChunkSize(500);
+        ITable chunked = r.load();
+        Assert.assertEquals(whole.getSchema(), chunked.getSchema());
+        Assert.assertEquals(whole.toLongString(whole.getNumOfRows()),
+                chunked.toLongString(chunked.getNumOfRows()));
+    }
+
+    @Test
+    public void readCsvFileQuotedNewlinesTest() throws IOException {
+        String path = "./" + UUID.randomUUID().toString();
+        try {
+            Writer fw = new FileWriter(path);
+            fw.write("Id,Text\n");
+            for (int i = 0; i < 1000; i++)
+                fw.write(i + ",\"line\nbreak " + i + "\"\n");
+            fw.close();
+
+            CsvFileLoader.Config config = new CsvFileLoader.Config();
+            config.hasHeaderRow = true;
+            // Files are not split by default, so newlines in quotes are read correctly.
+            CsvFileLoader r = new CsvFileLoader(path, config, null);
+            r.setChunkSize(1000);
+            ITable t = r.load();
+            Assert.assertEquals(1000, t.getNumOfRows());
+            Assert.assertEquals("line\nbreak 999", t.getLoadedColumn("Text").column.getString(999));
+
+            // When the file is split the error shows where the chunk starts.
+            config.splitAtLineBreaks = true;
+            r = new CsvFileLoader(path, config, null);
+            r.setChunkSize(1000);
+            try {
+                r.load();
+                Assert.fail("Expected a parsing error");
+            } catch (RuntimeException ex) {
+                Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("chunk starting at byte"));
+            }
+        } finally {
+            if (Files.exists(Paths.get(path)))
+                Files.delete(Paths.get(path));
+        }
+    }
+
+    @Test
+    public void readCsvFileKindConflictTest() throws IOException {
+        String path = "./" + UUID.randomUUID().toString();
+        try {
+            Writer fw = new FileWriter(path);
+            fw.write("Id,Value,Empty\n");
+            for (int i = 0; i < 20000; i++)
+                fw.write(i + "," + (i < 15000 ? Integer.toString(i) : "2.5") + ",\n");
+            fw.close();
+
+            CsvFileLoader.Config config = new CsvFileLoader.Config();
+            config.allowFewerColumns = false;
+            config.hasHeaderRow = true;
+            config.splitAtLineBreaks = true;
+            CsvFileLoader r = new CsvFileLoader(path, config, null);
+            r.setChunkSize(10000);
+            ITable t = r.load();
+            Assert.assertEquals(20000, t.getNumOfRows());
+            IColumn id = t.getLoadedColumn("Id").column;
+            Assert.assertEquals(ContentsKind.Integer, id.getKind());
+            Assert.assertEquals(19999, id.getInt(19999));
+            IColumn value = t.getLoadedColumn("Value").column;
+            Assert.assertEquals(ContentsKind.Double, value.getKind());
+            Assert.assertEquals(14999, value.getDouble(14999), 0);
+            Assert.assertEquals(2.5, value.getDouble(19999), 0);
+            IColumn empty = t.getLoadedColumn("Empty").column;
+            Assert.assertEquals(ContentsKind.String, empty.getKind());
+        } finally {
+            if (Files.exists(Paths.get(path)))
+                Files.delete(Paths.get(path));
+        }
+    }
+
     private void writeReadTable(ITable table) throws IOException {
         UUID uid = UUID.randomUUID();
         String tmpFileName = uid.toString();
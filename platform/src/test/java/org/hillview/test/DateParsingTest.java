@@ -17,6 +17,7 @@
 
 package org.hillview.test;
 
+import org.hillview.utils.Converters;
 import org.hillview.utils.DateParsing;
 import org.junit.Assert;
 import org.junit.Test;
@@ -81,4 +82,19 @@ public class DateParsingTest extends BaseTest {
                 .toInstant();
         Assert.assertEquals(instant, expected);
     }
+
+    @Test
+    public void parseMillis() {
+        String[] dates = { "2017-01-01", "1969-12-31 23:59:59.999", "1950-06-01 10:10:10.123",
+                "2017-10-05T14:05:35.454000" };
+        for (String d : dates) {
+            DateParsing parsing = new DateParsing(d);
+            Instant instant = parsing.parse(d);
+            Assert.assertEquals(Converters.toDouble(instant), parsing.parseMillis(d), 0);
+            Assert.assertEquals(instant.toEpochMilli(), (long)parsing.parseMillis(d));
+        }
+        Instant before = Instant.ofEpochSecond(-10, 500000000);
+        Assert.assertEquals(-9500, Converters.toDouble(before), 0);
+        Assert.assertEquals(before, Converters.toDate(-9500));
+    }
 }
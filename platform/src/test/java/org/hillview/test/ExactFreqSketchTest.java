@@ -17,13 +17,25 @@
 
 package org.hillview.test;
 
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.hillview.sketches.*;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.Schema;
 import org.hillview.table.SmallTable;
 import org.hillview.table.Table;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IRowIterator;
 import org.hillview.table.api.ITable;
+import org.hillview.table.columns.CategoryArrayColumn;
+import org.hillview.table.columns.IntArrayColumn;
+import org.hillview.table.rows.RowSnapshot;
 import org.hillview.utils.TestTables;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertTrue;
 
 public class ExactFreqSketchTest extends BaseTest {
@@ -57,4 +69,53 @@ public class ExactFreqSketchTest extends BaseTest {
         int maxSize3 = 30;
         getFrequencies(t3, maxSize3);
     }
+
+    /**
+     * A table with a category and an integer column, both with missing values
+     * and skewed frequencies, and a constant column.
+     */
+    static Table getSkewedTable(int size) {
+        final String[] categories = new String[size];
+        final IntArrayColumn ints = new IntArrayColumn(
+                new ColumnDescription("Int", ContentsKind.Integer), size);
+        final IntArrayColumn constant = new IntArrayColumn(
+                new ColumnDescription("Constant", ContentsKind.Integer), size);
+        for (int i = 0; i < size; i++) {
+            int v = (i * i) % 97;
+            categories[i] = v % 13 == 0 ? null : "C" + (v % 29);
+            if (v % 11 == 0)
+                ints.setMissing(i);
+            else
+                ints.set(i, v % 37);
+            constant.set(i, 1);
+        }
+        final CategoryArrayColumn cats = new CategoryArrayColumn(
+                new ColumnDescription("Category", ContentsKind.Category), categories);
+        return new Table(Arrays.asList(cats, ints, constant), null, null);
+    }
+
+    /**
+     * The frequencies computed for single category or integer columns, and
+     * for several columns, must match the frequencies counted from snapshots.
+     */
+    @Test
+    public void EFSTestColumns() {
+        Table table = getSkewedTable(5000);
+        String[][] schemas = { { "Category" }, { "Int" }, { "Category", "Int" } };
+        for (String[] columns : schemas) {
+            List<String> names = Arrays.asList(columns);
+            Schema schema = table.getSchema().project(names::contains);
+            Object2IntOpenHashMap<RowSnapshot> expected = new Object2IntOpenHashMap<RowSnapshot>();
+            IRowIterator it = table.getRowIterator();
+            for (int row = it.getNextRow(); row >= 0; row = it.getNextRow())
+                expected.addTo(new RowSnapshot(table, row, schema), 1);
+
+            FreqKListMG fkList = new FreqKSketchMG(schema, 20).create(table);
+            ExactFreqSketch ef = new ExactFreqSketch(schema, fkList);
+            FreqKListExact exactList = ef.create(table);
+            assertTrue(!fkList.getList().isEmpty());
+            for (RowSnapshot rss : fkList.getList())
+                assertEquals(expected.getInt(rss), exactList.hMap.getInt(rss));
+        }
+    }
 }
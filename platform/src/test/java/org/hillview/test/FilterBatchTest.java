@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.test;
+
+import org.hillview.maps.FilterMap;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.Table;
+import org.hillview.table.api.*;
+import org.hillview.table.columns.CategoryArrayColumn;
+import org.hillview.table.columns.DoubleArrayColumn;
+import org.hillview.table.columns.IntArrayColumn;
+import org.hillview.table.filters.ComparisonFilterDescription;
+import org.hillview.table.filters.EqualityFilterDescription;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests that the batch versions of the filters select the same rows as
+ * the filters applied to each row.
+ */
+public class FilterBatchTest extends BaseTest {
+    private static final int size = 5000;
+    private static final String[] names = { "a", "b", "c", "d" };
+
+    private static Table createTable() {
+        Random random = new Random(1);
+        IntArrayColumn ints = new IntArrayColumn(
+                new ColumnDescription("Int", ContentsKind.Integer), size);
+        DoubleArrayColumn doubles = new DoubleArrayColumn(
+                new ColumnDescription("Double", ContentsKind.Double), size);
+        CategoryArrayColumn categories = new CategoryArrayColumn(
+                new ColumnDescription("Category", ContentsKind.Category), size);
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(10) == 0)
+                ints.setMissing(i);
+            else
+                ints.set(i, random.nextInt(20));
+            int d = random.nextInt(12);
+            if (d == 10)
+                doubles.setMissing(i);
+            else if (d == 11)
+                doubles.set(i, Double.NaN);
+            else
+                doubles.set(i, d / 2.0);
+            int c = random.nextInt(names.length + 1);
+            categories.set(i, c == names.length ? null : names[c]);
+        }
+        return new Table(Arrays.asList(ints, doubles, categories), null, null);
+    }
+
+    private static void check(ITable table, ITableFilterDescription description) {
+        ITableFilter filter = description.getFilter(table);
+        IMembershipSet expected = table.getMembershipSet().filter(filter::test);
+        IMembershipSet actual = new FilterMap(description).apply(table).getMembershipSet();
+        Assert.assertEquals(expected.getSize(), actual.getSize());
+        IRowIterator it = expected.getIterator();
+        for (int row = it.getNextRow(); row >= 0; row = it.getNextRow())
+            Assert.assertTrue(actual.isMember(row));
+    }
+
+    private static void checkAll(ITable table) {
+        String[][] columnValues = {
+                { "Int", "7", "100" },
+                { "Double", "2.5", "-3" },
+                { "Category", "b", "zz" } };
+        for (String[] cv : columnValues) {
+            for (int v = 1; v < cv.length; v++) {
+                for (String op : new String[] { "==", "!=", "<", ">", "<=", ">=" }) {
+                    check(table, new ComparisonFilterDescription(cv[0], cv[v], op));
+                    check(table, new ComparisonFilterDescription(cv[0], null, op));
+                }
+                check(table, new EqualityFilterDescription(cv[0], cv[v], false, false));
+                check(table, new EqualityFilterDescription(cv[0], cv[v], true, false));
+            }
+            check(table, new EqualityFilterDescription(cv[0], null, false, false));
+            check(table, new EqualityFilterDescription(cv[0], null, true, false));
+        }
+    }
+
+    @Test
+    public void testFullTable() {
+        checkAll(createTable());
+    }
+
+    @Test
+    public void testFilteredTable() {
+        Table table = createTable();
+        IMembershipSet sample = table.getMembershipSet().sample(size / 3, 2);
+        checkAll(table.selectRowsFromFullTable(sample));
+    }
+}
@@ -26,13 +26,16 @@ import org.hillview.table.Schema;
 import org.hillview.table.SmallTable;
 import org.hillview.table.Table;
 import org.hillview.table.api.ITable;
+import org.hillview.table.rows.RowSnapshot;
 import org.hillview.utils.TestTables;
 import org.junit.Assert;
 import org.junit.Test;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertTrue;
 
@@ -179,4 +182,26 @@ public class FreqKTest extends BaseTest {
         String s = "10: 4\n20: 4\n30: 3\n40: 2\n60: 1\n50: 1\n";
         Assert.assertEquals(fk.create(t).toString(), s);
     }
+
+    /**
+     * A single column uses exact keys; adding a constant column makes
+     * the sketch group rows by hash, which must give the same counts.
+     */
+    @Test
+    public void testSingleColumnKeys() {
+        Table t = ExactFreqSketchTest.getSkewedTable(5000);
+        for (String column : new String[] { "Category", "Int" }) {
+            Schema single = t.getSchema().project(s -> s.equals(column));
+            Schema pair = t.getSchema().project(s -> s.equals(column) || s.equals("Constant"));
+            FreqKListMG singleList = new FreqKSketchMG(single, 10).create(t);
+            FreqKListMG pairList = new FreqKSketchMG(pair, 10).create(t);
+            Map<Object, Integer> singleCounts = new HashMap<Object, Integer>();
+            for (RowSnapshot rss : singleList.getList())
+                singleCounts.put(rss.getObject(column), singleList.hMap.getInt(rss));
+            Assert.assertEquals(singleCounts.size(), pairList.getList().size());
+            for (RowSnapshot rss : pairList.getList())
+                Assert.assertEquals(singleCounts.get(rss.getObject(column)),
+                        (Integer)pairList.hMap.getInt(rss));
+        }
+    }
 }
@@ -17,17 +17,26 @@
 
 package org.hillview.test;
 
+import org.hillview.dataset.LocalDataSet;
 import org.hillview.dataset.ParallelDataSet;
 import org.hillview.sketches.*;
 import org.hillview.table.membership.FullMembershipSet;
+import org.hillview.table.membership.SparseMembershipSet;
 import org.hillview.table.columns.IntArrayColumn;
 import org.hillview.table.SmallTable;
+import org.hillview.table.Table;
+import org.hillview.table.columns.ColumnCache;
 import org.hillview.table.api.ITable;
 import org.hillview.utils.IntArrayGenerator;
 import org.hillview.utils.Randomness;
 import org.hillview.utils.TestTables;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+
 import static org.junit.Assert.*;
 
 
@@ -60,4 +69,78 @@ public class HLLTest extends BaseTest {
         final HLogLog hll = all.blockingSketch(new HLogLogSketch(colName,16,12345678));
         assertTrue(hll.distinctItemsEstimator() > 85000);
     }
+
+    @Test
+    public void testSparseRegisters() throws IOException {
+        final Randomness rn = this.getRandomness();
+        final IntArrayColumn small = IntArrayGenerator.getRandIntArray(1000, 50, "Small", rn);
+        final IntArrayColumn large = IntArrayGenerator.getRandIntArray(100000, 50000, "Large", rn);
+        final HLogLog smallHll = new HLogLog(12, 0);
+        smallHll.createHLL(small, new FullMembershipSet(small.sizeInRows()));
+        final HLogLog largeHll = new HLogLog(12, 0);
+        largeHll.createHLL(large, new FullMembershipSet(large.sizeInRows()));
+        assertTrue(smallHll.distinctItemCount >= 45 && smallHll.distinctItemCount <= 55);
+        // Few registers are set, so the small sketch is serialized in sparse form.
+        assertTrue(serializedSize(smallHll) * 4 < serializedSize(largeHll));
+        final HLogLog union = smallHll.union(largeHll);
+        assertEquals(union.distinctItemCount, largeHll.union(smallHll).distinctItemCount);
+        assertTrue(union.distinctItemCount >= largeHll.distinctItemCount);
+        assertEquals(smallHll.distinctItemCount,
+                smallHll.union(new HLogLog(12, 0)).distinctItemCount);
+    }
+
+    private static int serializedSize(Object o) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(o);
+        }
+        return bytes.size();
+    }
+
+    /**
+     * The hash codes cached by a column must give the same result as
+     * hashing the rows directly, which is done for small membership sets.
+     */
+    @Test
+    public void testCachedHashCodes() {
+        final int size = 100000;
+        final IntArrayColumn col = IntArrayGenerator.getRandIntArray(
+                size, 20000, "Test", this.getRandomness());
+        final int prefix = size / 10;
+        final IntArrayColumn copy = new IntArrayColumn(col.getDescription(), prefix);
+        for (int i = 0; i < prefix; i++)
+            copy.set(i, col.getInt(i));
+        final HLogLog direct = new HLogLog(12, 3);
+        direct.createHLL(col, new SparseMembershipSet(0, prefix, size));
+        final HLogLog cached = new HLogLog(12, 3);
+        cached.createHLL(copy, new FullMembershipSet(prefix));
+        assertEquals(direct.distinctItemCount, cached.distinctItemCount);
+        assertSame(copy.hashCodes64(), copy.hashCodes64());
+    }
+
+    /**
+     * Tables larger than rowsPerChunk are sketched in chunks; the chunks
+     * use the hash codes that the column keeps.
+     */
+    @Test
+    public void testCachedHashCodesOfChunks() {
+        final int size = 5000;
+        final ColumnCache cache = ColumnCache.instance;
+        try {
+            cache.clear();
+            final IntArrayColumn col = IntArrayGenerator.getRandIntArray(
+                    size, 1000, "Test", this.getRandomness());
+            final Table table = new Table(Collections.singletonList(col), null, null);
+            final LocalDataSet<ITable> local = new LocalDataSet<ITable>(table);
+            local.setRowsPerChunk(size / 5);
+            final long used = cache.getUsedBytes();
+            final HLogLogSketch sketch = new HLogLogSketch("Test", 12, 5);
+            final HLogLog chunked = local.blockingSketch(sketch);
+            // The hash codes of the column were computed once and kept.
+            assertEquals(used + 8 * size, cache.getUsedBytes());
+            assertEquals(sketch.create(table).distinctItemCount, chunked.distinctItemCount);
+        } finally {
+            cache.clear();
+        }
+    }
 }
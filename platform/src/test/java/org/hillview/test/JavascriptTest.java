@@ -23,7 +23,10 @@ import org.hillview.dataset.api.IDataSet;
 import org.hillview.maps.CreateColumnJSMap;
 import org.hillview.table.ColumnDescription;
 import org.hillview.table.Schema;
+import org.hillview.table.Table;
 import org.hillview.table.api.*;
+import org.hillview.table.columns.*;
+import org.hillview.table.expressions.CompiledFunction;
 import org.hillview.table.membership.SparseMembershipSet;
 import org.hillview.table.rows.RowSnapshot;
 import org.hillview.table.rows.VirtualRowSnapshot;
@@ -34,7 +37,10 @@ import org.junit.Test;
 
 import javax.script.*;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.TimeZone;
 
 /**
  * Test the Javascript Nashorn engine.
@@ -210,4 +216,88 @@ public class JavascriptTest {
                 "John,30," + p.parse("2000-01-01") + "," + p.parse("2010-01-01") + "\n" +
                 "Tom,10," + p.parse("1980-01-01") + ","+ p.parse("1990-01-01") + "\n", data);
     }
+
+    private static Table tableWithMissingValues() {
+        final int rows = 3000;
+        IntListColumn ints = new IntListColumn(new ColumnDescription("Int", ContentsKind.Integer));
+        DoubleListColumn doubles = new DoubleListColumn(
+                new ColumnDescription("Double", ContentsKind.Double));
+        BaseListColumn dates = BaseListColumn.create(new ColumnDescription("Date", ContentsKind.Date));
+        CategoryListColumn categories = new CategoryListColumn(
+                new ColumnDescription("Category", ContentsKind.Category));
+        StringListColumn strings = new StringListColumn(
+                new ColumnDescription("String", ContentsKind.String));
+        for (int i = 0; i < rows; i++) {
+            if (i % 7 == 3)
+                ints.appendMissing();
+            else
+                ints.append(i - 100);
+            if (i % 11 == 5)
+                doubles.appendMissing();
+            else
+                doubles.append(i / 4.0 - 200);
+            // Spans many years, including daylight saving time changes
+            dates.append(Instant.ofEpochMilli(1000000000000L + i * 26280000123L));
+            categories.append("cat" + (i % 5));
+            strings.append(i % 11 == 0 ? "" : "été " + i);
+        }
+        List<IColumn> columns = new ArrayList<IColumn>();
+        columns.add(ints.seal());
+        columns.add(doubles.seal());
+        columns.add(dates.seal());
+        columns.add(categories.seal());
+        columns.add(strings.seal());
+        return new Table(columns, null, null);
+    }
+
+    private static IColumn createColumn(ITable table, String function, ContentsKind kind) {
+        ColumnDescription outCol = new ColumnDescription("Out", kind);
+        CreateColumnJSMap map = new CreateColumnJSMap(function, table.getSchema(), null, outCol);
+        ITable result = map.apply(table);
+        return result.getLoadedColumn("Out").column;
+    }
+
+    @Test
+    public void testCompiled() {
+        TimeZone zone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+        try {
+            ITable table = tableWithMissingValues();
+            String[] expressions = {
+                    "row['Int'] * 2 + row['Double'] / 3 - 1", "Double",
+                    "row['Int'] % 7 - -row.Double", "Integer",
+                    "Math.round(row['Double']) + Math.floor(-row['Double']) + Math.abs(row['Int'])", "Double",
+                    "Math.max(row.Int, 10) + Math.pow(row.Double, 0.5) + Math.log(Math.ceil(row.Double))", "Double",
+                    "row['Int'] > 0 && row['Category'] != 'cat1' ? 'yes' : 'no'", "String",
+                    "row['String'].toUpperCase() + \"/\" + row['Category']", "String",
+                    "row['String'].substring(1, 3) + row['String'].substring(4) + row.String.substring(9, -2)", "Json",
+                    "row['String'].length + row['String'].indexOf('1')", "Integer",
+                    "row['Category'] < 'cat3'", "Category",
+                    "!(row.Int >= 3) || row.Double === 2.5", "String",
+                    "new Date(row['Date'].getFullYear(), row['Date'].getMonth() + 1, " +
+                            "row['Date'].getDate(), row['Date'].getHours())", "Date",
+                    "row['Date'].getDay() * 100 + row['Date'].getUTCHours() + row['Date'].getMinutes() + " +
+                            "row.Date.getSeconds() + row.Date.getMilliseconds() + row.Date.getUTCDate()", "Integer",
+                    "row['Date'] > new Date(2018, 0, 1) ? row['Date'] : new Date(row['Date'].getTime() + 1000)", "Date",
+                    "new Date(row['Int'] / 2 + 50, 14, 40, 25, 61)", "Date",
+            };
+            for (int i = 0; i < expressions.length; i += 2) {
+                String compiled = "function map(row) { return " + expressions[i] + "; }";
+                // The variable declaration prevents compilation
+                String interpreted = "function map(row) { var x = 0; return " + expressions[i] + "; }";
+                ContentsKind kind = ContentsKind.valueOf(expressions[i + 1]);
+                Assert.assertNotNull(CompiledFunction.compile(
+                        compiled, table, table.getSchema(), null, kind));
+                Assert.assertNull(CompiledFunction.compile(
+                        interpreted, table, table.getSchema(), null, kind));
+                IColumn expected = createColumn(table, interpreted, kind);
+                IColumn actual = createColumn(table, compiled, kind);
+                for (int r = 0; r < table.getNumOfRows(); r++)
+                    Assert.assertEquals(expressions[i] + " row " + r,
+                            expected.getObject(r), actual.getObject(r));
+            }
+        } finally {
+            TimeZone.setDefault(zone);
+        }
+    }
 }
@@ -33,9 +33,14 @@ import org.hillview.table.rows.RowSnapshot;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class JsonTest extends BaseTest {
     @Test
@@ -100,6 +105,110 @@ public class JsonTest extends BaseTest {
                 "]}");
     }
 
+    private static String record(int i) {
+        // Some properties are missing or null, and some are not in the schema.
+        return "{\"Name\":\"n" + i + "\"," +
+                (i % 7 == 0 ? "" : "\"Value\":" + (i % 5 == 0 ? "null" : i + 0.5) + ",") +
+                "\"Nested\":{\"a\":[1,2]}," +
+                "\"Flag\":" + (i % 2 == 0) + "}";
+    }
+
+    @Test
+    public void streamingTest() throws IOException {
+        final int rows = 5000;
+        Path folder = Files.createTempDirectory("json");
+        try {
+            StringBuilder array = new StringBuilder("[\n");
+            StringBuilder lines = new StringBuilder();
+            for (int i = 0; i < rows; i++) {
+                array.append(i == 0 ? "" : ",\n").append(record(i));
+                lines.append(record(i)).append("\n");
+            }
+            array.append("]\n");
+            Path arrayFile = folder.resolve("array.json");
+            Path linesFile = folder.resolve("lines.json");
+            Path schemaFile = folder.resolve("data.schema");
+            Files.write(arrayFile, array.toString().getBytes());
+            Files.write(linesFile, lines.toString().getBytes());
+            Schema schema = new Schema();
+            schema.append(new ColumnDescription("Name", ContentsKind.String));
+            schema.append(new ColumnDescription("Value", ContentsKind.Double));
+            schema.append(new ColumnDescription("Flag", ContentsKind.Category));
+            schema.writeToJsonFile(schemaFile);
+
+            ITable expected = new JsonFileLoader(arrayFile.toString(), schemaFile.toString()).load();
+            Assert.assertEquals("Table[3x5000]", expected.toString());
+            IColumn value = expected.getLoadedColumn("Value").column;
+            for (int i = 0; i < rows; i++) {
+                Assert.assertEquals("n" + i, expected.getLoadedColumn("Name").column.getString(i));
+                Assert.assertEquals(i % 7 == 0 || i % 5 == 0, value.isMissing(i));
+                if (!value.isMissing(i))
+                    Assert.assertEquals(i + 0.5, value.getDouble(i), 0);
+                Assert.assertEquals(Boolean.toString(i % 2 == 0),
+                        expected.getLoadedColumn("Flag").column.getString(i));
+            }
+
+            JsonFileLoader loader = new JsonFileLoader(linesFile.toString(), null);
+            loader.setChunkSize(10000);
+            ITable table = loader.load();
+            // Value is missing in the first row and Nested is not simple.
+            Assert.assertEquals("[{\"name\":\"Name\",\"kind\":\"String\"}," +
+                    "{\"name\":\"Flag\",\"kind\":\"Category\"}," +
+                    "{\"name\":\"Value\",\"kind\":\"Double\"}]", table.getSchema().toJson());
+            for (int i = 0; i < rows; i++)
+                for (String col : schema.getColumnNames())
+                    Assert.assertEquals(expected.getLoadedColumn(col).column.asString(i),
+                            table.getLoadedColumn(col).column.asString(i));
+        } finally {
+            try (Stream<Path> paths = Files.walk(folder)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    public void multiLineObjectsTest() throws IOException {
+        final int rows = 2000;
+        Path folder = Files.createTempDirectory("json");
+        try {
+            StringBuilder pretty = new StringBuilder();
+            for (int i = 0; i < rows; i++)
+                pretty.append("{\n  \"Name\": \"n").append(i).append("\",\n")
+                      .append("  \"Nested\":\n{\"a\": 1},\n")
+                      .append("  \"Value\": ").append(i).append("\n}\n");
+            Path prettyFile = folder.resolve("pretty.json");
+            Files.write(prettyFile, pretty.toString().getBytes());
+            JsonFileLoader loader = new JsonFileLoader(prettyFile.toString(), null);
+            loader.setChunkSize(1000);
+            ITable table = loader.load();
+            Assert.assertEquals("Table[2x2000]", table.toString());
+            for (int i = 0; i < rows; i++) {
+                Assert.assertEquals("n" + i, table.getLoadedColumn("Name").column.getString(i));
+                Assert.assertEquals(i, table.getLoadedColumn("Value").column.getDouble(i), 0);
+            }
+
+            // Only the sequence of objects is parsed leniently.
+            String[] invalid = {
+                    "{\"Name\": \"a\"}\n{\"Name\": NaN}\n",
+                    "{\"Name\": \"a\"}\n{\"Name\": b}\n",
+                    "{\"Name\": \"a\"}\n{'Name': \"b\"}\n" };
+            Path invalidFile = folder.resolve("invalid.json");
+            for (String contents : invalid) {
+                Files.write(invalidFile, contents.getBytes());
+                try {
+                    new JsonFileLoader(invalidFile.toString(), null).load();
+                    Assert.fail("Expected a parsing error for " + contents);
+                } catch (RuntimeException ignored) {
+                    // expected
+                }
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(folder)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
     @Test
     public void jsonReaderTest() {
         final String jsonFolder = "../data/ontime";
@@ -24,6 +24,7 @@ import org.hillview.table.api.ISampledRowIterator;
 import org.hillview.table.membership.DenseMembershipSet;
 import org.hillview.table.membership.FullMembershipSet;
 import org.hillview.table.membership.MembershipSetFactory;
+import org.hillview.table.membership.RangeMembershipSet;
 import org.hillview.utils.IntSet;
 import org.junit.Test;
 import static junit.framework.TestCase.assertEquals;
@@ -64,7 +65,7 @@ public class MembershipTest extends BaseTest {
         assertTrue(PMS.isMember(6));
         assertFalse(PMS.isMember(7));
         assertEquals(PMS.getSize(), 5);
-        IMutableMembershipSet mms = MembershipSetFactory.create(fm.getMax(), fm.getSize());
+        IMutableMembershipSet mms = MembershipSetFactory.create(fm.getMax());
         final IRowIterator IT = PMS.getIterator();
         int tmp = IT.getNextRow();
         while (tmp >= 0) {
@@ -74,9 +75,21 @@ public class MembershipTest extends BaseTest {
         assertEquals(PMS.getSize(), mms.seal().getSize());
     }
 
+    @Test
+    public void TestSparseFilter() {
+        IMutableMembershipSet mms = MembershipSetFactory.create(100000);
+        for (int i = 70000; i < 100000; i += 1000)
+            mms.add(i);
+        IMembershipSet filtered = mms.seal().filter(r -> r >= 90000);
+        assertEquals(100000, filtered.getMax());
+        assertEquals(10, filtered.getSize());
+        assertTrue(filtered.isMember(99000));
+        assertFalse(filtered.isMember(89000));
+    }
+
     @Test
     public void TestMembershipSparse() {
-        IMutableMembershipSet mms = MembershipSetFactory.create(100, 10);
+        IMutableMembershipSet mms = MembershipSetFactory.create(100);
         for (int i = 5; i < 100; i += 2)
             mms.add(i);
         IMembershipSet MS = mms.seal();
@@ -119,9 +132,27 @@ public class MembershipTest extends BaseTest {
         assertTrue(i < it.rate() * 1000 * 1.1);
     }
 
+    @Test
+    public void TestFMSRangeIterator() {
+        FullMembershipSet fm = new FullMembershipSet(100);
+        int[] rows = new int[10];
+        IRowIterator it = fm.getIterator(95, 200);
+        assertEquals(5, it.getNextRows(rows));
+        assertEquals(99, rows[4]);
+        assertEquals(0, it.getNextRows(rows));
+        assertEquals(-1, it.getNextRow());
+        // Ranges that start after the end of the set are empty.
+        it = fm.getIterator(150, 200);
+        assertEquals(0, it.getNextRows(rows));
+        assertEquals(-1, it.getNextRow());
+        it = fm.getIterator(50, 20);
+        assertEquals(0, it.getNextRows(rows));
+        assertEquals(-1, it.getNextRow());
+    }
+
     @Test
     public void TestSparseSampleIterator() {
-        IMutableMembershipSet mms = MembershipSetFactory.create(100, 10);
+        IMutableMembershipSet mms = MembershipSetFactory.create(100);
         for (int i = 5; i < 100; i += 2)
             mms.add(i);
         IMembershipSet MS = mms.seal();
@@ -147,4 +178,35 @@ public class MembershipTest extends BaseTest {
         assertTrue( counter > 0.9 * iter.rate() * dms.getSize());
         assertTrue( counter < 1.1 * iter.rate() * dms.getSize());
     }
+
+    @Test
+    public void TestRangeMembership() {
+        FullMembershipSet fm = new FullMembershipSet(1000);
+        RangeMembershipSet range = new RangeMembershipSet(fm, 100, 200);
+        assertEquals(100, range.getSize());
+        assertTrue(range.isMember(100));
+        assertFalse(range.isMember(200));
+        assertEquals(1000, range.getMax());
+
+        DenseMembershipSet dms = new DenseMembershipSet(1000, 1000);
+        for (int i = 0; i < 1000; i += 3)
+            dms.add(i);
+        range = new RangeMembershipSet(dms, 100, 200);
+        IRowIterator it = range.getIterator();
+        int count = 0;
+        int row = it.getNextRow();
+        while (row >= 0) {
+            assertTrue(row >= 100 && row < 200);
+            assertTrue(dms.isMember(row));
+            count++;
+            row = it.getNextRow();
+        }
+        assertEquals(33, count);
+        assertEquals(33, range.getSize());
+
+        IMembershipSet sparse = fm.filter(r -> r % 50 == 0);
+        range = new RangeMembershipSet(sparse, 0, 500);
+        assertEquals(10, range.getSize());
+        assertEquals(5, range.sample(5, 0).getSize());
+    }
 }
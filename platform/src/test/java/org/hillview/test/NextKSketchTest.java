@@ -25,8 +25,13 @@ import org.hillview.sketches.NextKList;
 import org.hillview.sketches.NextKSketch;
 import org.hillview.table.*;
 import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IColumn;
 import org.hillview.table.api.ITable;
 import org.hillview.table.api.IndexComparator;
+import org.hillview.table.columns.CategoryArrayColumn;
+import org.hillview.table.columns.ColumnCache;
+import org.hillview.table.columns.DoubleArrayColumn;
+import org.hillview.table.columns.IntArrayColumn;
 import org.hillview.table.rows.RowSnapshot;
 import org.hillview.utils.Converters;
 import org.hillview.utils.TestTables;
@@ -212,4 +217,149 @@ public class NextKSketchTest extends BaseTest {
                 "89,89: 1\n";
         Assert.assertEquals(exp, leftK.toLongString(100));
     }
+
+    /**
+     * The second sketch with the same order uses a sorted index of the
+     * table; it must produce the same result as the scan.
+     */
+    @Test
+    public void testSortedIndex() {
+        final int maxSize = 7;
+        final ITable table = TestTables.getMissingIntTable(1000, 2);
+        for (boolean ascending : new boolean[] { true, false }) {
+            RecordOrder cso = new RecordOrder();
+            for (String colName : table.getSchema().getColumnNames())
+                cso.append(new ColumnSortOrientation(
+                        table.getSchema().getDescription(colName), ascending));
+            for (int top : new int[] { -1, 0, 80, 500, 999 }) {
+                final RowSnapshot topRow = top < 0 ? null : new RowSnapshot(table, top);
+                final NextKSketch nk = new NextKSketch(cso, topRow, maxSize);
+                final NextKList scanned = nk.create(table);
+                final NextKList indexed = nk.create(table);
+                Assert.assertNotNull(table.getSortedRowIndex(cso));
+                Assert.assertEquals(scanned.toLongString(maxSize), indexed.toLongString(maxSize));
+                Assert.assertEquals(scanned.startPosition, indexed.startPosition);
+            }
+        }
+    }
+
+    /**
+     * Tables with more than rowsPerChunk rows are sketched in chunks; the
+     * sorted indexes of the chunks are kept and reused by subsequent sketches.
+     */
+    @Test
+    public void testSortedIndexOfChunks() {
+        final int rowsPerChunk = 1000;
+        final ITable table = getMixedTable(2500);
+        final LocalDataSet<ITable> local = new LocalDataSet<ITable>(table);
+        local.setRowsPerChunk(rowsPerChunk);
+        RecordOrder cso = new RecordOrder();
+        cso.append(new ColumnSortOrientation(table.getSchema().getDescription("Int"), true));
+        cso.append(new ColumnSortOrientation(table.getSchema().getDescription("Double"), false));
+        final NextKSketch nk = new NextKSketch(cso, null, 5);
+        final NextKList scanned = local.blockingSketch(nk);
+        // The second sketch builds the indexes of the chunks.
+        final NextKList indexed = local.blockingSketch(nk);
+        SortedRowIndex index = table.selectRange(0, rowsPerChunk).getSortedRowIndex(cso);
+        Assert.assertNotNull(index);
+        Assert.assertSame(index, table.selectRange(0, rowsPerChunk).getSortedRowIndex(cso));
+        Assert.assertNotNull(table.selectRange(2000, 3000).getSortedRowIndex(cso));
+        final NextKList reused = local.blockingSketch(nk);
+        Assert.assertEquals(scanned.toLongString(5), indexed.toLongString(5));
+        Assert.assertEquals(scanned.toLongString(5), reused.toLongString(5));
+    }
+
+    /**
+     * The memory of the sorted indexes is accounted by the ColumnCache,
+     * which drops them when it exceeds its budget.
+     */
+    @Test
+    public void testSortedIndexMemory() {
+        final int rows = 10000;
+        final ColumnCache cache = ColumnCache.instance;
+        final long budget = cache.getBudget();
+        try {
+            cache.clear();
+            final ITable table = getMixedTable(rows);
+            RecordOrder cso = new RecordOrder();
+            cso.append(new ColumnSortOrientation(table.getSchema().getDescription("Int"), true));
+            long used = cache.getUsedBytes();
+            Assert.assertNull(table.getSortedRowIndex(cso));
+            Assert.assertNotNull(table.getSortedRowIndex(cso));
+            Assert.assertEquals(used + 4 * rows, cache.getUsedBytes());
+            cache.setBudget(Math.max(used, 1));
+            Assert.assertEquals(used, cache.getUsedBytes());
+            // The index is built again when it is requested twice.
+            Assert.assertNull(table.getSortedRowIndex(cso));
+            Assert.assertNotNull(table.getSortedRowIndex(cso));
+        } finally {
+            cache.setBudget(budget);
+            cache.clear();
+        }
+    }
+
+    private static ITable getMixedTable(final int size) {
+        final IntArrayColumn ints = new IntArrayColumn(
+                new ColumnDescription("Int", ContentsKind.Integer), size);
+        final DoubleArrayColumn doubles = new DoubleArrayColumn(
+                new ColumnDescription("Double", ContentsKind.Double), size);
+        final String[] categories = new String[size];
+        for (int i = 0; i < size; i++) {
+            if (i % 7 == 0)
+                ints.setMissing(i);
+            else
+                ints.set(i, (i * 31) % 41 - 20);
+            if (i % 11 == 0)
+                doubles.setMissing(i);
+            else if (i % 13 == 0)
+                doubles.set(i, -0.0);
+            else
+                doubles.set(i, ((i * 17) % 23 - 11) * 0.5);
+            categories[i] = i % 5 == 0 ? null : "c" + ((i * 7) % 17);
+        }
+        final CategoryArrayColumn cats = new CategoryArrayColumn(
+                new ColumnDescription("Category", ContentsKind.Category), categories);
+        final List<IColumn> columns = new ArrayList<IColumn>();
+        columns.add(ints);
+        columns.add(doubles);
+        columns.add(cats);
+        return new Table(columns, null, null);
+    }
+
+    /**
+     * Orders on a single numeric or category column use specialized code;
+     * the results must match the generic comparator, both for a single
+     * table and when merging the results of several tables.
+     */
+    @Test
+    public void testSingleColumn() {
+        final int maxSize = 6;
+        final ITable table = getMixedTable(1000);
+        for (String colName : table.getSchema().getColumnNames()) {
+            for (boolean ascending : new boolean[] { true, false }) {
+                RecordOrder cso = new RecordOrder();
+                cso.append(new ColumnSortOrientation(
+                        table.getSchema().getDescription(colName), ascending));
+                for (int top : new int[] { -1, 0, 1, 13, 22, 500 }) {
+                    final RowSnapshot topRow = top < 0 ? null : new RowSnapshot(table, top);
+                    final NextKSketch nk = new NextKSketch(cso, topRow, maxSize);
+                    final ITable copy = table.selectRowsFromFullTable(table.getMembershipSet());
+                    final NextKList specialized = nk.create(copy);
+                    final NextKList generic = nk.create(copy);
+                    Assert.assertNotNull(copy.getSortedRowIndex(cso));
+                    Assert.assertEquals(generic.toLongString(maxSize),
+                            specialized.toLongString(maxSize));
+                    Assert.assertEquals(generic.startPosition, specialized.startPosition);
+
+                    NextKList merged = nk.zero();
+                    for (ITable part : TestTables.splitTable(table, 300))
+                        merged = nk.add(merged, nk.create(part));
+                    Assert.assertNotNull(merged);
+                    Assert.assertEquals(generic.toLongString(maxSize),
+                            merged.toLongString(maxSize));
+                    Assert.assertEquals(generic.startPosition, merged.startPosition);
+                }
+            }
+        }
+    }
 }
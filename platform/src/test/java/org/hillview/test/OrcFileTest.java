@@ -19,11 +19,15 @@ package org.hillview.test;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
 import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
 import org.apache.orc.OrcFile;
 import org.apache.orc.Reader;
 import org.apache.orc.RecordReader;
 import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
 import org.hillview.storage.CsvFileLoader;
 import org.hillview.storage.OrcFileLoader;
 import org.hillview.storage.OrcFileWriter;
@@ -34,6 +38,7 @@ import org.hillview.table.api.ContentsKind;
 import org.hillview.table.api.IColumn;
 import org.hillview.table.api.ITable;
 import org.hillview.table.columns.StringArrayColumn;
+import org.hillview.table.filters.RangeFilterDescription;
 import org.hillview.utils.TestTables;
 import org.junit.Assert;
 import org.junit.Test;
@@ -184,4 +189,84 @@ public class OrcFileTest extends BaseTest {
         Table ref = TestTables.testRepTable();
         Assert.assertEquals(ref.toLongString(20), table.toLongString(20));
     }
+
+    /**
+     * Write a file with many small stripes; row i has Int i, Double i/2 and
+     * a String that is missing for every 7th row.
+     */
+    private static void writeStripedFile(String orcFile, int rows) throws IOException {
+        Configuration conf = new Configuration();
+        TypeDescription schema = TypeDescription.fromString(
+                "struct<Int:int,Double:double,Str:string>");
+        Writer writer = OrcFile.createWriter(new Path(orcFile),
+                OrcFile.writerOptions(conf).setSchema(schema)
+                        .stripeSize(64 * 1024).bufferSize(4 * 1024));
+        VectorizedRowBatch batch = schema.createRowBatch();
+        LongColumnVector ints = (LongColumnVector)batch.cols[0];
+        DoubleColumnVector doubles = (DoubleColumnVector)batch.cols[1];
+        BytesColumnVector strings = (BytesColumnVector)batch.cols[2];
+        for (int i = 0; i < rows; i++) {
+            int row = batch.size++;
+            ints.vector[row] = i;
+            doubles.vector[row] = i / 2.0;
+            if (i % 7 == 0) {
+                strings.noNulls = false;
+                strings.isNull[row] = true;
+            } else {
+                strings.setVal(row, ("s" + i).getBytes());
+            }
+            if (batch.size == batch.getMaxSize()) {
+                writer.addRowBatch(batch);
+                batch.reset();
+            }
+        }
+        if (batch.size != 0)
+            writer.addRowBatch(batch);
+        writer.close();
+    }
+
+    private static void checkStripedTable(ITable table, int first, int count) {
+        Assert.assertEquals(count, table.getNumOfRows());
+        IColumn ints = table.getLoadedColumn("Int").column;
+        IColumn doubles = table.getLoadedColumn("Double").column;
+        IColumn strings = table.getLoadedColumn("Str").column;
+        for (int r = 0; r < count; r++) {
+            int i = first + r;
+            Assert.assertEquals(i, ints.getInt(r));
+            Assert.assertEquals(i / 2.0, doubles.getDouble(r), 0);
+            if (i % 7 == 0)
+                Assert.assertTrue(strings.isMissing(r));
+            else
+                Assert.assertEquals("s" + i, strings.getString(r));
+        }
+    }
+
+    @Test
+    public void readStripesTest() throws IOException {
+        String orcFile = orcFolder + "tmpStripes.orc";
+        deleteOrcFile(orcFolder, "tmpStripes.orc");
+        final int rows = 200000;
+        writeStripedFile(orcFile, rows);
+        Reader reader = OrcFile.createReader(new Path(orcFile),
+                OrcFile.readerOptions(new Configuration()));
+        Assert.assertTrue(reader.getStripes().size() > 1);
+
+        ITable table = new OrcFileLoader(orcFile, null, false).load();
+        checkStripedTable(table, 0, rows);
+        table = new OrcFileLoader(orcFile, null, true).load();
+        checkStripedTable(table, 0, rows);
+
+        // Only the first stripe has rows with small values
+        RangeFilterDescription filter = new RangeFilterDescription("Int", 0, 100, false);
+        table = new OrcFileLoader(orcFile, null, true, filter).load();
+        int firstStripe = (int)reader.getStripes().get(0).getNumberOfRows();
+        checkStripedTable(table, 0, firstStripe);
+        filter = new RangeFilterDescription("Double", -10, -1, false);
+        table = new OrcFileLoader(orcFile, null, false, filter).load();
+        Assert.assertEquals(0, table.getNumOfRows());
+        filter = new RangeFilterDescription("Int", 0, 100, true);
+        table = new OrcFileLoader(orcFile, null, false, filter).load();
+        Assert.assertEquals(rows, table.getNumOfRows());
+        deleteOrcFile(orcFolder, "tmpStripes.orc");
+    }
 }
@@ -236,6 +236,41 @@ public class RemotingTest extends BaseTest {
         assertEquals(50005000, memoizedResult);
     }
 
+    @Test
+    public void testMemoizationByLineage() {
+        final HillviewServer server = Converters.checkNull(RemotingTest.server);
+        final IDataSet<int[]> remoteIds = new RemoteDataSet<int[]>(serverAddress);
+        // Without memoization each map creates a distinct dataset on the server,
+        // but the two datasets have the same lineage.
+        server.toggleMemoization();
+        final IDataSet<int[]> first = remoteIds.map(new IncrementMap())
+                .filter(p -> p.deltaValue != null)
+                .toBlocking()
+                .last().deltaValue;
+        final IDataSet<int[]> second = remoteIds.map(new IncrementMap())
+                .filter(p -> p.deltaValue != null)
+                .toBlocking()
+                .last().deltaValue;
+        server.toggleMemoization();
+        assertNotNull(first);
+        assertNotNull(second);
+
+        final int result = first.sketch(new SumSketch())
+                .map(e -> e.deltaValue)
+                .reduce((x, y) -> x + y)
+                .toBlocking()
+                .last();
+        assertEquals(50005000, result);
+        long hits = server.getMemoizedResults().getHits();
+        final int memoizedResult = second.sketch(new SumSketch())
+                .map(e -> e.deltaValue)
+                .reduce((x, y) -> x + y)
+                .toBlocking()
+                .last();
+        assertEquals(50005000, memoizedResult);
+        assertEquals(hits + 1, server.getMemoizedResults().getHits());
+    }
+
     @Test
     public void testMapSketchThroughClientWithError() {
         final IDataSet<int[]> remoteIds = new RemoteDataSet<int[]>(serverAddress);
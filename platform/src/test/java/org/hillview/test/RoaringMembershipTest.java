@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.test;
+
+import org.hillview.table.api.IMembershipSet;
+import org.hillview.table.api.IRowIterator;
+import org.hillview.table.api.ISampledRowIterator;
+import org.hillview.table.membership.DenseMembershipSet;
+import org.hillview.table.membership.FullMembershipSet;
+import org.hillview.table.membership.RoaringMembershipSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+/**
+ * Tests for the compressed bitmap membership set; results are compared
+ * against DenseMembershipSet.
+ */
+public class RoaringMembershipTest extends BaseTest {
+    private static final int max = 300000;
+
+    /**
+     * Creates a set where the density varies between chunks, so that both
+     * array and bitmap containers are used.
+     */
+    private static RoaringMembershipSet create(long seed, DenseMembershipSet dense) {
+        Random random = new Random(seed);
+        RoaringMembershipSet result = new RoaringMembershipSet(max);
+        for (int i = 0; i < max; i++) {
+            int chunk = i >>> 16;
+            double density = chunk % 2 == 0 ? 0.5 : 0.01;
+            if (random.nextDouble() < density) {
+                result.add(i);
+                dense.add(i);
+            }
+        }
+        result.seal();
+        return result;
+    }
+
+    private static void assertSameRows(IMembershipSet expected, IMembershipSet actual) {
+        Assert.assertEquals(expected.getSize(), actual.getSize());
+        IRowIterator e = expected.getIterator();
+        IRowIterator a = actual.getIterator();
+        int row;
+        do {
+            row = e.getNextRow();
+            Assert.assertEquals(row, a.getNextRow());
+        } while (row >= 0);
+    }
+
+    @Test
+    public void testAddAndIterate() {
+        DenseMembershipSet dense = new DenseMembershipSet(max, max);
+        RoaringMembershipSet set = create(1, dense);
+        assertSameRows(dense, set);
+        for (int i = 0; i < max; i += 7)
+            Assert.assertEquals(dense.isMember(i), set.isMember(i));
+        Assert.assertFalse(set.isMember(max + 10));
+
+        // Unordered insertion and duplicates
+        RoaringMembershipSet unordered = new RoaringMembershipSet(max);
+        int[] rows = set.getRows();
+        for (int i = rows.length - 1; i >= 0; i--) {
+            unordered.add(rows[i]);
+            unordered.add(rows[i]);
+        }
+        assertSameRows(set, unordered.seal());
+    }
+
+    @Test
+    public void testRangeIterator() {
+        DenseMembershipSet dense = new DenseMembershipSet(max, max);
+        RoaringMembershipSet set = create(2, dense);
+        int[][] ranges = { {0, 10}, {100, 70000}, {65535, 65537}, {131000, max}, {max, max + 5} };
+        for (int[] range : ranges) {
+            IRowIterator e = dense.getIterator(range[0], range[1]);
+            IRowIterator a = set.getIterator(range[0], range[1]);
+            int row;
+            do {
+                row = e.getNextRow();
+                Assert.assertEquals(row, a.getNextRow());
+            } while (row >= 0);
+        }
+    }
+
+    @Test
+    public void testSetOperations() {
+        DenseMembershipSet dense1 = new DenseMembershipSet(max, max);
+        DenseMembershipSet dense2 = new DenseMembershipSet(max, max);
+        RoaringMembershipSet set1 = create(3, dense1);
+        RoaringMembershipSet set2 = create(4, dense2);
+        assertSameRows(dense1.union(dense2), set1.union(set2));
+        assertSameRows(dense1.intersection(dense2), set1.intersection(set2));
+        assertSameRows(dense1.setMinus(dense2), set1.setMinus(set2));
+        assertSameRows(dense2.setMinus(dense1), set2.setMinus(set1));
+        Assert.assertEquals(0, set1.setMinus(set1).getSize());
+
+        // Mixed representations
+        FullMembershipSet full = new FullMembershipSet(max);
+        assertSameRows(set1, set1.intersection(full));
+        Assert.assertEquals(0, set1.setMinus(full).getSize());
+        assertSameRows(full, set1.union(full));
+    }
+
+    @Test
+    public void testRankSelect() {
+        DenseMembershipSet dense = new DenseMembershipSet(max, max);
+        RoaringMembershipSet set = create(5, dense);
+        int[] rows = set.getRows();
+        for (int i = 0; i < rows.length; i += 13) {
+            Assert.assertEquals(rows[i], set.select(i));
+            Assert.assertEquals(i, set.rank(rows[i]));
+            Assert.assertEquals(i + 1, set.rank(rows[i] + 1));
+        }
+        Assert.assertEquals(rows.length, set.rank(max));
+    }
+
+    @Test
+    public void testSample() {
+        DenseMembershipSet dense = new DenseMembershipSet(max, max);
+        RoaringMembershipSet set = create(6, dense);
+        IMembershipSet sample = set.sample(1000, 7);
+        Assert.assertEquals(1000, sample.getSize());
+        IRowIterator it = sample.getIterator();
+        for (int row = it.getNextRow(); row >= 0; row = it.getNextRow())
+            Assert.assertTrue(set.isMember(row));
+        Assert.assertSame(set, set.sample(set.getSize(), 7));
+
+        double rate = 0.01;
+        ISampledRowIterator sampled = set.getIteratorOverSample(rate, 8, true);
+        Assert.assertEquals(rate, sampled.rate(), 0);
+        int count = 0;
+        int previous = -1;
+        for (int row = sampled.getNextRow(); row >= 0; row = sampled.getNextRow()) {
+            Assert.assertTrue(row > previous);
+            Assert.assertTrue(set.isMember(row));
+            previous = row;
+            count++;
+        }
+        double expected = set.getSize() * rate;
+        Assert.assertTrue(count > expected * 0.8);
+        Assert.assertTrue(count < expected * 1.2);
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        DenseMembershipSet dense = new DenseMembershipSet(max, max);
+        RoaringMembershipSet set = create(9, dense);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(set);
+        }
+        // A bitmap of the same rows would take max / 8 bytes.
+        Assert.assertTrue(bytes.size() < max / 8);
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSameRows(dense, (IMembershipSet)in.readObject());
+        }
+    }
+}
@@ -23,18 +23,24 @@ import org.hillview.dataset.LocalDataSet;
 import org.hillview.dataset.ParallelDataSet;
 import org.hillview.dataset.RemoteDataSet;
 import org.hillview.dataset.api.IDataSet;
+import org.hillview.dataset.api.PartialResult;
 import org.hillview.dataset.remoting.HillviewServer;
 import org.hillview.sketches.*;
 import org.hillview.table.RecordOrder;
 import org.hillview.table.SmallTable;
+import org.hillview.table.api.ColumnAndConverterDescription;
 import org.hillview.table.api.ITable;
 import org.hillview.table.api.IndexComparator;
 import org.hillview.utils.TestTables;
 import org.junit.Test;
+import rx.Observable;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertTrue;
 
 @NotThreadSafe
@@ -102,4 +108,74 @@ public class TableDataSetTest extends BaseTest {
             server1.shutdown();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void chunkedSketchTest() {
+        final int size = 10000;
+        final SmallTable table = TestTables.getIntTable(size, 1);
+        final String col = table.getSchema().getColumnNames().get(0);
+        final HistogramSketch sketch = new HistogramSketch(
+                new BucketsDescriptionEqSize(0, 100, 10),
+                new ColumnAndConverterDescription(col), 1.0, 0);
+        final LocalDataSet<ITable> whole = new LocalDataSet<ITable>(table);
+        final LocalDataSet<ITable> chunked = new LocalDataSet<ITable>(table);
+        chunked.setRowsPerChunk(1000);
+
+        List<PartialResult<Histogram>> results =
+                chunked.sketch(sketch).toList().toBlocking().single();
+        assertEquals(10, results.size());
+        double done = 0;
+        for (PartialResult<Histogram> pr : results)
+            done += pr.deltaDone;
+        assertEquals(1.0, done, 1e-6);
+
+        Histogram expected = whole.blockingSketch(sketch);
+        Histogram actual = chunked.blockingSketch(sketch);
+        for (int i = 0; i < expected.getNumOfBuckets(); i++)
+            assertEquals(expected.getCount(i), actual.getCount(i));
+        assertEquals(expected.getMissingData(), actual.getMissingData());
+    }
+
+    @Test
+    public void chunkedSketchCancelTest() {
+        final int size = 10000;
+        final SmallTable table = TestTables.getIntTable(size, 1);
+        final String col = table.getSchema().getColumnNames().get(0);
+        final AtomicInteger created = new AtomicInteger(0);
+        final HistogramSketch sketch = new HistogramSketch(
+                new BucketsDescriptionEqSize(0, 100, 10),
+                new ColumnAndConverterDescription(col), 1.0, 0) {
+            @Override
+            public Histogram create(final ITable data) {
+                created.incrementAndGet();
+                return super.create(data);
+            }
+        };
+        final LocalDataSet<ITable> chunked = new LocalDataSet<ITable>(table, false);
+        chunked.setRowsPerChunk(100);
+        Observable<PartialResult<Histogram>> first = chunked.sketch(sketch).take(2);
+        assertEquals(2, first.toList().toBlocking().single().size());
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    public void skewedPartitionsTest() {
+        final SmallTable big = TestTables.getIntTable(20000, 1);
+        final String col = big.getSchema().getColumnNames().get(0);
+        final HistogramSketch sketch = new HistogramSketch(
+                new BucketsDescriptionEqSize(0, 100, 10),
+                new ColumnAndConverterDescription(col), 1.0, 0);
+        final ArrayList<IDataSet<ITable>> elements = new ArrayList<IDataSet<ITable>>();
+        final LocalDataSet<ITable> bigDs = new LocalDataSet<ITable>(big);
+        bigDs.setRowsPerChunk(500);
+        elements.add(bigDs);
+        for (int i = 0; i < 3; i++)
+            elements.add(new LocalDataSet<ITable>(TestTables.getIntTable(100, 1)));
+        final ParallelDataSet<ITable> par = new ParallelDataSet<ITable>(elements);
+        Histogram hist = par.blockingSketch(sketch);
+        long total = hist.getMissingData() + hist.getOutOfRange();
+        for (int i = 0; i < hist.getNumOfBuckets(); i++)
+            total += hist.getCount(i);
+        assertEquals(20300, total);
+    }
+}
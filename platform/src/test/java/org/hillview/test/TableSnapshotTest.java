@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.test;
+
+import org.hillview.storage.TableSnapshot;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.Table;
+import org.hillview.table.api.*;
+import org.hillview.table.columns.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Tests for the memory-mapped columnar snapshots.
+ */
+public class TableSnapshotTest extends BaseTest {
+    private static Table createTable() {
+        final int rows = 200;
+        IntListColumn ints = new IntListColumn(new ColumnDescription("Int", ContentsKind.Integer));
+        DoubleListColumn doubles = new DoubleListColumn(
+                new ColumnDescription("Double", ContentsKind.Double));
+        BaseListColumn dates = BaseListColumn.create(new ColumnDescription("Date", ContentsKind.Date));
+        BaseListColumn durations = BaseListColumn.create(
+                new ColumnDescription("Duration", ContentsKind.Duration));
+        CategoryListColumn categories = new CategoryListColumn(
+                new ColumnDescription("Category", ContentsKind.Category));
+        StringListColumn strings = new StringListColumn(
+                new ColumnDescription("String", ContentsKind.String));
+        for (int i = 0; i < rows; i++) {
+            if (i % 7 == 3) {
+                ints.appendMissing();
+                doubles.appendMissing();
+                dates.appendMissing();
+                durations.appendMissing();
+                categories.appendMissing();
+                strings.appendMissing();
+                continue;
+            }
+            ints.append(i - 100);
+            doubles.append(i / 3.0);
+            dates.append(Instant.ofEpochMilli(1500000000000L + i * 1000));
+            durations.append(Duration.ofMillis(i * 10));
+            categories.append("cat" + (i % 5));
+            strings.append(i % 11 == 0 ? "" : "été " + i);
+        }
+        List<IColumn> columns = new ArrayList<IColumn>();
+        columns.add(ints.seal());
+        columns.add(doubles.seal());
+        columns.add(dates.seal());
+        columns.add(durations.seal());
+        columns.add(categories.seal());
+        columns.add(strings.seal());
+        return new Table(columns, null, null);
+    }
+
+    private static void delete(Path folder) throws IOException {
+        if (!Files.exists(folder))
+            return;
+        try (Stream<Path> files = Files.walk(folder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testColumnFiles() throws IOException {
+        Table table = createTable();
+        Path file = Files.createTempFile("column", ".hvc");
+        try {
+            for (IColumn column : table.getColumns()) {
+                ColumnFile.write(column, file);
+                IColumn mapped = ColumnFile.map(column.getDescription(), file);
+                Assert.assertEquals(column.getDescription(), mapped.getDescription());
+                Assert.assertEquals(column.sizeInRows(), mapped.sizeInRows());
+                for (int i = 0; i < column.sizeInRows(); i++) {
+                    Assert.assertEquals(column.isMissing(i), mapped.isMissing(i));
+                    Assert.assertEquals(column.getObject(i), mapped.getObject(i));
+                }
+            }
+            IColumn category = ColumnFile.map(
+                    new ColumnDescription("Category", ContentsKind.Category), file);
+            Assert.fail("Mapped a column with the wrong kind " + category);
+        } catch (RuntimeException ex) {
+            Assert.assertTrue(ex.getMessage().contains("does not contain"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        Path folder = Files.createTempDirectory("snapshots");
+        Path source = Files.createTempFile("source", ".csv");
+        Table table = createTable();
+        try {
+            TableSnapshot.setFolder(folder.toString());
+            ITable first = TableSnapshot.load(source.toString(), "key", () -> table);
+            Assert.assertSame(table, first);
+
+            ITable second = TableSnapshot.load(source.toString(), "key", () -> {
+                throw new RuntimeException("Snapshot not used");
+            });
+            Assert.assertEquals(table.getSchema(), second.getSchema());
+            Assert.assertEquals(table.toLongString(table.getNumOfRows()),
+                    second.toLongString(second.getNumOfRows()));
+            Assert.assertTrue(second.getLoadedColumn("Int").column instanceof MappedIntColumn);
+            Assert.assertTrue(
+                    second.getLoadedColumn("Category").column instanceof MappedCategoryColumn);
+
+            // Loading with different options does not use the snapshot
+            ITable other = TableSnapshot.load(source.toString(), "other key", () -> table);
+            Assert.assertSame(table, other);
+
+            // A modified file does not use the snapshot
+            Files.write(source, "modified".getBytes());
+            ITable third = TableSnapshot.load(source.toString(), "key", () -> table);
+            Assert.assertSame(table, third);
+        } finally {
+            TableSnapshot.setFolder(null);
+            Files.delete(source);
+            delete(folder);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2018 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.test;
+
+import net.openhft.hashing.LongHashFunction;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IStringFilter;
+import org.hillview.table.api.IndexComparator;
+import org.hillview.table.api.Utf8Slice;
+import org.hillview.table.columns.StringListColumn;
+import org.hillview.table.columns.Utf8Arena;
+import org.hillview.table.columns.Utf8ListColumn;
+import org.hillview.table.filters.StringFilterDescription;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for string columns stored as UTF-8 bytes; results are compared
+ * against StringListColumn.
+ */
+public class Utf8ColumnTest extends BaseTest {
+    private static final String[] values = {
+            "bob", "Bob", "mike", "", "bobby", "Ärger", "ärger", "naïve",
+            "日本", "Ａ", "😀", "😀x", "zebra", "BOB" };
+
+    private static Utf8ListColumn createUtf8(String[] data) {
+        Utf8ListColumn col = new Utf8ListColumn(
+                new ColumnDescription("S", ContentsKind.String));
+        for (String s : data)
+            col.append(s);
+        col.seal();
+        return col;
+    }
+
+    private static StringListColumn createString(String[] data) {
+        StringListColumn col = new StringListColumn(
+                new ColumnDescription("S", ContentsKind.String));
+        for (String s : data)
+            col.append(s);
+        return col;
+    }
+
+    private static String[] withMissing() {
+        String[] data = new String[values.length + 1];
+        System.arraycopy(values, 0, data, 0, values.length);
+        data[values.length] = null;
+        return data;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        String[] data = withMissing();
+        Utf8ListColumn col = createUtf8(data);
+        Assert.assertTrue(col.isDictionaryEncoded());
+        Utf8Slice slice = new Utf8Slice();
+        for (int i = 0; i < data.length; i++) {
+            Assert.assertEquals(data[i], col.getString(i));
+            Assert.assertEquals(data[i] == null, col.isMissing(i));
+            Assert.assertEquals(data[i] != null, col.getSlice(i, slice));
+            if (data[i] != null)
+                Assert.assertEquals(data[i], slice.toString());
+        }
+    }
+
+    @Test
+    public void testComparatorAndHash() {
+        String[] data = withMissing();
+        Utf8ListColumn utf8 = createUtf8(data);
+        StringListColumn strings = createString(data);
+        IndexComparator left = utf8.getComparator();
+        IndexComparator right = strings.getComparator();
+        for (int i = 0; i < data.length; i++)
+            for (int j = 0; j < data.length; j++)
+                Assert.assertEquals(Integer.signum(right.compare(i, j)),
+                        Integer.signum(left.compare(i, j)));
+        LongHashFunction hash = LongHashFunction.xx(0);
+        for (int i = 0; i < values.length; i++)
+            Assert.assertEquals(strings.hashCode64(i, hash), utf8.hashCode64(i, hash));
+    }
+
+    @Test
+    public void testDictionaryLimit() {
+        String[] data = new String[10000];
+        for (int i = 0; i < data.length; i++)
+            data[i] = "v" + i;
+        Utf8ListColumn col = createUtf8(data);
+        Assert.assertFalse(col.isDictionaryEncoded());
+        for (int i = 0; i < data.length; i++)
+            Assert.assertEquals(data[i], col.getString(i));
+
+        for (int i = 0; i < data.length; i++)
+            data[i] = "v" + (i % 10);
+        col = createUtf8(data);
+        Assert.assertTrue(col.isDictionaryEncoded());
+        Assert.assertEquals(col.getLocation(3), col.getLocation(13));
+        Assert.assertNotEquals(col.getLocation(3), col.getLocation(4));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        String[] data = withMissing();
+        Utf8ListColumn col = createUtf8(data);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(col);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            Utf8ListColumn copy = (Utf8ListColumn)in.readObject();
+            for (int i = 0; i < data.length; i++)
+                Assert.assertEquals(data[i], copy.getString(i));
+        }
+    }
+
+    @Test
+    public void testFilters() {
+        String[] patterns = { "bob", "b", "ärger", "😀", "^b.*", "ob" };
+        for (String pattern : patterns) {
+            for (int flags = 0; flags < 8; flags++) {
+                boolean caseSensitive = (flags & 1) != 0;
+                boolean regex = (flags & 2) != 0;
+                boolean substring = (flags & 4) != 0;
+                if (regex && substring)
+                    continue;
+                IStringFilter filter = new StringFilterDescription(
+                        pattern, caseSensitive, regex, substring).getFilter();
+                for (String value : values) {
+                    Utf8Slice slice = new Utf8Slice(value);
+                    Assert.assertEquals(pattern + "/" + flags + "/" + value,
+                            filter.test(value), filter.test(slice));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testArenaGrowth() {
+        Utf8Arena arena = new Utf8Arena();
+        arena.add("short".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(1 << 12, arena.allocatedBytes());
+
+        byte[] bytes = new byte[1000];
+        Arrays.fill(bytes, (byte)'a');
+        List<Long> locations = new ArrayList<Long>();
+        for (int i = 0; i < 5000; i++)
+            locations.add(arena.add(bytes));
+        long used = arena.usedBytes();
+        Assert.assertTrue(arena.allocatedBytes() >= used);
+        Assert.assertTrue(arena.allocatedBytes() < used + (1 << 20));
+
+        // Strings larger than a buffer
+        byte[] large = new byte[3 << 20];
+        long location = arena.add(large);
+        Utf8Slice slice = new Utf8Slice();
+        arena.get(location, slice);
+        Assert.assertEquals(large.length, slice.toString().length());
+        arena.get(locations.get(4999), slice);
+        Assert.assertEquals(new String(bytes, StandardCharsets.UTF_8), slice.toString());
+    }
+}
@@ -22,6 +22,7 @@ import com.google.gson.JsonObject;
 import io.grpc.StatusRuntimeException;
 import org.hillview.dataset.api.*;
 import org.hillview.dataset.*;
+import org.hillview.targets.InitialObjectTarget;
 import org.hillview.utils.*;
 import rx.Observable;
 import rx.Observer;
@@ -89,6 +90,12 @@ public abstract class RpcTarget implements IJson {
     }
 
     private final Id objectId;
+    /**
+     * Maximum number of partial results sent each second for a request.  Each request
+     * uses a separate web socket session.  Partial results are prefix sums, so the
+     * ones that arrive too fast can be replaced by the ones that follow.
+     */
+    static final int MAX_UPDATES_PER_SECOND = 5;
     /**
      * Computation that has generated this object.  Can only
      * be null for the initial object.
@@ -252,7 +259,7 @@ public abstract class RpcTarget implements IJson {
 
             boolean datasetMissing = false;
             for (Throwable t: exceptions) {
-                if (!(throwable instanceof StatusRuntimeException))
+                if (!(t instanceof StatusRuntimeException))
                     continue;
                 StatusRuntimeException sre = (StatusRuntimeException)t;
                 String description = sre.getStatus().getDescription();
@@ -266,6 +273,14 @@ public abstract class RpcTarget implements IJson {
                 RpcTarget.Id[] toDelete = this.request.getDatasetSourceIds();
                 for (RpcTarget.Id s: toDelete) {
                     HillviewLogger.instance.info("Trying to rebuild missing remote object", "{0}", s);
+                    if (s.isInitial()) {
+                        // The initial object is never deleted, but the interior nodes
+                        // of the aggregation tree may have lost their configuration.
+                        RpcTarget initial = RpcObjectManager.instance.getObject(s);
+                        if (initial instanceof InitialObjectTarget)
+                            ((InitialObjectTarget)initial).resetDataset();
+                        continue;
+                    }
                     RpcObjectManager.instance.deleteObject(s);
                 }
                 // Try to re-execute this request; this will trigger rebuilding the sources.
@@ -420,6 +435,7 @@ public abstract class RpcTarget implements IJson {
         SketchResultObserver<R> robs = new SketchResultObserver<R>(
                 sketch.asString(), this, request, context);
         Subscription sub = add
+                .lift(new RateLimiter<>(MAX_UPDATES_PER_SECOND))
                 .unsubscribeOn(ExecutorUtils.getUnsubscribeScheduler())
                 .subscribe(robs);
         this.saveSubscription(context, sub);
@@ -448,6 +464,7 @@ public abstract class RpcTarget implements IJson {
         CompleteSketchResultObserver<R, S> robs = new CompleteSketchResultObserver<R, S>(
                 sketch.asString(), this, request, context, postprocessing);
         Subscription sub = add
+                .lift(new RateLimiter<>(MAX_UPDATES_PER_SECOND))
                 .unsubscribeOn(ExecutorUtils.getUnsubscribeScheduler())
                 .subscribe(robs);
         this.saveSubscription(context, sub);
@@ -477,6 +494,7 @@ public abstract class RpcTarget implements IJson {
         MapResultObserver<S> robs = new MapResultObserver<S>(
                 map.asString(), this, request, context, factory);
         Subscription sub = add
+                .lift(new RateLimiter<>(MAX_UPDATES_PER_SECOND))
                 .unsubscribeOn(ExecutorUtils.getUnsubscribeScheduler())
                 .subscribe(robs);
         this.saveSubscription(context, sub);
@@ -507,6 +525,7 @@ public abstract class RpcTarget implements IJson {
                 map.asString(), this, request, context, factory);
         HillviewLogger.instance.info("Subscribing to flatMap");
         Subscription sub = add
+                .lift(new RateLimiter<>(MAX_UPDATES_PER_SECOND))
                 .unsubscribeOn(ExecutorUtils.getUnsubscribeScheduler())
                 .subscribe(robs);
         this.saveSubscription(context, sub);
@@ -533,6 +552,7 @@ public abstract class RpcTarget implements IJson {
         MapResultObserver<Pair<T, S>> robs = new MapResultObserver<Pair<T, S>>(
                                 "zip", this, request, context, factory);
         Subscription sub = add
+                .lift(new RateLimiter<>(MAX_UPDATES_PER_SECOND))
                 .unsubscribeOn(ExecutorUtils.getUnsubscribeScheduler())
                 .subscribe(robs);
         this.saveSubscription(context, sub);
@@ -561,6 +581,7 @@ public abstract class RpcTarget implements IJson {
                 new SketchResultObserver<ControlMessage.StatusList>(
                     command.toString(), this, request, context);
         Subscription sub = add
+                .lift(new RateLimiter<>(MAX_UPDATES_PER_SECOND))
                 .unsubscribeOn(ExecutorUtils.getUnsubscribeScheduler())
                 .subscribe(robs);
         this.saveSubscription(context, sub);
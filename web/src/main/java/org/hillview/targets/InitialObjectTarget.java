@@ -19,8 +19,6 @@ package org.hillview.targets;
 
 import com.google.common.net.HostAndPort;
 import org.hillview.*;
-import org.hillview.dataset.ParallelDataSet;
-import org.hillview.dataset.RemoteDataSet;
 import org.hillview.dataset.api.*;
 import org.hillview.dataset.remoting.HillviewServer;
 import org.hillview.management.*;
@@ -38,7 +36,6 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class InitialObjectTarget extends RpcTarget {
     private static final String LOCALHOST = "127.0.0.1";
@@ -46,6 +43,11 @@ public class InitialObjectTarget extends RpcTarget {
 
     @Nullable
     private IDataSet<Empty> emptyDataset = null;
+    /**
+     * Servers organized as an aggregation tree.
+     */
+    private List<ClusterDescription.AggregationNode> aggregationTree =
+            new ArrayList<ClusterDescription.AggregationNode>();
 
     public InitialObjectTarget() {
         // Get the base naming context
@@ -62,10 +64,7 @@ public class InitialObjectTarget extends RpcTarget {
                 HillviewLogger.instance.info(
                         "Initializing cluster descriptor from file", "{0}", clusterFile);
                 final List<String> lines = Files.readAllLines(Paths.get(clusterFile), Charset.defaultCharset());
-                final List<HostAndPort> hostAndPorts = lines.stream()
-                                                            .map(HostAndPort::fromString)
-                                                            .collect(Collectors.toList());
-                desc = new ClusterDescription(hostAndPorts);
+                desc = ClusterDescription.parse(lines);
                 HillviewLogger.instance.info("Backend servers", "{0}", lines);
                 this.initialize(desc);
             } catch (IOException e) {
@@ -82,18 +81,37 @@ public class InitialObjectTarget extends RpcTarget {
         if (numServers <= 0) {
             throw new IllegalArgumentException("ClusterDescription must contain one or more servers");
         }
-        HillviewLogger.instance.info("Creating parallel dataset");
-        final ArrayList<IDataSet<Empty>> emptyDatasets = new ArrayList<IDataSet<Empty>>(numServers);
-        description.getServerList().forEach(server -> emptyDatasets.add(new RemoteDataSet<Empty>(server)));
-        this.emptyDataset = new ParallelDataSet<Empty>(emptyDatasets);
+        this.aggregationTree = description.getAggregationTree();
+    }
+
+    /**
+     * The dataset is created when first needed: the interior nodes of the
+     * aggregation tree must be configured, and the servers may not be running
+     * when this object is initialized.
+     */
+    private synchronized IDataSet<Empty> getEmptyDataset() {
+        if (this.emptyDataset == null) {
+            HillviewLogger.instance.info("Creating parallel dataset");
+            this.emptyDataset = ConfigureAggregation.createRootDataset(this.aggregationTree);
+        }
+        return this.emptyDataset;
+    }
+
+    /**
+     * Called when a worker reports that the dataset used by a request is missing,
+     * e.g., because a server that is an interior node of the aggregation tree has
+     * restarted.  The aggregation tree is configured again when the dataset is next used.
+     */
+    public synchronized void resetDataset() {
+        HillviewLogger.instance.info("Resetting parallel dataset");
+        this.emptyDataset = null;
     }
 
     @HillviewRpc
     public void loadDBTable(RpcRequest request, RpcRequestContext context) {
         JdbcConnectionInformation conn = request.parseArgs(JdbcConnectionInformation.class);
         LoadDatabaseTableMapper mapper = new LoadDatabaseTableMapper(conn);
-        assert this.emptyDataset != null;
-        this.runMap(this.emptyDataset, mapper, TableTarget::new, request, context);
+        this.runMap(this.getEmptyDataset(), mapper, TableTarget::new, request, context);
     }
 
     @HillviewRpc
@@ -101,8 +119,7 @@ public class InitialObjectTarget extends RpcTarget {
         FileSetDescription desc = request.parseArgs(FileSetDescription.class);
         HillviewLogger.instance.info("Finding files", "{0}", desc);
         IMap<Empty, List<IFileReference>> finder = new FindFilesMapper(desc);
-        assert this.emptyDataset != null;
-        this.runFlatMap(this.emptyDataset, finder, FileDescriptionTarget::new, request, context);
+        this.runFlatMap(this.getEmptyDataset(), finder, FileDescriptionTarget::new, request, context);
     }
 
     @HillviewRpc
@@ -116,8 +133,7 @@ public class InitialObjectTarget extends RpcTarget {
         desc.folder = ".";  // relative to the work directory of the worker process
         IMap<Empty, List<IFileReference>> finder = new FindFilesMapper(desc);
         HillviewLogger.instance.info("Finding log files");
-        assert this.emptyDataset != null;
-        this.runFlatMap(this.emptyDataset, finder, FileDescriptionTarget::new, request, context);
+        this.runFlatMap(this.getEmptyDataset(), finder, FileDescriptionTarget::new, request, context);
     }
 
     @Override
@@ -131,31 +147,31 @@ public class InitialObjectTarget extends RpcTarget {
     @HillviewRpc
     public void ping(RpcRequest request, RpcRequestContext context) {
         PingSketch<Empty> ping = new PingSketch<Empty>();
-        this.runSketch(Converters.checkNull(this.emptyDataset), ping, request, context);
+        this.runSketch(this.getEmptyDataset(), ping, request, context);
     }
 
     @HillviewRpc
     public void toggleMemoization(RpcRequest request, RpcRequestContext context) {
         ToggleMemoization tm = new ToggleMemoization();
-        this.runManage(Converters.checkNull(this.emptyDataset), tm, request, context);
+        this.runManage(this.getEmptyDataset(), tm, request, context);
     }
 
     @HillviewRpc
     public void purgeMemoization(RpcRequest request, RpcRequestContext context) {
         PurgeMemoization tm = new PurgeMemoization();
-        this.runManage(Converters.checkNull(this.emptyDataset), tm, request, context);
+        this.runManage(this.getEmptyDataset(), tm, request, context);
     }
 
     @HillviewRpc
     public void purgeLeafDatasets(RpcRequest request, RpcRequestContext context) {
         PurgeLeafDatasets tm = new PurgeLeafDatasets();
-        this.runManage(Converters.checkNull(this.emptyDataset), tm, request, context);
+        this.runManage(this.getEmptyDataset(), tm, request, context);
     }
 
     @HillviewRpc
     public void memoryUse(RpcRequest request, RpcRequestContext context) {
         MemoryUse tm = new MemoryUse();
-        this.runManage(Converters.checkNull(this.emptyDataset), tm, request, context);
+        this.runManage(this.getEmptyDataset(), tm, request, context);
     }
 
     @HillviewRpc
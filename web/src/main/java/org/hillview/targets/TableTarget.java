@@ -26,8 +26,10 @@ import org.hillview.dataset.api.IJson;
 import org.hillview.jsonObjects.Histogram2DArgs;
 import org.hillview.jsonObjects.Histogram3DArgs;
 import org.hillview.jsonObjects.HistogramArgs;
+import org.hillview.management.AppendNewFiles;
 import org.hillview.maps.*;
 import org.hillview.sketches.*;
+import org.hillview.storage.FileSetDescription;
 import org.hillview.table.*;
 import org.hillview.table.api.*;
 import org.hillview.table.filters.*;
@@ -644,4 +646,15 @@ public final class TableTarget extends RpcTarget {
                 info.jsFunction, info.schema, Utilities.arrayToMap(info.renameMap), desc);
         this.runMap(this.table, map, TableTarget::new, request, context);
     }
+
+    /**
+     * Loads the files matching the description that are not yet part of this table
+     * and appends them to it.
+     */
+    @HillviewRpc
+    public void appendNewFiles(RpcRequest request, RpcRequestContext context) {
+        FileSetDescription desc = request.parseArgs(FileSetDescription.class);
+        AppendNewFiles append = new AppendNewFiles(desc);
+        this.runManage(this.table, append, request, context);
+    }
 }
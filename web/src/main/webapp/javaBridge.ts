@@ -97,6 +97,7 @@ export interface FileSetDescription {
     headerRow?: boolean;
     cookie?: string;
     repeat: number;
+    groupSizeInBytes?: number;
     name: string;  // not used on the Java side
 }
 